@@ -0,0 +1,454 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.http;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.resolver.internal.FileDigests;
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.repository.Authentication;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.repository.RepositoryPolicy;
+import org.sonatype.aether.spi.connector.ArtifactDownload;
+import org.sonatype.aether.spi.connector.ArtifactUpload;
+import org.sonatype.aether.spi.connector.MetadataDownload;
+import org.sonatype.aether.spi.connector.MetadataUpload;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.spi.connector.RepositoryConnectorFactory;
+import org.sonatype.aether.spi.connector.Transfer;
+import org.sonatype.aether.transfer.ArtifactNotFoundException;
+import org.sonatype.aether.transfer.ArtifactTransferException;
+import org.sonatype.aether.transfer.ChecksumFailureException;
+import org.sonatype.aether.transfer.MetadataNotFoundException;
+import org.sonatype.aether.transfer.MetadataTransferException;
+import org.sonatype.aether.transfer.NoRepositoryConnectorException;
+import org.sonatype.aether.transfer.TransferCancelledException;
+import org.sonatype.aether.transfer.TransferEvent.EventType;
+import org.sonatype.aether.transfer.TransferEvent.RequestType;
+import org.sonatype.aether.transfer.TransferListener;
+import org.sonatype.aether.util.ConfigUtils;
+import org.sonatype.aether.util.layout.MavenDefaultLayout;
+import org.sonatype.aether.util.layout.RepositoryLayout;
+import org.sonatype.aether.util.listener.DefaultTransferEvent;
+import org.sonatype.aether.util.listener.DefaultTransferResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Downloads artifacts and metadata over HTTP with the JDK {@link HttpClient}.
+ * All transfers of a batch are sent at once, and complete asynchronously; the
+ * client reuses pooled connections, and multiplexes the transfers over a single
+ * connection when the server speaks HTTP/2. Each file is verified against the
+ * checksum file published next to it, according to the checksum policy, and
+ * the checksum is stored next to the downloaded file. Interrupting the calling
+ * thread fails the transfers in flight. Uploads go to a connector of the delegate
+ * factory, which is created on the first upload.
+ */
+public class HttpClientConnector
+        implements RepositoryConnector
+{
+    // digest algorithm to checksum file extension, in order of preference
+    private static final Map<String, String> CHECKSUM_ALGORITHMS = ImmutableMap.of("SHA-1", ".sha1", "MD5", ".md5");
+
+    private final RepositorySystemSession session;
+    private final RemoteRepository repository;
+    private final HttpClient client;
+    private final Supplier<? extends RepositoryConnectorFactory> delegate;
+    private final RepositoryLayout layout = new MavenDefaultLayout();
+    private final URI baseUri;
+    private final Duration requestTimeout;
+    private final Map<String, String> headers;
+    private final Set<CompletableFuture<?>> requests = ConcurrentHashMap.newKeySet();
+    private RepositoryConnector uploadConnector;
+
+    public HttpClientConnector(RepositorySystemSession session, RemoteRepository repository, HttpClient client, Supplier<? extends RepositoryConnectorFactory> delegate)
+    {
+        this.session = requireNonNull(session, "session is null");
+        this.repository = requireNonNull(repository, "repository is null");
+        this.client = requireNonNull(client, "client is null");
+        this.delegate = requireNonNull(delegate, "delegate is null");
+
+        String url = repository.getUrl();
+        this.baseUri = URI.create(url.endsWith("/") ? url : url + "/");
+        this.requestTimeout = Duration.ofMillis(ConfigUtils.getInteger(session, ConfigurationProperties.DEFAULT_REQUEST_TIMEOUT, ConfigurationProperties.REQUEST_TIMEOUT));
+        this.headers = headers(session, repository);
+    }
+
+    private static Map<String, String> headers(RepositorySystemSession session, RemoteRepository repository)
+    {
+        ImmutableMap.Builder<String, String> headers = ImmutableMap.builder();
+        headers.put("User-Agent", ConfigUtils.getString(session, ConfigurationProperties.DEFAULT_USER_AGENT, ConfigurationProperties.USER_AGENT));
+
+        Authentication authentication = repository.getAuthentication();
+        if (authentication != null && authentication.getUsername() != null) {
+            Charset charset = Charset.forName(ConfigUtils.getString(session, ConfigurationProperties.DEFAULT_HTTP_CREDENTIAL_ENCODING, ConfigurationProperties.HTTP_CREDENTIAL_ENCODING));
+            String password = (authentication.getPassword() == null) ? "" : authentication.getPassword();
+            String credentials = authentication.getUsername() + ":" + password;
+            headers.put("Authorization", "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(charset)));
+        }
+
+        Map<?, ?> configured = ConfigUtils.getMap(session, null, ConfigurationProperties.HTTP_HEADERS + "." + repository.getId(), ConfigurationProperties.HTTP_HEADERS);
+        if (configured != null) {
+            configured.forEach((name, value) -> {
+                if (name instanceof String && value instanceof String) {
+                    headers.put((String) name, (String) value);
+                }
+            });
+        }
+        return headers.build();
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads)
+    {
+        List<CompletableFuture<Void>> transfers = new ArrayList<>();
+        if (artifactDownloads != null) {
+            for (ArtifactDownload download : artifactDownloads) {
+                transfers.add(get(download));
+            }
+        }
+        if (metadataDownloads != null) {
+            for (MetadataDownload download : metadataDownloads) {
+                transfers.add(get(download));
+            }
+        }
+        // failures are recorded in the downloads, so the futures always complete normally
+        CompletableFuture<Void> done = CompletableFuture.allOf(transfers.toArray(new CompletableFuture<?>[0]));
+        try {
+            done.get();
+        }
+        catch (InterruptedException e) {
+            // fail the transfers in flight instead of waiting for them, and leave the thread interrupted
+            requests.forEach(request -> request.cancel(true));
+            done.join();
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private CompletableFuture<Void> get(ArtifactDownload download)
+    {
+        URI path = layout.getPath(download.getArtifact());
+        DefaultTransferResource resource = new DefaultTransferResource(repository.getUrl(), path.getPath(), download.getFile(), download.getTrace());
+        download.setState(Transfer.State.ACTIVE);
+        return transfer(resource, baseUri.resolve(path), download.isExistenceCheck(), download.getFile(), download.getChecksumPolicy())
+                .handle((ignored, failure) -> {
+                    if (failure != null) {
+                        Throwable cause = unwrap(failure);
+                        ArtifactTransferException exception = (cause instanceof ResourceNotFoundException)
+                                ? new ArtifactNotFoundException(download.getArtifact(), repository)
+                                : new ArtifactTransferException(download.getArtifact(), repository, cause);
+                        download.setException(exception);
+                        fireFailed(resource, exception);
+                    }
+                    download.setState(Transfer.State.DONE);
+                    return null;
+                });
+    }
+
+    private CompletableFuture<Void> get(MetadataDownload download)
+    {
+        URI path = layout.getPath(download.getMetadata());
+        DefaultTransferResource resource = new DefaultTransferResource(repository.getUrl(), path.getPath(), download.getFile(), download.getTrace());
+        download.setState(Transfer.State.ACTIVE);
+        return transfer(resource, baseUri.resolve(path), false, download.getFile(), download.getChecksumPolicy())
+                .handle((ignored, failure) -> {
+                    if (failure != null) {
+                        Throwable cause = unwrap(failure);
+                        MetadataTransferException exception = (cause instanceof ResourceNotFoundException)
+                                ? new MetadataNotFoundException(download.getMetadata(), repository)
+                                : new MetadataTransferException(download.getMetadata(), repository, cause);
+                        download.setException(exception);
+                        fireFailed(resource, exception);
+                    }
+                    download.setState(Transfer.State.DONE);
+                    return null;
+                });
+    }
+
+    private CompletableFuture<Void> transfer(DefaultTransferResource resource, URI uri, boolean existenceCheck, File target, String checksumPolicy)
+    {
+        Path temporaryFile;
+        try {
+            fireEvent(EventType.INITIATED, resource, 0, null);
+            if (existenceCheck) {
+                return send(newRequest(uri).method("HEAD", HttpRequest.BodyPublishers.noBody()).build(), BodyHandlers.discarding())
+                        .thenAccept(response -> {
+                            checkStatus(response);
+                            response.headers().firstValueAsLong("Content-Length").ifPresent(resource::setContentLength);
+                            fire(EventType.STARTED, resource, 0);
+                            fire(EventType.SUCCEEDED, resource, 0);
+                        });
+            }
+            Path targetPath = target.toPath().toAbsolutePath();
+            Files.createDirectories(targetPath.getParent());
+            temporaryFile = Files.createTempFile(targetPath.getParent(), target.getName(), ".tmp");
+        }
+        catch (IOException | TransferCancelledException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // only a successful response is written to the file
+        HttpResponse.BodyHandler<Path> bodyHandler = info -> (info.statusCode() == 200) ? BodySubscribers.ofFile(temporaryFile) : BodySubscribers.replacing(null);
+        return send(newRequest(uri).GET().build(), bodyHandler)
+                .thenCompose(response -> {
+                    checkStatus(response);
+                    long length = temporaryFile.toFile().length();
+                    resource.setContentLength(length);
+                    fire(EventType.STARTED, resource, 0);
+                    return verifyChecksum(resource, uri, temporaryFile, target, checksumPolicy, CHECKSUM_ALGORITHMS.entrySet().iterator())
+                            .thenApply(ignored -> length);
+                })
+                .thenAccept(length -> {
+                    try {
+                        Files.move(temporaryFile, target.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+                    }
+                    catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                    fire(EventType.SUCCEEDED, resource, length);
+                })
+                .whenComplete((ignored, failure) -> temporaryFile.toFile().delete());
+    }
+
+    private CompletableFuture<Void> verifyChecksum(DefaultTransferResource resource, URI uri, Path file, File target, String checksumPolicy, Iterator<Map.Entry<String, String>> algorithms)
+    {
+        if (RepositoryPolicy.CHECKSUM_POLICY_IGNORE.equals(checksumPolicy)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!algorithms.hasNext()) {
+            return checksumFailure(resource, checksumPolicy, new ChecksumFailureException("Checksum validation failed, no checksums available from the repository"));
+        }
+
+        Map.Entry<String, String> algorithm = algorithms.next();
+        return send(newRequest(URI.create(uri + algorithm.getValue())).GET().build(), BodyHandlers.ofString(US_ASCII))
+                .thenCompose(response -> {
+                    if (response.statusCode() != 200) {
+                        return verifyChecksum(resource, uri, file, target, checksumPolicy, algorithms);
+                    }
+                    String expected = parseChecksum(response.body());
+                    try {
+                        String actual = FileDigests.digest(file.toFile(), algorithm.getKey());
+                        if (!expected.equals(actual)) {
+                            return checksumFailure(resource, checksumPolicy, new ChecksumFailureException(expected, actual));
+                        }
+                        // kept next to the file, so it can be verified again later
+                        Files.write(new File(target.getPath() + algorithm.getValue()).toPath(), expected.getBytes(US_ASCII));
+                    }
+                    catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                    return CompletableFuture.completedFuture(null);
+                });
+    }
+
+    private CompletableFuture<Void> checksumFailure(DefaultTransferResource resource, String checksumPolicy, ChecksumFailureException exception)
+    {
+        if (RepositoryPolicy.CHECKSUM_POLICY_FAIL.equals(checksumPolicy)) {
+            return CompletableFuture.failedFuture(exception);
+        }
+        try {
+            fireEvent(EventType.CORRUPTED, resource, 0, exception);
+        }
+        catch (TransferCancelledException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static String parseChecksum(String content)
+    {
+        // the checksum may be followed by the file name
+        String trimmed = content.trim();
+        int end = 0;
+        while (end < trimmed.length() && !Character.isWhitespace(trimmed.charAt(end))) {
+            end++;
+        }
+        return trimmed.substring(0, end).toLowerCase(Locale.ENGLISH);
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler)
+    {
+        CompletableFuture<HttpResponse<T>> response = client.sendAsync(request, bodyHandler);
+        requests.add(response);
+        response.whenComplete((ignored, failure) -> requests.remove(response));
+        return response;
+    }
+
+    private HttpRequest.Builder newRequest(URI uri)
+    {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout);
+        headers.forEach(request::header);
+        return request;
+    }
+
+    private static void checkStatus(HttpResponse<?> response)
+    {
+        int status = response.statusCode();
+        if (status == 404) {
+            throw new CompletionException(new ResourceNotFoundException());
+        }
+        if (status != 200) {
+            throw new CompletionException(new IOException("Unexpected status " + status + " for " + response.uri()));
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure)
+    {
+        while (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure;
+    }
+
+    private void fire(EventType type, DefaultTransferResource resource, long transferredBytes)
+    {
+        try {
+            fireEvent(type, resource, transferredBytes, null);
+        }
+        catch (TransferCancelledException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void fireFailed(DefaultTransferResource resource, Exception exception)
+    {
+        try {
+            fireEvent(EventType.FAILED, resource, 0, exception);
+        }
+        catch (TransferCancelledException ignored) {
+        }
+    }
+
+    private void fireEvent(EventType type, DefaultTransferResource resource, long transferredBytes, Exception exception)
+            throws TransferCancelledException
+    {
+        TransferListener listener = session.getTransferListener();
+        if (listener == null) {
+            return;
+        }
+        DefaultTransferEvent event = new DefaultTransferEvent()
+                .setType(type)
+                .setRequestType(RequestType.GET)
+                .setResource(resource)
+                .setTransferredBytes(transferredBytes)
+                .setException(exception);
+        switch (type) {
+            case INITIATED:
+                listener.transferInitiated(event);
+                break;
+            case STARTED:
+                listener.transferStarted(event);
+                break;
+            case CORRUPTED:
+                listener.transferCorrupted(event);
+                break;
+            case SUCCEEDED:
+                listener.transferSucceeded(event);
+                break;
+            case FAILED:
+                listener.transferFailed(event);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported event type: " + type);
+        }
+    }
+
+    @Override
+    public void put(Collection<? extends ArtifactUpload> artifactUploads, Collection<? extends MetadataUpload> metadataUploads)
+    {
+        RepositoryConnector connector;
+        try {
+            connector = getUploadConnector();
+        }
+        catch (NoRepositoryConnectorException e) {
+            if (artifactUploads != null) {
+                for (ArtifactUpload upload : artifactUploads) {
+                    upload.setException(new ArtifactTransferException(upload.getArtifact(), repository, e));
+                }
+            }
+            if (metadataUploads != null) {
+                for (MetadataUpload upload : metadataUploads) {
+                    upload.setException(new MetadataTransferException(upload.getMetadata(), repository, e));
+                }
+            }
+            return;
+        }
+        connector.put(artifactUploads, metadataUploads);
+    }
+
+    private synchronized RepositoryConnector getUploadConnector()
+            throws NoRepositoryConnectorException
+    {
+        // the async-http-client connector starts a client of its own, which downloads never need
+        if (uploadConnector == null) {
+            uploadConnector = delegate.get().newInstance(session, repository);
+        }
+        return uploadConnector;
+    }
+
+    @Override
+    public void close()
+    {
+        RepositoryConnector connector;
+        synchronized (this) {
+            connector = uploadConnector;
+        }
+        if (connector != null) {
+            connector.close();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class ResourceNotFoundException
+            extends IOException
+    {
+        public ResourceNotFoundException()
+        {
+            super("Not found");
+        }
+    }
+}
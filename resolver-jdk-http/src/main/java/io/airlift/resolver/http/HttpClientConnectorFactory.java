@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.http;
+
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.spi.connector.RepositoryConnectorFactory;
+import org.sonatype.aether.transfer.NoRepositoryConnectorException;
+import org.sonatype.aether.util.ConfigUtils;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates {@link HttpClientConnector connectors} for {@code http://} and
+ * {@code https://} repositories. The delegate factory handles uploads, other
+ * protocols and repositories behind a proxy; it is only created when one of
+ * them is used.
+ * <p>
+ * Clients are shared by all resolvers in the process, one for each connect
+ * timeout, so connections to a repository are reused across resolutions.
+ */
+public class HttpClientConnectorFactory
+        implements RepositoryConnectorFactory
+{
+    // ahead of the async-http-client connector of Aether
+    private static final int PRIORITY = 101;
+
+    private static final ConcurrentMap<Duration, HttpClient> CLIENTS = new ConcurrentHashMap<>();
+
+    private final Supplier<? extends RepositoryConnectorFactory> delegate;
+
+    public HttpClientConnectorFactory(Supplier<? extends RepositoryConnectorFactory> delegate)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+    }
+
+    @Override
+    public RepositoryConnector newInstance(RepositorySystemSession session, RemoteRepository repository)
+            throws NoRepositoryConnectorException
+    {
+        String protocol = repository.getProtocol();
+        boolean http = "http".equalsIgnoreCase(protocol) || "https".equalsIgnoreCase(protocol);
+        if (!http || repository.getProxy() != null) {
+            return delegate.get().newInstance(session, repository);
+        }
+
+        Duration connectTimeout = Duration.ofMillis(ConfigUtils.getInteger(session, ConfigurationProperties.DEFAULT_CONNECT_TIMEOUT, ConfigurationProperties.CONNECT_TIMEOUT));
+        HttpClient client = CLIENTS.computeIfAbsent(connectTimeout, timeout -> HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(timeout)
+                .build());
+        return new HttpClientConnector(session, repository, client, delegate);
+    }
+
+    @Override
+    public int getPriority()
+    {
+        return PRIORITY;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.http;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.ArtifactResolver;
+import io.airlift.resolver.ArtifactResolverConfig;
+import io.airlift.resolver.HttpTransport;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+
+/**
+ * Downloads a dependency graph from a repository served on the loopback
+ * interface into an empty local repository, with each HTTP transport. The
+ * {@code resolve} benchmark measures the throughput once the JVM is warm; the
+ * {@code startup} benchmark measures the first resolution in a new JVM,
+ * including loading and initializing the client.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 2, timeUnit = TimeUnit.SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class BenchmarkHttpTransport
+{
+    private static final int DEPENDENCIES = 50;
+
+    @Param({"ASYNC_HTTP_CLIENT", "JDK"})
+    private HttpTransport transport = HttpTransport.JDK;
+
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer server;
+    private File localRepository;
+
+    @Setup
+    public void setup()
+            throws Exception
+    {
+        repository = new TestingMavenRepository();
+        List<String> dependencies = new ArrayList<>();
+        for (int i = 0; i < DEPENDENCIES; i++) {
+            String dependency = "com.example:dependency-" + i + ":1.0";
+            repository.addArtifact(dependency);
+            dependencies.add(dependency);
+        }
+        repository.addArtifact("com.example:app:1.0", dependencies.toArray(new String[0]));
+        server = new TestingRepositoryServer(repository.getDirectory());
+    }
+
+    @Setup(Level.Invocation)
+    public void createLocalRepository()
+            throws Exception
+    {
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteLocalRepository()
+            throws Exception
+    {
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @TearDown
+    public void tearDown()
+            throws Exception
+    {
+        server.close();
+        repository.close();
+    }
+
+    @Benchmark
+    public List<Artifact> resolve()
+    {
+        return newResolver().resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Fork(10)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public List<Artifact> startup()
+    {
+        return newResolver().resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+    }
+
+    private ArtifactResolver newResolver()
+    {
+        return new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()), new ArtifactResolverConfig()
+                .setHttpTransport(transport));
+    }
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkHttpTransport.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
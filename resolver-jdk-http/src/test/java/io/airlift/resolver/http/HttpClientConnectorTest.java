@@ -0,0 +1,200 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.http;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.ArtifactResolver;
+import io.airlift.resolver.ArtifactResolverConfig;
+import io.airlift.resolver.HttpTransport;
+import io.airlift.resolver.ResolutionResult;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class HttpClientConnectorTest
+{
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer server;
+    private File localRepository;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:a:1.0", "com.example:b:[1.0,2.0)")
+                .addArtifact("com.example:a:1.0")
+                .addArtifact("com.example:b:1.0")
+                .addArtifact("com.example:b:1.1");
+        server = new TestingRepositoryServer(repository.getDirectory());
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        server.close();
+        repository.close();
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testResolve()
+            throws IOException
+    {
+        List<Artifact> artifacts = resolver().resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+        assertEquals(artifactIds(artifacts), ImmutableList.of("app:1.0", "a:1.0", "b:1.1"));
+        for (Artifact artifact : artifacts) {
+            File remote = new File(repository.getArtifactDirectory("com.example", artifact.getArtifactId(), artifact.getVersion()), artifact.getFile().getName());
+            assertEquals(Files.readAllBytes(artifact.getFile().toPath()), Files.readAllBytes(remote.toPath()));
+            // the verified checksum is kept next to the file
+            assertEquals(Files.readAllBytes(new File(artifact.getFile().getPath() + ".sha1").toPath()), Files.readAllBytes(new File(remote.getPath() + ".sha1").toPath()));
+        }
+        assertEquals(server.getRequestCount("/app-1.0.pom"), 1);
+        assertEquals(server.getRequestCount("/app-1.0.jar.sha1"), 1);
+        assertEquals(server.getRequestCount("/b/maven-metadata.xml"), 1);
+    }
+
+    @Test
+    public void testMatchesDefaultTransport()
+    {
+        List<Artifact> expected = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()))
+                .resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+        File jdkLocalRepository = new File(localRepository, "jdk");
+        List<Artifact> actual = new ArtifactResolver(jdkLocalRepository.getPath(), ImmutableList.of(server.getUrl()), new ArtifactResolverConfig()
+                .setHttpTransport(HttpTransport.JDK))
+                .resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+        assertEquals(artifactIds(actual), artifactIds(expected));
+    }
+
+    @Test
+    public void testMissingArtifact()
+    {
+        List<Artifact> artifacts = resolver().resolveArtifacts(new DefaultArtifact("com.example:missing:1.0"));
+        assertEquals(artifacts.size(), 1);
+        assertNull(artifacts.get(0).getFile());
+        assertFalse(new File(localRepository, "com/example/missing/1.0/missing-1.0.pom").exists());
+    }
+
+    @Test
+    public void testChecksumMismatch()
+            throws IOException
+    {
+        File jar = new File(repository.getArtifactDirectory("com.example", "a", "1.0"), "a-1.0.jar");
+        Files.write(new File(jar.getPath() + ".sha1").toPath(), "0000000000000000000000000000000000000000".getBytes(UTF_8));
+
+        // repositories warn about checksum mismatches by default, so the file is kept, but its checksum is not
+        List<Artifact> artifacts = resolver().resolveArtifacts(new DefaultArtifact("com.example:a:1.0"));
+        assertEquals(artifacts.size(), 1);
+        File file = artifacts.get(0).getFile();
+        assertTrue(file.isFile());
+        assertFalse(new File(file.getPath() + ".sha1").exists());
+    }
+
+    @Test
+    public void testRetryFailedTransfer()
+    {
+        server.failRequests(1);
+        List<Artifact> artifacts = resolver().resolveArtifacts(new DefaultArtifact("com.example:a:1.0"));
+        assertEquals(artifacts.size(), 1);
+        assertTrue(artifacts.get(0).getFile().isFile());
+        assertEquals(server.getRequestCount("/a-1.0.pom"), 2);
+    }
+
+    @Test
+    public void testHttp2()
+            throws IOException
+    {
+        try (TestingHttp2Server http2Server = new TestingHttp2Server(repository.getDirectory())) {
+            List<Artifact> artifacts = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(http2Server.getUrl()), new ArtifactResolverConfig()
+                    .setHttpTransport(HttpTransport.JDK))
+                    .resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+            assertEquals(artifactIds(artifacts), ImmutableList.of("app:1.0", "a:1.0", "b:1.1"));
+            for (Artifact artifact : artifacts) {
+                assertTrue(new File(artifact.getFile().getPath() + ".sha1").isFile(), artifact.toString());
+            }
+
+            // the connections are upgraded to HTTP/2 with the first request
+            assertTrue(http2Server.getHttp2RequestCount() > 0);
+            assertEquals(http2Server.getHttp1RequestCount(), 0);
+        }
+    }
+
+    @Test
+    public void testInterrupt()
+            throws Exception
+    {
+        // the JDK client stops waiting for a stalled transfer when interrupted
+        try (TestingRepositoryServer stallingServer = new TestingRepositoryServer(repository.getDirectory()).setLatency(Duration.ofSeconds(60))) {
+            ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(stallingServer.getUrl()), new ArtifactResolverConfig()
+                    .setHttpTransport(HttpTransport.JDK));
+
+            AtomicBoolean interrupted = new AtomicBoolean();
+            CompletableFuture<ResolutionResult> future = new CompletableFuture<>();
+            Thread thread = new Thread(() -> {
+                future.complete(resolver.resolveArtifacts(ImmutableList.of(new DefaultArtifact("com.example:app:1.0")), Duration.ofMinutes(5)));
+                interrupted.set(Thread.currentThread().isInterrupted());
+            });
+            thread.start();
+            MILLISECONDS.sleep(500);
+            thread.interrupt();
+            thread.join(SECONDS.toMillis(10));
+            assertFalse(thread.isAlive(), "resolution was not cancelled");
+
+            ResolutionResult result = future.get();
+            assertTrue(result.isCancelled());
+            assertFalse(result.isDeadlineExceeded());
+            assertFalse(result.isComplete());
+            assertTrue(interrupted.get(), "interrupt was cleared");
+        }
+    }
+
+    private ArtifactResolver resolver()
+    {
+        return new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()), new ArtifactResolverConfig()
+                .setTransferRetryBackoff(Duration.ofMillis(10))
+                .setHttpTransport(HttpTransport.JDK));
+    }
+
+    private static List<String> artifactIds(List<Artifact> artifacts)
+    {
+        return artifacts.stream()
+                .map(artifact -> artifact.getArtifactId() + ":" + artifact.getVersion())
+                .collect(toImmutableList());
+    }
+}
@@ -0,0 +1,553 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.http;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+/**
+ * Serves a directory in Maven repository layout over cleartext HTTP/2 on the
+ * loopback interface. Connections start as HTTP/1.1 and are upgraded with
+ * {@code Upgrade: h2c}, as the JDK client does for {@code http} URLs; requests
+ * that do not ask for the upgrade are answered over HTTP/1.1. Only what the
+ * resolver needs is implemented: GET and HEAD requests, the default flow control
+ * windows, and no server push. Response headers are sent as HPACK literals
+ * without indexing or Huffman coding, which every decoder accepts.
+ */
+class TestingHttp2Server
+        implements Closeable
+{
+    private static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(US_ASCII);
+    private static final int MAX_FRAME_SIZE = 16384;
+    private static final int HEADER_TABLE_SIZE = 4096;
+
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int SETTINGS = 0x4;
+    private static final int PING = 0x6;
+    private static final int GOAWAY = 0x7;
+    private static final int CONTINUATION = 0x9;
+
+    private static final int ACK = 0x1;
+    private static final int END_STREAM = 0x1;
+    private static final int END_HEADERS = 0x4;
+    private static final int PADDED = 0x8;
+    private static final int PRIORITY = 0x20;
+
+    private static final String[][] STATIC_TABLE = {
+            {":authority", ""}, {":method", "GET"}, {":method", "POST"}, {":path", "/"}, {":path", "/index.html"},
+            {":scheme", "http"}, {":scheme", "https"}, {":status", "200"}, {":status", "204"}, {":status", "206"},
+            {":status", "304"}, {":status", "400"}, {":status", "404"}, {":status", "500"}, {"accept-charset", ""},
+            {"accept-encoding", "gzip, deflate"}, {"accept-language", ""}, {"accept-ranges", ""}, {"accept", ""},
+            {"access-control-allow-origin", ""}, {"age", ""}, {"allow", ""}, {"authorization", ""}, {"cache-control", ""},
+            {"content-disposition", ""}, {"content-encoding", ""}, {"content-language", ""}, {"content-length", ""},
+            {"content-location", ""}, {"content-range", ""}, {"content-type", ""}, {"cookie", ""}, {"date", ""}, {"etag", ""},
+            {"expect", ""}, {"expires", ""}, {"from", ""}, {"host", ""}, {"if-match", ""}, {"if-modified-since", ""},
+            {"if-none-match", ""}, {"if-range", ""}, {"if-unmodified-since", ""}, {"last-modified", ""}, {"link", ""},
+            {"location", ""}, {"max-forwards", ""}, {"proxy-authenticate", ""}, {"proxy-authorization", ""}, {"range", ""},
+            {"referer", ""}, {"refresh", ""}, {"retry-after", ""}, {"server", ""}, {"set-cookie", ""},
+            {"strict-transport-security", ""}, {"transfer-encoding", ""}, {"user-agent", ""}, {"vary", ""}, {"via", ""},
+            {"www-authenticate", ""}};
+
+    // code and length in bits of each symbol, from RFC 7541 appendix B
+    private static final int[][] HUFFMAN_CODES = {
+            {0x1ff8, 13}, {0x7fffd8, 23}, {0xfffffe2, 28}, {0xfffffe3, 28}, {0xfffffe4, 28}, {0xfffffe5, 28},
+            {0xfffffe6, 28}, {0xfffffe7, 28}, {0xfffffe8, 28}, {0xffffea, 24}, {0x3ffffffc, 30}, {0xfffffe9, 28},
+            {0xfffffea, 28}, {0x3ffffffd, 30}, {0xfffffeb, 28}, {0xfffffec, 28}, {0xfffffed, 28}, {0xfffffee, 28},
+            {0xfffffef, 28}, {0xffffff0, 28}, {0xffffff1, 28}, {0xffffff2, 28}, {0x3ffffffe, 30}, {0xffffff3, 28},
+            {0xffffff4, 28}, {0xffffff5, 28}, {0xffffff6, 28}, {0xffffff7, 28}, {0xffffff8, 28}, {0xffffff9, 28},
+            {0xffffffa, 28}, {0xffffffb, 28}, {0x14, 6}, {0x3f8, 10}, {0x3f9, 10}, {0xffa, 12},
+            {0x1ff9, 13}, {0x15, 6}, {0xf8, 8}, {0x7fa, 11}, {0x3fa, 10}, {0x3fb, 10},
+            {0xf9, 8}, {0x7fb, 11}, {0xfa, 8}, {0x16, 6}, {0x17, 6}, {0x18, 6},
+            {0x0, 5}, {0x1, 5}, {0x2, 5}, {0x19, 6}, {0x1a, 6}, {0x1b, 6},
+            {0x1c, 6}, {0x1d, 6}, {0x1e, 6}, {0x1f, 6}, {0x5c, 7}, {0xfb, 8},
+            {0x7ffc, 15}, {0x20, 6}, {0xffb, 12}, {0x3fc, 10}, {0x1ffa, 13}, {0x21, 6},
+            {0x5d, 7}, {0x5e, 7}, {0x5f, 7}, {0x60, 7}, {0x61, 7}, {0x62, 7},
+            {0x63, 7}, {0x64, 7}, {0x65, 7}, {0x66, 7}, {0x67, 7}, {0x68, 7},
+            {0x69, 7}, {0x6a, 7}, {0x6b, 7}, {0x6c, 7}, {0x6d, 7}, {0x6e, 7},
+            {0x6f, 7}, {0x70, 7}, {0x71, 7}, {0x72, 7}, {0xfc, 8}, {0x73, 7},
+            {0xfd, 8}, {0x1ffb, 13}, {0x7fff0, 19}, {0x1ffc, 13}, {0x3ffc, 14}, {0x22, 6},
+            {0x7ffd, 15}, {0x3, 5}, {0x23, 6}, {0x4, 5}, {0x24, 6}, {0x5, 5},
+            {0x25, 6}, {0x26, 6}, {0x27, 6}, {0x6, 5}, {0x74, 7}, {0x75, 7},
+            {0x28, 6}, {0x29, 6}, {0x2a, 6}, {0x7, 5}, {0x2b, 6}, {0x76, 7},
+            {0x2c, 6}, {0x8, 5}, {0x9, 5}, {0x2d, 6}, {0x77, 7}, {0x78, 7},
+            {0x79, 7}, {0x7a, 7}, {0x7b, 7}, {0x7ffe, 15}, {0x7fc, 11}, {0x3ffd, 14},
+            {0x1ffd, 13}, {0xffffffc, 28}, {0xfffe6, 20}, {0x3fffd2, 22}, {0xfffe7, 20}, {0xfffe8, 20},
+            {0x3fffd3, 22}, {0x3fffd4, 22}, {0x3fffd5, 22}, {0x7fffd9, 23}, {0x3fffd6, 22}, {0x7fffda, 23},
+            {0x7fffdb, 23}, {0x7fffdc, 23}, {0x7fffdd, 23}, {0x7fffde, 23}, {0xffffeb, 24}, {0x7fffdf, 23},
+            {0xffffec, 24}, {0xffffed, 24}, {0x3fffd7, 22}, {0x7fffe0, 23}, {0xffffee, 24}, {0x7fffe1, 23},
+            {0x7fffe2, 23}, {0x7fffe3, 23}, {0x7fffe4, 23}, {0x1fffdc, 21}, {0x3fffd8, 22}, {0x7fffe5, 23},
+            {0x3fffd9, 22}, {0x7fffe6, 23}, {0x7fffe7, 23}, {0xffffef, 24}, {0x3fffda, 22}, {0x1fffdd, 21},
+            {0xfffe9, 20}, {0x3fffdb, 22}, {0x3fffdc, 22}, {0x7fffe8, 23}, {0x7fffe9, 23}, {0x1fffde, 21},
+            {0x7fffea, 23}, {0x3fffdd, 22}, {0x3fffde, 22}, {0xfffff0, 24}, {0x1fffdf, 21}, {0x3fffdf, 22},
+            {0x7fffeb, 23}, {0x7fffec, 23}, {0x1fffe0, 21}, {0x1fffe1, 21}, {0x3fffe0, 22}, {0x1fffe2, 21},
+            {0x7fffed, 23}, {0x3fffe1, 22}, {0x7fffee, 23}, {0x7fffef, 23}, {0xfffea, 20}, {0x3fffe2, 22},
+            {0x3fffe3, 22}, {0x3fffe4, 22}, {0x7ffff0, 23}, {0x3fffe5, 22}, {0x3fffe6, 22}, {0x7ffff1, 23},
+            {0x3ffffe0, 26}, {0x3ffffe1, 26}, {0xfffeb, 20}, {0x7fff1, 19}, {0x3fffe7, 22}, {0x7ffff2, 23},
+            {0x3fffe8, 22}, {0x1ffffec, 25}, {0x3ffffe2, 26}, {0x3ffffe3, 26}, {0x3ffffe4, 26}, {0x7ffffde, 27},
+            {0x7ffffdf, 27}, {0x3ffffe5, 26}, {0xfffff1, 24}, {0x1ffffed, 25}, {0x7fff2, 19}, {0x1fffe3, 21},
+            {0x3ffffe6, 26}, {0x7ffffe0, 27}, {0x7ffffe1, 27}, {0x3ffffe7, 26}, {0x7ffffe2, 27}, {0xfffff2, 24},
+            {0x1fffe4, 21}, {0x1fffe5, 21}, {0x3ffffe8, 26}, {0x3ffffe9, 26}, {0xffffffd, 28}, {0x7ffffe3, 27},
+            {0x7ffffe4, 27}, {0x7ffffe5, 27}, {0xfffec, 20}, {0xfffff3, 24}, {0xfffed, 20}, {0x1fffe6, 21},
+            {0x3fffe9, 22}, {0x1fffe7, 21}, {0x1fffe8, 21}, {0x7ffff3, 23}, {0x3fffea, 22}, {0x3fffeb, 22},
+            {0x1ffffee, 25}, {0x1ffffef, 25}, {0xfffff4, 24}, {0xfffff5, 24}, {0x3ffffea, 26}, {0x7ffff4, 23},
+            {0x3ffffeb, 26}, {0x7ffffe6, 27}, {0x3ffffec, 26}, {0x3ffffed, 26}, {0x7ffffe7, 27}, {0x7ffffe8, 27},
+            {0x7ffffe9, 27}, {0x7ffffea, 27}, {0x7ffffeb, 27}, {0xffffffe, 28}, {0x7ffffec, 27}, {0x7ffffed, 27},
+            {0x7ffffee, 27}, {0x7ffffef, 27}, {0x7fffff0, 27}, {0x3ffffee, 26}};
+    private static final Map<Long, Character> HUFFMAN_SYMBOLS = huffmanSymbols();
+
+    private final File directory;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("testing-http2-server-%s").build());
+    private final AtomicInteger http2Requests = new AtomicInteger();
+    private final AtomicInteger http1Requests = new AtomicInteger();
+
+    public TestingHttp2Server(File directory)
+            throws IOException
+    {
+        this.directory = requireNonNull(directory, "directory is null");
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor.execute(this::accept);
+    }
+
+    public String getUrl()
+    {
+        return "http://" + serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort() + "/";
+    }
+
+    public int getHttp2RequestCount()
+    {
+        return http2Requests.get();
+    }
+
+    public int getHttp1RequestCount()
+    {
+        return http1Requests.get();
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        executor.shutdownNow();
+    }
+
+    private void accept()
+    {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                sockets.add(socket);
+                executor.execute(() -> serve(socket));
+            }
+            catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket)
+    {
+        try (Socket client = socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+            OutputStream out = new BufferedOutputStream(client.getOutputStream());
+
+            String requestLine = readLine(in);
+            if (requestLine == null) {
+                return;
+            }
+            String[] parts = requestLine.split(" ");
+            boolean upgrade = false;
+            for (String line = readLine(in); line != null && !line.isEmpty(); line = readLine(in)) {
+                String header = line.toLowerCase(ENGLISH);
+                upgrade |= header.startsWith("upgrade:") && header.contains("h2c");
+            }
+
+            if (upgrade) {
+                serveHttp2(in, out, parts[0], parts[1]);
+            }
+            else {
+                serveHttp1(out, parts[0], parts[1]);
+            }
+        }
+        catch (IOException e) {
+            // the connection was closed
+        }
+        finally {
+            sockets.remove(socket);
+        }
+    }
+
+    private void serveHttp1(OutputStream out, String method, String path)
+            throws IOException
+    {
+        http1Requests.incrementAndGet();
+        Path file = file(path);
+        byte[] body = file == null ? new byte[0] : Files.readAllBytes(file);
+        String status = file == null ? "404 Not Found" : "200 OK";
+        out.write(("HTTP/1.1 " + status + "\r\nContent-Length: " + body.length + "\r\nConnection: close\r\n\r\n").getBytes(US_ASCII));
+        if (!method.equals("HEAD")) {
+            out.write(body);
+        }
+        out.flush();
+    }
+
+    private void serveHttp2(DataInputStream in, OutputStream out, String method, String path)
+            throws IOException
+    {
+        out.write("HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n".getBytes(US_ASCII));
+        writeFrame(out, SETTINGS, 0, 0, new byte[0], 0, 0);
+        out.flush();
+
+        byte[] preface = new byte[PREFACE.length];
+        in.readFully(preface);
+        if (!Arrays.equals(preface, PREFACE)) {
+            throw new IOException("Invalid connection preface");
+        }
+
+        // the request that asked for the upgrade is answered on stream 1
+        HeaderDecoder decoder = new HeaderDecoder();
+        respond(out, 1, method, path);
+
+        ByteArrayOutputStream headerBlock = new ByteArrayOutputStream();
+        while (true) {
+            int length = (in.readUnsignedByte() << 16) | in.readUnsignedShort();
+            int type = in.readUnsignedByte();
+            int flags = in.readUnsignedByte();
+            int streamId = in.readInt() & 0x7fff_ffff;
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+
+            switch (type) {
+                case HEADERS:
+                    int offset = 0;
+                    int end = length;
+                    if ((flags & PADDED) != 0) {
+                        offset++;
+                        end -= payload[0] & 0xff;
+                    }
+                    if ((flags & PRIORITY) != 0) {
+                        offset += 5;
+                    }
+                    headerBlock.write(payload, offset, end - offset);
+                    if ((flags & END_HEADERS) != 0) {
+                        respond(out, decoder, streamId, headerBlock);
+                    }
+                    break;
+                case CONTINUATION:
+                    headerBlock.write(payload);
+                    if ((flags & END_HEADERS) != 0) {
+                        respond(out, decoder, streamId, headerBlock);
+                    }
+                    break;
+                case SETTINGS:
+                    if ((flags & ACK) == 0) {
+                        writeFrame(out, SETTINGS, ACK, 0, new byte[0], 0, 0);
+                    }
+                    break;
+                case PING:
+                    if ((flags & ACK) == 0) {
+                        writeFrame(out, PING, ACK, 0, payload, 0, length);
+                    }
+                    break;
+                case GOAWAY:
+                    return;
+                default:
+                    // window updates, priorities, resets and request bodies are ignored
+            }
+            out.flush();
+        }
+    }
+
+    private void respond(OutputStream out, HeaderDecoder decoder, int streamId, ByteArrayOutputStream headerBlock)
+            throws IOException
+    {
+        Map<String, String> headers = decoder.decode(headerBlock.toByteArray());
+        headerBlock.reset();
+        respond(out, streamId, headers.get(":method"), headers.get(":path"));
+    }
+
+    private void respond(OutputStream out, int streamId, String method, String path)
+            throws IOException
+    {
+        http2Requests.incrementAndGet();
+        Path file = file(path);
+        byte[] body = file == null ? new byte[0] : Files.readAllBytes(file);
+        boolean empty = body.length == 0 || method.equals("HEAD");
+
+        ByteArrayOutputStream headerBlock = new ByteArrayOutputStream();
+        Map<String, String> headers = ImmutableMap.of(
+                ":status", file == null ? "404" : "200",
+                "content-length", String.valueOf(body.length));
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            // literal header field without indexing, with a literal name
+            headerBlock.write(0);
+            writeString(headerBlock, header.getKey());
+            writeString(headerBlock, header.getValue());
+        }
+        writeFrame(out, HEADERS, END_HEADERS | (empty ? END_STREAM : 0), streamId, headerBlock.toByteArray(), 0, headerBlock.size());
+
+        if (!empty) {
+            for (int offset = 0; offset < body.length; offset += MAX_FRAME_SIZE) {
+                int length = Math.min(MAX_FRAME_SIZE, body.length - offset);
+                writeFrame(out, DATA, offset + length == body.length ? END_STREAM : 0, streamId, body, offset, length);
+            }
+        }
+        out.flush();
+    }
+
+    private Path file(String path)
+    {
+        Path root = directory.toPath();
+        Path file = root.resolve(path.replaceFirst("^/+", "").replaceFirst("\\?.*", "")).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+            return null;
+        }
+        return file;
+    }
+
+    private static void writeFrame(OutputStream out, int type, int flags, int streamId, byte[] payload, int offset, int length)
+            throws IOException
+    {
+        out.write(length >>> 16);
+        out.write(length >>> 8);
+        out.write(length);
+        out.write(type);
+        out.write(flags);
+        out.write(streamId >>> 24);
+        out.write(streamId >>> 16);
+        out.write(streamId >>> 8);
+        out.write(streamId);
+        out.write(payload, offset, length);
+    }
+
+    private static String readLine(DataInputStream in)
+            throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+        for (int c = in.read(); c != '\n'; c = in.read()) {
+            if (c < 0) {
+                return line.length() == 0 ? null : line.toString();
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value)
+    {
+        byte[] bytes = value.getBytes(ISO_8859_1);
+        writeInteger(out, 0, 7, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeInteger(ByteArrayOutputStream out, int flags, int prefixBits, int value)
+    {
+        int prefixMask = (1 << prefixBits) - 1;
+        if (value < prefixMask) {
+            out.write(flags | value);
+            return;
+        }
+        out.write(flags | prefixMask);
+        value -= prefixMask;
+        while (value >= 0x80) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static Map<Long, Character> huffmanSymbols()
+    {
+        Map<Long, Character> symbols = new HashMap<>();
+        for (int symbol = 0; symbol < HUFFMAN_CODES.length; symbol++) {
+            symbols.put(huffmanKey(HUFFMAN_CODES[symbol][0], HUFFMAN_CODES[symbol][1]), (char) symbol);
+        }
+        return symbols;
+    }
+
+    private static long huffmanKey(long code, int length)
+    {
+        return (((long) length) << 32) | code;
+    }
+
+    /**
+     * Decodes the HPACK header blocks of one connection, which share a dynamic table.
+     */
+    private static class HeaderDecoder
+    {
+        // newest entry first, as the entries are numbered
+        private final List<String[]> dynamicTable = new ArrayList<>();
+        private int dynamicTableSize;
+        private int maxDynamicTableSize = HEADER_TABLE_SIZE;
+
+        public Map<String, String> decode(byte[] headerBlock)
+                throws IOException
+        {
+            ByteBuffer in = ByteBuffer.wrap(headerBlock);
+            Map<String, String> headers = new HashMap<>();
+            try {
+                while (in.hasRemaining()) {
+                    int first = in.get(in.position()) & 0xff;
+                    if ((first & 0x80) != 0) {
+                        String[] field = field(readInteger(in, 7));
+                        headers.put(field[0], field[1]);
+                    }
+                    else if ((first & 0xc0) == 0x40) {
+                        String[] field = readLiteral(in, 6);
+                        add(field);
+                        headers.put(field[0], field[1]);
+                    }
+                    else if ((first & 0xe0) == 0x20) {
+                        maxDynamicTableSize = readInteger(in, 5);
+                        evict();
+                    }
+                    else {
+                        // without indexing or never indexed
+                        String[] field = readLiteral(in, 4);
+                        headers.put(field[0], field[1]);
+                    }
+                }
+            }
+            catch (BufferUnderflowException e) {
+                throw new IOException("Truncated header block", e);
+            }
+            return headers;
+        }
+
+        private String[] readLiteral(ByteBuffer in, int prefixBits)
+                throws IOException
+        {
+            int index = readInteger(in, prefixBits);
+            String name = (index == 0) ? readString(in) : field(index)[0];
+            return new String[] {name, readString(in)};
+        }
+
+        private String[] field(int index)
+                throws IOException
+        {
+            if (index > 0 && index <= STATIC_TABLE.length) {
+                return STATIC_TABLE[index - 1];
+            }
+            int dynamicIndex = index - STATIC_TABLE.length - 1;
+            if (index <= 0 || dynamicIndex >= dynamicTable.size()) {
+                throw new IOException("Invalid header table index: " + index);
+            }
+            return dynamicTable.get(dynamicIndex);
+        }
+
+        private void add(String[] field)
+        {
+            dynamicTable.add(0, field);
+            dynamicTableSize += entrySize(field);
+            evict();
+        }
+
+        private void evict()
+        {
+            while (dynamicTableSize > maxDynamicTableSize) {
+                dynamicTableSize -= entrySize(dynamicTable.remove(dynamicTable.size() - 1));
+            }
+        }
+
+        private static int entrySize(String[] field)
+        {
+            return field[0].length() + field[1].length() + 32;
+        }
+
+        private static int readInteger(ByteBuffer in, int prefixBits)
+        {
+            int prefixMask = (1 << prefixBits) - 1;
+            int value = in.get() & prefixMask;
+            if (value < prefixMask) {
+                return value;
+            }
+            int shift = 0;
+            int next;
+            do {
+                next = in.get() & 0xff;
+                value += (next & 0x7f) << shift;
+                shift += 7;
+            }
+            while ((next & 0x80) != 0);
+            return value;
+        }
+
+        private static String readString(ByteBuffer in)
+        {
+            boolean huffman = (in.get(in.position()) & 0x80) != 0;
+            byte[] bytes = new byte[readInteger(in, 7)];
+            in.get(bytes);
+            if (!huffman) {
+                return new String(bytes, ISO_8859_1);
+            }
+
+            StringBuilder value = new StringBuilder();
+            long code = 0;
+            int length = 0;
+            for (byte b : bytes) {
+                for (int bit = 7; bit >= 0; bit--) {
+                    code = (code << 1) | ((b >>> bit) & 1);
+                    length++;
+                    Character symbol = HUFFMAN_SYMBOLS.get(huffmanKey(code, length));
+                    if (symbol != null) {
+                        value.append(symbol.charValue());
+                        code = 0;
+                        length = 0;
+                    }
+                }
+            }
+            // the remaining bits are padding
+            return value.toString();
+        }
+    }
+}
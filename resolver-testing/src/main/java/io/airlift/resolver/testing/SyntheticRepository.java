@@ -0,0 +1,317 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.testing;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.BaseEncoding;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Generates a Maven repository with a layered dependency graph on local disk,
+ * to measure how the resolver scales with the size and shape of the graph.
+ * <p>
+ * The root artifact {@code com.example.synthetic:root:1.0} depends on every
+ * artifact of the first level. Every artifact depends on artifacts of the next
+ * level, and all versions of an artifact have the same dependencies, so the
+ * resolver picks the latest version of each reachable artifact. The project
+ * POM has the same dependencies as the root, for {@code resolvePom}.
+ */
+public class SyntheticRepository
+        implements Closeable
+{
+    public static final String GROUP_ID = "com.example.synthetic";
+    public static final String ROOT = GROUP_ID + ":root:1.0";
+    private static final String VERSION_RANGE = "[1.0,2.0)";
+
+    private final SyntheticRepositoryConfig config;
+    private final File baseDirectory;
+    private final File directory;
+    private final File projectPom;
+    private final Set<String> reachableArtifacts;
+    private long size;
+
+    public SyntheticRepository(SyntheticRepositoryConfig config)
+            throws IOException
+    {
+        this.config = requireNonNull(config, "config is null");
+        baseDirectory = Files.createTempDirectory("synthetic-repository").toFile();
+        directory = new File(baseDirectory, "repository");
+        projectPom = new File(baseDirectory, "project/pom.xml");
+
+        Random random = new Random(config.getSeed());
+        List<List<List<Edge>>> dependencies = new ArrayList<>();
+        for (int level = 0; level < config.getDepth(); level++) {
+            List<List<Edge>> levelDependencies = new ArrayList<>();
+            for (int index = 0; index < config.getWidth(); index++) {
+                levelDependencies.add(pickDependencies(level, random));
+            }
+            dependencies.add(levelDependencies);
+        }
+
+        List<Edge> roots = new ArrayList<>();
+        for (int index = 0; index < config.getWidth(); index++) {
+            roots.add(new Edge(0, index, latestVersion()));
+        }
+        try {
+            for (int level = 0; level < config.getDepth(); level++) {
+                for (int index = 0; index < config.getWidth(); index++) {
+                    for (int version = 0; version < config.getVersions(); version++) {
+                        writeArtifact(artifactId(level, index), "1." + version, dependencies.get(level).get(index), random);
+                    }
+                    writeMetadata(artifactId(level, index), config.getVersions());
+                }
+            }
+            writeArtifact("root", "1.0", roots, random);
+            writeMetadata("root", 1);
+            Files.createDirectories(projectPom.getParentFile().toPath());
+            writePom(projectPom, "project", "1.0", roots);
+        }
+        catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+
+        reachableArtifacts = reachableArtifacts(roots, dependencies);
+    }
+
+    public SyntheticRepositoryConfig getConfig()
+    {
+        return config;
+    }
+
+    /**
+     * Returns the directory in Maven repository layout.
+     */
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    public String getUrl()
+    {
+        return directory.toURI().toString();
+    }
+
+    /**
+     * Returns a project POM with the dependencies of the root artifact, outside
+     * of the repository. It declares no repositories.
+     */
+    public File getProjectPom()
+    {
+        return projectPom;
+    }
+
+    /**
+     * Returns the {@code groupId:artifactId:version} coordinates of the artifacts
+     * that the resolution of the root artifact returns, including the root.
+     */
+    public Set<String> getReachableArtifacts()
+    {
+        return reachableArtifacts;
+    }
+
+    /**
+     * Returns the total size of the files in the repository.
+     */
+    public long getSize()
+    {
+        return size;
+    }
+
+    private List<Edge> pickDependencies(int level, Random random)
+    {
+        if (level == config.getDepth() - 1) {
+            return ImmutableList.of();
+        }
+        List<Integer> indexes = new ArrayList<>();
+        for (int index = 0; index < config.getWidth(); index++) {
+            indexes.add(index);
+        }
+        Collections.shuffle(indexes, random);
+
+        ImmutableList.Builder<Edge> dependencies = ImmutableList.builder();
+        for (int index : indexes.subList(0, Math.min(config.getFanOut(), indexes.size()))) {
+            String version = (random.nextDouble() < config.getVersionRangeRatio()) ? VERSION_RANGE : latestVersion();
+            dependencies.add(new Edge(level + 1, index, version));
+        }
+        return dependencies.build();
+    }
+
+    private Set<String> reachableArtifacts(List<Edge> roots, List<List<List<Edge>>> dependencies)
+    {
+        Set<String> reachable = new LinkedHashSet<>();
+        reachable.add(ROOT);
+        Queue<Edge> queue = new ArrayDeque<>(roots);
+        while (!queue.isEmpty()) {
+            Edge edge = queue.remove();
+            if (reachable.add(GROUP_ID + ":" + edge.getArtifactId() + ":" + latestVersion())) {
+                queue.addAll(dependencies.get(edge.level).get(edge.index));
+            }
+        }
+        return ImmutableSet.copyOf(reachable);
+    }
+
+    private void writeArtifact(String artifactId, String version, List<Edge> dependencies, Random random)
+            throws IOException
+    {
+        File artifactDirectory = new File(directory, GROUP_ID.replace('.', '/') + "/" + artifactId + "/" + version);
+        Files.createDirectories(artifactDirectory.toPath());
+        File pomFile = new File(artifactDirectory, artifactId + "-" + version + ".pom");
+        writePom(pomFile, artifactId, version, dependencies);
+        writeChecksum(pomFile);
+
+        // stored, not deflated, so the jar is as large as its content
+        byte[] content = new byte[config.getJarSize()];
+        random.nextBytes(content);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        ZipEntry entry = new ZipEntry(GROUP_ID.replace('.', '/') + "/" + artifactId.replace('-', '_') + "/content.bin");
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCrc(crc.getValue());
+
+        File jarFile = new File(artifactDirectory, artifactId + "-" + version + ".jar");
+        try (OutputStream out = new FileOutputStream(jarFile);
+                JarOutputStream jar = new JarOutputStream(out)) {
+            jar.putNextEntry(entry);
+            jar.write(content);
+            jar.closeEntry();
+        }
+        writeChecksum(jarFile);
+    }
+
+    private static void writePom(File pomFile, String artifactId, String version, List<Edge> dependencies)
+            throws IOException
+    {
+        StringBuilder pom = new StringBuilder()
+                .append("<project>\n")
+                .append("  <modelVersion>4.0.0</modelVersion>\n")
+                .append("  <groupId>").append(GROUP_ID).append("</groupId>\n")
+                .append("  <artifactId>").append(artifactId).append("</artifactId>\n")
+                .append("  <version>").append(version).append("</version>\n")
+                .append("  <dependencies>\n");
+        for (Edge dependency : dependencies) {
+            pom.append("    <dependency>\n")
+                    .append("      <groupId>").append(GROUP_ID).append("</groupId>\n")
+                    .append("      <artifactId>").append(dependency.getArtifactId()).append("</artifactId>\n")
+                    .append("      <version>").append(dependency.version).append("</version>\n")
+                    .append("    </dependency>\n");
+        }
+        pom.append("  </dependencies>\n")
+                .append("</project>\n");
+
+        Files.write(pomFile.toPath(), pom.toString().getBytes(UTF_8));
+    }
+
+    private void writeMetadata(String artifactId, int versions)
+            throws IOException
+    {
+        String latest = "1." + (versions - 1);
+        StringBuilder metadata = new StringBuilder()
+                .append("<metadata>\n")
+                .append("  <groupId>").append(GROUP_ID).append("</groupId>\n")
+                .append("  <artifactId>").append(artifactId).append("</artifactId>\n")
+                .append("  <versioning>\n")
+                .append("    <latest>").append(latest).append("</latest>\n")
+                .append("    <release>").append(latest).append("</release>\n")
+                .append("    <versions>\n");
+        for (int version = 0; version < versions; version++) {
+            metadata.append("      <version>1.").append(version).append("</version>\n");
+        }
+        metadata.append("    </versions>\n")
+                .append("  </versioning>\n")
+                .append("</metadata>\n");
+
+        File metadataFile = new File(directory, GROUP_ID.replace('.', '/') + "/" + artifactId + "/maven-metadata.xml");
+        Files.write(metadataFile.toPath(), metadata.toString().getBytes(UTF_8));
+        writeChecksum(metadataFile);
+    }
+
+    private void writeChecksum(File file)
+            throws IOException
+    {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        byte[] checksum = BaseEncoding.base16().lowerCase().encode(digest.digest(bytes)).getBytes(UTF_8);
+        Files.write(new File(file.getPath() + ".sha1").toPath(), checksum);
+        size += bytes.length + checksum.length;
+    }
+
+    private String latestVersion()
+    {
+        return "1." + (config.getVersions() - 1);
+    }
+
+    private static String artifactId(int level, int index)
+    {
+        return "artifact-" + level + "-" + index;
+    }
+
+    private static class Edge
+    {
+        private final int level;
+        private final int index;
+        private final String version;
+
+        private Edge(int level, int index, String version)
+        {
+            this.level = level;
+            this.index = index;
+            this.version = version;
+        }
+
+        private String getArtifactId()
+        {
+            return artifactId(level, index);
+        }
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        deleteRecursively(baseDirectory.toPath(), ALLOW_INSECURE);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.testing;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Shape of the dependency graph of a {@link SyntheticRepository}.
+ */
+public class SyntheticRepositoryConfig
+{
+    private int width = 10;
+    private int depth = 5;
+    private int fanOut = 3;
+    private int versions = 1;
+    private double versionRangeRatio;
+    private int jarSize = 1024;
+    private long seed = 42;
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Artifacts on each level of the graph.
+     */
+    public SyntheticRepositoryConfig setWidth(int width)
+    {
+        checkArgument(width > 0, "width must be positive");
+        this.width = width;
+        return this;
+    }
+
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * Levels of the graph below the root. The root depends on every artifact of
+     * the first level, and the artifacts of the last level have no dependencies.
+     */
+    public SyntheticRepositoryConfig setDepth(int depth)
+    {
+        checkArgument(depth > 0, "depth must be positive");
+        this.depth = depth;
+        return this;
+    }
+
+    public int getFanOut()
+    {
+        return fanOut;
+    }
+
+    /**
+     * Dependencies of each artifact, picked at random from the next level, so
+     * artifacts are usually reached through more than one path.
+     */
+    public SyntheticRepositoryConfig setFanOut(int fanOut)
+    {
+        checkArgument(fanOut >= 0, "fanOut is negative");
+        this.fanOut = fanOut;
+        return this;
+    }
+
+    public int getVersions()
+    {
+        return versions;
+    }
+
+    /**
+     * Versions published of each artifact, {@code 1.0} through {@code 1.<versions - 1>}.
+     * Dependencies without a range are on the latest one.
+     */
+    public SyntheticRepositoryConfig setVersions(int versions)
+    {
+        checkArgument(versions > 0, "versions must be positive");
+        this.versions = versions;
+        return this;
+    }
+
+    public double getVersionRangeRatio()
+    {
+        return versionRangeRatio;
+    }
+
+    /**
+     * Share of the dependencies declared with the range {@code [1.0,2.0)}, which
+     * the resolver resolves from the repository metadata.
+     */
+    public SyntheticRepositoryConfig setVersionRangeRatio(double versionRangeRatio)
+    {
+        checkArgument(versionRangeRatio >= 0 && versionRangeRatio <= 1, "versionRangeRatio must be between 0 and 1");
+        this.versionRangeRatio = versionRangeRatio;
+        return this;
+    }
+
+    public int getJarSize()
+    {
+        return jarSize;
+    }
+
+    /**
+     * Bytes of incompressible content in each jar.
+     */
+    public SyntheticRepositoryConfig setJarSize(int jarSize)
+    {
+        checkArgument(jarSize >= 0, "jarSize is negative");
+        this.jarSize = jarSize;
+        return this;
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * Seed of the random choices, so the same configuration generates the same repository.
+     */
+    public SyntheticRepositoryConfig setSeed(long seed)
+    {
+        this.seed = seed;
+        return this;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("width", width)
+                .add("depth", depth)
+                .add("fanOut", fanOut)
+                .add("versions", versions)
+                .add("versionRangeRatio", versionRangeRatio)
+                .add("jarSize", jarSize)
+                .add("seed", seed)
+                .toString();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.testing;
+
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.io.BaseEncoding;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A Maven repository layout on local disk, with artifacts added one by one,
+ * used as a {@code file://} remote in tests or served by a {@link TestingRepositoryServer}.
+ */
+public class TestingMavenRepository
+        implements Closeable
+{
+    private final File directory;
+    private final SetMultimap<String, String> releases = LinkedHashMultimap.create();
+
+    public TestingMavenRepository()
+            throws IOException
+    {
+        directory = Files.createTempDirectory("testing-repository").toFile();
+    }
+
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    public String getUrl()
+    {
+        return directory.toURI().toString();
+    }
+
+    /**
+     * Adds a jar artifact with one class, and a POM with the given dependencies
+     * in {@code groupId:artifactId:version} or {@code groupId:artifactId:version:scope} form.
+     * The version of a dependency may be a range. Release versions are also listed
+     * in the repository metadata of the artifact.
+     */
+    public TestingMavenRepository addArtifact(String coordinates, String... dependencies)
+            throws IOException
+    {
+        String[] parts = coordinates.split(":");
+        String groupId = parts[0];
+        String artifactId = parts[1];
+        String version = parts[2];
+
+        StringBuilder pom = new StringBuilder()
+                .append("<project>\n")
+                .append("  <modelVersion>4.0.0</modelVersion>\n")
+                .append("  <groupId>").append(groupId).append("</groupId>\n")
+                .append("  <artifactId>").append(artifactId).append("</artifactId>\n")
+                .append("  <version>").append(version).append("</version>\n")
+                .append("  <dependencies>\n");
+        for (String dependency : dependencies) {
+            String[] dependencyParts = dependency.split(":");
+            pom.append("    <dependency>\n")
+                    .append("      <groupId>").append(dependencyParts[0]).append("</groupId>\n")
+                    .append("      <artifactId>").append(dependencyParts[1]).append("</artifactId>\n")
+                    .append("      <version>").append(dependencyParts[2]).append("</version>\n");
+            if (dependencyParts.length > 3) {
+                pom.append("      <scope>").append(dependencyParts[3]).append("</scope>\n");
+            }
+            pom.append("    </dependency>\n");
+        }
+        pom.append("  </dependencies>\n")
+                .append("</project>\n");
+
+        File artifactDirectory = getArtifactDirectory(groupId, artifactId, version);
+        Files.createDirectories(artifactDirectory.toPath());
+
+        File pomFile = new File(artifactDirectory, artifactId + "-" + version + ".pom");
+        Files.write(pomFile.toPath(), pom.toString().getBytes(UTF_8));
+        writeChecksum(pomFile);
+
+        File jarFile = new File(artifactDirectory, artifactId + "-" + version + ".jar");
+        try (OutputStream out = new FileOutputStream(jarFile);
+                JarOutputStream jar = new JarOutputStream(out)) {
+            jar.putNextEntry(new ZipEntry(groupId.replace('.', '/') + "/" + artifactId.replace('-', '_') + "/Marker.class"));
+            jar.write(coordinates.getBytes(UTF_8));
+            jar.closeEntry();
+        }
+        writeChecksum(jarFile);
+
+        if (!version.endsWith("-SNAPSHOT")) {
+            releases.put(groupId + ":" + artifactId, version);
+            writeMetadata(groupId, artifactId, releases.get(groupId + ":" + artifactId));
+        }
+        return this;
+    }
+
+    private void writeMetadata(String groupId, String artifactId, Set<String> versions)
+            throws IOException
+    {
+        String latest = versions.stream().reduce((first, second) -> second).get();
+        StringBuilder metadata = new StringBuilder()
+                .append("<metadata>\n")
+                .append("  <groupId>").append(groupId).append("</groupId>\n")
+                .append("  <artifactId>").append(artifactId).append("</artifactId>\n")
+                .append("  <versioning>\n")
+                .append("    <latest>").append(latest).append("</latest>\n")
+                .append("    <release>").append(latest).append("</release>\n")
+                .append("    <versions>\n");
+        for (String version : versions) {
+            metadata.append("      <version>").append(version).append("</version>\n");
+        }
+        metadata.append("    </versions>\n")
+                .append("  </versioning>\n")
+                .append("</metadata>\n");
+
+        File metadataFile = new File(directory, groupId.replace('.', '/') + "/" + artifactId + "/maven-metadata.xml");
+        Files.write(metadataFile.toPath(), metadata.toString().getBytes(UTF_8));
+        writeChecksum(metadataFile);
+    }
+
+    public File getArtifactDirectory(String groupId, String artifactId, String version)
+    {
+        return new File(directory, groupId.replace('.', '/') + "/" + artifactId + "/" + version);
+    }
+
+    private static void writeChecksum(File file)
+            throws IOException
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        String checksum = BaseEncoding.base16().lowerCase().encode(digest.digest(Files.readAllBytes(file.toPath())));
+        Files.write(new File(file.getPath() + ".sha1").toPath(), checksum.getBytes(UTF_8));
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        deleteRecursively(directory.toPath(), ALLOW_INSECURE);
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.testing;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Serves a directory in Maven repository layout over HTTP on the loopback
+ * interface, like a remote repository on a slow or unreliable network. It can
+ * delay every response, limit the rate at which each response is sent, and fail
+ * a share of the requests, or the next few. The faults can be changed while the
+ * server runs, and the requests it receives are recorded.
+ */
+public class TestingRepositoryServer
+        implements Closeable
+{
+    private static final int CHUNK_SIZE = 8192;
+
+    private final File directory;
+    private final HttpServer server;
+    private final ExecutorService executor = newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("testing-repository-server-%s").build());
+    private final Random random = new Random(42);
+    private final AtomicLong requests = new AtomicLong();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final List<String> requestedPaths = new CopyOnWriteArrayList<>();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger maxActiveRequests = new AtomicInteger();
+    private final AtomicInteger requestsToDrop = new AtomicInteger();
+    private final AtomicInteger requestsToFail = new AtomicInteger();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile long bytesPerSecond;
+    private volatile double errorRate;
+
+    public TestingRepositoryServer(File directory)
+            throws IOException
+    {
+        this.directory = requireNonNull(directory, "directory is null");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getUrl()
+    {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Delays every response, including failures, by the given time.
+     */
+    public TestingRepositoryServer setLatency(Duration latency)
+    {
+        requireNonNull(latency, "latency is null");
+        checkArgument(!latency.isNegative(), "latency is negative");
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Limits the rate at which the body of each response is sent, or zero for
+     * unlimited. Concurrent responses are limited separately, like connections
+     * that each have their own bandwidth.
+     */
+    public TestingRepositoryServer setBandwidth(long bytesPerSecond)
+    {
+        checkArgument(bytesPerSecond >= 0, "bytesPerSecond is negative");
+        this.bytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    /**
+     * Share of the requests that are answered with 503 Service Unavailable. The
+     * failures are picked at random, from a fixed seed.
+     */
+    public TestingRepositoryServer setErrorRate(double errorRate)
+    {
+        checkArgument(errorRate >= 0 && errorRate <= 1, "errorRate must be between 0 and 1");
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * Closes the connection without a response for the next given number of
+     * requests, like a server that is down. Zero serves all requests again.
+     */
+    public TestingRepositoryServer dropRequests(int count)
+    {
+        checkArgument(count >= 0, "count is negative");
+        requestsToDrop.set(count);
+        return this;
+    }
+
+    /**
+     * Responds with 503 Service Unavailable to the next given number of requests.
+     */
+    public TestingRepositoryServer failRequests(int count)
+    {
+        checkArgument(count >= 0, "count is negative");
+        requestsToFail.set(count);
+        return this;
+    }
+
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of requests for paths ending with the given suffix.
+     */
+    public int getRequestCount(String pathSuffix)
+    {
+        return requestCounts.entrySet().stream()
+                .filter(entry -> entry.getKey().endsWith(pathSuffix))
+                .mapToInt(entry -> entry.getValue().get())
+                .sum();
+    }
+
+    /**
+     * Returns the paths of all requests, in the order they arrived.
+     */
+    public List<String> getRequestedPaths()
+    {
+        return ImmutableList.copyOf(requestedPaths);
+    }
+
+    public long getFailedRequestCount()
+    {
+        return failedRequests.get();
+    }
+
+    /**
+     * Returns the number of bytes of response bodies sent.
+     */
+    public long getBytesSent()
+    {
+        return bytesSent.get();
+    }
+
+    /**
+     * Returns the largest number of requests that were being handled at once.
+     */
+    public int getMaxConcurrentRequests()
+    {
+        return maxActiveRequests.get();
+    }
+
+    public void resetStatistics()
+    {
+        requests.set(0);
+        requestCounts.clear();
+        requestedPaths.clear();
+        failedRequests.set(0);
+        bytesSent.set(0);
+        maxActiveRequests.set(0);
+    }
+
+    private void handle(HttpExchange exchange)
+            throws IOException
+    {
+        maxActiveRequests.accumulateAndGet(activeRequests.incrementAndGet(), Math::max);
+        try {
+            String path = exchange.getRequestURI().getPath();
+            requests.incrementAndGet();
+            requestCounts.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+            requestedPaths.add(path);
+
+            if (requestsToDrop.getAndUpdate(count -> Math.max(count - 1, 0)) > 0) {
+                failedRequests.incrementAndGet();
+                return;
+            }
+            if (!latency.isZero()) {
+                NANOSECONDS.sleep(latency.toNanos());
+            }
+
+            if (requestsToFail.getAndUpdate(count -> Math.max(count - 1, 0)) > 0 || (errorRate > 0 && random.nextDouble() < errorRate)) {
+                failedRequests.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            File file = new File(directory, path);
+            if (!file.isFile() || !file.getCanonicalPath().startsWith(directory.getCanonicalPath())) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(file.length()));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, file.length());
+            try (InputStream in = Files.newInputStream(file.toPath());
+                    OutputStream out = exchange.getResponseBody()) {
+                send(in, out);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            exchange.close();
+            activeRequests.decrementAndGet();
+        }
+    }
+
+    private void send(InputStream in, OutputStream out)
+            throws IOException, InterruptedException
+    {
+        long start = System.nanoTime();
+        long sent = 0;
+        byte[] buffer = new byte[CHUNK_SIZE];
+        while (true) {
+            int length = in.read(buffer);
+            if (length < 0) {
+                return;
+            }
+            out.write(buffer, 0, length);
+            out.flush();
+            sent += length;
+            bytesSent.addAndGet(length);
+
+            long bytesPerSecond = this.bytesPerSecond;
+            if (bytesPerSecond > 0) {
+                // wait until the bytes sent so far are within the rate
+                long wait = start + SECONDS.toNanos(sent) / bytesPerSecond - System.nanoTime();
+                if (wait > 0) {
+                    NANOSECONDS.sleep(wait);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
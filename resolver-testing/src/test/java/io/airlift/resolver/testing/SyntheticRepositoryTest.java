@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.testing;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.testng.Assert.assertEquals;
+
+public class SyntheticRepositoryTest
+{
+    @Test
+    public void testDeterministic()
+            throws IOException
+    {
+        SyntheticRepositoryConfig config = new SyntheticRepositoryConfig().setVersionRangeRatio(0.3);
+        try (SyntheticRepository first = new SyntheticRepository(config);
+                SyntheticRepository second = new SyntheticRepository(config)) {
+            assertEquals(first.getReachableArtifacts(), second.getReachableArtifacts());
+            assertEquals(first.getSize(), second.getSize());
+            assertEquals(
+                    Files.readAllBytes(new File(first.getDirectory(), "com/example/synthetic/artifact-1-2/1.0/artifact-1-2-1.0.pom").toPath()),
+                    Files.readAllBytes(new File(second.getDirectory(), "com/example/synthetic/artifact-1-2/1.0/artifact-1-2-1.0.pom").toPath()));
+        }
+    }
+}
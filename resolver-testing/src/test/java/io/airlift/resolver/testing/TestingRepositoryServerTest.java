@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.testing;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestingRepositoryServerTest
+{
+    private static final String JAR = "com/example/synthetic/artifact-0-0/1.0/artifact-0-0-1.0.jar";
+
+    private SyntheticRepository repository;
+    private TestingRepositoryServer server;
+
+    @BeforeClass
+    public void setUp()
+            throws IOException
+    {
+        repository = new SyntheticRepository(new SyntheticRepositoryConfig()
+                .setWidth(1)
+                .setDepth(1)
+                .setJarSize(100_000));
+        server = new TestingRepositoryServer(repository.getDirectory());
+    }
+
+    @BeforeMethod
+    public void resetFaults()
+    {
+        server.setLatency(Duration.ZERO)
+                .setBandwidth(0)
+                .setErrorRate(0)
+                .resetStatistics();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        server.close();
+        repository.close();
+    }
+
+    @Test
+    public void testServe()
+            throws IOException
+    {
+        assertEquals(get(JAR), 200);
+        assertEquals(get("com/example/synthetic/missing/1.0/missing-1.0.jar"), 404);
+        assertEquals(server.getRequestCount(), 2);
+        assertTrue(server.getBytesSent() > 100_000, "bytes sent: " + server.getBytesSent());
+    }
+
+    @Test
+    public void testLatency()
+            throws IOException
+    {
+        server.setLatency(Duration.ofMillis(200));
+        long start = System.nanoTime();
+        assertEquals(get(JAR), 200);
+        assertTrue(NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+    }
+
+    @Test
+    public void testBandwidth()
+            throws IOException
+    {
+        // 100 kB at 200 kB/s
+        server.setBandwidth(200_000);
+        long start = System.nanoTime();
+        assertEquals(get(JAR), 200);
+        assertTrue(System.nanoTime() - start >= MILLISECONDS.toNanos(450), "response was not limited");
+    }
+
+    @Test
+    public void testErrorRate()
+            throws IOException
+    {
+        server.setErrorRate(0.5);
+        int failures = 0;
+        for (int i = 0; i < 100; i++) {
+            if (get(JAR) == 503) {
+                failures++;
+            }
+        }
+        assertEquals(server.getFailedRequestCount(), failures);
+        assertTrue(failures > 25 && failures < 75, "failures: " + failures);
+    }
+
+    @Test
+    public void testFailRequests()
+            throws IOException
+    {
+        server.failRequests(2);
+        assertEquals(get(JAR), 503);
+        assertEquals(get(JAR + ".sha1"), 503);
+        assertEquals(get(JAR), 200);
+        assertEquals(server.getFailedRequestCount(), 2);
+        assertEquals(server.getRequestCount(".jar"), 2);
+        assertEquals(server.getRequestCount(".sha1"), 1);
+        assertEquals(server.getRequestedPaths(), ImmutableList.of("/" + JAR, "/" + JAR + ".sha1", "/" + JAR));
+    }
+
+    private int get(String path)
+            throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL(server.getUrl() + path).openConnection();
+        try {
+            int status = connection.getResponseCode();
+            if (status == 200) {
+                try (InputStream in = connection.getInputStream()) {
+                    ByteStreams.exhaust(in);
+                }
+            }
+            return status;
+        }
+        finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+import io.airlift.resolver.internal.ArtifactDescriptorCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.repository.LocalRepository;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A size-bounded cache of parsed artifact descriptors for release versions, which
+ * never change once published. Resolvers only use a cache they are configured
+ * with; {@link #shared()} is a single instance for all resolvers in the process
+ * that opt in. A descriptor read from the local repository of one resolver is
+ * returned to the others as read from their own. When a directory is given,
+ * descriptors are also stored there in a compact binary form that loads much
+ * faster than the POM can be parsed again.
+ */
+public final class ArtifactDescriptorCache
+{
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private static final String RELEASE = "RELEASE";
+    private static final String LATEST = "LATEST";
+
+    private static final Logger log = LoggerFactory.getLogger(ArtifactDescriptorCache.class);
+    private static final ArtifactDescriptorCache SHARED = new ArtifactDescriptorCache(DEFAULT_MAXIMUM_SIZE);
+
+    private final Cache<String, ArtifactDescriptorResult> cache;
+    private final Optional<Path> directory;
+
+    public static ArtifactDescriptorCache shared()
+    {
+        return SHARED;
+    }
+
+    public ArtifactDescriptorCache(long maximumSize)
+    {
+        this(maximumSize, Optional.empty());
+    }
+
+    public ArtifactDescriptorCache(long maximumSize, File directory)
+    {
+        this(maximumSize, Optional.of(requireNonNull(directory, "directory is null").toPath()));
+    }
+
+    private ArtifactDescriptorCache(long maximumSize, Optional<Path> directory)
+    {
+        checkArgument(maximumSize >= 0, "maximumSize is negative");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        this.directory = directory;
+    }
+
+    public CacheStats getStats()
+    {
+        return cache.stats();
+    }
+
+    public long size()
+    {
+        return cache.size();
+    }
+
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    ArtifactDescriptorResult get(RepositorySystemSession session, ArtifactDescriptorRequest request)
+    {
+        if (!isCacheable(request.getArtifact())) {
+            return null;
+        }
+        String key = getKey(request);
+        ArtifactDescriptorResult result = cache.getIfPresent(key);
+        if (result == null) {
+            result = readFile(key, request);
+            if (result == null) {
+                return null;
+            }
+            cache.put(key, result);
+        }
+        ArtifactDescriptorResult copy = copy(result, request);
+        if (copy.getRepository() instanceof LocalRepository) {
+            // the entry may have been filled by a resolver with another local repository
+            copy.setRepository(session.getLocalRepository());
+        }
+        return copy;
+    }
+
+    void put(ArtifactDescriptorRequest request, ArtifactDescriptorResult result)
+    {
+        if (!isCacheable(request.getArtifact()) || !result.getExceptions().isEmpty()) {
+            return;
+        }
+        String key = getKey(request);
+        ArtifactDescriptorResult cached = copy(result, request);
+        cache.put(key, cached);
+        writeFile(key, cached);
+    }
+
+    private ArtifactDescriptorResult readFile(String key, ArtifactDescriptorRequest request)
+    {
+        if (!directory.isPresent()) {
+            return null;
+        }
+        Path file = getFile(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return ArtifactDescriptorCodec.read(in, request);
+        }
+        catch (IOException e) {
+            log.debug("Ignoring unreadable cached descriptor " + file, e);
+            return null;
+        }
+    }
+
+    private void writeFile(String key, ArtifactDescriptorResult result)
+    {
+        if (!directory.isPresent() || !ArtifactDescriptorCodec.isEncodable(result)) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory.get());
+            Path temporaryFile = Files.createTempFile(directory.get(), "descriptor", ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                    ArtifactDescriptorCodec.write(out, result);
+                }
+                Files.move(temporaryFile, getFile(key), ATOMIC_MOVE);
+            }
+            finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        }
+        catch (IOException e) {
+            log.debug("Unable to store cached descriptor for " + result.getArtifact(), e);
+        }
+    }
+
+    private Path getFile(String key)
+    {
+        return directory.get().resolve(Hashing.sha256().hashString(key, UTF_8) + ".bin");
+    }
+
+    private static boolean isCacheable(Artifact artifact)
+    {
+        // metaversions and ranges resolve to a different version as new ones are published
+        String version = artifact.getVersion();
+        return !artifact.isSnapshot() &&
+                !version.isEmpty() &&
+                !version.equals(RELEASE) &&
+                !version.equals(LATEST) &&
+                !version.startsWith("[") &&
+                !version.startsWith("(");
+    }
+
+    private static String getKey(ArtifactDescriptorRequest request)
+    {
+        Artifact artifact = request.getArtifact();
+        StringBuilder key = new StringBuilder()
+                .append(artifact.getGroupId()).append(':')
+                .append(artifact.getArtifactId()).append(':')
+                .append(artifact.getExtension()).append(':')
+                .append(artifact.getClassifier()).append(':')
+                .append(artifact.getVersion());
+        for (RemoteRepository repository : request.getRepositories()) {
+            key.append('|').append(repository.getUrl());
+        }
+        return key.toString();
+    }
+
+    private static ArtifactDescriptorResult copy(ArtifactDescriptorResult result, ArtifactDescriptorRequest request)
+    {
+        return new ArtifactDescriptorResult(request)
+                .setArtifact(result.getArtifact())
+                .setRepository(result.getRepository())
+                .setRelocations(new ArrayList<>(result.getRelocations()))
+                .setAliases(new ArrayList<>(result.getAliases()))
+                .setDependencies(new ArrayList<>(result.getDependencies()))
+                .setManagedDependencies(new ArrayList<>(result.getManagedDependencies()))
+                .setRepositories(new ArrayList<>(result.getRepositories()))
+                .setProperties(result.getProperties());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.sonatype.aether.artifact.Artifact;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+/**
+ * Returns resolved artifacts in the order their files become available. At most
+ * twice as many artifacts as there are download threads are resolved ahead of
+ * the consumer, so a slow consumer holds back the downloads. If resolving an
+ * artifact fails, {@link #next()} throws the exception and the iterator is closed.
+ * <p>
+ * Like other iterators, this class is not thread safe. Close it to cancel the
+ * remaining downloads if it is not consumed fully.
+ */
+public final class ArtifactIterator
+        implements Iterator<Artifact>, Closeable
+{
+    private final Iterator<Callable<Artifact>> pending;
+    private final int total;
+    private final ExecutorService executor;
+    private final CompletionService<Artifact> completionService;
+    private int returned;
+    private boolean closed;
+
+    ArtifactIterator(List<Callable<Artifact>> resolvers, int threads)
+    {
+        checkArgument(threads > 0, "threads must be at least 1");
+        this.pending = resolvers.iterator();
+        this.total = resolvers.size();
+        this.executor = newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("artifact-iterator-%s")
+                .setDaemon(true)
+                .build());
+        this.completionService = new ExecutorCompletionService<>(executor);
+
+        for (int i = 0; i < threads * 2 && pending.hasNext(); i++) {
+            completionService.submit(pending.next());
+        }
+        if (total == 0) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return !closed && returned < total;
+    }
+
+    @Override
+    public Artifact next()
+    {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Future<Artifact> future;
+        try {
+            future = completionService.take();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new RuntimeException("Interrupted while resolving artifacts", e);
+        }
+
+        returned++;
+        if (pending.hasNext()) {
+            completionService.submit(pending.next());
+        }
+        else if (returned == total) {
+            executor.shutdown();
+        }
+
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new RuntimeException("Interrupted while resolving artifacts", e);
+        }
+        catch (ExecutionException e) {
+            close();
+            throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        executor.shutdownNow();
+    }
+}
@@ -13,17 +13,53 @@
  */
 package io.airlift.resolver;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.airlift.resolver.internal.AccessLog;
+import io.airlift.resolver.internal.AccessTrackingLocalRepositoryManager;
+import io.airlift.resolver.internal.CachingModelBuilder;
+import io.airlift.resolver.internal.CachingModelProcessor;
+import io.airlift.resolver.internal.CachingUpdateCheckManager;
+import io.airlift.resolver.internal.ChecksumVerifier;
+import io.airlift.resolver.internal.CircuitBreakerRegistry;
+import io.airlift.resolver.internal.CollectionEvent;
 import io.airlift.resolver.internal.ConsoleRepositoryListener;
 import io.airlift.resolver.internal.ConsoleTransferListener;
+import io.airlift.resolver.internal.DeadlineConnectorFactory;
+import io.airlift.resolver.internal.DependencyDepthSelector;
+import io.airlift.resolver.internal.DependencyDepths;
+import io.airlift.resolver.internal.FlightRecorderSupport;
+import io.airlift.resolver.internal.FlightRecorderTransferListener;
+import io.airlift.resolver.internal.IncludedScopesDependencySelector;
+import io.airlift.resolver.internal.IndexedLocalRepositoryManager;
+import io.airlift.resolver.internal.LazyArtifact;
+import io.airlift.resolver.internal.LocalFileConnectorFactory;
+import io.airlift.resolver.internal.LocalRepositoryIndex;
+import io.airlift.resolver.internal.ModelBuildEvent;
+import io.airlift.resolver.internal.PackedVersionRangeResolver;
+import io.airlift.resolver.internal.ParallelDependencyCollector;
+import io.airlift.resolver.internal.ProjectModelCache;
+import io.airlift.resolver.internal.ReactorWorkspaceReader;
+import io.airlift.resolver.internal.ResolutionDeadline;
+import io.airlift.resolver.internal.ResolutionEvent;
+import io.airlift.resolver.internal.SchedulingConnectorFactory;
+import io.airlift.resolver.internal.SingleFlightConnectorFactory;
 import io.airlift.resolver.internal.Slf4jLoggerManager;
+import io.airlift.resolver.internal.VerifiedChecksumIndex;
 import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.building.ModelBuilder;
+import org.apache.maven.model.building.ModelProcessor;
 import org.apache.maven.project.DefaultProjectBuildingRequest;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.ProjectBuilder;
 import org.apache.maven.project.ProjectBuildingRequest;
-import org.apache.maven.project.ProjectBuildingResult;
+import org.apache.maven.repository.internal.DefaultArtifactDescriptorReader;
+import org.apache.maven.repository.internal.DefaultVersionRangeResolver;
 import org.apache.maven.repository.internal.MavenRepositorySystemSession;
 import org.apache.maven.repository.internal.MavenServiceLocator;
 import org.codehaus.plexus.ContainerConfiguration;
@@ -32,55 +68,123 @@ import org.codehaus.plexus.DefaultPlexusContainer;
 import org.codehaus.plexus.PlexusContainer;
 import org.codehaus.plexus.PlexusContainerException;
 import org.codehaus.plexus.classworlds.ClassWorld;
+import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
 import org.codehaus.plexus.logging.Logger;
 import org.sonatype.aether.RepositorySystem;
+import org.sonatype.aether.RepositorySystemSession;
 import org.sonatype.aether.artifact.Artifact;
 import org.sonatype.aether.collection.CollectRequest;
+import org.sonatype.aether.collection.CollectResult;
+import org.sonatype.aether.collection.DependencyCollectionException;
+import org.sonatype.aether.collection.DependencySelector;
 import org.sonatype.aether.connector.async.AsyncRepositoryConnectorFactory;
 import org.sonatype.aether.connector.file.FileRepositoryConnectorFactory;
 import org.sonatype.aether.graph.Dependency;
 import org.sonatype.aether.graph.Exclusion;
+import org.sonatype.aether.impl.ArtifactDescriptorReader;
+import org.sonatype.aether.impl.DependencyCollector;
+import org.sonatype.aether.impl.RemoteRepositoryManager;
+import org.sonatype.aether.impl.UpdateCheckManager;
+import org.sonatype.aether.impl.VersionRangeResolver;
+import org.sonatype.aether.impl.internal.DefaultDependencyCollector;
+import org.sonatype.aether.impl.internal.DefaultUpdateCheckManager;
 import org.sonatype.aether.impl.internal.SimpleLocalRepositoryManager;
 import org.sonatype.aether.repository.LocalRepositoryManager;
 import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.repository.RepositoryPolicy;
+import org.sonatype.aether.repository.WorkspaceReader;
+import org.sonatype.aether.repository.WorkspaceRepository;
+import org.sonatype.aether.resolution.ArtifactDescriptorException;
+import org.sonatype.aether.resolution.ArtifactRequest;
+import org.sonatype.aether.resolution.ArtifactResolutionException;
 import org.sonatype.aether.resolution.ArtifactResult;
 import org.sonatype.aether.resolution.DependencyRequest;
 import org.sonatype.aether.resolution.DependencyResolutionException;
 import org.sonatype.aether.resolution.DependencyResult;
 import org.sonatype.aether.spi.connector.RepositoryConnectorFactory;
+import org.sonatype.aether.transfer.TransferListener;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+import org.sonatype.aether.util.DefaultSessionData;
 import org.sonatype.aether.util.artifact.DefaultArtifact;
 import org.sonatype.aether.util.artifact.JavaScopes;
+import org.sonatype.aether.util.artifact.SubArtifact;
 import org.sonatype.aether.util.filter.DependencyFilterUtils;
+import org.sonatype.aether.util.graph.FilteringDependencyVisitor;
+import org.sonatype.aether.util.graph.PreorderNodeListGenerator;
+import org.sonatype.aether.util.graph.TreeDependencyVisitor;
+import org.sonatype.aether.util.graph.selector.AndDependencySelector;
+import org.sonatype.aether.util.graph.selector.ExclusionDependencySelector;
+import org.sonatype.aether.util.listener.ChainedTransferListener;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
 import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 
 public class ArtifactResolver
+        implements Closeable
 {
     public static final String USER_LOCAL_REPO = System.getProperty("user.home") + "/.m2/repository";
     public static final String MAVEN_CENTRAL_URI = "https://repo1.maven.org/maven2/";
+    public static final String VERIFIED_CHECKSUMS_FILE = ".verified-checksums";
+    public static final String LOCAL_REPOSITORY_INDEX_FILE = ".local-repository-index";
+    public static final String ACCESS_LOG_FILE = ".access-log";
+    public static final String EVICTION_MARKER_FILE = ".last-eviction";
     public static final Set<String> DEPRECATED_MAVEN_CENTRAL_URIS = ImmutableSet.<String>builder()
             .add("http://repo1.maven.org/maven2")
             .add("http://repo1.maven.org/maven2/")
             .add("http://repo.maven.apache.org/maven2")
             .add("http://repo.maven.apache.org/maven2/")
             .build();
+    private static final int STREAMING_THREADS = 8;
+    private static final int REACTOR_THREADS = 8;
+    private static final String JDK_CONNECTOR_FACTORY = "io.airlift.resolver.http.HttpClientConnectorFactory";
+    private static final String EVICTION_TIME_KEY = ArtifactResolver.class.getName() + ".evictionTime";
 
     private final RepositorySystem repositorySystem;
     private final MavenRepositorySystemSession repositorySystemSession;
     private final List<RemoteRepository> repositories;
+    private final Optional<ChecksumVerifier> checksumVerifier;
+    private final Optional<UpdatePolicy> updatePolicy;
+    private final Map<String, UpdatePolicy> repositoryUpdatePolicies;
+    private final Optional<Set<String>> scopes;
+    private final Optional<DownloadScheduler> downloadScheduler;
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final Optional<LocalRepositoryIndex> localRepositoryIndex;
+    private final Optional<AccessLog> accessLog;
+    private final File evictionMarker;
+    private volatile long lastEviction;
+    private final ProjectModelCache projectModelCache = new ProjectModelCache();
+    private final Supplier<PlexusContainer> container = Suppliers.memoize(() -> container(projectModelCache));
 
     public ArtifactResolver(String localRepositoryDir, String... remoteRepositoryUris)
     {
@@ -89,19 +193,131 @@ public class ArtifactResolver
 
     public ArtifactResolver(String localRepositoryDir, List<String> remoteRepositoryUris)
     {
+        this(localRepositoryDir, remoteRepositoryUris, new ArtifactResolverConfig());
+    }
+
+    public ArtifactResolver(String localRepositoryDir, List<String> remoteRepositoryUris, ArtifactResolverConfig config)
+    {
+        requireNonNull(config, "config is null");
+
         MavenServiceLocator locator = new MavenServiceLocator();
-        locator.addService(RepositoryConnectorFactory.class, FileRepositoryConnectorFactory.class);
-        locator.addService(RepositoryConnectorFactory.class, AsyncRepositoryConnectorFactory.class);
+        FileRepositoryConnectorFactory fileConnectorFactory = new FileRepositoryConnectorFactory();
+        fileConnectorFactory.initService(locator);
+        Supplier<RepositoryConnectorFactory> asyncConnectorFactory = Suppliers.memoize(() -> {
+            AsyncRepositoryConnectorFactory factory = new AsyncRepositoryConnectorFactory();
+            factory.initService(locator);
+            return factory;
+        });
+        List<RepositoryConnectorFactory> connectorFactories = new ArrayList<>();
+        config.getFileRepositoryMode().ifPresent(mode -> connectorFactories.add(new LocalFileConnectorFactory(fileConnectorFactory, mode)));
+        connectorFactories.add(fileConnectorFactory);
+        if (config.getHttpTransport() == HttpTransport.JDK) {
+            // the JDK connector creates the async-http-client connector only for uploads and proxies
+            connectorFactories.add(jdkConnectorFactory(asyncConnectorFactory));
+        }
+        else {
+            connectorFactories.add(asyncConnectorFactory.get());
+        }
+        downloadScheduler = config.getDownloadScheduler();
+        circuitBreakers = new CircuitBreakerRegistry(config.getRepositoryFailureThreshold(), config.getRepositoryCooldown(), config.getTransferRetries(), config.getTransferRetryBackoff(), config.getTicker());
+        locator.setServices(RepositoryConnectorFactory.class, connectorFactories.stream()
+                .map(DeadlineConnectorFactory::new)
+                .map(circuitBreakers::wrap)
+                .map(factory -> downloadScheduler.<RepositoryConnectorFactory>map(scheduler -> new SchedulingConnectorFactory(factory, scheduler)).orElse(factory))
+                .map(SingleFlightConnectorFactory::new)
+                .toArray(RepositoryConnectorFactory[]::new));
+
+        DefaultArtifactDescriptorReader descriptorReader = new DefaultArtifactDescriptorReader();
+        descriptorReader.initService(locator);
+        locator.setServices(ArtifactDescriptorReader.class, config.getDescriptorCache()
+                .<ArtifactDescriptorReader>map(cache -> new CachingArtifactDescriptorReader(descriptorReader, cache))
+                .orElseGet(() -> (config.getCollectionThreads() > 1)
+                        // the parallel collector reads the descriptors before Aether does, which must find them again
+                        ? CachingArtifactDescriptorReader.perSession(descriptorReader)
+                        : descriptorReader));
+
+        DefaultUpdateCheckManager updateCheckManager = new DefaultUpdateCheckManager();
+        updateCheckManager.initService(locator);
+        locator.setServices(UpdateCheckManager.class, new CachingUpdateCheckManager(updateCheckManager));
+
+        DefaultVersionRangeResolver versionRangeResolver = new DefaultVersionRangeResolver();
+        versionRangeResolver.initService(locator);
+        locator.setServices(VersionRangeResolver.class, new PackedVersionRangeResolver(versionRangeResolver));
+
+        if (config.getCollectionThreads() > 1) {
+            DefaultDependencyCollector dependencyCollector = new DefaultDependencyCollector();
+            dependencyCollector.initService(locator);
+            locator.setServices(DependencyCollector.class, new ParallelDependencyCollector(
+                    dependencyCollector,
+                    locator.getService(ArtifactDescriptorReader.class),
+                    locator.getService(VersionRangeResolver.class),
+                    locator.getService(RemoteRepositoryManager.class),
+                    config.getCollectionThreads()));
+        }
+
         repositorySystem = locator.getService(RepositorySystem.class);
 
         repositorySystemSession = new MavenRepositorySystemSession();
 
         LocalRepositoryManager localRepositoryManager = new SimpleLocalRepositoryManager(localRepositoryDir);
+        Path localRepositoryPath = localRepositoryManager.getRepository().getBasedir().toPath();
+        localRepositoryIndex = config.getLocalRepositoryIndexMode().map(mode -> (mode == LocalRepositoryIndexMode.PERSISTENT)
+                ? new LocalRepositoryIndex(localRepositoryPath, localRepositoryPath.resolve(LOCAL_REPOSITORY_INDEX_FILE))
+                : new LocalRepositoryIndex(localRepositoryPath));
+        // files deleted or replaced by other tools since the index was saved are dropped in the background;
+        // until then, the ones a resolution returns are found missing and resolved again
+        if (config.getLocalRepositoryIndexMode().equals(Optional.of(LocalRepositoryIndexMode.PERSISTENT))) {
+            LocalRepositoryIndex index = localRepositoryIndex.get();
+            new ThreadFactoryBuilder()
+                    .setNameFormat("local-repository-index-check-%s")
+                    .setDaemon(true)
+                    .build()
+                    .newThread(index::check)
+                    .start();
+        }
+        if (localRepositoryIndex.isPresent()) {
+            localRepositoryManager = new IndexedLocalRepositoryManager(localRepositoryManager, localRepositoryIndex.get());
+        }
+        accessLog = config.isTrackAccessTimes() ? Optional.of(new AccessLog(localRepositoryPath.resolve(ACCESS_LOG_FILE))) : Optional.empty();
+        if (accessLog.isPresent()) {
+            localRepositoryManager = new AccessTrackingLocalRepositoryManager(localRepositoryManager, accessLog.get());
+        }
+        evictionMarker = localRepositoryPath.resolve(EVICTION_MARKER_FILE).toFile();
+        lastEviction = evictionMarker.lastModified();
         repositorySystemSession.setLocalRepositoryManager(localRepositoryManager);
 
-        repositorySystemSession.setTransferListener(new ConsoleTransferListener());
+        TransferListener transferListener = ChainedTransferListener.newInstance(new ConsoleTransferListener(), new FlightRecorderTransferListener());
+        repositorySystemSession.setTransferListener(transferListener);
         repositorySystemSession.setRepositoryListener(new ConsoleRepositoryListener());
 
+        // prune during collection, so descriptors of unwanted subtrees are never read
+        scopes = config.getScopes().map(IncludedScopesDependencySelector::classpathScopes);
+        if (scopes.isPresent() || !config.getExclusions().isEmpty()) {
+            Set<DependencySelector> selectors = new LinkedHashSet<>();
+            selectors.add(repositorySystemSession.getDependencySelector());
+            scopes.ifPresent(included -> selectors.add(new IncludedScopesDependencySelector(included)));
+            if (!config.getExclusions().isEmpty()) {
+                selectors.add(new ExclusionDependencySelector(config.getExclusions()));
+            }
+            repositorySystemSession.setDependencySelector(new AndDependencySelector(selectors));
+        }
+        if (config.getFileRepositoryMode().equals(Optional.of(FileRepositoryMode.IN_PLACE))) {
+            // snapshot normalization copies the file next to the original, which is in the remote repository
+            repositorySystemSession.setConfigProperty("aether.artifactResolver.snapshotNormalization", false);
+        }
+
+        if (config.isVerifyChecksums()) {
+            File localRepository = localRepositoryManager.getRepository().getBasedir();
+            VerifiedChecksumIndex index = new VerifiedChecksumIndex(new File(localRepository, VERIFIED_CHECKSUMS_FILE).toPath());
+            checksumVerifier = Optional.of(new ChecksumVerifier(localRepository, index, transferListener, Runtime.getRuntime().availableProcessors()));
+        }
+        else {
+            checksumVerifier = Optional.empty();
+        }
+
+        updatePolicy = config.getUpdatePolicy();
+        repositoryUpdatePolicies = config.getRepositoryUpdatePolicies();
+
         List<RemoteRepository> repositories = new ArrayList<>(remoteRepositoryUris.size());
         int index = 0;
         for (String repositoryUri : remoteRepositoryUris) {
@@ -116,6 +332,132 @@ public class ArtifactResolver
     }
 
     public List<Artifact> resolveArtifacts(Iterable<? extends Artifact> sourceArtifacts)
+    {
+        return resolveArtifacts(newSession(), createDependencyRequest(sourceArtifacts));
+    }
+
+    public ResolutionResult resolveArtifacts(Iterable<? extends Artifact> sourceArtifacts, Duration timeout)
+    {
+        return resolveArtifacts(sourceArtifacts, Instant.now().plus(requireNonNull(timeout, "timeout is null")));
+    }
+
+    /**
+     * Resolves the same artifacts as {@link #resolveArtifacts(Iterable)}, but stops at the
+     * deadline, or when the calling thread is interrupted, and returns what was resolved
+     * by then. Transfers in progress are cut short, and the remaining ones are not started.
+     */
+    public ResolutionResult resolveArtifacts(Iterable<? extends Artifact> sourceArtifacts, Instant deadline)
+    {
+        ResolutionDeadline resolutionDeadline = new ResolutionDeadline(deadline);
+        List<Artifact> artifacts = resolveArtifacts(newSession(Optional.of(resolutionDeadline)), createDependencyRequest(sourceArtifacts));
+        return toResolutionResult(artifacts, resolutionDeadline);
+    }
+
+    public List<Artifact> resolveArtifactsLazily(Artifact... sourceArtifacts)
+    {
+        return resolveArtifactsLazily(Arrays.asList(sourceArtifacts));
+    }
+
+    /**
+     * Collects the same artifacts as {@link #resolveArtifacts(Iterable)}, but does not
+     * download them. The file of each artifact is downloaded on the first call to
+     * {@link Artifact#getFile()}; use {@link #materialize(List)} to download all of them.
+     */
+    public List<Artifact> resolveArtifactsLazily(Iterable<? extends Artifact> sourceArtifacts)
+    {
+        DependencyRequest dependencyRequest = createDependencyRequest(sourceArtifacts);
+
+        CollectResult collectResult = collectDependencies(newSession(), dependencyRequest.getCollectRequest());
+        if (collectResult.getRoot() == null) {
+            return ImmutableList.of();
+        }
+
+        // same traversal as dependency resolution, so the artifacts are in the same order
+        PreorderNodeListGenerator nodes = new PreorderNodeListGenerator();
+        collectResult.getRoot().accept(new TreeDependencyVisitor(new FilteringDependencyVisitor(nodes, dependencyRequest.getFilter())));
+        return nodes.getNodes().stream()
+                .filter(node -> node.getDependency() != null)
+                .map(node -> new LazyArtifact(new ArtifactRequest(node), this::resolveFiles))
+                .collect(toImmutableList());
+    }
+
+    /**
+     * Downloads the files of all lazily resolved artifacts in the list that are not
+     * downloaded yet, in parallel, and returns the resolved artifacts. Other artifacts
+     * are returned as is.
+     */
+    public List<Artifact> materialize(List<? extends Artifact> artifacts)
+    {
+        List<LazyArtifact> lazyArtifacts = artifacts.stream()
+                .filter(LazyArtifact.class::isInstance)
+                .map(LazyArtifact.class::cast)
+                .collect(toImmutableList());
+        Iterator<Artifact> resolved = LazyArtifact.resolveAll(lazyArtifacts, this::resolveFiles).iterator();
+
+        return artifacts.stream()
+                .map(artifact -> (artifact instanceof LazyArtifact) ? resolved.next() : artifact)
+                .collect(toImmutableList());
+    }
+
+    public ArtifactIterator resolveArtifactsStreaming(Iterable<? extends Artifact> sourceArtifacts)
+    {
+        return resolveArtifactsStreaming(sourceArtifacts, STREAMING_THREADS);
+    }
+
+    /**
+     * Resolves the same artifacts as {@link #resolveArtifacts(Iterable)}, and returns each
+     * one as soon as its file is downloaded. The graph is collected before this method
+     * returns; the files are downloaded by the given number of threads.
+     */
+    public ArtifactIterator resolveArtifactsStreaming(Iterable<? extends Artifact> sourceArtifacts, int threads)
+    {
+        List<Callable<Artifact>> resolvers = resolveArtifactsLazily(sourceArtifacts).stream()
+                .map(LazyArtifact.class::cast)
+                .map(artifact -> (Callable<Artifact>) artifact::resolve)
+                .collect(toImmutableList());
+        return new ArtifactIterator(resolvers, threads);
+    }
+
+    /**
+     * Returns the health of each remote repository this resolver has contacted, by URL.
+     * Repositories that failed repeatedly are skipped until their cooldown expires.
+     */
+    public Map<String, RepositoryHealth> getRepositoryHealth()
+    {
+        return circuitBreakers.getHealth();
+    }
+
+    /**
+     * Closes the {@link ArtifactResolverConfig#setDownloadScheduler download scheduler}
+     * of this resolver, if it has one. Resolvers that share a scheduler should all be
+     * closed once none of them is used any more.
+     */
+    @Override
+    public void close()
+    {
+        downloadScheduler.ifPresent(DownloadScheduler::close);
+    }
+
+    /**
+     * Starts a caching proxy on the given address that serves the local repository
+     * of this resolver, and fetches missing files from its remote repositories.
+     * Other resolvers can use the {@link RepositoryProxy#getUri() proxy} as their
+     * only remote repository. The caller must close the proxy.
+     */
+    public RepositoryProxy startProxy(InetSocketAddress address)
+    {
+        List<String> upstreamRepositoryUris = repositories.stream()
+                .map(repository -> DEPRECATED_MAVEN_CENTRAL_URIS.contains(repository.getUrl()) ? MAVEN_CENTRAL_URI : repository.getUrl())
+                .collect(toImmutableList());
+        try {
+            return new RepositoryProxy(repositorySystemSession.getLocalRepository().getBasedir().toPath(), upstreamRepositoryUris, address, repositorySystemSession.getTransferListener());
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Error starting repository proxy on " + address, e);
+        }
+    }
+
+    private DependencyRequest createDependencyRequest(Iterable<? extends Artifact> sourceArtifacts)
     {
         CollectRequest collectRequest = new CollectRequest();
         for (Artifact sourceArtifact : sourceArtifacts) {
@@ -126,12 +468,10 @@ public class ArtifactResolver
             if (DEPRECATED_MAVEN_CENTRAL_URIS.contains(repository.getUrl())) {
                 repository = new RemoteRepository(repository.getId(), repository.getContentType(), MAVEN_CENTRAL_URI);
             }
-            collectRequest.addRepository(repository);
+            collectRequest.addRepository(withUpdatePolicy(repository));
         }
 
-        DependencyRequest dependencyRequest = new DependencyRequest(collectRequest, DependencyFilterUtils.classpathFilter(JavaScopes.RUNTIME));
-
-        return resolveArtifacts(dependencyRequest);
+        return new DependencyRequest(collectRequest, DependencyFilterUtils.classpathFilter(JavaScopes.RUNTIME));
     }
 
     public List<Artifact> resolvePom(File pomFile)
@@ -141,10 +481,214 @@ public class ArtifactResolver
         }
 
         MavenProject pom = getMavenProject(pomFile);
+        return resolveProject(pom, getWorkspace(pom, repositorySystemSession), Optional.empty());
+    }
+
+    public ResolutionResult resolvePom(File pomFile, Duration timeout)
+    {
+        return resolvePom(pomFile, Instant.now().plus(requireNonNull(timeout, "timeout is null")));
+    }
+
+    /**
+     * Resolves the same artifacts as {@link #resolvePom(File)}, but stops at the deadline,
+     * or when the calling thread is interrupted, and returns what was resolved by then.
+     * When the POM itself cannot be built in time, for example because its parent was
+     * not downloaded, the result has no artifacts.
+     */
+    public ResolutionResult resolvePom(File pomFile, Instant deadline)
+    {
+        requireNonNull(pomFile, "pomFile is null");
+        ResolutionDeadline resolutionDeadline = new ResolutionDeadline(deadline);
+
+        MavenProject pom;
+        WorkspaceReader workspace;
+        try {
+            RepositorySystemSession session = newSession(Optional.of(resolutionDeadline));
+            pom = getMavenProject(pomFile, session);
+            workspace = getWorkspace(pom, session);
+        }
+        catch (RuntimeException e) {
+            if (!resolutionDeadline.isExpired()) {
+                throw e;
+            }
+            return toResolutionResult(ImmutableList.of(), resolutionDeadline);
+        }
+        return toResolutionResult(resolveProject(pom, workspace, Optional.of(resolutionDeadline)), resolutionDeadline);
+    }
+
+    /**
+     * Resolves every project in the reactor of the given root POM, including the root
+     * itself and the modules of nested aggregators, as {@link #resolvePom(File)} would,
+     * and returns the artifacts of each project by its project artifact, in reactor
+     * order: each project after its parent and the projects it depends on, and otherwise
+     * in the order the modules are declared. The projects are built, and their
+     * dependencies resolved, in parallel; dependencies on projects in the reactor are
+     * resolved to their output directories, with the dependencies declared in their POMs.
+     *
+     * @throws IllegalArgumentException if the modules, or the dependencies between the
+     * projects, contain a cycle
+     */
+    public Map<Artifact, List<Artifact>> resolveReactor(File rootPom)
+    {
+        requireNonNull(rootPom, "rootPom is null");
+
+        ForkJoinPool pool = new ForkJoinPool(REACTOR_THREADS);
+        try {
+            List<MavenProject> projects;
+            try {
+                projects = sortReactor(pool.invoke(new ReactorProjectBuilder(rootPom, ImmutableList.of())));
+            }
+            catch (IllegalArgumentException e) {
+                // a failure in a worker is rethrown as a copy that wraps the original
+                if (e.getCause() instanceof IllegalArgumentException) {
+                    throw (IllegalArgumentException) e.getCause();
+                }
+                throw e;
+            }
+            WorkspaceReader workspace = new ReactorWorkspaceReader(projects);
+            Map<String, Artifact> modules = projects.stream()
+                    .map(this::getProjectArtifact)
+                    .collect(toMap(ArtifactResolver::getArtifactKey, identity(), (first, second) -> first, LinkedHashMap::new));
+
+            Map<String, ForkJoinTask<List<Artifact>>> resolutions = new LinkedHashMap<>();
+            for (MavenProject project : projects) {
+                resolutions.putIfAbsent(getArtifactKey(getProjectArtifact(project)), pool.submit(() -> resolveProject(project, workspace, Optional.empty())));
+            }
+
+            ImmutableMap.Builder<Artifact, List<Artifact>> result = ImmutableMap.builder();
+            resolutions.forEach((key, resolution) -> result.put(modules.get(key), resolution.join()));
+            return result.build();
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds a project and, in parallel, the projects of its modules.
+     */
+    @SuppressWarnings("serial")
+    private class ReactorProjectBuilder
+            extends RecursiveTask<List<MavenProject>>
+    {
+        private final File pomFile;
+        private final List<File> aggregators;
+
+        private ReactorProjectBuilder(File pomFile, List<File> aggregators)
+        {
+            this.pomFile = pomFile;
+            this.aggregators = aggregators;
+        }
+
+        @Override
+        protected List<MavenProject> compute()
+        {
+            File canonicalFile = canonicalFile(pomFile);
+            if (aggregators.contains(canonicalFile)) {
+                String cycle = Stream.concat(aggregators.subList(aggregators.indexOf(canonicalFile), aggregators.size()).stream(), Stream.of(canonicalFile))
+                        .map(File::getPath)
+                        .collect(joining(" -> "));
+                throw new IllegalArgumentException("The modules of the reactor contain a cycle: " + cycle);
+            }
+            List<File> path = ImmutableList.<File>builder().addAll(aggregators).add(canonicalFile).build();
+            MavenProject project = getMavenProject(pomFile);
+
+            List<ReactorProjectBuilder> modules = new ArrayList<>();
+            for (String module : project.getModules()) {
+                File moduleFile = new File(pomFile.getAbsoluteFile().getParentFile(), module);
+                if (moduleFile.isDirectory()) {
+                    moduleFile = new File(moduleFile, "pom.xml");
+                }
+                if (moduleFile.isFile()) {
+                    modules.add(new ReactorProjectBuilder(moduleFile, path));
+                }
+            }
+            invokeAll(modules);
+
+            ImmutableList.Builder<MavenProject> projects = ImmutableList.builder();
+            projects.add(project);
+            for (ReactorProjectBuilder module : modules) {
+                projects.addAll(module.join());
+            }
+            return projects.build();
+        }
+    }
+
+    /**
+     * Orders the projects of a reactor as Maven builds them: each project after its
+     * parent and the projects it depends on, and otherwise in the given order.
+     */
+    private static List<MavenProject> sortReactor(List<MavenProject> projects)
+    {
+        Map<String, MavenProject> projectsByKey = new LinkedHashMap<>();
+        for (MavenProject project : projects) {
+            projectsByKey.putIfAbsent(getProjectKey(project.getGroupId(), project.getArtifactId(), project.getVersion()), project);
+        }
+
+        Set<String> sorted = new LinkedHashSet<>();
+        for (String key : projectsByKey.keySet()) {
+            sortReactor(key, projectsByKey, sorted, new ArrayList<>());
+        }
+        return sorted.stream()
+                .map(projectsByKey::get)
+                .collect(toImmutableList());
+    }
+
+    private static void sortReactor(String key, Map<String, MavenProject> projects, Set<String> sorted, List<String> path)
+    {
+        if (sorted.contains(key)) {
+            return;
+        }
+        if (path.contains(key)) {
+            String cycle = Stream.concat(path.subList(path.indexOf(key), path.size()).stream(), Stream.of(key))
+                    .collect(joining(" -> "));
+            throw new IllegalArgumentException("The projects of the reactor contain a cycle: " + cycle);
+        }
+
+        MavenProject project = projects.get(key);
+        List<String> upstream = new ArrayList<>();
+        Parent parent = project.getModel().getParent();
+        if (parent != null) {
+            upstream.add(getProjectKey(parent.getGroupId(), parent.getArtifactId(), parent.getVersion()));
+        }
+        for (org.apache.maven.model.Dependency dependency : project.getDependencies()) {
+            upstream.add(getProjectKey(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion()));
+        }
+
+        path.add(key);
+        for (String dependency : upstream) {
+            if (projects.containsKey(dependency)) {
+                sortReactor(dependency, projects, sorted, path);
+            }
+        }
+        path.remove(path.size() - 1);
+        sorted.add(key);
+    }
+
+    private static String getProjectKey(String groupId, String artifactId, String version)
+    {
+        return format("%s:%s:%s", groupId, artifactId, version);
+    }
+
+    private static File canonicalFile(File file)
+    {
+        try {
+            return file.getCanonicalFile();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Artifact> resolveProject(MavenProject pom, WorkspaceReader workspace, Optional<ResolutionDeadline> deadline)
+    {
         Artifact rootArtifact = getProjectArtifact(pom);
 
         CollectRequest collectRequest = new CollectRequest();
         for (org.apache.maven.model.Dependency dependency : pom.getDependencies()) {
+            if (scopes.isPresent() && !scopes.get().contains(IncludedScopesDependencySelector.scopeOf(dependency.getScope()))) {
+                continue;
+            }
             collectRequest.addDependency(toAetherDependency(dependency));
         }
 
@@ -155,13 +699,13 @@ public class ArtifactResolver
             if (DEPRECATED_MAVEN_CENTRAL_URIS.contains(repository.getUrl())) {
                 repository = new RemoteRepository(repository.getId(), repository.getContentType(), MAVEN_CENTRAL_URI);
             }
-            allRepositories.add(repository);
+            allRepositories.add(withUpdatePolicy(repository));
         }
         for (RemoteRepository repository : repositories) {
             if (DEPRECATED_MAVEN_CENTRAL_URIS.contains(repository.getUrl())) {
                 repository = new RemoteRepository(repository.getId(), repository.getContentType(), MAVEN_CENTRAL_URI);
             }
-            allRepositories.add(repository);
+            allRepositories.add(withUpdatePolicy(repository));
         }
         collectRequest.setRepositories(allRepositories.build());
 
@@ -172,33 +716,61 @@ public class ArtifactResolver
             }
         }
 
+        // projects of the reactor are read from disk, so modules that were never deployed are not looked up remotely
+        RepositorySystemSession session = new DefaultRepositorySystemSession(newSession(deadline))
+                .setWorkspaceReader(workspace);
         DependencyRequest dependencyRequest = new DependencyRequest(collectRequest, DependencyFilterUtils.classpathFilter(JavaScopes.RUNTIME));
-        List<Artifact> artifacts = resolveArtifacts(dependencyRequest);
+        List<Artifact> artifacts = resolveArtifacts(session, dependencyRequest);
 
-        Map<String, Artifact> modules = getSiblingModules(pom).stream()
-                .collect(toMap(ArtifactResolver::getArtifactKey, identity()));
-
-        return Stream.concat(
-                Stream.of(rootArtifact),
-                artifacts.stream()
-                        .map(artifact -> modules.getOrDefault(getArtifactKey(artifact), artifact)))
-                .collect(toImmutableList());
+        return ImmutableList.<Artifact>builder()
+                .add(rootArtifact)
+                .addAll(artifacts)
+                .build();
     }
 
     private MavenProject getMavenProject(File pomFile)
+    {
+        return getMavenProject(pomFile, repositorySystemSession);
+    }
+
+    private MavenProject getMavenProject(File pomFile, RepositorySystemSession session)
+    {
+        if (!FlightRecorderSupport.isAvailable()) {
+            return buildMavenProject(pomFile, session);
+        }
+        ModelBuildEvent event = new ModelBuildEvent();
+        event.begin();
+        MavenProject project = null;
+        try {
+            project = buildMavenProject(pomFile, session);
+            return project;
+        }
+        finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.pomFile = pomFile.getAbsolutePath();
+                if (project != null) {
+                    event.project = project.getId();
+                }
+                event.commit();
+            }
+        }
+    }
+
+    private MavenProject buildMavenProject(File pomFile, RepositorySystemSession session)
     {
         try {
-            PlexusContainer container = container();
+            PlexusContainer container = this.container.get();
             org.apache.maven.repository.RepositorySystem lrs = container.lookup(org.apache.maven.repository.RepositorySystem.class);
             ProjectBuilder projectBuilder = container.lookup(ProjectBuilder.class);
             ProjectBuildingRequest request = new DefaultProjectBuildingRequest();
             request.setSystemProperties(requiredSystemProperties());
-            request.setRepositorySession(repositorySystemSession);
+            request.setRepositorySession(session);
             request.setProcessPlugins(false);
-            request.setLocalRepository(lrs.createDefaultLocalRepository());
+            // use the same local repository as the resolver, otherwise parents and BOMs are read from the user's repository
+            request.setLocalRepository(lrs.createLocalRepository(repositorySystemSession.getLocalRepository().getBasedir()));
             request.setRemoteRepositories(Arrays.asList(new ArtifactRepository[] {lrs.createDefaultRemoteRepository()}.clone()));
-            ProjectBuildingResult result = projectBuilder.build(pomFile, request);
-            return result.getProject();
+            return projectBuilder.build(pomFile, request).getProject();
         }
         catch (Exception e) {
             throw new RuntimeException("Error loading pom: " + pomFile.getAbsolutePath(), e);
@@ -217,22 +789,43 @@ public class ArtifactResolver
                 new File(pom.getModel().getBuild().getOutputDirectory()));
     }
 
-    private List<Artifact> getSiblingModules(MavenProject module)
+    /**
+     * Returns the reactor of a project: the project itself and, when its parent is on
+     * disk, the parent and the modules of the parent.
+     */
+    private WorkspaceReader getWorkspace(MavenProject module, RepositorySystemSession session)
     {
         if (!module.hasParent() || module.getParentFile() == null) {
-            return ImmutableList.of();
+            return new ReactorWorkspaceReader(ImmutableList.of(module));
         }
 
         // Parent exists and is a project reactor
         MavenProject parent = module.getParent();
         String parentDir = module.getParentFile().getParent();
 
-        return parent.getModules().stream()
-                .map(moduleName -> new File(parentDir, moduleName + "/pom.xml"))
-                .filter(File::isFile)
-                .map(this::getMavenProject)
-                .map(this::getProjectArtifact)
-                .collect(toImmutableList());
+        return new ReactorWorkspaceReader(Stream.concat(
+                Stream.of(module, parent),
+                parent.getModules().stream()
+                        .map(moduleName -> new File(parentDir, moduleName + "/pom.xml"))
+                        .filter(File::isFile)
+                        .filter(pomFile -> !pomFile.getAbsoluteFile().equals(module.getFile().getAbsoluteFile()))
+                        .map(pomFile -> getMavenProject(pomFile, session)))
+                .collect(toImmutableList()));
+    }
+
+    private RemoteRepository withUpdatePolicy(RemoteRepository repository)
+    {
+        UpdatePolicy policy = repositoryUpdatePolicies.getOrDefault(ArtifactResolverConfig.normalizeUri(repository.getUrl()), updatePolicy.orElse(null));
+        if (policy == null) {
+            return repository;
+        }
+
+        RemoteRepository result = new RemoteRepository(repository);
+        for (boolean snapshot : new boolean[] {false, true}) {
+            RepositoryPolicy repositoryPolicy = repository.getPolicy(snapshot);
+            result.setPolicy(snapshot, new RepositoryPolicy(repositoryPolicy.isEnabled(), policy.getValue(), repositoryPolicy.getChecksumPolicy()));
+        }
+        return result;
     }
 
     /**
@@ -260,19 +853,187 @@ public class ArtifactResolver
         return new Dependency(artifact, dependency.getScope(), dependency.isOptional(), exclusions.build());
     }
 
-    private List<Artifact> resolveArtifacts(DependencyRequest dependencyRequest)
+    private List<Artifact> resolveArtifacts(RepositorySystemSession session, DependencyRequest dependencyRequest)
+    {
+        ResolutionEvent event = beginResolution();
+
+        // collected separately from the resolution of the files, so each is timed on its own
+        CollectResult collectResult = collectDependencies(session, dependencyRequest.getCollectRequest());
+        List<ArtifactResult> artifactResults = ImmutableList.of();
+        if (collectResult.getRoot() != null) {
+            DependencyResult dependencyResult;
+            try {
+                dependencyResult = repositorySystem.resolveDependencies(session, new DependencyRequest(collectResult.getRoot(), dependencyRequest.getFilter()));
+            }
+            catch (DependencyResolutionException e) {
+                dependencyResult = e.getResult();
+            }
+            artifactResults = dependencyResult.getArtifactResults();
+        }
+
+        List<Artifact> artifacts = toArtifacts(session, artifactResults);
+        if (ResolutionDeadline.get(session).isPresent()) {
+            artifacts = withUncollected(artifacts, collectResult);
+        }
+        commit(event, () -> describe(dependencyRequest.getCollectRequest()), artifacts);
+        return artifacts;
+    }
+
+    /**
+     * Adds the dependencies whose POM could not be read, which the collector leaves
+     * out of the graph, as unresolved artifacts.
+     */
+    private static List<Artifact> withUncollected(List<Artifact> artifacts, CollectResult collectResult)
+    {
+        Set<String> keys = artifacts.stream()
+                .map(ArtifactResolver::getArtifactKey)
+                .collect(toSet());
+        List<Artifact> result = new ArrayList<>(artifacts);
+        for (Exception exception : collectResult.getExceptions()) {
+            if (exception instanceof ArtifactDescriptorException) {
+                Artifact artifact = ((ArtifactDescriptorException) exception).getResult().getRequest().getArtifact();
+                if (keys.add(getArtifactKey(artifact))) {
+                    result.add(artifact);
+                }
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private List<Artifact> resolveFiles(List<ArtifactRequest> artifactRequests)
+    {
+        ResolutionEvent event = beginResolution();
+
+        RepositorySystemSession session = newSession();
+        List<ArtifactResult> artifactResults;
+        try {
+            artifactResults = repositorySystem.resolveArtifacts(session, artifactRequests);
+        }
+        catch (ArtifactResolutionException e) {
+            artifactResults = e.getResults();
+        }
+
+        List<Artifact> artifacts = toArtifacts(session, artifactResults);
+        commit(event, () -> artifactRequests.stream().map(request -> toCoordinates(request.getArtifact())).collect(joining(", ")), artifacts);
+        return artifacts;
+    }
+
+    private CollectResult collectDependencies(RepositorySystemSession session, CollectRequest collectRequest)
+    {
+        if (!FlightRecorderSupport.isAvailable()) {
+            return collect(session, collectRequest);
+        }
+        CollectionEvent event = new CollectionEvent();
+        event.begin();
+        CollectResult collectResult = collect(session, collectRequest);
+        event.end();
+        if (event.shouldCommit()) {
+            event.request = describe(collectRequest);
+            event.failed = !collectResult.getExceptions().isEmpty();
+            if (collectResult.getRoot() != null) {
+                PreorderNodeListGenerator nodes = new PreorderNodeListGenerator();
+                collectResult.getRoot().accept(nodes);
+                event.dependencies = (int) nodes.getNodes().stream().filter(node -> node.getDependency() != null).count();
+            }
+            event.commit();
+        }
+        return collectResult;
+    }
+
+    private CollectResult collect(RepositorySystemSession session, CollectRequest collectRequest)
     {
-        DependencyResult dependencyResult;
         try {
-            dependencyResult = repositorySystem.resolveDependencies(repositorySystemSession, dependencyRequest);
+            return repositorySystem.collectDependencies(session, collectRequest);
+        }
+        catch (DependencyCollectionException e) {
+            return e.getResult();
         }
-        catch (DependencyResolutionException e) {
-            dependencyResult = e.getResult();
+    }
+
+    /**
+     * Starts the event of a resolution, or returns null without the flight recorder API.
+     */
+    private static ResolutionEvent beginResolution()
+    {
+        if (!FlightRecorderSupport.isAvailable()) {
+            return null;
         }
-        List<ArtifactResult> artifactResults = dependencyResult.getArtifactResults();
+        ResolutionEvent event = new ResolutionEvent();
+        event.begin();
+        return event;
+    }
+
+    private static void commit(ResolutionEvent event, Supplier<String> request, List<Artifact> artifacts)
+    {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.request = request.get();
+            event.resolvedArtifacts = (int) artifacts.stream().filter(artifact -> artifact.getFile() != null).count();
+            event.unresolvedArtifacts = artifacts.size() - event.resolvedArtifacts;
+            event.commit();
+        }
+    }
+
+    private static String describe(CollectRequest collectRequest)
+    {
+        return collectRequest.getDependencies().stream()
+                .map(dependency -> toCoordinates(dependency.getArtifact()))
+                .collect(joining(", "));
+    }
+
+    private static String toCoordinates(Artifact artifact)
+    {
+        if (artifact.getClassifier().isEmpty()) {
+            return format("%s:%s:%s:%s", artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(), artifact.getVersion());
+        }
+        return format("%s:%s:%s:%s:%s", artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(), artifact.getClassifier(), artifact.getVersion());
+    }
+
+    private static ResolutionResult toResolutionResult(List<Artifact> artifacts, ResolutionDeadline deadline)
+    {
+        if (deadline.isCancelled()) {
+            // connectors waiting for a transfer may have cleared the interrupt
+            Thread.currentThread().interrupt();
+        }
+        return new ResolutionResult(artifacts, deadline.isExceeded(), deadline.isCancelled());
+    }
+
+    private RepositorySystemSession newSession()
+    {
+        return newSession(Optional.empty());
+    }
+
+    private RepositorySystemSession newSession(Optional<ResolutionDeadline> deadline)
+    {
+        long eviction = checkEvictions();
+
+        // Aether skips update checks already made in the same session, so each resolution gets
+        // its own session data; otherwise metadata would never be updated for the life of the resolver
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession(repositorySystemSession)
+                .setData(new DefaultSessionData());
+        // each resolution compares with the eviction it started after, as concurrent ones also check for evictions
+        session.getData().set(EVICTION_TIME_KEY, eviction);
+
+        if (downloadScheduler.isPresent()) {
+            // record the depth of each dependency, so the scheduler can download shallow ones first
+            DependencyDepths depths = new DependencyDepths();
+            depths.install(session);
+            session.setDependencySelector(new DependencyDepthSelector(repositorySystemSession.getDependencySelector(), depths));
+        }
+        deadline.ifPresent(resolutionDeadline -> resolutionDeadline.install(session));
+        return session;
+    }
+
+    private List<Artifact> toArtifacts(RepositorySystemSession session, List<ArtifactResult> artifactResults)
+    {
+        artifactResults = reloadEvicted(session, artifactResults);
+        Set<File> corruptedFiles = verifyChecksums(artifactResults);
         List<Artifact> artifacts = new ArrayList<>(artifactResults.size());
         for (ArtifactResult artifactResult : artifactResults) {
-            if (artifactResult.isMissing()) {
+            if (!artifactResult.isResolved() || corruptedFiles.contains(artifactResult.getArtifact().getFile())) {
                 artifacts.add(artifactResult.getRequest().getArtifact());
             }
             else {
@@ -280,10 +1041,150 @@ public class ArtifactResolver
             }
         }
 
+        localRepositoryIndex.ifPresent(LocalRepositoryIndex::save);
+        accessLog.ifPresent(AccessLog::save);
         return Collections.unmodifiableList(artifacts);
     }
 
-    private static PlexusContainer container()
+    /**
+     * Returns the time of the last eviction from the local repository, and drops the
+     * evicted files from the index if there was an eviction since the last check. This
+     * costs a single file check when nothing was evicted.
+     */
+    private long checkEvictions()
+    {
+        long eviction = evictionMarker.lastModified();
+        if (eviction != lastEviction) {
+            lastEviction = eviction;
+            localRepositoryIndex.ifPresent(LocalRepositoryIndex::check);
+        }
+        return eviction;
+    }
+
+    /**
+     * Resolves again the artifacts whose files were evicted from the local repository
+     * while they were being resolved in the given session. The index is trusted without
+     * checking the file system, so with an index, the resolved files are always checked,
+     * and the missing ones are dropped from the index before they are resolved again.
+     */
+    private List<ArtifactResult> reloadEvicted(RepositorySystemSession session, List<ArtifactResult> artifactResults)
+    {
+        boolean evictedDuringResolution = checkEvictions() != (long) session.getData().get(EVICTION_TIME_KEY);
+        if (!evictedDuringResolution && !localRepositoryIndex.isPresent()) {
+            return artifactResults;
+        }
+
+        List<Integer> evicted = new ArrayList<>();
+        for (int i = 0; i < artifactResults.size(); i++) {
+            ArtifactResult artifactResult = artifactResults.get(i);
+            // output directories of reactor projects may not be built yet
+            if (artifactResult.isResolved() && !(artifactResult.getRepository() instanceof WorkspaceRepository) && !artifactResult.getArtifact().getFile().exists()) {
+                evicted.add(i);
+            }
+        }
+        if (evicted.isEmpty()) {
+            return artifactResults;
+        }
+
+        if (localRepositoryIndex.isPresent()) {
+            Path localRepository = repositorySystemSession.getLocalRepository().getBasedir().toPath().toAbsolutePath();
+            for (int index : evicted) {
+                Path file = artifactResults.get(index).getArtifact().getFile().toPath().toAbsolutePath();
+                if (file.startsWith(localRepository)) {
+                    localRepositoryIndex.get().remove(localRepository.relativize(file).toString());
+                }
+            }
+        }
+
+        List<ArtifactRequest> requests = evicted.stream()
+                .map(index -> artifactResults.get(index).getRequest())
+                .collect(toImmutableList());
+        List<ArtifactResult> reloaded;
+        try {
+            reloaded = repositorySystem.resolveArtifacts(newSession(), requests);
+        }
+        catch (ArtifactResolutionException e) {
+            reloaded = e.getResults();
+        }
+
+        List<ArtifactResult> results = new ArrayList<>(artifactResults);
+        for (int i = 0; i < evicted.size(); i++) {
+            results.set(evicted.get(i), reloaded.get(i));
+        }
+        return results;
+    }
+
+    private Set<File> verifyChecksums(List<ArtifactResult> artifactResults)
+    {
+        if (!checksumVerifier.isPresent()) {
+            return ImmutableSet.of();
+        }
+
+        Path localRepository = repositorySystemSession.getLocalRepository().getBasedir().toPath().toAbsolutePath();
+        Set<File> files = new LinkedHashSet<>();
+        for (ArtifactResult artifactResult : artifactResults) {
+            if (!artifactResult.isResolved()) {
+                continue;
+            }
+            Artifact artifact = artifactResult.getArtifact();
+            File file = artifact.getFile();
+            if (!file.isFile() || !file.toPath().toAbsolutePath().startsWith(localRepository)) {
+                continue;
+            }
+            files.add(file);
+
+            // the local repository manager knows the file name of timestamped snapshots
+            LocalRepositoryManager localRepositoryManager = repositorySystemSession.getLocalRepositoryManager();
+            Artifact pom = new SubArtifact(artifact, "", "pom");
+            String pomPath;
+            if (artifactResult.getRepository() instanceof RemoteRepository) {
+                pomPath = localRepositoryManager.getPathForRemoteArtifact(pom, (RemoteRepository) artifactResult.getRepository(), artifactResult.getRequest().getRequestContext());
+            }
+            else {
+                pomPath = localRepositoryManager.getPathForLocalArtifact(pom);
+            }
+            File pomFile = localRepository.resolve(pomPath).toFile();
+            if (pomFile.isFile()) {
+                files.add(pomFile);
+            }
+        }
+
+        Set<File> corruptedFiles = checksumVerifier.get().verify(files);
+        for (File file : corruptedFiles) {
+            // remove the file so the next resolution downloads it again
+            if (!file.delete()) {
+                throw new RuntimeException("Unable to delete corrupted file: " + file);
+            }
+            localRepositoryIndex.ifPresent(index -> index.remove(localRepository.relativize(file.toPath().toAbsolutePath()).toString()));
+        }
+        return corruptedFiles;
+    }
+
+    @VisibleForTesting
+    ProjectModelCache getProjectModelCache()
+    {
+        return projectModelCache;
+    }
+
+    private static RepositoryConnectorFactory jdkConnectorFactory(Supplier<RepositoryConnectorFactory> delegate)
+    {
+        // the connector needs Java 11, so it is in a module of its own that the resolver does not depend on
+        Class<? extends RepositoryConnectorFactory> factoryClass;
+        try {
+            factoryClass = Class.forName(JDK_CONNECTOR_FACTORY).asSubclass(RepositoryConnectorFactory.class);
+        }
+        catch (ClassNotFoundException | LinkageError e) {
+            throw new IllegalStateException("HttpTransport.JDK requires Java 11 and io.airlift.resolver:resolver-jdk-http on the class path", e);
+        }
+        try {
+            return factoryClass.getConstructor(Supplier.class).newInstance(delegate);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create " + JDK_CONNECTOR_FACTORY, e);
+        }
+    }
+
+    private static PlexusContainer container(ProjectModelCache modelCache)
     {
         try {
             ClassWorld classWorld = new ClassWorld("plexus.core", Thread.currentThread().getContextClassLoader());
@@ -301,9 +1202,15 @@ public class ArtifactResolver
             container.setLoggerManager(new Slf4jLoggerManager());
             container.getLoggerManager().setThresholds(Logger.LEVEL_INFO);
 
+            // Share parents and imported BOMs across all projects built by this resolver
+            container.getComponentDescriptor(ModelBuilder.class, ModelBuilder.class.getName(), "default").setImplementationClass(CachingModelBuilder.class);
+            CachingModelBuilder modelBuilder = (CachingModelBuilder) container.lookup(ModelBuilder.class);
+            modelBuilder.setModelCache(modelCache);
+            modelBuilder.setModelProcessor(new CachingModelProcessor(container.lookup(ModelProcessor.class), modelCache));
+
             return container;
         }
-        catch (PlexusContainerException e) {
+        catch (PlexusContainerException | ComponentLookupException e) {
             throw new RuntimeException("Error loading Maven system", e);
         }
     }
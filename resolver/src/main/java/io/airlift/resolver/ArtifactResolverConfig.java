@@ -0,0 +1,346 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.sonatype.aether.graph.Exclusion;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Optional settings for an {@link ArtifactResolver}. The defaults match the
+ * behavior of a resolver created without a configuration.
+ */
+public class ArtifactResolverConfig
+{
+    private boolean verifyChecksums;
+    private ArtifactDescriptorCache descriptorCache;
+    private UpdatePolicy updatePolicy;
+    private final Map<String, UpdatePolicy> repositoryUpdatePolicies = new HashMap<>();
+    private FileRepositoryMode fileRepositoryMode;
+    private Set<String> scopes;
+    private final Set<Exclusion> exclusions = new LinkedHashSet<>();
+    private DownloadScheduler downloadScheduler;
+    private int repositoryFailureThreshold = 3;
+    private Duration repositoryCooldown = Duration.ofSeconds(30);
+    private int transferRetries = 2;
+    private Duration transferRetryBackoff = Duration.ofMillis(200);
+    private Ticker ticker = Ticker.systemTicker();
+    private HttpTransport httpTransport = HttpTransport.ASYNC_HTTP_CLIENT;
+    private LocalRepositoryIndexMode localRepositoryIndexMode;
+    private boolean trackAccessTimes;
+    private int collectionThreads = 1;
+
+    public boolean isVerifyChecksums()
+    {
+        return verifyChecksums;
+    }
+
+    /**
+     * Verify resolved files in the local repository against their checksum files
+     * after every resolution. Corrupted files are reported to the transfer listener,
+     * deleted, and returned as unresolved artifacts.
+     */
+    public ArtifactResolverConfig setVerifyChecksums(boolean verifyChecksums)
+    {
+        this.verifyChecksums = verifyChecksums;
+        return this;
+    }
+
+    public Optional<ArtifactDescriptorCache> getDescriptorCache()
+    {
+        return Optional.ofNullable(descriptorCache);
+    }
+
+    /**
+     * Cache of parsed descriptors for release versions, which may be shared with
+     * other resolvers, for example {@link ArtifactDescriptorCache#shared()}. By
+     * default, descriptors are not cached across resolutions.
+     */
+    public ArtifactResolverConfig setDescriptorCache(ArtifactDescriptorCache descriptorCache)
+    {
+        this.descriptorCache = requireNonNull(descriptorCache, "descriptorCache is null");
+        return this;
+    }
+
+    public Optional<UpdatePolicy> getUpdatePolicy()
+    {
+        return Optional.ofNullable(updatePolicy);
+    }
+
+    /**
+     * Update policy for all repositories, including those declared in resolved
+     * POMs. By default, each repository keeps its own policy, which is daily
+     * unless a POM declares otherwise.
+     */
+    public ArtifactResolverConfig setUpdatePolicy(UpdatePolicy updatePolicy)
+    {
+        this.updatePolicy = requireNonNull(updatePolicy, "updatePolicy is null");
+        return this;
+    }
+
+    public Map<String, UpdatePolicy> getRepositoryUpdatePolicies()
+    {
+        return ImmutableMap.copyOf(repositoryUpdatePolicies);
+    }
+
+    /**
+     * Update policy for the repository with the given URI, which takes
+     * precedence over the policy for all repositories. A trailing slash
+     * in the URI is ignored.
+     */
+    public ArtifactResolverConfig setUpdatePolicy(String repositoryUri, UpdatePolicy updatePolicy)
+    {
+        requireNonNull(repositoryUri, "repositoryUri is null");
+        requireNonNull(updatePolicy, "updatePolicy is null");
+        repositoryUpdatePolicies.put(normalizeUri(repositoryUri), updatePolicy);
+        return this;
+    }
+
+    public Optional<FileRepositoryMode> getFileRepositoryMode()
+    {
+        return Optional.ofNullable(fileRepositoryMode);
+    }
+
+    /**
+     * How artifacts are taken from {@code file://} repositories. By default,
+     * they are streamed into the local repository and verified against their
+     * checksum files.
+     */
+    public ArtifactResolverConfig setFileRepositoryMode(FileRepositoryMode fileRepositoryMode)
+    {
+        this.fileRepositoryMode = requireNonNull(fileRepositoryMode, "fileRepositoryMode is null");
+        return this;
+    }
+
+    public Optional<Set<String>> getScopes()
+    {
+        return Optional.ofNullable(scopes);
+    }
+
+    /**
+     * Scopes of the dependencies to resolve. Dependencies in other scopes, both
+     * direct dependencies of a POM and transitive dependencies, are pruned during
+     * collection, so their descriptors are never read and their files never
+     * downloaded. A scope includes the scopes on its classpath, so the runtime
+     * scope keeps compile dependencies, including those of runtime dependencies,
+     * and the test scope keeps everything. By default, only test and provided
+     * dependencies below the first level are pruned, and everything outside the
+     * runtime classpath is removed after collection.
+     */
+    public ArtifactResolverConfig setScopes(Set<String> scopes)
+    {
+        this.scopes = ImmutableSet.copyOf(requireNonNull(scopes, "scopes is null"));
+        return this;
+    }
+
+    public Set<Exclusion> getExclusions()
+    {
+        return ImmutableSet.copyOf(exclusions);
+    }
+
+    /**
+     * Prunes the artifacts with the given group and artifact ID, and their
+     * dependencies, from every resolution, for example artifacts provided by a
+     * parent class loader. Either ID may be {@code *} to match any value.
+     */
+    public ArtifactResolverConfig addExclusion(String groupId, String artifactId)
+    {
+        requireNonNull(groupId, "groupId is null");
+        requireNonNull(artifactId, "artifactId is null");
+        exclusions.add(new Exclusion(groupId, artifactId, "*", "*"));
+        return this;
+    }
+
+    static String normalizeUri(String uri)
+    {
+        return uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri;
+    }
+
+    public Optional<DownloadScheduler> getDownloadScheduler()
+    {
+        return Optional.ofNullable(downloadScheduler);
+    }
+
+    /**
+     * Scheduler that limits and orders the downloads from each repository. By
+     * default, each batch of downloads is transferred at once. The scheduler is
+     * closed when the resolver is.
+     */
+    public ArtifactResolverConfig setDownloadScheduler(DownloadScheduler downloadScheduler)
+    {
+        this.downloadScheduler = requireNonNull(downloadScheduler, "downloadScheduler is null");
+        return this;
+    }
+
+    public int getRepositoryFailureThreshold()
+    {
+        return repositoryFailureThreshold;
+    }
+
+    /**
+     * Consecutive failed transfers after which a repository is skipped for the
+     * {@link #setRepositoryCooldown cooldown}, so lookups fail over to the other
+     * repositories at once instead of waiting for connections to time out. A
+     * transfer fails once all of its {@link #setTransferRetries retries} have, and
+     * a transfer that finds a file missing is not a failure. Zero never skips a
+     * repository.
+     */
+    public ArtifactResolverConfig setRepositoryFailureThreshold(int repositoryFailureThreshold)
+    {
+        checkArgument(repositoryFailureThreshold >= 0, "repositoryFailureThreshold is negative");
+        this.repositoryFailureThreshold = repositoryFailureThreshold;
+        return this;
+    }
+
+    public Duration getRepositoryCooldown()
+    {
+        return repositoryCooldown;
+    }
+
+    /**
+     * How long a failing repository is skipped before a single transfer is
+     * allowed through to check whether it is back.
+     */
+    public ArtifactResolverConfig setRepositoryCooldown(Duration repositoryCooldown)
+    {
+        requireNonNull(repositoryCooldown, "repositoryCooldown is null");
+        checkArgument(!repositoryCooldown.isNegative(), "repositoryCooldown is negative");
+        this.repositoryCooldown = repositoryCooldown;
+        return this;
+    }
+
+    public int getTransferRetries()
+    {
+        return transferRetries;
+    }
+
+    /**
+     * Retries of transfers that failed for reasons other than a missing file.
+     * The first retry waits for the {@link #setTransferRetryBackoff backoff},
+     * and each following one waits twice as long as the previous one.
+     */
+    public ArtifactResolverConfig setTransferRetries(int transferRetries)
+    {
+        checkArgument(transferRetries >= 0, "transferRetries is negative");
+        this.transferRetries = transferRetries;
+        return this;
+    }
+
+    public Duration getTransferRetryBackoff()
+    {
+        return transferRetryBackoff;
+    }
+
+    public ArtifactResolverConfig setTransferRetryBackoff(Duration transferRetryBackoff)
+    {
+        requireNonNull(transferRetryBackoff, "transferRetryBackoff is null");
+        checkArgument(!transferRetryBackoff.isNegative(), "transferRetryBackoff is negative");
+        this.transferRetryBackoff = transferRetryBackoff;
+        return this;
+    }
+
+    Ticker getTicker()
+    {
+        return ticker;
+    }
+
+    /**
+     * Clock of the repository cooldowns.
+     */
+    @VisibleForTesting
+    ArtifactResolverConfig setTicker(Ticker ticker)
+    {
+        this.ticker = requireNonNull(ticker, "ticker is null");
+        return this;
+    }
+
+    public HttpTransport getHttpTransport()
+    {
+        return httpTransport;
+    }
+
+    /**
+     * Client used to download from {@code http://} and {@code https://} repositories.
+     */
+    public ArtifactResolverConfig setHttpTransport(HttpTransport httpTransport)
+    {
+        this.httpTransport = requireNonNull(httpTransport, "httpTransport is null");
+        return this;
+    }
+
+    public Optional<LocalRepositoryIndexMode> getLocalRepositoryIndexMode()
+    {
+        return Optional.ofNullable(localRepositoryIndexMode);
+    }
+
+    /**
+     * Index the files present in the local repository, so artifacts that are
+     * already downloaded are found without checking the file system. Resolved
+     * files that turn out to be missing are downloaded again. By default, every
+     * lookup checks the file system.
+     */
+    public ArtifactResolverConfig setLocalRepositoryIndexMode(LocalRepositoryIndexMode localRepositoryIndexMode)
+    {
+        this.localRepositoryIndexMode = requireNonNull(localRepositoryIndexMode, "localRepositoryIndexMode is null");
+        return this;
+    }
+
+    public boolean isTrackAccessTimes()
+    {
+        return trackAccessTimes;
+    }
+
+    /**
+     * Record when each directory of the local repository was last used, so a
+     * {@link LocalRepositoryEvictor} can evict the least recently used ones.
+     */
+    public ArtifactResolverConfig setTrackAccessTimes(boolean trackAccessTimes)
+    {
+        this.trackAccessTimes = trackAccessTimes;
+        return this;
+    }
+
+    public int getCollectionThreads()
+    {
+        return collectionThreads;
+    }
+
+    /**
+     * Threads that read the POMs of the dependency graph while it is collected.
+     * With more than one, the graph is expanded breadth first and the POMs are
+     * read concurrently, before Aether builds the graph from them, so the result
+     * is the same. One leaves the collection to Aether, which reads the POMs one
+     * at a time. Without a {@link #setDescriptorCache descriptor cache}, the
+     * descriptors read are kept until the end of the resolution, so Aether does
+     * not parse them again.
+     */
+    public ArtifactResolverConfig setCollectionThreads(int collectionThreads)
+    {
+        checkArgument(collectionThreads > 0, "collectionThreads must be positive");
+        this.collectionThreads = collectionThreads;
+        return this;
+    }
+}
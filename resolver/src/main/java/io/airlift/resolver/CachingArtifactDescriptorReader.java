@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.SessionData;
+import org.sonatype.aether.impl.ArtifactDescriptorReader;
+import org.sonatype.aether.repository.WorkspaceReader;
+import org.sonatype.aether.resolution.ArtifactDescriptorException;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+
+import java.util.Optional;
+
+import static io.airlift.resolver.ArtifactDescriptorCache.DEFAULT_MAXIMUM_SIZE;
+import static java.util.Objects.requireNonNull;
+
+class CachingArtifactDescriptorReader
+        implements ArtifactDescriptorReader
+{
+    private final ArtifactDescriptorReader delegate;
+    // without a cache, descriptors are kept in the data of the session
+    private final Optional<ArtifactDescriptorCache> cache;
+
+    public CachingArtifactDescriptorReader(ArtifactDescriptorReader delegate, ArtifactDescriptorCache cache)
+    {
+        this(delegate, Optional.of(requireNonNull(cache, "cache is null")));
+    }
+
+    private CachingArtifactDescriptorReader(ArtifactDescriptorReader delegate, Optional<ArtifactDescriptorCache> cache)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.cache = cache;
+    }
+
+    /**
+     * Creates a reader that keeps the descriptors in the data of the session, so
+     * they are only cached for one resolution, which has a session of its own.
+     */
+    public static CachingArtifactDescriptorReader perSession(ArtifactDescriptorReader delegate)
+    {
+        return new CachingArtifactDescriptorReader(delegate, Optional.empty());
+    }
+
+    private static ArtifactDescriptorCache getSessionCache(RepositorySystemSession session)
+    {
+        SessionData data = session.getData();
+        ArtifactDescriptorCache cache = (ArtifactDescriptorCache) data.get(ArtifactDescriptorCache.class);
+        if (cache == null) {
+            // concurrent readers of the same session agree on the first cache installed
+            data.set(ArtifactDescriptorCache.class, null, new ArtifactDescriptorCache(DEFAULT_MAXIMUM_SIZE));
+            cache = (ArtifactDescriptorCache) data.get(ArtifactDescriptorCache.class);
+        }
+        return cache;
+    }
+
+    @Override
+    public ArtifactDescriptorResult readArtifactDescriptor(RepositorySystemSession session, ArtifactDescriptorRequest request)
+            throws ArtifactDescriptorException
+    {
+        // projects of the reactor are read from their POMs on disk, which may change between resolutions
+        WorkspaceReader workspace = session.getWorkspaceReader();
+        if (workspace != null && !workspace.findVersions(request.getArtifact()).isEmpty()) {
+            return delegate.readArtifactDescriptor(session, request);
+        }
+
+        ArtifactDescriptorCache cache = this.cache.orElseGet(() -> getSessionCache(session));
+        ArtifactDescriptorResult result = cache.get(session, request);
+        if (result == null) {
+            result = delegate.readArtifactDescriptor(session, request);
+            cache.put(request, result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.sonatype.aether.artifact.Artifact;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Builds class loaders for resolved artifacts, and shares one loader between all
+ * users of the same classpath, so its classes are loaded, and take up metaspace,
+ * once. Loaders are keyed by a hash of the canonical paths of the artifact files
+ * in classpath order, since the order decides which of two copies of a class is
+ * loaded, and of the size and modification time of each file, so a jar replaced
+ * in the local repository gets a new loader.
+ * <p>
+ * Each {@link #acquire} returns a lease on the loader; the loader is closed when
+ * the last lease on it is closed, and a later lease gets a new one.
+ */
+public final class ClassLoaderCache
+{
+    private final ClassLoader parent;
+    // guarded by this
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long hitCount;
+    private long missCount;
+
+    public ClassLoaderCache(ClassLoader parent)
+    {
+        this.parent = parent;
+    }
+
+    /**
+     * Returns a lease on the class loader for the artifacts, which must all be
+     * resolved, creating the loader if no lease on it is open.
+     */
+    public Lease acquire(List<? extends Artifact> artifacts)
+    {
+        requireNonNull(artifacts, "artifacts is null");
+        File[] files = new File[artifacts.size()];
+        for (int i = 0; i < files.length; i++) {
+            Artifact artifact = artifacts.get(i);
+            checkArgument(artifact.getFile() != null, "Artifact is not resolved: %s:%s:%s", artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion());
+            files[i] = canonicalFile(artifact.getFile());
+        }
+        String key = getKey(files);
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                missCount++;
+                entry = new Entry(key, new URLClassLoader(toUrls(files), parent));
+                entries.put(key, entry);
+            }
+            else {
+                hitCount++;
+            }
+            entry.references++;
+            return new Lease(entry);
+        }
+    }
+
+    /**
+     * Returns the number of class loaders with open leases.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of leases that shared an existing class loader.
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of leases that created a class loader.
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    private void release(Entry entry)
+    {
+        synchronized (this) {
+            entry.references--;
+            if (entry.references > 0) {
+                return;
+            }
+            entries.remove(entry.key);
+        }
+        try {
+            entry.classLoader.close();
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Error closing class loader", e);
+        }
+    }
+
+    private static String getKey(File[] files)
+    {
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (File file : files) {
+            hasher.putString(file.getPath(), UTF_8)
+                    .putByte((byte) 0)
+                    .putLong(file.isFile() ? file.length() : -1)
+                    .putLong(file.isFile() ? file.lastModified() : -1);
+        }
+        return hasher.hash().toString();
+    }
+
+    private static File canonicalFile(File file)
+    {
+        try {
+            return file.getCanonicalFile();
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Error resolving path: " + file, e);
+        }
+    }
+
+    private static URL[] toUrls(File[] files)
+    {
+        URL[] urls = new URL[files.length];
+        for (int i = 0; i < files.length; i++) {
+            try {
+                urls[i] = files[i].toURI().toURL();
+            }
+            catch (MalformedURLException e) {
+                throw new RuntimeException("Invalid file: " + files[i], e);
+            }
+        }
+        return urls;
+    }
+
+    private static class Entry
+    {
+        private final String key;
+        private final URLClassLoader classLoader;
+        // guarded by the cache
+        private int references;
+
+        private Entry(String key, URLClassLoader classLoader)
+        {
+            this.key = key;
+            this.classLoader = classLoader;
+        }
+    }
+
+    /**
+     * A reference to a shared class loader, which must not be used once the lease
+     * is closed. Closing a lease more than once has no effect.
+     */
+    public final class Lease
+            implements Closeable
+    {
+        private final Entry entry;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(Entry entry)
+        {
+            this.entry = entry;
+        }
+
+        public ClassLoader getClassLoader()
+        {
+            return entry.classLoader;
+        }
+
+        /**
+         * Returns the hash identifying the classpath of the class loader.
+         */
+        public String getKey()
+        {
+            return entry.key;
+        }
+
+        @Override
+        public void close()
+        {
+            if (closed.compareAndSet(false, true)) {
+                release(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.sonatype.aether.artifact.Artifact;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A self-contained copy of a resolved classpath, so it can be shipped to other
+ * machines and loaded there without resolving anything. A bundle is a directory
+ * holding the artifact files in {@code lib}, and a binary manifest listing the
+ * artifacts in classpath order. The manifest is written last, so a bundle whose
+ * export was interrupted cannot be loaded.
+ */
+public final class ClasspathBundle
+{
+    public static final String MANIFEST_FILE = "bundle.manifest";
+    public static final String LIBRARY_DIRECTORY = "lib";
+
+    private static final int MAGIC = 0x43504231;
+    private static final long DIRECTORY = -1;
+
+    private ClasspathBundle() {}
+
+    /**
+     * Writes the artifacts into a new bundle. Artifact files are hard linked into
+     * the bundle when it is on the same file system as the local repository, and
+     * copied otherwise. Directories, such as the output directory of a project
+     * resolved from its POM, are linked or copied file by file. Unresolved
+     * artifacts, and artifacts whose file does not exist, like the output
+     * directory of a project that was not compiled, are recorded without a file,
+     * so the bundle loads to the same list.
+     */
+    public static void export(List<Artifact> artifacts, File bundleDirectory)
+    {
+        requireNonNull(artifacts, "artifacts is null");
+        Path bundle = requireNonNull(bundleDirectory, "bundleDirectory is null").toPath().toAbsolutePath();
+        Path manifest = bundle.resolve(MANIFEST_FILE);
+        if (Files.exists(manifest)) {
+            throw new IllegalArgumentException("Bundle already exists: " + bundle);
+        }
+
+        try {
+            Path library = Files.createDirectories(bundle.resolve(LIBRARY_DIRECTORY));
+            Path temporaryFile = Files.createTempFile(bundle, MANIFEST_FILE, ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(artifacts.size());
+                    Set<String> fileNames = new HashSet<>();
+                    for (Artifact artifact : artifacts) {
+                        out.writeUTF(artifact.getGroupId());
+                        out.writeUTF(artifact.getArtifactId());
+                        out.writeUTF(artifact.getClassifier());
+                        out.writeUTF(artifact.getExtension());
+                        out.writeUTF(artifact.getVersion());
+
+                        File file = artifact.getFile();
+                        boolean exists = file != null && file.exists();
+                        out.writeBoolean(exists);
+                        if (exists) {
+                            String fileName = fileName(artifact, fileNames);
+                            linkOrCopy(file.toPath(), library.resolve(fileName));
+                            out.writeUTF(fileName);
+                            out.writeLong(file.isDirectory() ? DIRECTORY : file.length());
+                        }
+                    }
+                }
+                Files.move(temporaryFile, manifest, ATOMIC_MOVE);
+            }
+            finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Error exporting bundle: " + bundle, e);
+        }
+    }
+
+    /**
+     * Returns the artifacts of a bundle, in the order they were exported, with
+     * their files in the bundle.
+     */
+    public static List<Artifact> load(File bundleDirectory)
+    {
+        Path bundle = requireNonNull(bundleDirectory, "bundleDirectory is null").toPath().toAbsolutePath();
+        Path library = bundle.resolve(LIBRARY_DIRECTORY);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(bundle.resolve(MANIFEST_FILE))))) {
+            if (in.readInt() != MAGIC) {
+                throw new RuntimeException("Not a classpath bundle: " + bundle);
+            }
+            int count = in.readInt();
+            ImmutableList.Builder<Artifact> artifacts = ImmutableList.builder();
+            for (int i = 0; i < count; i++) {
+                String groupId = in.readUTF();
+                String artifactId = in.readUTF();
+                String classifier = in.readUTF();
+                String extension = in.readUTF();
+                String version = in.readUTF();
+                File file = null;
+                if (in.readBoolean()) {
+                    file = library.resolve(in.readUTF()).toFile();
+                    long length = in.readLong();
+                    if (length == DIRECTORY ? !file.isDirectory() : file.length() != length) {
+                        throw new RuntimeException("Bundle file is missing or was modified: " + file);
+                    }
+                }
+                artifacts.add(new DefaultArtifact(groupId, artifactId, classifier, extension, version, ImmutableMap.of(), file));
+            }
+            return artifacts.build();
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Error loading bundle: " + bundle, e);
+        }
+    }
+
+    private static String fileName(Artifact artifact, Set<String> fileNames)
+    {
+        String fileName = artifact.getFile().getName();
+        if (!fileNames.add(fileName)) {
+            // same file name in different groups
+            fileName = artifact.getGroupId() + "-" + fileName;
+            for (int i = 2; !fileNames.add(fileName); i++) {
+                fileName = i + "-" + artifact.getGroupId() + "-" + artifact.getFile().getName();
+            }
+        }
+        return fileName;
+    }
+
+    private static void linkOrCopy(Path source, Path target)
+            throws IOException
+    {
+        // left over from an interrupted export
+        if (Files.isDirectory(target, NOFOLLOW_LINKS)) {
+            deleteRecursively(target, ALLOW_INSECURE);
+        }
+        Files.deleteIfExists(target);
+
+        if (!Files.isDirectory(source)) {
+            linkOrCopyFile(source, target);
+            return;
+        }
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
+                    throws IOException
+            {
+                Files.createDirectories(target.resolve(source.relativize(directory).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+                    throws IOException
+            {
+                linkOrCopyFile(file, target.resolve(source.relativize(file).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void linkOrCopyFile(Path source, Path target)
+            throws IOException
+    {
+        try {
+            Files.createLink(target, source);
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            // different file systems, or links are not supported
+            Files.copy(source, target, COPY_ATTRIBUTES);
+        }
+    }
+}
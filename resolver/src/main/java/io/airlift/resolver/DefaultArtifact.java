@@ -51,7 +51,8 @@ public final class DefaultArtifact
     private final String extension;
     private final File file;
     private final Map<String, String> properties;
-    private String baseVersion;
+    private final String baseVersion;
+    private final boolean snapshot;
 
     /**
      * Creates a new artifact with the specified coordinates. If not specified in the artifact coordinates, the
@@ -86,6 +87,8 @@ public final class DefaultArtifact
         this.extension = get(m.group(4), "jar");
         this.classifier = get(m.group(6), "");
         this.version = m.group(7);
+        this.baseVersion = toBaseVersion(this.version);
+        this.snapshot = isSnapshot(this.version);
         this.file = null;
         this.properties = Collections.unmodifiableMap(new LinkedHashMap<>(properties));
     }
@@ -176,6 +179,8 @@ public final class DefaultArtifact
             this.extension = emptify(type.getExtension());
         }
         this.version = emptify(version);
+        this.baseVersion = toBaseVersion(this.version);
+        this.snapshot = isSnapshot(this.version);
         this.file = null;
         this.properties = merge(properties, (type != null) ? type.getProperties() : null);
     }
@@ -220,6 +225,8 @@ public final class DefaultArtifact
         this.classifier = emptify(classifier);
         this.extension = emptify(extension);
         this.version = emptify(version);
+        this.baseVersion = toBaseVersion(this.version);
+        this.snapshot = isSnapshot(this.version);
         this.file = file;
         this.properties = Collections.unmodifiableMap(new LinkedHashMap<>(properties));
     }
@@ -233,6 +240,8 @@ public final class DefaultArtifact
         this.classifier = emptify(classifier);
         this.extension = emptify(extension);
         this.version = emptify(version);
+        this.baseVersion = toBaseVersion(this.version);
+        this.snapshot = isSnapshot(this.version);
         this.file = file;
         this.properties = properties;
     }
@@ -257,9 +266,6 @@ public final class DefaultArtifact
     @Override
     public String getBaseVersion()
     {
-        if (baseVersion == null) {
-            baseVersion = toBaseVersion(getVersion());
-        }
         return baseVersion;
     }
 
@@ -281,7 +287,7 @@ public final class DefaultArtifact
     @Override
     public boolean isSnapshot()
     {
-        return version.endsWith(SNAPSHOT) || SNAPSHOT_TIMESTAMP.matcher(version).matches();
+        return snapshot;
     }
 
     @Override
@@ -333,6 +339,11 @@ public final class DefaultArtifact
         return new DefaultArtifact(groupId, artifactId, classifier, extension, version, file, Collections.unmodifiableMap(new LinkedHashMap<>(properties)));
     }
 
+    private static boolean isSnapshot(String version)
+    {
+        return version.endsWith(SNAPSHOT) || SNAPSHOT_TIMESTAMP.matcher(version).matches();
+    }
+
     protected static String toBaseVersion(String version)
     {
         if (version == null) {
@@ -0,0 +1,241 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Limits the downloads from each remote repository to a number of concurrent
+ * transfers and, optionally, an average bandwidth. Waiting downloads are started
+ * in order of priority: artifacts closer to the root of the dependency graph come
+ * first, then POMs ahead of other files, then the order in which they were queued.
+ * Share one instance between resolvers to limit the process as a whole.
+ * Closing the scheduler stops its download threads; downloads still waiting fail.
+ */
+public final class DownloadScheduler
+        implements Closeable
+{
+    private static final Comparator<Task> PRIORITY = Comparator.<Task>comparingInt(task -> task.depth)
+            .thenComparingInt(task -> task.kind)
+            .thenComparingLong(task -> task.sequence);
+
+    private final int maxConcurrentDownloads;
+    private final long maxBytesPerSecond;
+    private final ConcurrentMap<String, Repository> repositories = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong completedDownloads = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile boolean closed;
+
+    public DownloadScheduler(int maxConcurrentDownloads)
+    {
+        this(maxConcurrentDownloads, 0);
+    }
+
+    /**
+     * @param maxConcurrentDownloads downloads in progress from each repository
+     * @param maxBytesPerSecond average download rate from each repository, or zero for unlimited;
+     * the rate is enforced between downloads, not within one
+     */
+    public DownloadScheduler(int maxConcurrentDownloads, long maxBytesPerSecond)
+    {
+        checkArgument(maxConcurrentDownloads > 0, "maxConcurrentDownloads must be positive");
+        checkArgument(maxBytesPerSecond >= 0, "maxBytesPerSecond is negative");
+        this.maxConcurrentDownloads = maxConcurrentDownloads;
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    public int getMaxConcurrentDownloads()
+    {
+        return maxConcurrentDownloads;
+    }
+
+    public long getMaxBytesPerSecond()
+    {
+        return maxBytesPerSecond;
+    }
+
+    /**
+     * Returns the number of downloads waiting to start, for all repositories.
+     */
+    public int getQueuedDownloads()
+    {
+        return repositories.values().stream()
+                .mapToInt(repository -> repository.executor.getQueue().size())
+                .sum();
+    }
+
+    /**
+     * Returns the number of downloads waiting to start for the repository with the given URL.
+     */
+    public int getQueuedDownloads(String repositoryUrl)
+    {
+        Repository repository = repositories.get(repositoryUrl);
+        return (repository == null) ? 0 : repository.executor.getQueue().size();
+    }
+
+    public int getActiveDownloads()
+    {
+        return repositories.values().stream()
+                .mapToInt(repository -> repository.executor.getActiveCount())
+                .sum();
+    }
+
+    public long getCompletedDownloads()
+    {
+        return completedDownloads.get();
+    }
+
+    /**
+     * Returns the mean time downloads waited in the queue before they started.
+     */
+    public Duration getAverageWaitTime()
+    {
+        long completed = completedDownloads.get();
+        return Duration.ofNanos((completed == 0) ? 0 : totalWaitNanos.get() / completed);
+    }
+
+    public Duration getMaxWaitTime()
+    {
+        return Duration.ofNanos(maxWaitNanos.get());
+    }
+
+    /**
+     * Queues a download from the repository with the given URL. The transfer runs
+     * on one of the repository's download threads, and returns the number of bytes
+     * it downloaded, which count against the bandwidth limit.
+     */
+    public CompletableFuture<Void> schedule(String repositoryUrl, int depth, int kind, LongSupplier transfer)
+    {
+        requireNonNull(repositoryUrl, "repositoryUrl is null");
+        requireNonNull(transfer, "transfer is null");
+        checkState(!closed, "scheduler is closed");
+        Repository repository = repositories.computeIfAbsent(repositoryUrl, url -> new Repository());
+        Task task = new Task(repository, depth, kind, sequence.getAndIncrement(), transfer);
+        try {
+            repository.executor.execute(task);
+        }
+        catch (RejectedExecutionException e) {
+            // closed concurrently
+            task.future.completeExceptionally(new IllegalStateException("scheduler is closed", e));
+        }
+        if (closed) {
+            // the repository may have been added after close stopped the others
+            shutdown(repository);
+        }
+        return task.future;
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        repositories.values().forEach(DownloadScheduler::shutdown);
+    }
+
+    private static void shutdown(Repository repository)
+    {
+        for (Runnable task : repository.executor.shutdownNow()) {
+            ((Task) task).future.completeExceptionally(new IllegalStateException("scheduler is closed"));
+        }
+    }
+
+    private final class Repository
+    {
+        private final ThreadPoolExecutor executor;
+        private final Optional<RateLimiter> rateLimiter;
+
+        private Repository()
+        {
+            executor = new ThreadPoolExecutor(
+                    maxConcurrentDownloads,
+                    maxConcurrentDownloads,
+                    30,
+                    SECONDS,
+                    new PriorityBlockingQueue<>(11, Comparator.comparing(runnable -> (Task) runnable, PRIORITY)),
+                    new ThreadFactoryBuilder().setNameFormat("download-scheduler-%s").setDaemon(true).build());
+            // threads are created per repository, so they must not outlive its downloads
+            executor.allowCoreThreadTimeOut(true);
+            rateLimiter = (maxBytesPerSecond == 0) ? Optional.empty() : Optional.of(RateLimiter.create(maxBytesPerSecond));
+        }
+    }
+
+    private final class Task
+            implements Runnable
+    {
+        private final Repository repository;
+        private final int depth;
+        private final int kind;
+        private final long sequence;
+        private final LongSupplier transfer;
+        private final long queuedNanos = System.nanoTime();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Task(Repository repository, int depth, int kind, long sequence, LongSupplier transfer)
+        {
+            this.repository = repository;
+            this.depth = depth;
+            this.kind = kind;
+            this.sequence = sequence;
+            this.transfer = transfer;
+        }
+
+        @Override
+        public void run()
+        {
+            long waitNanos = System.nanoTime() - queuedNanos;
+            totalWaitNanos.addAndGet(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+            Throwable failure = null;
+            try {
+                long bytes = transfer.getAsLong();
+                // pay for the transfer while holding the download slot, which spaces out the following downloads
+                if (bytes > 0) {
+                    repository.rateLimiter.ifPresent(limiter -> limiter.acquire((int) Math.min(bytes, Integer.MAX_VALUE)));
+                }
+            }
+            catch (Throwable t) {
+                failure = t;
+            }
+            // counted before the caller is released, so the statistics include its download
+            completedDownloads.incrementAndGet();
+            if (failure == null) {
+                future.complete(null);
+            }
+            else {
+                future.completeExceptionally(failure);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Outcome of {@link LocalRepositoryEvictor#evict(long)}.
+ */
+public final class EvictionResult
+{
+    private final int evictedDirectories;
+    private final long evictedBytes;
+    private final long remainingBytes;
+    private final long pinnedBytes;
+
+    public EvictionResult(int evictedDirectories, long evictedBytes, long remainingBytes, long pinnedBytes)
+    {
+        this.evictedDirectories = evictedDirectories;
+        this.evictedBytes = evictedBytes;
+        this.remainingBytes = remainingBytes;
+        this.pinnedBytes = pinnedBytes;
+    }
+
+    public int getEvictedDirectories()
+    {
+        return evictedDirectories;
+    }
+
+    public long getEvictedBytes()
+    {
+        return evictedBytes;
+    }
+
+    /**
+     * Returns the size of the repository after eviction. It exceeds the limit
+     * when the pinned directories alone exceed it.
+     */
+    public long getRemainingBytes()
+    {
+        return remainingBytes;
+    }
+
+    /**
+     * Returns the size of the directories that were used too recently to be evicted.
+     */
+    public long getPinnedBytes()
+    {
+        return pinnedBytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("evictedDirectories", evictedDirectories)
+                .add("evictedBytes", evictedBytes)
+                .add("remainingBytes", remainingBytes)
+                .add("pinnedBytes", pinnedBytes)
+                .toString();
+    }
+}
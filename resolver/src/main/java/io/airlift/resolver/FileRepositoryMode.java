@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+/**
+ * How artifacts are taken from {@code file://} remote repositories.
+ */
+public enum FileRepositoryMode
+{
+    /**
+     * Copy the artifact into the local repository with {@link java.nio.channels.FileChannel#transferTo},
+     * which lets the kernel copy the data without passing it through user space.
+     */
+    COPY,
+
+    /**
+     * Hard link the artifact into the local repository. Falls back to
+     * {@link #COPY} when the repositories are on different file systems, or
+     * the file system does not support hard links.
+     */
+    LINK,
+
+    /**
+     * Resolve the artifact to its file in the remote repository. Nothing is
+     * written to the local repository, except repository metadata.
+     */
+    IN_PLACE
+}
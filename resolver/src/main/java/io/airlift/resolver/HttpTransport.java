@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+/**
+ * How artifacts are downloaded from {@code http://} and {@code https://} repositories.
+ */
+public enum HttpTransport
+{
+    /**
+     * Aether's connector, built on async-http-client and Netty 3.
+     */
+    ASYNC_HTTP_CLIENT,
+    /**
+     * A connector built on the JDK {@code java.net.http.HttpClient}, which pools
+     * connections for the whole process and multiplexes transfers over HTTP/2
+     * when the server supports it. Uploads, and repositories behind a proxy, are
+     * still handled by Aether's connector. Requires Java 11, and the
+     * {@code io.airlift.resolver:resolver-jdk-http} module on the class path.
+     */
+    JDK,
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import io.airlift.resolver.internal.AccessLog;
+import io.airlift.resolver.internal.LocalRepositoryIndex;
+import io.airlift.resolver.internal.RepositoryLock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.resolver.ArtifactResolver.ACCESS_LOG_FILE;
+import static io.airlift.resolver.ArtifactResolver.EVICTION_MARKER_FILE;
+import static io.airlift.resolver.ArtifactResolver.LOCAL_REPOSITORY_INDEX_FILE;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Trims a local repository to a size limit by deleting the least recently used
+ * directories, typically the directory of one version of an artifact. A directory
+ * was last used at the later of the access time recorded by resolvers that
+ * {@link ArtifactResolverConfig#setTrackAccessTimes track access times}, and
+ * the modification time of its newest file.
+ * <p>
+ * Directories used within the pin duration are never evicted, so artifacts
+ * returned by a recent resolution, or being downloaded, stay in place. Evictions
+ * are serialized with the {@link RepositoryLock} of the repository, which also
+ * guards the access log. Evicted files are removed from the
+ * {@link LocalRepositoryIndexMode#PERSISTENT persistent index}, and evictions are
+ * announced to running resolvers, which download the files of any artifact
+ * evicted while it was being resolved again.
+ */
+public class LocalRepositoryEvictor
+{
+    public static final Duration DEFAULT_PIN_DURATION = Duration.ofHours(1);
+
+    private final Path repository;
+    private final Duration pinDuration;
+
+    public LocalRepositoryEvictor(File localRepository)
+    {
+        this(localRepository, DEFAULT_PIN_DURATION);
+    }
+
+    public LocalRepositoryEvictor(File localRepository, Duration pinDuration)
+    {
+        this.repository = requireNonNull(localRepository, "localRepository is null").toPath().toAbsolutePath();
+        this.pinDuration = requireNonNull(pinDuration, "pinDuration is null");
+        checkArgument(!pinDuration.isNegative(), "pinDuration is negative");
+    }
+
+    /**
+     * Deletes least recently used directories until the repository is no larger
+     * than the given number of bytes, or only pinned directories are left.
+     */
+    public EvictionResult evict(long maxBytes)
+    {
+        checkArgument(maxBytes >= 0, "maxBytes is negative");
+        if (!Files.isDirectory(repository)) {
+            return new EvictionResult(0, 0, 0, 0);
+        }
+
+        try {
+            return RepositoryLock.withLock(repository, () -> evictLocked(maxBytes));
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Error evicting from local repository: " + repository, e);
+        }
+    }
+
+    private EvictionResult evictLocked(long maxBytes)
+            throws IOException
+    {
+        AccessLog accessLog = new AccessLog(repository.resolve(ACCESS_LOG_FILE));
+        Map<String, Long> accessTimes = accessLog.getAccessTimes();
+        List<Entry> entries = new ArrayList<>(scan().values());
+        for (Entry entry : entries) {
+            entry.lastUsed = Math.max(entry.lastUsed, accessTimes.getOrDefault(entry.directory, 0L));
+        }
+        entries.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+
+        long pinnedSince = System.currentTimeMillis() - pinDuration.toMillis();
+        long totalBytes = entries.stream().mapToLong(entry -> entry.bytes).sum();
+        long pinnedBytes = entries.stream().filter(entry -> entry.lastUsed >= pinnedSince).mapToLong(entry -> entry.bytes).sum();
+
+        Set<String> evicted = new HashSet<>();
+        List<Path> evictedFiles = new ArrayList<>();
+        long evictedBytes = 0;
+        for (Entry entry : entries) {
+            if (totalBytes - evictedBytes <= maxBytes || entry.lastUsed >= pinnedSince) {
+                break;
+            }
+            evictedBytes += delete(entry);
+            evicted.add(entry.directory);
+            evictedFiles.addAll(entry.files);
+        }
+
+        if (!evicted.isEmpty()) {
+            // keep the persistent index in step with the files, so later lookups do not find them missing
+            Path indexFile = repository.resolve(LOCAL_REPOSITORY_INDEX_FILE);
+            if (Files.isRegularFile(indexFile)) {
+                LocalRepositoryIndex index = new LocalRepositoryIndex(repository, indexFile);
+                for (Path file : evictedFiles) {
+                    index.remove(repository.relativize(file).toString());
+                }
+                index.save();
+            }
+            // resolvers check the marker to find files evicted while they were resolving
+            Files.write(repository.resolve(EVICTION_MARKER_FILE), Long.toString(System.currentTimeMillis()).getBytes(US_ASCII));
+        }
+        accessLog.removeIf(directory -> evicted.contains(directory) || !Files.isDirectory(repository.resolve(directory)));
+        return new EvictionResult(evicted.size(), evictedBytes, totalBytes - evictedBytes, pinnedBytes);
+    }
+
+    private Map<String, Entry> scan()
+            throws IOException
+    {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        Files.walkFileTree(repository, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+            {
+                Path directory = file.getParent();
+                // files in the root belong to the resolver, such as indexes and logs
+                if (!attributes.isRegularFile() || directory.equals(repository)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String path = repository.relativize(directory).toString().replace(File.separatorChar, '/');
+                Entry entry = entries.computeIfAbsent(path, Entry::new);
+                entry.files.add(file);
+                entry.bytes += attributes.size();
+                entry.lastUsed = Math.max(entry.lastUsed, attributes.lastModifiedTime().toMillis());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e)
+            {
+                // deleted by another process while walking
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return entries;
+    }
+
+    private long delete(Entry entry)
+            throws IOException
+    {
+        long bytes = 0;
+        for (Path file : entry.files) {
+            long size = Files.isRegularFile(file) ? Files.size(file) : 0;
+            if (Files.deleteIfExists(file)) {
+                bytes += size;
+            }
+        }
+
+        // remove the directories left empty, but not the repository
+        for (Path directory = entry.files.get(0).getParent(); !directory.equals(repository); directory = directory.getParent()) {
+            try {
+                Files.delete(directory);
+            }
+            catch (DirectoryNotEmptyException | NoSuchFileException e) {
+                break;
+            }
+        }
+        return bytes;
+    }
+
+    private static final class Entry
+    {
+        private final String directory;
+        private final List<Path> files = new ArrayList<>();
+        private long bytes;
+        private long lastUsed;
+
+        private Entry(String directory)
+        {
+            this.directory = directory;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+/**
+ * How the files present in the local repository are indexed, so checking
+ * whether an artifact is already downloaded does not touch the file system.
+ * Indexed files deleted by {@link LocalRepositoryEvictor eviction} are dropped
+ * from the index before the next resolution, and resolved files found missing
+ * at the end of a resolution are dropped and resolved again.
+ */
+public enum LocalRepositoryIndexMode
+{
+    /**
+     * Keep the index in memory. It starts empty, and files are looked up on
+     * the file system once, the first time they are needed.
+     */
+    MEMORY,
+
+    /**
+     * Also store the index in the local repository, in the
+     * {@link ArtifactResolver#LOCAL_REPOSITORY_INDEX_FILE} file, which is memory
+     * mapped by the next resolver. On startup, the indexed files are checked in the
+     * background, and the ones deleted or changed by other tools are removed from
+     * the index.
+     */
+    PERSISTENT
+}
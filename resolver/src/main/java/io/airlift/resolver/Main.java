@@ -16,38 +16,66 @@ package io.airlift.resolver;
 import org.sonatype.aether.artifact.Artifact;
 
 import java.io.File;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static io.airlift.resolver.ArtifactResolver.MAVEN_CENTRAL_URI;
 import static io.airlift.resolver.ArtifactResolver.USER_LOCAL_REPO;
+import static java.util.concurrent.TimeUnit.MINUTES;
 
 public class Main
 {
     public static void main(String[] args)
     {
-        if (args.length != 1) {
-            System.out.println("java -cp ...  "  + Main.class.getName() + " GAV_OR_POM");
-            System.exit(1);
+        if (args.length == 2 && args[0].equals("--gc")) {
+            String localRepo = System.getProperty("maven.repo.local", USER_LOCAL_REPO);
+            EvictionResult result = new LocalRepositoryEvictor(new File(localRepo)).evict(parseSize(args[1]));
+            System.out.println("Evicted " + result.getEvictedDirectories() + " directories (" + result.getEvictedBytes() + " bytes) from " + localRepo);
+            System.out.println("Local repository size is " + result.getRemainingBytes() + " bytes, of which " + result.getPinnedBytes() + " bytes are pinned");
+            return;
         }
 
-        String localRepo = System.getProperty("maven.repo.local", USER_LOCAL_REPO);
+        if (args.length == 2 && args[0].equals("--proxy")) {
+            RepositoryProxy proxy = createArtifactResolver().startProxy(new InetSocketAddress(Integer.parseInt(args[1])));
+            System.out.println("Serving " + System.getProperty("maven.repo.local", USER_LOCAL_REPO) + " at " + proxy.getUri());
+            while (true) {
+                try {
+                    MINUTES.sleep(1);
+                }
+                catch (InterruptedException e) {
+                    proxy.close();
+                    return;
+                }
+                System.out.printf("Served %s requests, hit ratio %.2f%n", proxy.getRequestCount(), proxy.getHitRatio());
+            }
+        }
 
-        String remoteReposString = System.getProperty("maven.repo.remote", MAVEN_CENTRAL_URI);
-        List<String> remoteRepos = new ArrayList<>();
-        for (String repo : remoteReposString.split(",")) {
-            remoteRepos.add(repo.trim());
+        boolean exportBundle = args.length == 3 && args[0].equals("--export-bundle");
+        if (args.length != 1 && !exportBundle) {
+            System.out.println("java -cp ...  "  + Main.class.getName() + " GAV_OR_POM");
+            System.out.println("java -cp ...  "  + Main.class.getName() + " --export-bundle BUNDLE_DIR GAV_OR_POM");
+            System.out.println("java -cp ...  "  + Main.class.getName() + " --gc MAX_SIZE[K|M|G|T]");
+            System.out.println("java -cp ...  "  + Main.class.getName() + " --proxy PORT");
+            System.exit(1);
         }
+        String gavOrPom = args[args.length - 1];
 
-        ArtifactResolver artifactResolver = new ArtifactResolver(localRepo, remoteRepos);
+        ArtifactResolver artifactResolver = createArtifactResolver();
 
-        File pomFile = new File(args[0]);
+        File pomFile = new File(gavOrPom);
         List<Artifact> artifacts;
         if (pomFile.canRead()) {
             artifacts = artifactResolver.resolvePom(pomFile);
         }
         else {
-            artifacts = artifactResolver.resolveArtifacts(new DefaultArtifact(args[0]));
+            artifacts = artifactResolver.resolveArtifacts(new DefaultArtifact(gavOrPom));
+        }
+
+        if (exportBundle) {
+            ClasspathBundle.export(artifacts, new File(args[1]));
+            System.out.println("Exported " + artifacts.size() + " artifacts to " + args[1]);
         }
 
         for (Artifact artifact : artifacts) {
@@ -62,4 +90,39 @@ public class Main
             }
         }
     }
+
+    private static ArtifactResolver createArtifactResolver()
+    {
+        String localRepo = System.getProperty("maven.repo.local", USER_LOCAL_REPO);
+
+        String remoteReposString = System.getProperty("maven.repo.remote", MAVEN_CENTRAL_URI);
+        List<String> remoteRepos = new ArrayList<>();
+        for (String repo : remoteReposString.split(",")) {
+            remoteRepos.add(repo.trim());
+        }
+
+        return new ArtifactResolver(localRepo, remoteRepos);
+    }
+
+    static long parseSize(String size)
+    {
+        checkArgument(!size.isEmpty(), "Size is empty");
+        String units = "KMGT";
+        int unit = units.indexOf(Character.toUpperCase(size.charAt(size.length() - 1))) + 1;
+        String number = (unit == 0) ? size : size.substring(0, size.length() - 1);
+        long value;
+        try {
+            value = Long.parseLong(number);
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size: " + size, e);
+        }
+        checkArgument(value >= 0, "Size is negative: %s", size);
+        try {
+            return Math.multiplyExact(value, 1L << (10 * unit));
+        }
+        catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Size is too large: " + size, e);
+        }
+    }
 }
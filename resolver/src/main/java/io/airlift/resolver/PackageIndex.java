@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import org.sonatype.aether.artifact.Artifact;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Maps Java package names to the resolved artifacts that contain classes in them.
+ */
+public final class PackageIndex
+{
+    private final ImmutableListMultimap<String, Artifact> artifactsByPackage;
+
+    public PackageIndex(ListMultimap<String, Artifact> artifactsByPackage)
+    {
+        this.artifactsByPackage = ImmutableListMultimap.copyOf(requireNonNull(artifactsByPackage, "artifactsByPackage is null"));
+    }
+
+    public Set<String> getPackages()
+    {
+        return artifactsByPackage.keySet();
+    }
+
+    /**
+     * Returns the artifacts containing the package, in classpath order.
+     */
+    public List<Artifact> getArtifacts(String packageName)
+    {
+        return artifactsByPackage.get(packageName);
+    }
+
+    public Set<String> getPackages(Artifact artifact)
+    {
+        return ImmutableSet.copyOf(artifactsByPackage.inverse().get(artifact));
+    }
+
+    /**
+     * Returns the packages that are provided by more than one artifact.
+     */
+    public Map<String, List<Artifact>> getSplitPackages()
+    {
+        ImmutableMap.Builder<String, List<Artifact>> splitPackages = ImmutableMap.builder();
+        for (Map.Entry<String, Collection<Artifact>> entry : artifactsByPackage.asMap().entrySet()) {
+            if (entry.getValue().size() > 1) {
+                splitPackages.put(entry.getKey(), ImmutableList.copyOf(entry.getValue()));
+            }
+        }
+        return splitPackages.build();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.airlift.resolver.internal.ZipCentralDirectory;
+import org.sonatype.aether.artifact.Artifact;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Builds a {@link PackageIndex} for resolved artifacts. Jars are read in parallel
+ * through their zip central directory, and the packages of each jar are cached
+ * on disk keyed by the jar path, size and modification time, so unchanged jars
+ * are never reopened. Files that are not zip archives contain no packages.
+ */
+public class PackageIndexer
+{
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String VERSIONED_PREFIX = "META-INF/versions/";
+
+    private final File cacheDirectory;
+    private final int threads;
+
+    public PackageIndexer(File cacheDirectory)
+    {
+        this(cacheDirectory, Runtime.getRuntime().availableProcessors());
+    }
+
+    public PackageIndexer(File cacheDirectory, int threads)
+    {
+        checkArgument(threads > 0, "threads must be at least 1");
+        this.cacheDirectory = requireNonNull(cacheDirectory, "cacheDirectory is null");
+        this.threads = threads;
+    }
+
+    public PackageIndex index(List<Artifact> artifacts)
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("package-indexer-%s")
+                .setDaemon(true)
+                .build());
+        try {
+            List<Future<Set<String>>> futures = new ArrayList<>(artifacts.size());
+            for (Artifact artifact : artifacts) {
+                futures.add(executor.submit(() -> getPackages(artifact.getFile())));
+            }
+
+            ListMultimap<String, Artifact> artifactsByPackage = LinkedListMultimap.create();
+            for (int i = 0; i < artifacts.size(); i++) {
+                for (String packageName : futures.get(i).get()) {
+                    artifactsByPackage.put(packageName, artifacts.get(i));
+                }
+            }
+            return new PackageIndex(artifactsByPackage);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while indexing packages", e);
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException("Error indexing packages", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Set<String> getPackages(File file)
+            throws IOException
+    {
+        if (file == null || !file.exists()) {
+            return ImmutableSortedSet.of();
+        }
+        if (file.isDirectory()) {
+            try (Stream<Path> files = Files.walk(file.toPath())) {
+                return toPackages(files
+                        .filter(Files::isRegularFile)
+                        .map(path -> file.toPath().relativize(path).toString().replace(File.separatorChar, '/'))
+                        .collect(ImmutableList.toImmutableList()));
+            }
+        }
+
+        Path cacheFile = cacheDirectory.toPath().resolve(getCacheKey(file) + ".packages");
+        if (Files.isRegularFile(cacheFile)) {
+            return ImmutableSortedSet.copyOf(Files.readAllLines(cacheFile, UTF_8));
+        }
+
+        Set<String> packages = ZipCentralDirectory.readEntryNames(file)
+                .map(PackageIndexer::toPackages)
+                .orElse(ImmutableSortedSet.of());
+
+        try {
+            writeCacheFile(cacheFile, packages);
+        }
+        catch (IOException ignored) {
+            // the cache is only an optimization
+        }
+        return packages;
+    }
+
+    private void writeCacheFile(Path cacheFile, Set<String> packages)
+            throws IOException
+    {
+        Files.createDirectories(cacheDirectory.toPath());
+        Path temporaryFile = Files.createTempFile(cacheDirectory.toPath(), "packages", ".tmp");
+        try {
+            Files.write(temporaryFile, packages, UTF_8);
+            Files.move(temporaryFile, cacheFile, ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private static String getCacheKey(File file)
+            throws IOException
+    {
+        // a replaced or rewritten jar changes size or modification time, which is far cheaper than hashing it
+        BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        return Hashing.sha256().newHasher()
+                .putString(file.getAbsolutePath(), UTF_8)
+                .putLong(attributes.size())
+                .putLong(attributes.lastModifiedTime().toMillis())
+                .hash()
+                .toString();
+    }
+
+    private static Set<String> toPackages(List<String> entryNames)
+    {
+        ImmutableSortedSet.Builder<String> packages = ImmutableSortedSet.naturalOrder();
+        for (String name : entryNames) {
+            if (name.startsWith(VERSIONED_PREFIX)) {
+                int versionEnd = name.indexOf('/', VERSIONED_PREFIX.length());
+                if (versionEnd < 0) {
+                    continue;
+                }
+                name = name.substring(versionEnd + 1);
+            }
+            if (!name.endsWith(CLASS_SUFFIX) || name.startsWith("META-INF/")) {
+                continue;
+            }
+            int packageEnd = name.lastIndexOf('/');
+            if (packageEnd > 0) {
+                packages.add(name.substring(0, packageEnd).replace('/', '.'));
+            }
+        }
+        return packages.build();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Snapshot of the circuit breaker of a remote repository, see
+ * {@link ArtifactResolver#getRepositoryHealth()}.
+ */
+public final class RepositoryHealth
+{
+    public enum State
+    {
+        /**
+         * The repository is used normally.
+         */
+        CLOSED,
+        /**
+         * The repository failed repeatedly, and is skipped until the cooldown expires.
+         */
+        OPEN,
+        /**
+         * The cooldown expired, and the next transfer decides whether the repository
+         * is used again or skipped for another cooldown.
+         */
+        HALF_OPEN,
+    }
+
+    private final String repositoryUrl;
+    private final State state;
+    private final int consecutiveFailures;
+    private final long totalFailures;
+    private final Optional<Duration> remainingCooldown;
+
+    public RepositoryHealth(String repositoryUrl, State state, int consecutiveFailures, long totalFailures, Optional<Duration> remainingCooldown)
+    {
+        this.repositoryUrl = requireNonNull(repositoryUrl, "repositoryUrl is null");
+        this.state = requireNonNull(state, "state is null");
+        this.consecutiveFailures = consecutiveFailures;
+        this.totalFailures = totalFailures;
+        this.remainingCooldown = requireNonNull(remainingCooldown, "remainingCooldown is null");
+    }
+
+    public String getRepositoryUrl()
+    {
+        return repositoryUrl;
+    }
+
+    public State getState()
+    {
+        return state;
+    }
+
+    public int getConsecutiveFailures()
+    {
+        return consecutiveFailures;
+    }
+
+    public long getTotalFailures()
+    {
+        return totalFailures;
+    }
+
+    /**
+     * Returns the time until an open repository is tried again.
+     */
+    public Optional<Duration> getRemainingCooldown()
+    {
+        return remainingCooldown;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("repositoryUrl", repositoryUrl)
+                .add("state", state)
+                .add("consecutiveFailures", consecutiveFailures)
+                .add("totalFailures", totalFailures)
+                .add("remainingCooldown", remainingCooldown.orElse(null))
+                .omitNullValues()
+                .toString();
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.airlift.resolver.internal.AccessLog;
+import io.airlift.resolver.internal.ChecksumVerifier;
+import io.airlift.resolver.internal.VerifiedChecksumIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonatype.aether.transfer.TransferListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.airlift.resolver.ArtifactResolver.ACCESS_LOG_FILE;
+import static io.airlift.resolver.ArtifactResolver.VERIFIED_CHECKSUMS_FILE;
+import static java.lang.Math.toIntExact;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+/**
+ * Serves a local repository over HTTP, in Maven repository layout, and fetches
+ * the files it does not have from upstream repositories, keeping them in the
+ * local repository. Resolvers on other hosts or in other processes can use it
+ * as their remote repository, so each file is downloaded from upstream once.
+ * <p>
+ * Concurrent requests for a file that is being fetched wait for that fetch
+ * instead of starting their own. Repository metadata changes upstream, so it is
+ * fetched on every request, and the last copy is served only when no upstream
+ * repository can be reached.
+ * <p>
+ * Downloads are verified against the checksum files of the same upstream
+ * repository before they are published in the local repository. Every file
+ * served is recorded in the access log of the repository, so a
+ * {@link LocalRepositoryEvictor} evicts what the proxy serves least recently.
+ */
+public class RepositoryProxy
+        implements Closeable
+{
+    private static final Logger log = LoggerFactory.getLogger(RepositoryProxy.class);
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration READ_TIMEOUT = Duration.ofMinutes(30);
+    private static final Duration ACCESS_LOG_SAVE_INTERVAL = Duration.ofMinutes(1);
+
+    private final Path repository;
+    private final List<URI> upstreamRepositories;
+    private final AccessLog accessLog;
+    private final ChecksumVerifier checksumVerifier;
+    private final HttpServer server;
+    private final ExecutorService executor = newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("repository-proxy-%s").build());
+    private final ConcurrentMap<String, CompletableFuture<Boolean>> fetches = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong coalescedRequests = new AtomicLong();
+    private final AtomicLong upstreamRequests = new AtomicLong();
+    private final AtomicLong lastAccessLogSave = new AtomicLong(System.nanoTime());
+
+    /**
+     * Starts a proxy on the given address. Use port zero to pick a free port.
+     * Downloads that do not match their checksums are reported to the transfer
+     * listener as corrupted transfers.
+     */
+    public RepositoryProxy(Path localRepository, List<String> upstreamRepositoryUris, InetSocketAddress address, TransferListener transferListener)
+            throws IOException
+    {
+        this.repository = requireNonNull(localRepository, "localRepository is null").toAbsolutePath().normalize();
+        this.upstreamRepositories = requireNonNull(upstreamRepositoryUris, "upstreamRepositoryUris is null").stream()
+                .map(uri -> URI.create(uri.endsWith("/") ? uri : uri + "/"))
+                .collect(ImmutableList.toImmutableList());
+        requireNonNull(address, "address is null");
+        requireNonNull(transferListener, "transferListener is null");
+        accessLog = new AccessLog(repository.resolve(ACCESS_LOG_FILE));
+        VerifiedChecksumIndex index = new VerifiedChecksumIndex(repository.resolve(VERIFIED_CHECKSUMS_FILE));
+        checksumVerifier = new ChecksumVerifier(repository.toFile(), index, transferListener, 1);
+
+        server = HttpServer.create(address, 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public URI getUri()
+    {
+        InetSocketAddress address = server.getAddress();
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort() + "/");
+    }
+
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of requests answered without fetching from upstream,
+     * either from the local repository or by waiting for a concurrent fetch
+     * that found the file.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of requests that waited for a concurrent fetch of the same file.
+     */
+    public long getCoalescedRequestCount()
+    {
+        return coalescedRequests.get();
+    }
+
+    public long getUpstreamRequestCount()
+    {
+        return upstreamRequests.get();
+    }
+
+    public double getHitRatio()
+    {
+        long requests = this.requests.get();
+        return (requests == 0) ? 0 : (double) hits.get() / requests;
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+        accessLog.save();
+    }
+
+    private void handle(HttpExchange exchange)
+            throws IOException
+    {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            requests.incrementAndGet();
+
+            String path = exchange.getRequestURI().getPath().replaceFirst("^/+", "");
+            Path file = repository.resolve(path).normalize();
+            // files in the root belong to the resolver, such as indexes and logs
+            if (path.isEmpty() || !file.startsWith(repository) || file.getParent().equals(repository)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            boolean found;
+            try {
+                found = find(path, file);
+            }
+            catch (CompletionException | UncheckedIOException e) {
+                log.debug("Unable to fetch " + path, e);
+                exchange.sendResponseHeaders(502, -1);
+                return;
+            }
+            if (!found) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            recordAccess(path);
+
+            // metadata may be replaced while it is served, so the open file decides the length
+            try (FileChannel channel = FileChannel.open(file, READ)) {
+                if (method.equals("HEAD")) {
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(channel.size()));
+                    exchange.sendResponseHeaders(200, -1);
+                    return;
+                }
+                exchange.sendResponseHeaders(200, channel.size());
+                try (OutputStream out = exchange.getResponseBody()) {
+                    ByteStreams.copy(Channels.newInputStream(channel), out);
+                }
+            }
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private void recordAccess(String path)
+    {
+        accessLog.record(path.substring(0, path.lastIndexOf('/')));
+
+        // saving merges into the shared file, so it is not done for every request
+        long lastSave = lastAccessLogSave.get();
+        if (System.nanoTime() - lastSave >= ACCESS_LOG_SAVE_INTERVAL.toNanos() && lastAccessLogSave.compareAndSet(lastSave, System.nanoTime())) {
+            accessLog.save();
+        }
+    }
+
+    private boolean find(String path, Path file)
+    {
+        boolean metadata = file.getFileName().toString().startsWith("maven-metadata");
+        if (!metadata && Files.isRegularFile(file)) {
+            hits.incrementAndGet();
+            return true;
+        }
+
+        CompletableFuture<Boolean> fetch = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = fetches.putIfAbsent(path, fetch);
+        if (existing != null) {
+            coalescedRequests.incrementAndGet();
+            boolean found = existing.join();
+            if (found) {
+                hits.incrementAndGet();
+            }
+            return found;
+        }
+
+        try {
+            boolean found;
+            if (!metadata && Files.isRegularFile(file)) {
+                // fetched by a request that finished between the check and the registration
+                hits.incrementAndGet();
+                found = true;
+            }
+            else {
+                found = fetch(path, file);
+            }
+            fetch.complete(found);
+            return found;
+        }
+        catch (IOException e) {
+            if (metadata && Files.isRegularFile(file)) {
+                log.debug("Serving last copy of " + path, e);
+                fetch.complete(true);
+                return true;
+            }
+            fetch.completeExceptionally(e);
+            throw new UncheckedIOException(e);
+        }
+        catch (RuntimeException | Error e) {
+            fetch.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            fetches.remove(path, fetch);
+        }
+    }
+
+    /**
+     * Downloads the file from the first upstream repository that has it, and
+     * returns whether one did.
+     */
+    private boolean fetch(String path, Path file)
+            throws IOException
+    {
+        IOException failure = null;
+        for (URI upstream : upstreamRepositories) {
+            try {
+                if (fetch(upstream, path, file)) {
+                    return true;
+                }
+            }
+            catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return false;
+    }
+
+    private boolean fetch(URI upstream, String path, Path file)
+            throws IOException
+    {
+        URL url = upstream.resolve(path).toURL();
+        Files.createDirectories(file.getParent());
+        Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            if (!download(url, temporaryFile)) {
+                return false;
+            }
+            if (isVerified(path)) {
+                // the checksum files are published first, so the download is verified against them
+                for (String extension : ChecksumVerifier.CHECKSUM_EXTENSIONS.values()) {
+                    fetch(upstream, path + extension, file.resolveSibling(file.getFileName() + extension));
+                }
+                if (!checksumVerifier.verify(temporaryFile.toFile(), file.toFile())) {
+                    throw new IOException("Checksum verification failed for " + url);
+                }
+            }
+            Files.move(temporaryFile, file, ATOMIC_MOVE);
+            return true;
+        }
+        finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Downloads the URL into the file, and returns false if it does not exist.
+     */
+    private boolean download(URL url, Path file)
+            throws IOException
+    {
+        upstreamRequests.incrementAndGet();
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(toIntExact(CONNECT_TIMEOUT.toMillis()));
+        connection.setReadTimeout(toIntExact(READ_TIMEOUT.toMillis()));
+        int status = connection.getResponseCode();
+        if (status == 200) {
+            try (InputStream in = connection.getInputStream()) {
+                Files.copy(in, file, REPLACE_EXISTING);
+            }
+            return true;
+        }
+        // read the rest of the response, so the connection is kept alive
+        try (InputStream in = connection.getErrorStream()) {
+            if (in != null) {
+                ByteStreams.exhaust(in);
+            }
+        }
+        if (status != 404) {
+            throw new IOException("Unexpected status " + status + " from " + url);
+        }
+        return false;
+    }
+
+    /**
+     * Metadata and checksum files have no checksums of their own in the upstream repository.
+     */
+    private static boolean isVerified(String path)
+    {
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
+        return !fileName.startsWith("maven-metadata") &&
+                ChecksumVerifier.CHECKSUM_EXTENSIONS.values().stream().noneMatch(fileName::endsWith) &&
+                !fileName.endsWith(".md5");
+    }
+}
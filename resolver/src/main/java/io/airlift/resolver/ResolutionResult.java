@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import org.sonatype.aether.artifact.Artifact;
+
+import java.util.List;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Outcome of a resolution with a deadline. When the deadline passes or the
+ * resolution is cancelled, the artifacts resolved so far are returned, and the
+ * artifacts that were found but not downloaded have no file. Dependencies of
+ * artifacts whose POM was not read are not known, so they are not listed.
+ */
+public final class ResolutionResult
+{
+    private final List<Artifact> artifacts;
+    private final boolean deadlineExceeded;
+    private final boolean cancelled;
+
+    public ResolutionResult(List<Artifact> artifacts, boolean deadlineExceeded, boolean cancelled)
+    {
+        this.artifacts = ImmutableList.copyOf(requireNonNull(artifacts, "artifacts is null"));
+        this.deadlineExceeded = deadlineExceeded;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Returns the artifacts in classpath order, as the resolution without a
+     * deadline would return them.
+     */
+    public List<Artifact> getArtifacts()
+    {
+        return artifacts;
+    }
+
+    /**
+     * Returns the artifacts that have no file.
+     */
+    public List<Artifact> getMissingArtifacts()
+    {
+        return artifacts.stream()
+                .filter(artifact -> artifact.getFile() == null)
+                .collect(toImmutableList());
+    }
+
+    public boolean isDeadlineExceeded()
+    {
+        return deadlineExceeded;
+    }
+
+    /**
+     * Returns whether the resolution was cancelled by interrupting its thread.
+     * The thread is still interrupted when the result is returned.
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Returns whether the resolution finished in time, and every artifact has a file.
+     */
+    public boolean isComplete()
+    {
+        return !deadlineExceeded && !cancelled && artifacts.stream().allMatch(artifact -> artifact.getFile() != null);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("artifacts", artifacts.size())
+                .add("missingArtifacts", getMissingArtifacts().size())
+                .add("deadlineExceeded", deadlineExceeded)
+                .add("cancelled", cancelled)
+                .toString();
+    }
+}
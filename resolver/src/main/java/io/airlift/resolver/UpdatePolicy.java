@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import org.sonatype.aether.repository.RepositoryPolicy;
+
+import java.time.Duration;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * How often repository metadata, such as the versions available for a version
+ * range or the latest build of a snapshot, is checked for updates.
+ */
+public final class UpdatePolicy
+{
+    private static final UpdatePolicy ALWAYS = new UpdatePolicy(RepositoryPolicy.UPDATE_POLICY_ALWAYS);
+    private static final UpdatePolicy DAILY = new UpdatePolicy(RepositoryPolicy.UPDATE_POLICY_DAILY);
+    private static final UpdatePolicy NEVER = new UpdatePolicy(RepositoryPolicy.UPDATE_POLICY_NEVER);
+
+    private final String value;
+
+    public static UpdatePolicy always()
+    {
+        return ALWAYS;
+    }
+
+    public static UpdatePolicy daily()
+    {
+        return DAILY;
+    }
+
+    public static UpdatePolicy never()
+    {
+        return NEVER;
+    }
+
+    /**
+     * Check for updates when the last check is older than the given interval,
+     * which is rounded down to whole minutes.
+     */
+    public static UpdatePolicy interval(Duration interval)
+    {
+        requireNonNull(interval, "interval is null");
+        checkArgument(interval.toMinutes() >= 1, "interval must be at least one minute");
+        return new UpdatePolicy(RepositoryPolicy.UPDATE_POLICY_INTERVAL + ":" + interval.toMinutes());
+    }
+
+    private UpdatePolicy(String value)
+    {
+        this.value = value;
+    }
+
+    /**
+     * Returns the policy in the form used by repository policies.
+     */
+    String getValue()
+    {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return value.equals(((UpdatePolicy) o).value);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return value.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return value;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Records when each directory of a local repository was last used, by path
+ * relative to the repository. Accesses are collected in memory and merged
+ * into a tab separated sidecar file in the repository on {@link #save()},
+ * keeping the latest time of each directory, so resolvers in several processes
+ * can share the file. The file is only rewritten while holding the
+ * {@link RepositoryLock} of the repository, so concurrent writers, and the
+ * evictor, do not lose each other's changes.
+ */
+public class AccessLog
+{
+    private static final Logger log = LoggerFactory.getLogger(AccessLog.class);
+
+    private final Path logFile;
+    private final Path repository;
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an access log stored in the given file, in the root of the repository.
+     */
+    public AccessLog(Path logFile)
+    {
+        this.logFile = requireNonNull(logFile, "logFile is null");
+        this.repository = logFile.toAbsolutePath().getParent();
+    }
+
+    public void record(String directory)
+    {
+        record(directory, System.currentTimeMillis());
+    }
+
+    public void record(String directory, long accessTime)
+    {
+        pending.merge(directory, accessTime, Math::max);
+    }
+
+    /**
+     * Returns the last access time of each directory, in milliseconds since the epoch,
+     * including accesses that were not saved yet.
+     */
+    public synchronized Map<String, Long> getAccessTimes()
+    {
+        Map<String, Long> accessTimes = load();
+        pending.forEach((directory, accessTime) -> accessTimes.merge(directory, accessTime, Math::max));
+        return accessTimes;
+    }
+
+    public synchronized void save()
+    {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, Long> saved = ImmutableMap.copyOf(pending);
+        boolean written = withLock(() -> {
+            Map<String, Long> accessTimes = load();
+            saved.forEach((directory, accessTime) -> accessTimes.merge(directory, accessTime, Math::max));
+            return write(accessTimes);
+        });
+        if (written) {
+            // keep accesses recorded while saving
+            saved.forEach(pending::remove);
+        }
+    }
+
+    /**
+     * Removes the directories matching the predicate from the file.
+     */
+    public synchronized void removeIf(Predicate<String> predicate)
+    {
+        pending.keySet().removeIf(predicate);
+        withLock(() -> {
+            Map<String, Long> accessTimes = load();
+            return accessTimes.keySet().removeIf(predicate) && write(accessTimes);
+        });
+    }
+
+    private boolean withLock(RepositoryLock.LockedAction<Boolean> action)
+    {
+        try {
+            return RepositoryLock.withLock(repository, action);
+        }
+        catch (IOException e) {
+            log.debug("Unable to lock local repository " + repository, e);
+            return false;
+        }
+    }
+
+    private Map<String, Long> load()
+    {
+        Map<String, Long> accessTimes = new HashMap<>();
+        if (!Files.isRegularFile(logFile)) {
+            return accessTimes;
+        }
+        try {
+            for (String line : Files.readAllLines(logFile, UTF_8)) {
+                List<String> parts = Splitter.on('\t').limit(2).splitToList(line);
+                if (parts.size() == 2) {
+                    accessTimes.merge(parts.get(1), Long.parseLong(parts.get(0)), Math::max);
+                }
+            }
+        }
+        catch (IOException | NumberFormatException e) {
+            // a damaged log only makes directories look older than they are
+            log.debug("Ignoring unreadable access log " + logFile, e);
+            accessTimes.clear();
+        }
+        return accessTimes;
+    }
+
+    private boolean write(Map<String, Long> accessTimes)
+    {
+        try {
+            Files.createDirectories(repository);
+            Path temporaryFile = Files.createTempFile(repository, logFile.getFileName().toString(), ".tmp");
+            try {
+                try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, UTF_8)) {
+                    for (Map.Entry<String, Long> entry : accessTimes.entrySet()) {
+                        writer.write(entry.getValue() + "\t" + entry.getKey());
+                        writer.newLine();
+                    }
+                }
+                Files.move(temporaryFile, logFile, ATOMIC_MOVE);
+            }
+            finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+            return true;
+        }
+        catch (IOException e) {
+            log.debug("Unable to save access log " + logFile, e);
+            return false;
+        }
+    }
+}
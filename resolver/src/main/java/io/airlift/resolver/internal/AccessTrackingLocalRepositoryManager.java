@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.metadata.Metadata;
+import org.sonatype.aether.repository.LocalArtifactRegistration;
+import org.sonatype.aether.repository.LocalArtifactRequest;
+import org.sonatype.aether.repository.LocalArtifactResult;
+import org.sonatype.aether.repository.LocalMetadataRegistration;
+import org.sonatype.aether.repository.LocalMetadataRequest;
+import org.sonatype.aether.repository.LocalMetadataResult;
+import org.sonatype.aether.repository.LocalRepository;
+import org.sonatype.aether.repository.LocalRepositoryManager;
+import org.sonatype.aether.repository.RemoteRepository;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Records the directory of every artifact and metadata file that is found in,
+ * or added to, the local repository in an {@link AccessLog}, so directories can
+ * be evicted in least recently used order.
+ */
+public class AccessTrackingLocalRepositoryManager
+        implements LocalRepositoryManager
+{
+    private final LocalRepositoryManager delegate;
+    private final AccessLog accessLog;
+
+    public AccessTrackingLocalRepositoryManager(LocalRepositoryManager delegate, AccessLog accessLog)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.accessLog = requireNonNull(accessLog, "accessLog is null");
+    }
+
+    @Override
+    public LocalRepository getRepository()
+    {
+        return delegate.getRepository();
+    }
+
+    @Override
+    public String getPathForLocalArtifact(Artifact artifact)
+    {
+        return delegate.getPathForLocalArtifact(artifact);
+    }
+
+    @Override
+    public String getPathForRemoteArtifact(Artifact artifact, RemoteRepository repository, String context)
+    {
+        return delegate.getPathForRemoteArtifact(artifact, repository, context);
+    }
+
+    @Override
+    public String getPathForLocalMetadata(Metadata metadata)
+    {
+        return delegate.getPathForLocalMetadata(metadata);
+    }
+
+    @Override
+    public String getPathForRemoteMetadata(Metadata metadata, RemoteRepository repository, String context)
+    {
+        return delegate.getPathForRemoteMetadata(metadata, repository, context);
+    }
+
+    @Override
+    public LocalArtifactResult find(RepositorySystemSession session, LocalArtifactRequest request)
+    {
+        LocalArtifactResult result = delegate.find(session, request);
+        if (result.isAvailable()) {
+            record(delegate.getPathForRemoteArtifact(request.getArtifact(), null, request.getContext()));
+        }
+        return result;
+    }
+
+    @Override
+    public void add(RepositorySystemSession session, LocalArtifactRegistration request)
+    {
+        delegate.add(session, request);
+        record((request.getRepository() == null)
+                ? delegate.getPathForLocalArtifact(request.getArtifact())
+                : delegate.getPathForRemoteArtifact(request.getArtifact(), request.getRepository(), ""));
+    }
+
+    @Override
+    public LocalMetadataResult find(RepositorySystemSession session, LocalMetadataRequest request)
+    {
+        LocalMetadataResult result = delegate.find(session, request);
+        if (result.getFile() != null) {
+            record((request.getRepository() == null)
+                    ? delegate.getPathForLocalMetadata(request.getMetadata())
+                    : delegate.getPathForRemoteMetadata(request.getMetadata(), request.getRepository(), request.getContext()));
+        }
+        return result;
+    }
+
+    @Override
+    public void add(RepositorySystemSession session, LocalMetadataRegistration request)
+    {
+        delegate.add(session, request);
+        record((request.getRepository() == null)
+                ? delegate.getPathForLocalMetadata(request.getMetadata())
+                : delegate.getPathForRemoteMetadata(request.getMetadata(), request.getRepository(), ""));
+    }
+
+    private void record(String path)
+    {
+        int separator = path.lastIndexOf('/');
+        if (separator > 0) {
+            accessLog.record(path.substring(0, separator));
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return delegate.toString();
+    }
+}
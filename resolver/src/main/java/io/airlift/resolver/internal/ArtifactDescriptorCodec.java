@@ -0,0 +1,304 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.Exclusion;
+import org.sonatype.aether.repository.ArtifactRepository;
+import org.sonatype.aether.repository.LocalRepository;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.repository.RepositoryPolicy;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of a parsed artifact descriptor, which loads much faster
+ * than building the effective model from the POM again.
+ */
+public final class ArtifactDescriptorCodec
+{
+    private static final int MAGIC = 0x41444331;
+
+    private static final byte NO_REPOSITORY = 0;
+    private static final byte REMOTE_REPOSITORY = 1;
+    private static final byte LOCAL_REPOSITORY = 2;
+
+    private static final byte STRING_VALUE = 0;
+    private static final byte INTEGER_VALUE = 1;
+    private static final byte LONG_VALUE = 2;
+    private static final byte BOOLEAN_VALUE = 3;
+
+    private ArtifactDescriptorCodec() {}
+
+    /**
+     * Returns true if all parts of the descriptor can be written. Artifact files,
+     * proxies and authentication are not part of the binary form.
+     */
+    public static boolean isEncodable(ArtifactDescriptorResult result)
+    {
+        for (Object value : result.getProperties().values()) {
+            if (!(value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Boolean)) {
+                return false;
+            }
+        }
+        for (RemoteRepository repository : result.getRepositories()) {
+            if (repository.getProxy() != null || repository.getAuthentication() != null || !repository.getMirroredRepositories().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void write(DataOutput out, ArtifactDescriptorResult result)
+            throws IOException
+    {
+        out.writeInt(MAGIC);
+        writeArtifact(out, result.getArtifact());
+        writeArtifacts(out, result.getRelocations());
+        writeArtifacts(out, result.getAliases());
+        writeDependencies(out, result.getDependencies());
+        writeDependencies(out, result.getManagedDependencies());
+
+        out.writeInt(result.getRepositories().size());
+        for (RemoteRepository repository : result.getRepositories()) {
+            writeRemoteRepository(out, repository);
+        }
+
+        ArtifactRepository repository = result.getRepository();
+        if (repository instanceof RemoteRepository) {
+            out.writeByte(REMOTE_REPOSITORY);
+            writeRemoteRepository(out, (RemoteRepository) repository);
+        }
+        else if (repository instanceof LocalRepository) {
+            out.writeByte(LOCAL_REPOSITORY);
+            out.writeUTF(((LocalRepository) repository).getBasedir().getPath());
+            out.writeUTF(repository.getContentType());
+        }
+        else {
+            out.writeByte(NO_REPOSITORY);
+        }
+
+        out.writeInt(result.getProperties().size());
+        for (Map.Entry<String, Object> entry : result.getProperties().entrySet()) {
+            out.writeUTF(entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof Integer) {
+                out.writeByte(INTEGER_VALUE);
+                out.writeInt((Integer) value);
+            }
+            else if (value instanceof Long) {
+                out.writeByte(LONG_VALUE);
+                out.writeLong((Long) value);
+            }
+            else if (value instanceof Boolean) {
+                out.writeByte(BOOLEAN_VALUE);
+                out.writeBoolean((Boolean) value);
+            }
+            else {
+                out.writeByte(STRING_VALUE);
+                out.writeUTF((String) value);
+            }
+        }
+    }
+
+    public static ArtifactDescriptorResult read(DataInput in, ArtifactDescriptorRequest request)
+            throws IOException
+    {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a binary artifact descriptor");
+        }
+
+        ArtifactDescriptorResult result = new ArtifactDescriptorResult(request);
+        result.setArtifact(readArtifact(in));
+        result.setRelocations(readArtifacts(in));
+        result.setAliases(readArtifacts(in));
+        result.setDependencies(readDependencies(in));
+        result.setManagedDependencies(readDependencies(in));
+
+        int repositoryCount = in.readInt();
+        List<RemoteRepository> repositories = new ArrayList<>(repositoryCount);
+        for (int i = 0; i < repositoryCount; i++) {
+            repositories.add(readRemoteRepository(in));
+        }
+        result.setRepositories(repositories);
+
+        byte repositoryKind = in.readByte();
+        if (repositoryKind == REMOTE_REPOSITORY) {
+            result.setRepository(readRemoteRepository(in));
+        }
+        else if (repositoryKind == LOCAL_REPOSITORY) {
+            result.setRepository(new LocalRepository(new File(in.readUTF()), in.readUTF()));
+        }
+
+        int propertyCount = in.readInt();
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (int i = 0; i < propertyCount; i++) {
+            String key = in.readUTF();
+            byte type = in.readByte();
+            switch (type) {
+                case INTEGER_VALUE:
+                    properties.put(key, in.readInt());
+                    break;
+                case LONG_VALUE:
+                    properties.put(key, in.readLong());
+                    break;
+                case BOOLEAN_VALUE:
+                    properties.put(key, in.readBoolean());
+                    break;
+                case STRING_VALUE:
+                    properties.put(key, in.readUTF());
+                    break;
+                default:
+                    throw new IOException("Unknown property type: " + type);
+            }
+        }
+        result.setProperties(properties);
+        return result;
+    }
+
+    private static void writeArtifacts(DataOutput out, Collection<Artifact> artifacts)
+            throws IOException
+    {
+        out.writeInt(artifacts.size());
+        for (Artifact artifact : artifacts) {
+            writeArtifact(out, artifact);
+        }
+    }
+
+    private static List<Artifact> readArtifacts(DataInput in)
+            throws IOException
+    {
+        int count = in.readInt();
+        List<Artifact> artifacts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            artifacts.add(readArtifact(in));
+        }
+        return artifacts;
+    }
+
+    private static void writeArtifact(DataOutput out, Artifact artifact)
+            throws IOException
+    {
+        out.writeUTF(artifact.getGroupId());
+        out.writeUTF(artifact.getArtifactId());
+        out.writeUTF(artifact.getClassifier());
+        out.writeUTF(artifact.getExtension());
+        out.writeUTF(artifact.getVersion());
+        out.writeInt(artifact.getProperties().size());
+        for (Map.Entry<String, String> entry : artifact.getProperties().entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue());
+        }
+    }
+
+    private static Artifact readArtifact(DataInput in)
+            throws IOException
+    {
+        String groupId = in.readUTF();
+        String artifactId = in.readUTF();
+        String classifier = in.readUTF();
+        String extension = in.readUTF();
+        String version = in.readUTF();
+        int propertyCount = in.readInt();
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (int i = 0; i < propertyCount; i++) {
+            properties.put(in.readUTF(), in.readUTF());
+        }
+        return new DefaultArtifact(groupId, artifactId, classifier, extension, version, properties, (File) null);
+    }
+
+    private static void writeDependencies(DataOutput out, List<Dependency> dependencies)
+            throws IOException
+    {
+        out.writeInt(dependencies.size());
+        for (Dependency dependency : dependencies) {
+            writeArtifact(out, dependency.getArtifact());
+            out.writeUTF(dependency.getScope());
+            out.writeBoolean(dependency.isOptional());
+            out.writeInt(dependency.getExclusions().size());
+            for (Exclusion exclusion : dependency.getExclusions()) {
+                out.writeUTF(exclusion.getGroupId());
+                out.writeUTF(exclusion.getArtifactId());
+                out.writeUTF(exclusion.getClassifier());
+                out.writeUTF(exclusion.getExtension());
+            }
+        }
+    }
+
+    private static List<Dependency> readDependencies(DataInput in)
+            throws IOException
+    {
+        int count = in.readInt();
+        List<Dependency> dependencies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Artifact artifact = readArtifact(in);
+            String scope = in.readUTF();
+            boolean optional = in.readBoolean();
+            int exclusionCount = in.readInt();
+            List<Exclusion> exclusions = new ArrayList<>(exclusionCount);
+            for (int j = 0; j < exclusionCount; j++) {
+                exclusions.add(new Exclusion(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF()));
+            }
+            dependencies.add(new Dependency(artifact, scope, optional, exclusions));
+        }
+        return dependencies;
+    }
+
+    private static void writeRemoteRepository(DataOutput out, RemoteRepository repository)
+            throws IOException
+    {
+        out.writeUTF(repository.getId());
+        out.writeUTF(repository.getContentType());
+        out.writeUTF(repository.getUrl());
+        out.writeBoolean(repository.isRepositoryManager());
+        writePolicy(out, repository.getPolicy(false));
+        writePolicy(out, repository.getPolicy(true));
+    }
+
+    private static RemoteRepository readRemoteRepository(DataInput in)
+            throws IOException
+    {
+        RemoteRepository repository = new RemoteRepository(in.readUTF(), in.readUTF(), in.readUTF());
+        repository.setRepositoryManager(in.readBoolean());
+        repository.setPolicy(false, readPolicy(in));
+        repository.setPolicy(true, readPolicy(in));
+        return repository;
+    }
+
+    private static void writePolicy(DataOutput out, RepositoryPolicy policy)
+            throws IOException
+    {
+        out.writeBoolean(policy.isEnabled());
+        out.writeUTF(policy.getUpdatePolicy());
+        out.writeUTF(policy.getChecksumPolicy());
+    }
+
+    private static RepositoryPolicy readPolicy(DataInput in)
+            throws IOException
+    {
+        return new RepositoryPolicy(in.readBoolean(), in.readUTF(), in.readUTF());
+    }
+}
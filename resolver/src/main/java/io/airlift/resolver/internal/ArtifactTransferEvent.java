@@ -0,0 +1,48 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a download or upload of a single file.
+ */
+@Name("io.airlift.resolver.Transfer")
+@Label("Artifact Transfer")
+@Category({"Airlift", "Resolver"})
+@Description("Transfer of an artifact, POM, metadata or checksum file")
+public class ArtifactTransferEvent
+        extends Event
+{
+    @Label("Repository")
+    public String repository;
+
+    @Label("Resource")
+    public String resource;
+
+    @Label("Upload")
+    public boolean upload;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.apache.maven.model.building.DefaultModelBuilder;
+import org.apache.maven.model.building.ModelBuildingException;
+import org.apache.maven.model.building.ModelBuildingRequest;
+import org.apache.maven.model.building.ModelBuildingResult;
+import org.apache.maven.model.building.ModelCache;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A model builder that attaches a shared {@link ModelCache} to every request.
+ * The project builder only sets a model cache when building a whole reactor at
+ * once, so single projects would otherwise read their parents and BOMs from
+ * scratch. This replaces the default model builder component, so the container
+ * still injects all of its requirements.
+ */
+public class CachingModelBuilder
+        extends DefaultModelBuilder
+{
+    private volatile ModelCache modelCache;
+
+    public CachingModelBuilder setModelCache(ModelCache modelCache)
+    {
+        this.modelCache = requireNonNull(modelCache, "modelCache is null");
+        return this;
+    }
+
+    @Override
+    public ModelBuildingResult build(ModelBuildingRequest request)
+            throws ModelBuildingException
+    {
+        return super.build(withCache(request));
+    }
+
+    @Override
+    public ModelBuildingResult build(ModelBuildingRequest request, ModelBuildingResult result)
+            throws ModelBuildingException
+    {
+        return super.build(withCache(request), result);
+    }
+
+    private ModelBuildingRequest withCache(ModelBuildingRequest request)
+    {
+        if (request.getModelCache() == null && modelCache != null) {
+            request.setModelCache(modelCache);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.building.FileModelSource;
+import org.apache.maven.model.building.ModelProcessor;
+import org.apache.maven.model.io.ModelReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads POM files through a {@link ProjectModelCache}. The model builder always
+ * reads from a stream, so files are recognized by their model source.
+ */
+public class CachingModelProcessor
+        implements ModelProcessor
+{
+    private final ModelProcessor delegate;
+    private final ProjectModelCache cache;
+
+    public CachingModelProcessor(ModelProcessor delegate, ProjectModelCache cache)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.cache = requireNonNull(cache, "cache is null");
+    }
+
+    @Override
+    public File locatePom(File projectDirectory)
+    {
+        return delegate.locatePom(projectDirectory);
+    }
+
+    @Override
+    public Model read(File input, Map<String, ?> options)
+            throws IOException
+    {
+        return delegate.read(input, options);
+    }
+
+    @Override
+    public Model read(Reader input, Map<String, ?> options)
+            throws IOException
+    {
+        return delegate.read(input, options);
+    }
+
+    @Override
+    public Model read(InputStream input, Map<String, ?> options)
+            throws IOException
+    {
+        Object source = (options == null) ? null : options.get(SOURCE);
+        if (!(source instanceof FileModelSource)) {
+            return delegate.read(input, options);
+        }
+
+        File file = ((FileModelSource) source).getPomFile();
+        boolean strict = Boolean.TRUE.equals(options.get(ModelReader.IS_STRICT));
+        Model model = cache.getModel(file, strict);
+        if (model != null) {
+            input.close();
+            return model;
+        }
+
+        // stamp the file before reading so a concurrent change is never attributed to the old contents
+        long lastModified = file.lastModified();
+        long length = file.length();
+        model = delegate.read(input, options);
+        cache.putModel(file, strict, lastModified, length, model);
+        return model;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.impl.UpdateCheck;
+import org.sonatype.aether.impl.UpdateCheckManager;
+import org.sonatype.aether.metadata.Metadata;
+import org.sonatype.aether.transfer.ArtifactTransferException;
+import org.sonatype.aether.transfer.MetadataTransferException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Remembers in memory when metadata was last downloaded from each repository,
+ * so metadata that is still current according to the update policy is used
+ * without reading the update status stored in the local repository. Every
+ * other decision is left to the delegate.
+ */
+public class CachingUpdateCheckManager
+        implements UpdateCheckManager
+{
+    private final UpdateCheckManager delegate;
+    private final Map<String, Long> metadataUpdates = new ConcurrentHashMap<>();
+
+    public CachingUpdateCheckManager(UpdateCheckManager delegate)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+    }
+
+    @Override
+    public String getEffectiveUpdatePolicy(RepositorySystemSession session, String policy1, String policy2)
+    {
+        return delegate.getEffectiveUpdatePolicy(session, policy1, policy2);
+    }
+
+    @Override
+    public boolean isUpdatedRequired(RepositorySystemSession session, long lastModified, String policy)
+    {
+        return delegate.isUpdatedRequired(session, lastModified, policy);
+    }
+
+    @Override
+    public void checkArtifact(RepositorySystemSession session, UpdateCheck<Artifact, ArtifactTransferException> check)
+    {
+        delegate.checkArtifact(session, check);
+    }
+
+    @Override
+    public void touchArtifact(RepositorySystemSession session, UpdateCheck<Artifact, ArtifactTransferException> check)
+    {
+        delegate.touchArtifact(session, check);
+    }
+
+    @Override
+    public void checkMetadata(RepositorySystemSession session, UpdateCheck<Metadata, MetadataTransferException> check)
+    {
+        Long lastUpdated = metadataUpdates.get(getKey(check));
+        if (lastUpdated != null && check.getFile().isFile() && !delegate.isUpdatedRequired(session, lastUpdated, check.getPolicy())) {
+            check.setRequired(false);
+            return;
+        }
+        delegate.checkMetadata(session, check);
+    }
+
+    @Override
+    public void touchMetadata(RepositorySystemSession session, UpdateCheck<Metadata, MetadataTransferException> check)
+    {
+        delegate.touchMetadata(session, check);
+        if (check.getException() == null) {
+            metadataUpdates.put(getKey(check), System.currentTimeMillis());
+        }
+        else {
+            metadataUpdates.remove(getKey(check));
+        }
+    }
+
+    private static String getKey(UpdateCheck<Metadata, MetadataTransferException> check)
+    {
+        return check.getFile().getAbsolutePath() + '|' + check.getRepository().getUrl();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.sonatype.aether.transfer.ChecksumFailureException;
+import org.sonatype.aether.transfer.TransferCancelledException;
+import org.sonatype.aether.transfer.TransferEvent;
+import org.sonatype.aether.transfer.TransferListener;
+import org.sonatype.aether.util.ChecksumUtils;
+import org.sonatype.aether.util.DefaultRequestTrace;
+import org.sonatype.aether.util.listener.DefaultTransferEvent;
+import org.sonatype.aether.util.listener.DefaultTransferResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Verifies files in the local repository against the checksum files downloaded
+ * next to them. Files are hashed in parallel, each with a single streaming pass
+ * for all available algorithms, and verified files are recorded in a
+ * {@link VerifiedChecksumIndex}. Mismatches are reported to the transfer listener
+ * as corrupted transfers.
+ */
+public class ChecksumVerifier
+{
+    public static final Map<String, String> CHECKSUM_EXTENSIONS = ImmutableMap.of(
+            "SHA-1", ".sha1",
+            "SHA-256", ".sha256");
+
+    private final File localRepository;
+    private final VerifiedChecksumIndex index;
+    private final TransferListener transferListener;
+    private final int threads;
+
+    public ChecksumVerifier(File localRepository, VerifiedChecksumIndex index, TransferListener transferListener, int threads)
+    {
+        checkArgument(threads > 0, "threads must be at least 1");
+        this.localRepository = requireNonNull(localRepository, "localRepository is null");
+        this.index = requireNonNull(index, "index is null");
+        this.transferListener = requireNonNull(transferListener, "transferListener is null");
+        this.threads = threads;
+    }
+
+    /**
+     * Verifies the files and returns the ones whose contents do not match their checksums.
+     */
+    public Set<File> verify(Collection<File> files)
+    {
+        if (files.isEmpty()) {
+            return ImmutableSet.of();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()), new ThreadFactoryBuilder()
+                .setNameFormat("checksum-verifier-%s")
+                .setDaemon(true)
+                .build());
+        try {
+            List<Future<File>> futures = new ArrayList<>(files.size());
+            for (File file : files) {
+                futures.add(executor.submit(() -> verify(file) ? null : file));
+            }
+
+            ImmutableSet.Builder<File> corrupted = ImmutableSet.builder();
+            for (Future<File> future : futures) {
+                File file = future.get();
+                if (file != null) {
+                    corrupted.add(file);
+                }
+            }
+            return corrupted.build();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while verifying checksums", e);
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException("Error verifying checksums", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+            index.save();
+        }
+    }
+
+    /**
+     * Verifies a download before it is moved to the target file, against the
+     * checksum files next to the target. The download is not recorded in the
+     * index, since it is about to be moved. A mismatch is reported as a corrupted
+     * transfer of the target.
+     */
+    public boolean verify(File download, File target)
+            throws IOException
+    {
+        Map<String, String> expected = expectedChecksums(target);
+        if (expected.isEmpty()) {
+            return true;
+        }
+        Map<String, String> actual = FileDigests.digest(download, expected.keySet());
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            if (!entry.getValue().equals(actual.get(entry.getKey()))) {
+                fireCorrupted(target, download, new ChecksumFailureException(entry.getValue(), actual.get(entry.getKey())));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean verify(File file)
+            throws IOException
+    {
+        if (index.isVerified(file.toPath())) {
+            return true;
+        }
+
+        Map<String, String> expected = expectedChecksums(file);
+        if (expected.isEmpty()) {
+            // nothing to verify against
+            return true;
+        }
+
+        if (!FlightRecorderSupport.isAvailable()) {
+            return verify(file, expected);
+        }
+        ChecksumVerificationEvent event = new ChecksumVerificationEvent();
+        event.begin();
+        boolean verified = verify(file, expected);
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = file.getPath();
+            event.bytes = file.length();
+            event.verified = verified;
+            event.commit();
+        }
+        return verified;
+    }
+
+    private boolean verify(File file, Map<String, String> expected)
+            throws IOException
+    {
+        BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        Map<String, String> actual = FileDigests.digest(file, expected.keySet());
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            if (!entry.getValue().equals(actual.get(entry.getKey()))) {
+                index.remove(file.toPath());
+                fireCorrupted(file, file, new ChecksumFailureException(entry.getValue(), actual.get(entry.getKey())));
+                return false;
+            }
+        }
+
+        index.record(file.toPath(), attributes.size(), attributes.lastModifiedTime().toMillis());
+        return true;
+    }
+
+    private static Map<String, String> expectedChecksums(File file)
+            throws IOException
+    {
+        Map<String, String> expected = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : CHECKSUM_EXTENSIONS.entrySet()) {
+            File checksumFile = new File(file.getPath() + entry.getValue());
+            if (checksumFile.isFile()) {
+                expected.put(entry.getKey(), ChecksumUtils.read(checksumFile).toLowerCase());
+            }
+        }
+        return expected;
+    }
+
+    private void fireCorrupted(File target, File file, ChecksumFailureException exception)
+    {
+        String resourceName = localRepository.toPath().toAbsolutePath().relativize(target.toPath().toAbsolutePath()).toString().replace(File.separatorChar, '/');
+        DefaultTransferResource resource = new DefaultTransferResource(localRepository.toURI().toString(), resourceName, target, new DefaultRequestTrace(target));
+        resource.setContentLength(file.length());
+        DefaultTransferEvent event = new DefaultTransferEvent()
+                .setType(TransferEvent.EventType.CORRUPTED)
+                .setRequestType(TransferEvent.RequestType.GET)
+                .setResource(resource)
+                .setException(exception);
+        try {
+            transferListener.transferCorrupted(event);
+        }
+        catch (TransferCancelledException ignored) {
+            // the file is rejected either way
+        }
+    }
+}
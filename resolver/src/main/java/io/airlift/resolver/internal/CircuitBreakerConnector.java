@@ -0,0 +1,200 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.spi.connector.ArtifactDownload;
+import org.sonatype.aether.spi.connector.ArtifactUpload;
+import org.sonatype.aether.spi.connector.MetadataDownload;
+import org.sonatype.aether.spi.connector.MetadataUpload;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.spi.connector.Transfer;
+import org.sonatype.aether.transfer.ArtifactNotFoundException;
+import org.sonatype.aether.transfer.ArtifactTransferException;
+import org.sonatype.aether.transfer.MetadataNotFoundException;
+import org.sonatype.aether.transfer.MetadataTransferException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Refuses downloads from a repository whose circuit is open, so they fail at
+ * once instead of waiting for the connection to time out, and retries downloads
+ * that failed for reasons other than a missing file, with exponential backoff.
+ * The outcome is reported to the circuit breaker once per transfer, after the
+ * retries: a transfer in which a download reaches the repository, even to find
+ * the file missing, counts as a success; one in which every download failed on
+ * every attempt counts as a single failure.
+ * Once the {@link ResolutionDeadline deadline} of the resolution expires, downloads
+ * are refused and not retried, and failures no longer count against the repository.
+ */
+public class CircuitBreakerConnector
+        implements RepositoryConnector
+{
+    private final RemoteRepository repository;
+    private final RepositoryConnector delegate;
+    private final RepositoryCircuitBreaker circuitBreaker;
+    private final int retries;
+    private final long retryBackoffNanos;
+    private final Optional<ResolutionDeadline> deadline;
+
+    public CircuitBreakerConnector(RemoteRepository repository, RepositoryConnector delegate, RepositoryCircuitBreaker circuitBreaker, int retries, Duration retryBackoff)
+    {
+        this(repository, delegate, circuitBreaker, retries, retryBackoff, Optional.empty());
+    }
+
+    public CircuitBreakerConnector(RemoteRepository repository, RepositoryConnector delegate, RepositoryCircuitBreaker circuitBreaker, int retries, Duration retryBackoff, Optional<ResolutionDeadline> deadline)
+    {
+        this.repository = requireNonNull(repository, "repository is null");
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.circuitBreaker = requireNonNull(circuitBreaker, "circuitBreaker is null");
+        this.retries = retries;
+        this.retryBackoffNanos = retryBackoff.toNanos();
+        this.deadline = requireNonNull(deadline, "deadline is null");
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads)
+    {
+        List<ArtifactDownload> artifacts = (artifactDownloads == null) ? new ArrayList<>() : new ArrayList<>(artifactDownloads);
+        List<MetadataDownload> metadata = (metadataDownloads == null) ? new ArrayList<>() : new ArrayList<>(metadataDownloads);
+
+        if (artifacts.isEmpty() && metadata.isEmpty()) {
+            return;
+        }
+        if (isExpired()) {
+            refuse(artifacts, metadata, deadline.get().getMessage());
+            return;
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            refuse(artifacts, metadata, "Repository " + repository.getId() + " (" + repository.getUrl() + ") is unavailable: " + circuitBreaker.getHealth());
+            return;
+        }
+
+        boolean reached = false;
+        boolean cutShort = false;
+        try {
+            for (int attempt = 0; ; attempt++) {
+                delegate.get(artifacts, metadata);
+                if (isExpired()) {
+                    cutShort = true;
+                    break;
+                }
+
+                List<ArtifactDownload> failedArtifacts = new ArrayList<>();
+                for (ArtifactDownload download : artifacts) {
+                    if (isFailed(download.getException())) {
+                        failedArtifacts.add(download);
+                    }
+                }
+                List<MetadataDownload> failedMetadata = new ArrayList<>();
+                for (MetadataDownload download : metadata) {
+                    if (isFailed(download.getException())) {
+                        failedMetadata.add(download);
+                    }
+                }
+                if (failedArtifacts.size() + failedMetadata.size() < artifacts.size() + metadata.size()) {
+                    reached = true;
+                }
+
+                if (failedArtifacts.isEmpty() && failedMetadata.isEmpty()) {
+                    break;
+                }
+                long backoffNanos = retryBackoffNanos << attempt;
+                if (attempt >= retries || (deadline.isPresent() && backoffNanos >= deadline.get().getRemainingNanos()) || !sleep(backoffNanos)) {
+                    break;
+                }
+                if (isExpired()) {
+                    cutShort = true;
+                    break;
+                }
+                for (ArtifactDownload download : failedArtifacts) {
+                    download.setException(null);
+                    download.setState(Transfer.State.NEW);
+                }
+                for (MetadataDownload download : failedMetadata) {
+                    download.setException(null);
+                    download.setState(Transfer.State.NEW);
+                }
+                artifacts = failedArtifacts;
+                metadata = failedMetadata;
+            }
+        }
+        catch (RuntimeException | Error e) {
+            circuitBreaker.failure();
+            throw e;
+        }
+
+        if (reached) {
+            circuitBreaker.success();
+        }
+        else if (cutShort) {
+            // the transfers were cut short, which says nothing about the repository
+            circuitBreaker.release();
+        }
+        else {
+            circuitBreaker.failure();
+        }
+    }
+
+    private boolean isExpired()
+    {
+        return deadline.isPresent() && deadline.get().isExpired();
+    }
+
+    private void refuse(List<ArtifactDownload> artifacts, List<MetadataDownload> metadata, String message)
+    {
+        for (ArtifactDownload download : artifacts) {
+            download.setException(new ArtifactTransferException(download.getArtifact(), repository, message));
+        }
+        for (MetadataDownload download : metadata) {
+            download.setException(new MetadataTransferException(download.getMetadata(), repository, message));
+        }
+    }
+
+    private static boolean isFailed(Exception exception)
+    {
+        return exception != null && !(exception instanceof ArtifactNotFoundException) && !(exception instanceof MetadataNotFoundException);
+    }
+
+    private static boolean sleep(long nanos)
+    {
+        try {
+            NANOSECONDS.sleep(nanos);
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void put(Collection<? extends ArtifactUpload> artifactUploads, Collection<? extends MetadataUpload> metadataUploads)
+    {
+        delegate.put(artifactUploads, metadataUploads);
+    }
+
+    @Override
+    public void close()
+    {
+        delegate.close();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.base.Ticker;
+import io.airlift.resolver.RepositoryHealth;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.spi.connector.RepositoryConnectorFactory;
+import org.sonatype.aether.transfer.NoRepositoryConnectorException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Holds one {@link RepositoryCircuitBreaker} per repository URL, shared by the
+ * {@link CircuitBreakerConnector}s that {@link #wrap wrapped} connector factories
+ * create. Create one instance per resolver, and wrap each of its connector factories.
+ */
+public class CircuitBreakerRegistry
+{
+    private final int failureThreshold;
+    private final Duration cooldown;
+    private final int retries;
+    private final Duration retryBackoff;
+    private final Ticker ticker;
+    private final ConcurrentMap<String, RepositoryCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakerRegistry(int failureThreshold, Duration cooldown, int retries, Duration retryBackoff, Ticker ticker)
+    {
+        checkArgument(failureThreshold >= 0, "failureThreshold is negative");
+        checkArgument(retries >= 0, "retries is negative");
+        this.failureThreshold = failureThreshold;
+        this.cooldown = requireNonNull(cooldown, "cooldown is null");
+        this.retries = retries;
+        this.retryBackoff = requireNonNull(retryBackoff, "retryBackoff is null");
+        this.ticker = requireNonNull(ticker, "ticker is null");
+    }
+
+    public RepositoryConnectorFactory wrap(RepositoryConnectorFactory delegate)
+    {
+        requireNonNull(delegate, "delegate is null");
+        return new RepositoryConnectorFactory()
+        {
+            @Override
+            public RepositoryConnector newInstance(RepositorySystemSession session, RemoteRepository repository)
+                    throws NoRepositoryConnectorException
+            {
+                RepositoryCircuitBreaker circuitBreaker = circuitBreakers.computeIfAbsent(repository.getUrl(), url -> new RepositoryCircuitBreaker(url, failureThreshold, cooldown, ticker));
+                return new CircuitBreakerConnector(repository, delegate.newInstance(session, repository), circuitBreaker, retries, retryBackoff, ResolutionDeadline.get(session));
+            }
+
+            @Override
+            public int getPriority()
+            {
+                return delegate.getPriority();
+            }
+        };
+    }
+
+    /**
+     * Returns the health of every repository a connector was created for, by URL.
+     */
+    public Map<String, RepositoryHealth> getHealth()
+    {
+        return circuitBreakers.entrySet().stream()
+                .collect(toImmutableMap(Map.Entry::getKey, entry -> entry.getValue().getHealth()));
+    }
+}
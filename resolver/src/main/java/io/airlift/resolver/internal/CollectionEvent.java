@@ -0,0 +1,41 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for collecting a dependency graph, which reads the
+ * descriptor of every node but downloads no artifact files.
+ */
+@Name("io.airlift.resolver.Collection")
+@Label("Dependency Collection")
+@Category({"Airlift", "Resolver"})
+@Description("Collection of a dependency graph")
+public class CollectionEvent
+        extends Event
+{
+    @Label("Request")
+    public String request;
+
+    @Label("Dependencies")
+    public int dependencies;
+
+    @Label("Failed")
+    public boolean failed;
+}
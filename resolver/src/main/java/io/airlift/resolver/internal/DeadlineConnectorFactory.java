@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.spi.connector.RepositoryConnectorFactory;
+import org.sonatype.aether.transfer.NoRepositoryConnectorException;
+import org.sonatype.aether.util.ConfigUtils;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+
+import java.util.HashMap;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Limits the request timeout of the connectors created for a resolution with a
+ * {@link ResolutionDeadline deadline} to the time left, so a stalled transfer ends
+ * by the deadline. The connect timeout is left alone, since HTTP clients are
+ * shared by connect timeout.
+ */
+public class DeadlineConnectorFactory
+        implements RepositoryConnectorFactory
+{
+    private final RepositoryConnectorFactory delegate;
+
+    public DeadlineConnectorFactory(RepositoryConnectorFactory delegate)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+    }
+
+    @Override
+    public RepositoryConnector newInstance(RepositorySystemSession session, RemoteRepository repository)
+            throws NoRepositoryConnectorException
+    {
+        Optional<ResolutionDeadline> deadline = ResolutionDeadline.get(session);
+        if (!deadline.isPresent()) {
+            return delegate.newInstance(session, repository);
+        }
+
+        int requestTimeout = ConfigUtils.getInteger(session, ConfigurationProperties.DEFAULT_REQUEST_TIMEOUT, ConfigurationProperties.REQUEST_TIMEOUT);
+        // zero means no timeout to the connectors
+        long remainingMillis = Math.max(1, NANOSECONDS.toMillis(deadline.get().getRemainingNanos()));
+        // the copy shares the properties of the session, so they are copied too
+        DefaultRepositorySystemSession boundedSession = new DefaultRepositorySystemSession(session)
+                .setConfigProperties(new HashMap<>(session.getConfigProperties()))
+                .setConfigProperty(ConfigurationProperties.REQUEST_TIMEOUT, (int) Math.min(requestTimeout <= 0 ? Integer.MAX_VALUE : requestTimeout, remainingMillis));
+        return delegate.newInstance(boundedSession, repository);
+    }
+
+    @Override
+    public int getPriority()
+    {
+        return delegate.getPriority();
+    }
+}
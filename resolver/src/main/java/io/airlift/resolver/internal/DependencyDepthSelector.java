@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.sonatype.aether.collection.DependencyCollectionContext;
+import org.sonatype.aether.collection.DependencySelector;
+import org.sonatype.aether.graph.Dependency;
+
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Records the depth of every dependency another selector selects, before the
+ * collector reads its descriptor, so downloads can be prioritized by depth.
+ * Depths are capped at {@link DependencyDepths#MAX_DEPTH}, which keeps the
+ * selectors of deeper nodes equal, and the collector's node cache effective.
+ */
+public class DependencyDepthSelector
+        implements DependencySelector
+{
+    private final DependencySelector delegate;
+    private final DependencyDepths depths;
+    private final int depth;
+
+    public DependencyDepthSelector(DependencySelector delegate, DependencyDepths depths)
+    {
+        this(delegate, depths, 0);
+    }
+
+    private DependencyDepthSelector(DependencySelector delegate, DependencyDepths depths, int depth)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.depths = requireNonNull(depths, "depths is null");
+        this.depth = depth;
+    }
+
+    @Override
+    public boolean selectDependency(Dependency dependency)
+    {
+        if (!delegate.selectDependency(dependency)) {
+            return false;
+        }
+        depths.record(dependency.getArtifact(), Math.max(depth, 1));
+        return true;
+    }
+
+    @Override
+    public DependencySelector deriveChildSelector(DependencyCollectionContext context)
+    {
+        return new DependencyDepthSelector(delegate.deriveChildSelector(context), depths, Math.min(depth + 1, DependencyDepths.MAX_DEPTH));
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DependencyDepthSelector that = (DependencyDepthSelector) o;
+        return depth == that.depth && delegate.equals(that.delegate) && depths == that.depths;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(delegate, System.identityHashCode(depths), depth);
+    }
+}
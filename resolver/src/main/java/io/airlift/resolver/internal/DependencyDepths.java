@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Depth in the dependency graph at which each artifact was first selected during
+ * a resolution, recorded by {@link DependencyDepthSelector} and kept in the session
+ * data. The requested artifacts, or the direct dependencies of a POM, are at depth
+ * one, and everything at or below {@link #MAX_DEPTH} is at that depth. Versions are
+ * ignored, since ranges are only resolved after the dependency is selected.
+ */
+public final class DependencyDepths
+{
+    public static final int MAX_DEPTH = 3;
+
+    private final ConcurrentMap<String, Integer> depths = new ConcurrentHashMap<>();
+
+    public static DependencyDepths get(RepositorySystemSession session)
+    {
+        return (DependencyDepths) session.getData().get(DependencyDepths.class);
+    }
+
+    public void install(RepositorySystemSession session)
+    {
+        session.getData().set(DependencyDepths.class, this);
+    }
+
+    public void record(Artifact artifact, int depth)
+    {
+        checkArgument(depth > 0, "depth must be positive");
+        depths.merge(key(artifact), Math.min(depth, MAX_DEPTH), Math::min);
+    }
+
+    /**
+     * Returns the depth of the artifact, or {@link #MAX_DEPTH} for artifacts that
+     * were never selected, such as parent POMs.
+     */
+    public int getDepth(Artifact artifact)
+    {
+        return depths.getOrDefault(key(artifact), MAX_DEPTH);
+    }
+
+    private static String key(Artifact artifact)
+    {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId();
+    }
+}
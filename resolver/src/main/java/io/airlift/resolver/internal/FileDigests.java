@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.BaseEncoding;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class FileDigests
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private FileDigests() {}
+
+    /**
+     * Computes the lower case hex digest of the file contents, e.g. for {@code SHA-1}.
+     */
+    public static String digest(File file, String algorithm)
+            throws IOException
+    {
+        return digest(file, ImmutableList.of(algorithm)).get(algorithm);
+    }
+
+    /**
+     * Computes several digests of the file contents while reading it only once.
+     */
+    public static Map<String, String> digest(File file, Collection<String> algorithms)
+            throws IOException
+    {
+        Map<String, MessageDigest> digests = new LinkedHashMap<>();
+        for (String algorithm : algorithms) {
+            digests.put(algorithm, newMessageDigest(algorithm));
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                for (MessageDigest digest : digests.values()) {
+                    buffer.mark();
+                    digest.update(buffer);
+                    buffer.reset();
+                }
+                buffer.clear();
+            }
+        }
+
+        ImmutableMap.Builder<String, String> result = ImmutableMap.builder();
+        for (Map.Entry<String, MessageDigest> entry : digests.entrySet()) {
+            result.put(entry.getKey(), BaseEncoding.base16().lowerCase().encode(entry.getValue().digest()));
+        }
+        return result.build();
+    }
+
+    private static MessageDigest newMessageDigest(String algorithm)
+    {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported digest algorithm: " + algorithm, e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+/**
+ * Tells whether the flight recorder API is present. Java 8 runtimes before
+ * 8u262 have no {@code jdk.jfr} package, where loading one of the resolver's
+ * event classes fails, so every use of them is guarded by {@link #isAvailable()}.
+ */
+public final class FlightRecorderSupport
+{
+    private static final boolean AVAILABLE = isEventClassPresent();
+
+    private FlightRecorderSupport() {}
+
+    public static boolean isAvailable()
+    {
+        return AVAILABLE;
+    }
+
+    private static boolean isEventClassPresent()
+    {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        }
+        catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.collect.MapMaker;
+import org.sonatype.aether.transfer.AbstractTransferListener;
+import org.sonatype.aether.transfer.TransferEvent;
+import org.sonatype.aether.transfer.TransferResource;
+
+import java.util.Map;
+
+/**
+ * Emits an {@link ArtifactTransferEvent} for every transfer, spanning from its
+ * initiation to its success or failure. Does nothing unless the event is
+ * enabled in a running flight recording, or without the flight recorder API.
+ */
+public class FlightRecorderTransferListener
+        extends AbstractTransferListener
+{
+    // a transfer cancelled by another listener may never fail or succeed, so its event is dropped along with the resource
+    private final Map<TransferResource, ArtifactTransferEvent> transfers = new MapMaker().weakKeys().makeMap();
+
+    @Override
+    public void transferInitiated(TransferEvent event)
+    {
+        if (!FlightRecorderSupport.isAvailable()) {
+            return;
+        }
+        ArtifactTransferEvent transfer = new ArtifactTransferEvent();
+        if (!transfer.isEnabled()) {
+            return;
+        }
+        transfer.begin();
+        transfers.put(event.getResource(), transfer);
+    }
+
+    @Override
+    public void transferSucceeded(TransferEvent event)
+    {
+        commit(event, true);
+    }
+
+    @Override
+    public void transferFailed(TransferEvent event)
+    {
+        commit(event, false);
+    }
+
+    private void commit(TransferEvent event, boolean succeeded)
+    {
+        ArtifactTransferEvent transfer = transfers.remove(event.getResource());
+        if (transfer == null) {
+            return;
+        }
+        transfer.end();
+        if (transfer.shouldCommit()) {
+            transfer.repository = event.getResource().getRepositoryUrl();
+            transfer.resource = event.getResource().getResourceName();
+            transfer.upload = event.getRequestType() == TransferEvent.RequestType.PUT;
+            transfer.bytes = event.getTransferredBytes();
+            transfer.succeeded = succeeded;
+            transfer.commit();
+        }
+    }
+}
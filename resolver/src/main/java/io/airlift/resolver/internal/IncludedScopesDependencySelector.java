@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.collect.ImmutableSet;
+import org.sonatype.aether.collection.DependencyCollectionContext;
+import org.sonatype.aether.collection.DependencySelector;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.util.artifact.JavaScopes;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Selects transitive dependencies in the given scopes, so the collector never
+ * reads the descriptors of dependencies in other scopes. Direct dependencies
+ * are the caller's choice, and are always selected. A dependency without a
+ * scope is in the compile scope. Scopes are matched as declared, so a runtime
+ * dependency with compile dependencies of its own needs both scopes; see
+ * {@link #classpathScopes}.
+ */
+public class IncludedScopesDependencySelector
+        implements DependencySelector
+{
+    private final Set<String> scopes;
+    private final boolean transitive;
+
+    public IncludedScopesDependencySelector(Set<String> scopes)
+    {
+        this(scopes, false);
+    }
+
+    private IncludedScopesDependencySelector(Set<String> scopes, boolean transitive)
+    {
+        this.scopes = ImmutableSet.copyOf(scopes);
+        this.transitive = transitive;
+    }
+
+    @Override
+    public boolean selectDependency(Dependency dependency)
+    {
+        return !transitive || scopes.contains(scopeOf(dependency.getScope()));
+    }
+
+    @Override
+    public DependencySelector deriveChildSelector(DependencyCollectionContext context)
+    {
+        if (transitive || context.getDependency() == null) {
+            return this;
+        }
+        return new IncludedScopesDependencySelector(scopes, true);
+    }
+
+    /**
+     * Returns the given scopes together with the scopes on their classpaths: the
+     * runtime classpath includes compile dependencies, and the test classpath
+     * includes dependencies in every scope.
+     */
+    public static Set<String> classpathScopes(Set<String> scopes)
+    {
+        ImmutableSet.Builder<String> classpathScopes = ImmutableSet.<String>builder().addAll(scopes);
+        if (scopes.contains(JavaScopes.RUNTIME)) {
+            classpathScopes.add(JavaScopes.COMPILE);
+        }
+        if (scopes.contains(JavaScopes.TEST)) {
+            classpathScopes.add(JavaScopes.COMPILE, JavaScopes.PROVIDED, JavaScopes.RUNTIME, JavaScopes.SYSTEM);
+        }
+        return classpathScopes.build();
+    }
+
+    /**
+     * Returns the scope of a dependency declared with the given scope.
+     */
+    public static String scopeOf(String declaredScope)
+    {
+        return (declaredScope == null || declaredScope.isEmpty()) ? JavaScopes.COMPILE : declaredScope;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IncludedScopesDependencySelector that = (IncludedScopesDependencySelector) o;
+        return transitive == that.transitive && scopes.equals(that.scopes);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(scopes, transitive);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.metadata.Metadata;
+import org.sonatype.aether.repository.LocalArtifactRegistration;
+import org.sonatype.aether.repository.LocalArtifactRequest;
+import org.sonatype.aether.repository.LocalArtifactResult;
+import org.sonatype.aether.repository.LocalMetadataRegistration;
+import org.sonatype.aether.repository.LocalMetadataRequest;
+import org.sonatype.aether.repository.LocalMetadataResult;
+import org.sonatype.aether.repository.LocalRepository;
+import org.sonatype.aether.repository.LocalRepositoryManager;
+import org.sonatype.aether.repository.RemoteRepository;
+
+import java.io.File;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Answers whether artifacts and metadata are in the local repository from a
+ * {@link LocalRepositoryIndex}, without checking the file system for indexed
+ * files. Files missing from the index are looked up by the delegate, and added
+ * to the index when found, as are files registered after they are downloaded
+ * or installed.
+ */
+public class IndexedLocalRepositoryManager
+        implements LocalRepositoryManager
+{
+    private final LocalRepositoryManager delegate;
+    private final LocalRepositoryIndex index;
+
+    public IndexedLocalRepositoryManager(LocalRepositoryManager delegate, LocalRepositoryIndex index)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.index = requireNonNull(index, "index is null");
+    }
+
+    @Override
+    public LocalRepository getRepository()
+    {
+        return delegate.getRepository();
+    }
+
+    @Override
+    public String getPathForLocalArtifact(Artifact artifact)
+    {
+        return delegate.getPathForLocalArtifact(artifact);
+    }
+
+    @Override
+    public String getPathForRemoteArtifact(Artifact artifact, RemoteRepository repository, String context)
+    {
+        return delegate.getPathForRemoteArtifact(artifact, repository, context);
+    }
+
+    @Override
+    public String getPathForLocalMetadata(Metadata metadata)
+    {
+        return delegate.getPathForLocalMetadata(metadata);
+    }
+
+    @Override
+    public String getPathForRemoteMetadata(Metadata metadata, RemoteRepository repository, String context)
+    {
+        return delegate.getPathForRemoteMetadata(metadata, repository, context);
+    }
+
+    @Override
+    public LocalArtifactResult find(RepositorySystemSession session, LocalArtifactRequest request)
+    {
+        // the simple layout stores artifacts from every repository at the same path
+        String path = delegate.getPathForRemoteArtifact(request.getArtifact(), null, request.getContext());
+        if (index.contains(path)) {
+            return new LocalArtifactResult(request)
+                    .setFile(new File(getRepository().getBasedir(), path))
+                    .setAvailable(true);
+        }
+
+        LocalArtifactResult result = delegate.find(session, request);
+        if (result.isAvailable()) {
+            index.add(path);
+        }
+        return result;
+    }
+
+    @Override
+    public void add(RepositorySystemSession session, LocalArtifactRegistration request)
+    {
+        delegate.add(session, request);
+        String path = (request.getRepository() == null)
+                ? delegate.getPathForLocalArtifact(request.getArtifact())
+                : delegate.getPathForRemoteArtifact(request.getArtifact(), request.getRepository(), "");
+        index.add(path);
+    }
+
+    @Override
+    public LocalMetadataResult find(RepositorySystemSession session, LocalMetadataRequest request)
+    {
+        String path = (request.getRepository() == null)
+                ? delegate.getPathForLocalMetadata(request.getMetadata())
+                : delegate.getPathForRemoteMetadata(request.getMetadata(), request.getRepository(), request.getContext());
+        if (index.contains(path)) {
+            return new LocalMetadataResult(request)
+                    .setFile(new File(getRepository().getBasedir(), path));
+        }
+
+        LocalMetadataResult result = delegate.find(session, request);
+        if (result.getFile() != null) {
+            index.add(path);
+        }
+        return result;
+    }
+
+    @Override
+    public void add(RepositorySystemSession session, LocalMetadataRegistration request)
+    {
+        delegate.add(session, request);
+        // registered files are usually in the repository, but artifacts used in place from a
+        // file repository are not, and the index only adds the files it finds
+        if (request.getRepository() == null) {
+            index.add(delegate.getPathForLocalMetadata(request.getMetadata()));
+            return;
+        }
+        if (request.getContexts().isEmpty()) {
+            index.add(delegate.getPathForRemoteMetadata(request.getMetadata(), request.getRepository(), ""));
+        }
+        for (String context : request.getContexts()) {
+            index.add(delegate.getPathForRemoteMetadata(request.getMetadata(), request.getRepository(), context));
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return delegate.toString();
+    }
+}
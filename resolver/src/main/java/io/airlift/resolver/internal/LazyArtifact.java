@@ -0,0 +1,274 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.collect.ImmutableList;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.resolution.ArtifactRequest;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An artifact from a collected dependency graph whose file is resolved on the
+ * first call to {@link #getFile()}. Until then, the coordinates are those of
+ * the graph; afterwards, they are those of the resolved artifact, which may
+ * differ in the version of a snapshot. Concurrent callers share a single
+ * resolution, and its outcome is remembered, including a resolution that finds
+ * no file or fails; {@link #resolveAll} tries those again. Lazy artifacts are
+ * equal when their coordinates are, using the base version, which does not
+ * change on resolution.
+ */
+public class LazyArtifact
+        implements Artifact
+{
+    private final ArtifactRequest request;
+    private final Function<List<ArtifactRequest>, List<Artifact>> resolver;
+
+    private CompletableFuture<Artifact> resolution;
+
+    /**
+     * @param resolver resolves the requests in a single batch, and returns the
+     * artifacts in the same order, with no file for those that cannot be resolved
+     */
+    public LazyArtifact(ArtifactRequest request, Function<List<ArtifactRequest>, List<Artifact>> resolver)
+    {
+        this.request = requireNonNull(request, "request is null");
+        this.resolver = requireNonNull(resolver, "resolver is null");
+    }
+
+    /**
+     * Returns whether the file of the artifact has been resolved.
+     */
+    public boolean isResolved()
+    {
+        return getResolved() != null;
+    }
+
+    /**
+     * Resolves the artifact, unless a resolution was already made or is in progress,
+     * and returns the outcome of that resolution.
+     */
+    public Artifact resolve()
+    {
+        CompletableFuture<Artifact> future;
+        boolean leader = false;
+        synchronized (this) {
+            if (resolution == null) {
+                resolution = new CompletableFuture<>();
+                leader = true;
+            }
+            future = resolution;
+        }
+        if (leader) {
+            complete(ImmutableList.of(future), ImmutableList.of(request), resolver);
+        }
+        return join(future);
+    }
+
+    /**
+     * Resolves the artifacts that are not resolved yet in a single batch, which lets
+     * the repository connectors download the files in parallel, and returns the
+     * resolved artifacts in the same order. Artifacts whose earlier resolution found
+     * no file or failed are resolved again.
+     */
+    public static List<Artifact> resolveAll(List<LazyArtifact> artifacts, Function<List<ArtifactRequest>, List<Artifact>> resolver)
+    {
+        List<CompletableFuture<Artifact>> futures = new ArrayList<>(artifacts.size());
+        List<CompletableFuture<Artifact>> leading = new ArrayList<>();
+        List<ArtifactRequest> requests = new ArrayList<>();
+        for (LazyArtifact artifact : artifacts) {
+            synchronized (artifact) {
+                if (artifact.resolution == null || isFailed(artifact.resolution)) {
+                    artifact.resolution = new CompletableFuture<>();
+                    leading.add(artifact.resolution);
+                    requests.add(artifact.request);
+                }
+                futures.add(artifact.resolution);
+            }
+        }
+        if (!leading.isEmpty()) {
+            complete(leading, requests, resolver);
+        }
+        return futures.stream()
+                .map(LazyArtifact::join)
+                .collect(toImmutableList());
+    }
+
+    private static void complete(List<CompletableFuture<Artifact>> futures, List<ArtifactRequest> requests, Function<List<ArtifactRequest>, List<Artifact>> resolver)
+    {
+        List<Artifact> resolved;
+        try {
+            resolved = resolver.apply(requests);
+            checkState(resolved.size() == requests.size(), "resolver returned %s artifacts for %s requests", resolved.size(), requests.size());
+            resolved.forEach(artifact -> requireNonNull(artifact, "artifact is null"));
+        }
+        catch (RuntimeException | Error e) {
+            futures.forEach(future -> future.completeExceptionally(e));
+            throw e;
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            futures.get(i).complete(resolved.get(i));
+        }
+    }
+
+    private static boolean isFailed(CompletableFuture<Artifact> future)
+    {
+        // not found or failed to download, which may be transient
+        return future.isCompletedExceptionally() || (future.isDone() && future.join().getFile() == null);
+    }
+
+    private static Artifact join(CompletableFuture<Artifact> future)
+    {
+        try {
+            return future.join();
+        }
+        catch (CompletionException e) {
+            throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    private synchronized Artifact getResolved()
+    {
+        if (resolution == null || !resolution.isDone() || isFailed(resolution)) {
+            return null;
+        }
+        return resolution.join();
+    }
+
+    private Artifact current()
+    {
+        Artifact artifact = getResolved();
+        return (artifact != null) ? artifact : request.getArtifact();
+    }
+
+    @Override
+    public String getGroupId()
+    {
+        return current().getGroupId();
+    }
+
+    @Override
+    public String getArtifactId()
+    {
+        return current().getArtifactId();
+    }
+
+    @Override
+    public String getVersion()
+    {
+        return current().getVersion();
+    }
+
+    @Override
+    public Artifact setVersion(String version)
+    {
+        return current().setVersion(version);
+    }
+
+    @Override
+    public String getBaseVersion()
+    {
+        return current().getBaseVersion();
+    }
+
+    @Override
+    public boolean isSnapshot()
+    {
+        return current().isSnapshot();
+    }
+
+    @Override
+    public String getClassifier()
+    {
+        return current().getClassifier();
+    }
+
+    @Override
+    public String getExtension()
+    {
+        return current().getExtension();
+    }
+
+    @Override
+    public File getFile()
+    {
+        return resolve().getFile();
+    }
+
+    @Override
+    public Artifact setFile(File file)
+    {
+        return current().setFile(file);
+    }
+
+    @Override
+    public String getProperty(String key, String defaultValue)
+    {
+        return current().getProperty(key, defaultValue);
+    }
+
+    @Override
+    public Map<String, String> getProperties()
+    {
+        return current().getProperties();
+    }
+
+    @Override
+    public Artifact setProperties(Map<String, String> properties)
+    {
+        return current().setProperties(properties);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        LazyArtifact that = (LazyArtifact) o;
+        return getGroupId().equals(that.getGroupId()) &&
+                getArtifactId().equals(that.getArtifactId()) &&
+                getBaseVersion().equals(that.getBaseVersion()) &&
+                getClassifier().equals(that.getClassifier()) &&
+                getExtension().equals(that.getExtension());
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(getGroupId(), getArtifactId(), getBaseVersion(), getClassifier(), getExtension());
+    }
+
+    @Override
+    public String toString()
+    {
+        return current().toString();
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.resolver.FileRepositoryMode;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.repository.RepositoryPolicy;
+import org.sonatype.aether.spi.connector.ArtifactDownload;
+import org.sonatype.aether.spi.connector.ArtifactUpload;
+import org.sonatype.aether.spi.connector.MetadataDownload;
+import org.sonatype.aether.spi.connector.MetadataUpload;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.spi.connector.Transfer;
+import org.sonatype.aether.transfer.ArtifactNotFoundException;
+import org.sonatype.aether.transfer.ArtifactTransferException;
+import org.sonatype.aether.transfer.ChecksumFailureException;
+import org.sonatype.aether.transfer.TransferCancelledException;
+import org.sonatype.aether.transfer.TransferEvent.EventType;
+import org.sonatype.aether.transfer.TransferEvent.RequestType;
+import org.sonatype.aether.transfer.TransferListener;
+import org.sonatype.aether.util.ChecksumUtils;
+import org.sonatype.aether.util.layout.MavenDefaultLayout;
+import org.sonatype.aether.util.layout.RepositoryLayout;
+import org.sonatype.aether.util.listener.DefaultTransferEvent;
+import org.sonatype.aether.util.listener.DefaultTransferResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+
+import static io.airlift.resolver.FileRepositoryMode.IN_PLACE;
+import static io.airlift.resolver.FileRepositoryMode.LINK;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Downloads artifacts from a {@code file://} repository without streaming them
+ * through the JVM: files are copied with {@link FileChannel#transferTo}, hard
+ * linked, or used in place, depending on the {@link FileRepositoryMode}. Copied and
+ * linked files are verified against the checksum files next to the artifact
+ * according to the checksum policy, and the checksum files are transferred the
+ * same way, so they can be verified again later. Metadata and uploads go to the
+ * delegate connector.
+ */
+public class LocalFileConnector
+        implements RepositoryConnector
+{
+    private static final Map<String, String> CHECKSUM_ALGORITHMS = ImmutableMap.of("SHA-1", ".sha1", "MD5", ".md5");
+
+    private final RepositorySystemSession session;
+    private final RemoteRepository repository;
+    private final File basedir;
+    private final FileRepositoryMode mode;
+    private final RepositoryConnector delegate;
+    private final RepositoryLayout layout = new MavenDefaultLayout();
+
+    public LocalFileConnector(RepositorySystemSession session, RemoteRepository repository, File basedir, FileRepositoryMode mode, RepositoryConnector delegate)
+    {
+        this.session = requireNonNull(session, "session is null");
+        this.repository = requireNonNull(repository, "repository is null");
+        this.basedir = requireNonNull(basedir, "basedir is null");
+        this.mode = requireNonNull(mode, "mode is null");
+        this.delegate = requireNonNull(delegate, "delegate is null");
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads)
+    {
+        if (artifactDownloads != null) {
+            for (ArtifactDownload download : artifactDownloads) {
+                get(download);
+            }
+        }
+        if (metadataDownloads != null && !metadataDownloads.isEmpty()) {
+            delegate.get(ImmutableList.of(), metadataDownloads);
+        }
+    }
+
+    private void get(ArtifactDownload download)
+    {
+        Artifact artifact = download.getArtifact();
+        String path = layout.getPath(artifact).getPath();
+        File source = new File(basedir, path);
+
+        DefaultTransferResource resource = new DefaultTransferResource(repository.getUrl(), path, download.getFile(), download.getTrace());
+        download.setState(Transfer.State.ACTIVE);
+        try {
+            fireEvent(EventType.INITIATED, resource, 0, null);
+            if (!source.isFile()) {
+                throw new ArtifactNotFoundException(artifact, repository);
+            }
+            resource.setContentLength(source.length());
+            fireEvent(EventType.STARTED, resource, 0, null);
+
+            if (!download.isExistenceCheck()) {
+                if (mode == IN_PLACE) {
+                    download.setFile(source);
+                }
+                else {
+                    transfer(source, download.getFile());
+                    if (!RepositoryPolicy.CHECKSUM_POLICY_IGNORE.equals(download.getChecksumPolicy())) {
+                        verifyChecksum(resource, source, download.getFile(), download.getChecksumPolicy());
+                        for (String extension : CHECKSUM_ALGORITHMS.values()) {
+                            File checksum = new File(source.getPath() + extension);
+                            if (checksum.isFile()) {
+                                transfer(checksum, new File(download.getFile().getPath() + extension));
+                            }
+                        }
+                    }
+                }
+            }
+            fireEvent(EventType.SUCCEEDED, resource, source.length(), null);
+        }
+        catch (ArtifactTransferException e) {
+            download.setException(e);
+            fireFailed(resource, e);
+        }
+        catch (IOException | ChecksumFailureException | TransferCancelledException e) {
+            ArtifactTransferException exception = new ArtifactTransferException(artifact, repository, e);
+            download.setException(exception);
+            fireFailed(resource, exception);
+        }
+        finally {
+            download.setState(Transfer.State.DONE);
+        }
+    }
+
+    /**
+     * Verifies the transferred file against the first checksum file next to the
+     * source, like the HTTP connectors do. A mismatch, or a missing checksum file,
+     * fails the download under the fail policy, and is reported as a corrupted
+     * transfer under the warn policy.
+     */
+    private void verifyChecksum(DefaultTransferResource resource, File source, File target, String checksumPolicy)
+            throws IOException, ChecksumFailureException, TransferCancelledException
+    {
+        for (Map.Entry<String, String> algorithm : CHECKSUM_ALGORITHMS.entrySet()) {
+            File checksum = new File(source.getPath() + algorithm.getValue());
+            if (checksum.isFile()) {
+                String expected = ChecksumUtils.read(checksum).toLowerCase(Locale.ENGLISH);
+                String actual = FileDigests.digest(target, algorithm.getKey());
+                if (!expected.equals(actual)) {
+                    checksumFailure(resource, target, checksumPolicy, new ChecksumFailureException(expected, actual));
+                }
+                return;
+            }
+        }
+        checksumFailure(resource, target, checksumPolicy, new ChecksumFailureException("Checksum validation failed, no checksums available from the repository"));
+    }
+
+    private void checksumFailure(DefaultTransferResource resource, File target, String checksumPolicy, ChecksumFailureException exception)
+            throws IOException, ChecksumFailureException, TransferCancelledException
+    {
+        if (RepositoryPolicy.CHECKSUM_POLICY_FAIL.equals(checksumPolicy)) {
+            Files.deleteIfExists(target.toPath());
+            throw exception;
+        }
+        fireEvent(EventType.CORRUPTED, resource, 0, exception);
+    }
+
+    private void transfer(File source, File target)
+            throws IOException
+    {
+        Path targetPath = target.toPath();
+        Files.createDirectories(targetPath.toAbsolutePath().getParent());
+        Path temporaryFile = Files.createTempFile(targetPath.toAbsolutePath().getParent(), target.getName(), ".tmp");
+        try {
+            if (!(mode == LINK && link(source.toPath(), temporaryFile))) {
+                try (FileChannel in = FileChannel.open(source.toPath(), READ);
+                        FileChannel out = FileChannel.open(temporaryFile, CREATE, TRUNCATE_EXISTING, WRITE)) {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+            Files.move(temporaryFile, targetPath, REPLACE_EXISTING, ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private static boolean link(Path source, Path target)
+            throws IOException
+    {
+        // the link replaces the empty temporary file
+        Files.delete(target);
+        try {
+            Files.createLink(target, source);
+            return true;
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            // different file system, or hard links are not supported
+            return false;
+        }
+    }
+
+    private void fireFailed(DefaultTransferResource resource, Exception exception)
+    {
+        try {
+            fireEvent(EventType.FAILED, resource, 0, exception);
+        }
+        catch (TransferCancelledException ignored) {
+        }
+    }
+
+    private void fireEvent(EventType type, DefaultTransferResource resource, long transferredBytes, Exception exception)
+            throws TransferCancelledException
+    {
+        TransferListener listener = session.getTransferListener();
+        if (listener == null) {
+            return;
+        }
+        DefaultTransferEvent event = new DefaultTransferEvent()
+                .setType(type)
+                .setRequestType(RequestType.GET)
+                .setResource(resource)
+                .setTransferredBytes(transferredBytes)
+                .setException(exception);
+        switch (type) {
+            case INITIATED:
+                listener.transferInitiated(event);
+                break;
+            case STARTED:
+                listener.transferStarted(event);
+                break;
+            case CORRUPTED:
+                listener.transferCorrupted(event);
+                break;
+            case SUCCEEDED:
+                listener.transferSucceeded(event);
+                break;
+            case FAILED:
+                listener.transferFailed(event);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported event type: " + type);
+        }
+    }
+
+    @Override
+    public void put(Collection<? extends ArtifactUpload> artifactUploads, Collection<? extends MetadataUpload> metadataUploads)
+    {
+        delegate.put(artifactUploads, metadataUploads);
+    }
+
+    @Override
+    public void close()
+    {
+        delegate.close();
+    }
+}
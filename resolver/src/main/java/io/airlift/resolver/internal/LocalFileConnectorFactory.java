@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import io.airlift.resolver.FileRepositoryMode;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.spi.connector.RepositoryConnectorFactory;
+import org.sonatype.aether.transfer.NoRepositoryConnectorException;
+
+import java.io.File;
+import java.net.URI;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates {@link LocalFileConnector connectors} for {@code file://} repositories.
+ * Takes precedence over the delegate factory, which handles metadata and uploads.
+ */
+public class LocalFileConnectorFactory
+        implements RepositoryConnectorFactory
+{
+    private final RepositoryConnectorFactory delegate;
+    private final FileRepositoryMode mode;
+
+    public LocalFileConnectorFactory(RepositoryConnectorFactory delegate, FileRepositoryMode mode)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.mode = requireNonNull(mode, "mode is null");
+    }
+
+    @Override
+    public RepositoryConnector newInstance(RepositorySystemSession session, RemoteRepository repository)
+            throws NoRepositoryConnectorException
+    {
+        if (!"file".equalsIgnoreCase(repository.getProtocol())) {
+            throw new NoRepositoryConnectorException(repository);
+        }
+
+        File basedir;
+        try {
+            URI uri = URI.create(repository.getUrl());
+            basedir = new File(uri.isOpaque() ? uri.getSchemeSpecificPart() : uri.getPath());
+        }
+        catch (IllegalArgumentException e) {
+            throw new NoRepositoryConnectorException(repository, e);
+        }
+        return new LocalFileConnector(session, repository, basedir, mode, delegate.newInstance(session, repository));
+    }
+
+    @Override
+    public int getPriority()
+    {
+        return delegate.getPriority() + 1;
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Records which files are present in a local repository, by their path relative
+ * to the repository, with the size and modification time they had when they were
+ * added. A lookup trusts the index and does not touch the file system, so files
+ * deleted or changed by other tools are only noticed by a {@link #check() check},
+ * or by a caller that finds an indexed file missing and {@link #remove removes} it.
+ * Paths are kept as 64-bit hashes; a collision is as likely as a random 64-bit
+ * number repeating.
+ * <p>
+ * The index can be stored in a file, as a sorted array of hashes followed by the
+ * sizes, the modification times and the paths. The file is memory mapped when
+ * loaded and searched in place, so only the files added or removed since it was
+ * loaded take space on the heap. Concurrent writers overwrite each other, which
+ * at worst causes some files to be looked up on the file system again.
+ */
+public class LocalRepositoryIndex
+{
+    private static final Logger log = LoggerFactory.getLogger(LocalRepositoryIndex.class);
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    private static final int MAGIC = 0x4c524932;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_PATH_LENGTH = 0xFFFF;
+
+    private final Path repository;
+    private final Optional<Path> indexFile;
+    private final Map<Long, Entry> added = new ConcurrentHashMap<>();
+    private final Set<Long> removed = ConcurrentHashMap.newKeySet();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * Creates an empty index that is kept in memory only.
+     */
+    public LocalRepositoryIndex(Path repository)
+    {
+        this.repository = requireNonNull(repository, "repository is null");
+        this.indexFile = Optional.empty();
+    }
+
+    /**
+     * Creates an index stored in the given file, and loads it if the file exists.
+     */
+    public LocalRepositoryIndex(Path repository, Path indexFile)
+    {
+        this.repository = requireNonNull(repository, "repository is null");
+        this.indexFile = Optional.of(requireNonNull(indexFile, "indexFile is null"));
+        load(indexFile);
+    }
+
+    /**
+     * Returns whether the file is in the index, without checking the repository.
+     */
+    public boolean contains(String path)
+    {
+        long hash = hash(path);
+        if (removed.contains(hash)) {
+            return false;
+        }
+        return added.containsKey(hash) || snapshot.get(hash, path) != null;
+    }
+
+    /**
+     * Adds the file with its current size and modification time, if it is in the
+     * repository.
+     */
+    public void add(String path)
+    {
+        Optional<BasicFileAttributes> attributes = readAttributes(repository.resolve(path));
+        if (!attributes.isPresent()) {
+            return;
+        }
+        long hash = hash(path);
+        added.put(hash, new Entry(path, attributes.get().size(), attributes.get().lastModifiedTime().toMillis()));
+        removed.remove(hash);
+    }
+
+    public void remove(String path)
+    {
+        remove(hash(path));
+    }
+
+    private void remove(long hash)
+    {
+        removed.add(hash);
+        added.remove(hash);
+    }
+
+    /**
+     * Removes the files that are no longer in the repository, because they were
+     * deleted by another tool or evicted, or that were changed since they were
+     * added, from the index, and returns their number.
+     */
+    public int check()
+    {
+        int[] missing = new int[1];
+        BiConsumer<Long, Entry> checker = (hash, entry) -> {
+            if (!removed.contains(hash) && !entry.matches(repository.resolve(entry.path))) {
+                remove(hash);
+                missing[0]++;
+            }
+        };
+        snapshot.forEach(checker);
+        ImmutableMap.copyOf(added).forEach(checker);
+        if (missing[0] > 0) {
+            log.debug("Removed {} missing or changed files from local repository index", missing[0]);
+        }
+        return missing[0];
+    }
+
+    /**
+     * Writes the index to its file, if it changed since it was loaded or saved.
+     */
+    public synchronized void save()
+    {
+        if (!indexFile.isPresent() || (added.isEmpty() && removed.isEmpty())) {
+            return;
+        }
+
+        Map<Long, Entry> savedAdded = ImmutableMap.copyOf(added);
+        Set<Long> savedRemoved = new HashSet<>(removed);
+        SortedMap<Long, Entry> entries = new TreeMap<>();
+        snapshot.forEach((hash, entry) -> {
+            if (!savedRemoved.contains(hash)) {
+                entries.put(hash, entry);
+            }
+        });
+        entries.putAll(savedAdded);
+        entries.values().removeIf(entry -> entry.path.getBytes(UTF_8).length > MAX_PATH_LENGTH);
+
+        Path file = indexFile.get().toAbsolutePath();
+        try {
+            Files.createDirectories(file.getParent());
+            Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(entries.size());
+                    for (long hash : entries.keySet()) {
+                        out.writeLong(hash);
+                    }
+                    for (Entry entry : entries.values()) {
+                        out.writeLong(entry.size);
+                    }
+                    for (Entry entry : entries.values()) {
+                        out.writeLong(entry.modified);
+                    }
+                    for (Entry entry : entries.values()) {
+                        byte[] bytes = entry.path.getBytes(UTF_8);
+                        out.writeShort(bytes.length);
+                        out.write(bytes);
+                    }
+                }
+                Files.move(temporaryFile, file, ATOMIC_MOVE);
+            }
+            finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        }
+        catch (IOException e) {
+            log.debug("Unable to save local repository index " + file, e);
+            return;
+        }
+
+        // changes made while saving are kept until the next save
+        load(file);
+        added.keySet().removeAll(savedAdded.keySet());
+        removed.removeAll(savedRemoved);
+    }
+
+    private void load(Path file)
+    {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                log.debug("Ignoring unreadable local repository index {}", file);
+                return;
+            }
+            int count = buffer.getInt(4);
+            long pathsOffset = HEADER_SIZE + 3 * 8L * count;
+            if (count < 0 || pathsOffset > buffer.capacity()) {
+                log.debug("Ignoring unreadable local repository index {}", file);
+                return;
+            }
+
+            buffer.position(HEADER_SIZE).limit((int) pathsOffset);
+            LongBuffer longs = buffer.slice().asLongBuffer();
+            buffer.limit(buffer.capacity()).position((int) pathsOffset);
+            snapshot = new Snapshot(
+                    slice(longs, 0, count),
+                    slice(longs, count, count),
+                    slice(longs, 2 * count, count),
+                    buffer.slice());
+        }
+        catch (IOException e) {
+            // a damaged index only means files are looked up on the file system again
+            log.debug("Ignoring unreadable local repository index " + file, e);
+        }
+    }
+
+    private static LongBuffer slice(LongBuffer buffer, int offset, int length)
+    {
+        LongBuffer slice = buffer.duplicate();
+        slice.position(offset).limit(offset + length);
+        return slice.slice();
+    }
+
+    private static Optional<BasicFileAttributes> readAttributes(Path file)
+    {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.isRegularFile() ? Optional.of(attributes) : Optional.empty();
+        }
+        catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static long hash(String path)
+    {
+        return HASH.hashString(path.replace('\\', '/'), UTF_8).asLong();
+    }
+
+    private static final class Entry
+    {
+        private final String path;
+        private final long size;
+        private final long modified;
+
+        private Entry(String path, long size, long modified)
+        {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        public boolean matches(Path file)
+        {
+            return readAttributes(file)
+                    .map(attributes -> attributes.size() == size && attributes.lastModifiedTime().toMillis() == modified)
+                    .orElse(false);
+        }
+    }
+
+    private static final class Snapshot
+    {
+        private static final Snapshot EMPTY = new Snapshot(LongBuffer.allocate(0), LongBuffer.allocate(0), LongBuffer.allocate(0), ByteBuffer.allocate(0));
+
+        private final LongBuffer hashes;
+        private final LongBuffer sizes;
+        private final LongBuffer modified;
+        private final ByteBuffer paths;
+
+        private Snapshot(LongBuffer hashes, LongBuffer sizes, LongBuffer modified, ByteBuffer paths)
+        {
+            this.hashes = hashes;
+            this.sizes = sizes;
+            this.modified = modified;
+            this.paths = paths;
+        }
+
+        /**
+         * Returns the entry with the hash of the given path, without reading the path
+         * stored in the snapshot.
+         */
+        public Entry get(long hash, String path)
+        {
+            int low = 0;
+            int high = hashes.limit() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long value = hashes.get(middle);
+                if (value < hash) {
+                    low = middle + 1;
+                }
+                else if (value > hash) {
+                    high = middle - 1;
+                }
+                else {
+                    return new Entry(path, sizes.get(middle), modified.get(middle));
+                }
+            }
+            return null;
+        }
+
+        public void forEach(BiConsumer<Long, Entry> consumer)
+        {
+            ByteBuffer buffer = paths.duplicate();
+            for (int i = 0; i < hashes.limit() && buffer.remaining() >= 2; i++) {
+                byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+                if (buffer.remaining() < bytes.length) {
+                    return;
+                }
+                buffer.get(bytes);
+                consumer.accept(hashes.get(i), new Entry(new String(bytes, UTF_8), sizes.get(i), modified.get(i)));
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for building the model of a project from its POM file.
+ */
+@Name("io.airlift.resolver.ModelBuild")
+@Label("POM Model Build")
+@Category({"Airlift", "Resolver"})
+@Description("Build of a project model, including its parents and imported BOMs")
+public class ModelBuildEvent
+        extends Event
+{
+    @Label("POM File")
+    public String pomFile;
+
+    @Label("Project")
+    public String project;
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.sonatype.aether.version.Version;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A parsed version with a precomputed comparison key. Most versions consist of
+ * up to four numeric segments, optionally followed by {@code -SNAPSHOT}; for
+ * those, the segments and a release flag are packed into a single long, and
+ * comparing two versions is a single integer comparison. All other versions
+ * are compared by the version they wrap, which gives the same order.
+ */
+public final class PackedVersion
+        implements Version
+{
+    private static final int SEGMENTS = 4;
+    private static final int SEGMENT_BITS = 14;
+    private static final String SNAPSHOT_SUFFIX = "-SNAPSHOT";
+    private static final long NOT_PACKED = -1;
+
+    private final Version version;
+    private final long key;
+
+    public static PackedVersion of(Version version)
+    {
+        if (version instanceof PackedVersion) {
+            return (PackedVersion) version;
+        }
+        return new PackedVersion(version);
+    }
+
+    /**
+     * Returns the version wrapped by the given version, if any.
+     */
+    public static Version unwrap(Version version)
+    {
+        if (version instanceof PackedVersion) {
+            return ((PackedVersion) version).version;
+        }
+        return version;
+    }
+
+    private PackedVersion(Version version)
+    {
+        this.version = requireNonNull(version, "version is null");
+        this.key = pack(version.toString());
+    }
+
+    boolean isPacked()
+    {
+        return key != NOT_PACKED;
+    }
+
+    @Override
+    public int compareTo(Version other)
+    {
+        if (other instanceof PackedVersion) {
+            PackedVersion that = (PackedVersion) other;
+            if (key != NOT_PACKED && that.key != NOT_PACKED) {
+                return Long.compare(key, that.key);
+            }
+            return version.compareTo(that.version);
+        }
+        return version.compareTo(other);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PackedVersion)) {
+            return false;
+        }
+        return compareTo((PackedVersion) o) == 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return version.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return version.toString();
+    }
+
+    /**
+     * Packs the numeric segments, most significant first, followed by a bit
+     * that is set for releases, so snapshots sort before the release. Trailing
+     * zero segments do not change the key, matching {@code 1.0 == 1.0.0}.
+     */
+    private static long pack(String version)
+    {
+        int end = version.length();
+        boolean release = true;
+        if (end > SNAPSHOT_SUFFIX.length() && version.regionMatches(true, end - SNAPSHOT_SUFFIX.length(), SNAPSHOT_SUFFIX, 0, SNAPSHOT_SUFFIX.length())) {
+            end -= SNAPSHOT_SUFFIX.length();
+            release = false;
+        }
+
+        long key = 0;
+        int segments = 0;
+        long segment = 0;
+        boolean empty = true;
+        for (int i = 0; i <= end; i++) {
+            char c = (i < end) ? version.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                segment = segment * 10 + (c - '0');
+                if (segment >= (1 << SEGMENT_BITS)) {
+                    return NOT_PACKED;
+                }
+                empty = false;
+            }
+            else if (c == '.' && !empty) {
+                if (segments < SEGMENTS) {
+                    key = (key << SEGMENT_BITS) | segment;
+                }
+                else if (segment != 0) {
+                    return NOT_PACKED;
+                }
+                segments++;
+                segment = 0;
+                empty = true;
+            }
+            else {
+                return NOT_PACKED;
+            }
+        }
+        for (; segments < SEGMENTS; segments++) {
+            key <<= SEGMENT_BITS;
+        }
+        return (key << 1) | (release ? 1 : 0);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.sonatype.aether.version.Version;
+import org.sonatype.aether.version.VersionConstraint;
+import org.sonatype.aether.version.VersionRange;
+
+import java.util.Collection;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A version constraint that accepts {@link PackedVersion packed versions}. The
+ * constraints of the version scheme only accept versions of their own type.
+ */
+public final class PackedVersionConstraint
+        implements VersionConstraint
+{
+    private final VersionConstraint constraint;
+    private final Version version;
+    private final Collection<VersionRange> ranges;
+
+    public static VersionConstraint of(VersionConstraint constraint)
+    {
+        if (constraint == null || constraint instanceof PackedVersionConstraint) {
+            return constraint;
+        }
+        return new PackedVersionConstraint(constraint);
+    }
+
+    private PackedVersionConstraint(VersionConstraint constraint)
+    {
+        this.constraint = requireNonNull(constraint, "constraint is null");
+        this.version = (constraint.getVersion() == null) ? null : PackedVersion.of(constraint.getVersion());
+        this.ranges = constraint.getRanges().stream()
+                .map(PackedVersionRange::new)
+                .collect(toImmutableList());
+    }
+
+    @Override
+    public Collection<VersionRange> getRanges()
+    {
+        return ranges;
+    }
+
+    @Override
+    public Version getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public boolean containsVersion(Version version)
+    {
+        return constraint.containsVersion(PackedVersion.unwrap(version));
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return constraint.equals(((PackedVersionConstraint) o).constraint);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return constraint.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return constraint.toString();
+    }
+
+    private static final class PackedVersionRange
+            implements VersionRange
+    {
+        private final VersionRange range;
+
+        public PackedVersionRange(VersionRange range)
+        {
+            this.range = requireNonNull(range, "range is null");
+        }
+
+        @Override
+        public boolean containsVersion(Version version)
+        {
+            return range.containsVersion(PackedVersion.unwrap(version));
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            return range.equals(((PackedVersionRange) o).range);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return range.hashCode();
+        }
+
+        @Override
+        public String toString()
+        {
+            return range.toString();
+        }
+    }
+}
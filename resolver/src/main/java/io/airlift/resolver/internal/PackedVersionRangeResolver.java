@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.impl.VersionRangeResolver;
+import org.sonatype.aether.resolution.VersionRangeRequest;
+import org.sonatype.aether.resolution.VersionRangeResolutionException;
+import org.sonatype.aether.resolution.VersionRangeResult;
+import org.sonatype.aether.version.Version;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Returns {@link PackedVersion packed versions}, which the dependency collector
+ * records on every node of the graph. Conflict mediation then compares versions
+ * by their precomputed keys instead of walking the parsed version items.
+ */
+public class PackedVersionRangeResolver
+        implements VersionRangeResolver
+{
+    private final VersionRangeResolver delegate;
+
+    public PackedVersionRangeResolver(VersionRangeResolver delegate)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+    }
+
+    @Override
+    public VersionRangeResult resolveVersionRange(RepositorySystemSession session, VersionRangeRequest request)
+            throws VersionRangeResolutionException
+    {
+        VersionRangeResult result = delegate.resolveVersionRange(session, request);
+
+        VersionRangeResult packed = new VersionRangeResult(request)
+                .setVersionConstraint(PackedVersionConstraint.of(result.getVersionConstraint()));
+        for (Version version : result.getVersions()) {
+            PackedVersion packedVersion = PackedVersion.of(version);
+            packed.addVersion(packedVersion);
+            packed.setRepository(packedVersion, result.getRepository(version));
+        }
+        for (Exception exception : result.getExceptions()) {
+            packed.addException(exception);
+        }
+        return packed;
+    }
+}
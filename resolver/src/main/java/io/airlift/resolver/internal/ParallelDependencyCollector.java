@@ -0,0 +1,321 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.collection.CollectRequest;
+import org.sonatype.aether.collection.CollectResult;
+import org.sonatype.aether.collection.DependencyCollectionContext;
+import org.sonatype.aether.collection.DependencyCollectionException;
+import org.sonatype.aether.collection.DependencyManagement;
+import org.sonatype.aether.collection.DependencyManager;
+import org.sonatype.aether.collection.DependencySelector;
+import org.sonatype.aether.collection.DependencyTraverser;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.impl.ArtifactDescriptorReader;
+import org.sonatype.aether.impl.DependencyCollector;
+import org.sonatype.aether.impl.RemoteRepositoryManager;
+import org.sonatype.aether.impl.VersionRangeResolver;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.resolution.ArtifactDescriptorException;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.resolution.VersionRangeRequest;
+import org.sonatype.aether.resolution.VersionRangeResolutionException;
+import org.sonatype.aether.util.artifact.ArtifactProperties;
+import org.sonatype.aether.version.Version;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Reads the artifact descriptors of a dependency graph concurrently, breadth first,
+ * before the delegate collector builds the graph. The descriptor reader must cache
+ * what it reads, at least for the session, so the delegate finds every descriptor it
+ * needs without reading it again, and the graph, including conflict resolution, is
+ * the one the delegate alone would build.
+ * <p>
+ * The expansion applies the selectors, managers and traversers of the session the
+ * way the delegate does, so it reads the descriptors the delegate will ask for.
+ * Each artifact is expanded once, from the first path that reaches it, which is
+ * one of the shallowest; the delegate reads any other descriptor itself. Failures are left to the delegate,
+ * which reads the descriptor again and reports them.
+ */
+public class ParallelDependencyCollector
+        implements DependencyCollector
+{
+    private final DependencyCollector delegate;
+    private final ArtifactDescriptorReader descriptorReader;
+    private final VersionRangeResolver versionRangeResolver;
+    private final RemoteRepositoryManager remoteRepositoryManager;
+    private final ExecutorService executor;
+
+    public ParallelDependencyCollector(
+            DependencyCollector delegate,
+            ArtifactDescriptorReader descriptorReader,
+            VersionRangeResolver versionRangeResolver,
+            RemoteRepositoryManager remoteRepositoryManager,
+            int threads)
+    {
+        checkArgument(threads > 0, "threads must be positive");
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.descriptorReader = requireNonNull(descriptorReader, "descriptorReader is null");
+        this.versionRangeResolver = requireNonNull(versionRangeResolver, "versionRangeResolver is null");
+        this.remoteRepositoryManager = requireNonNull(remoteRepositoryManager, "remoteRepositoryManager is null");
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, SECONDS, new LinkedBlockingQueue<>(), new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("dependency-collector-%s")
+                .build());
+        // resolvers are not closed, so idle threads go away on their own
+        executor.allowCoreThreadTimeOut(true);
+        this.executor = executor;
+    }
+
+    @Override
+    public CollectResult collectDependencies(RepositorySystemSession session, CollectRequest request)
+            throws DependencyCollectionException
+    {
+        prefetch(session, request);
+        return delegate.collectDependencies(session, request);
+    }
+
+    private void prefetch(RepositorySystemSession session, CollectRequest request)
+    {
+        List<Dependency> dependencies = request.getDependencies();
+        List<Dependency> managedDependencies = request.getManagedDependencies();
+        List<RemoteRepository> repositories = request.getRepositories();
+        Dependency root = request.getRoot();
+        if (root != null) {
+            // the delegate merges the dependencies of the root descriptor with those of the request
+            ArtifactDescriptorResult descriptor = readDescriptor(session, root.getArtifact(), repositories, request.getRequestContext());
+            if (descriptor == null) {
+                return;
+            }
+            dependencies = ImmutableList.<Dependency>builder().addAll(dependencies).addAll(descriptor.getDependencies()).build();
+            managedDependencies = ImmutableList.<Dependency>builder().addAll(managedDependencies).addAll(descriptor.getManagedDependencies()).build();
+            repositories = remoteRepositoryManager.aggregateRepositories(session, repositories, descriptor.getRepositories(), true);
+        }
+
+        Context context = new Context(session, root, managedDependencies);
+        Expansion expansion = new Expansion(session, request.getRequestContext());
+        expansion.submit(
+                dependencies,
+                repositories,
+                derive(session.getDependencySelector(), context),
+                derive(session.getDependencyManager(), context),
+                derive(session.getDependencyTraverser(), context));
+        expansion.await();
+    }
+
+    /**
+     * The descriptors read by one collection, and the reads still in progress.
+     */
+    private class Expansion
+    {
+        private final RepositorySystemSession session;
+        private final String requestContext;
+        private final Set<String> submitted = ConcurrentHashMap.newKeySet();
+        private final Set<String> expanded = ConcurrentHashMap.newKeySet();
+        // the caller counts as one, until it waits
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Expansion(RepositorySystemSession session, String requestContext)
+        {
+            this.session = session;
+            this.requestContext = requestContext;
+        }
+
+        private void submit(List<Dependency> dependencies, List<RemoteRepository> repositories, DependencySelector selector, DependencyManager manager, DependencyTraverser traverser)
+        {
+            for (Dependency dependency : dependencies) {
+                if (selector != null && !selector.selectDependency(dependency)) {
+                    continue;
+                }
+                Dependency managed = manage(dependency, manager);
+                if (managed.getArtifact().getProperty(ArtifactProperties.LOCAL_PATH, null) != null) {
+                    // system dependencies have no descriptor
+                    continue;
+                }
+                if (!submitted.add(managed.getArtifact().toString())) {
+                    continue;
+                }
+                pending.incrementAndGet();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            expand(managed, repositories, selector, manager, traverser);
+                        }
+                        finally {
+                            finish();
+                        }
+                    });
+                }
+                catch (RejectedExecutionException e) {
+                    finish();
+                }
+            }
+        }
+
+        private void expand(Dependency dependency, List<RemoteRepository> repositories, DependencySelector selector, DependencyManager manager, DependencyTraverser traverser)
+        {
+            for (Artifact artifact : versions(dependency.getArtifact(), repositories)) {
+                if (!expanded.add(artifact.toString())) {
+                    continue;
+                }
+                ArtifactDescriptorResult descriptor = readDescriptor(session, artifact, repositories, requestContext);
+                if (descriptor == null || descriptor.getDependencies().isEmpty()) {
+                    continue;
+                }
+                Dependency resolved = dependency.setArtifact(descriptor.getArtifact());
+                if (traverser != null && !traverser.traverseDependency(resolved)) {
+                    continue;
+                }
+                Context context = new Context(session, resolved, descriptor.getManagedDependencies());
+                submit(
+                        descriptor.getDependencies(),
+                        remoteRepositoryManager.aggregateRepositories(session, repositories, descriptor.getRepositories(), true),
+                        derive(selector, context),
+                        derive(manager, context),
+                        derive(traverser, context));
+            }
+        }
+
+        private List<Artifact> versions(Artifact artifact, List<RemoteRepository> repositories)
+        {
+            try {
+                return versionRangeResolver.resolveVersionRange(session, new VersionRangeRequest(artifact, repositories, requestContext)).getVersions().stream()
+                        .map(Version::toString)
+                        .map(artifact::setVersion)
+                        .collect(ImmutableList.toImmutableList());
+            }
+            catch (VersionRangeResolutionException e) {
+                return ImmutableList.of();
+            }
+        }
+
+        private void finish()
+        {
+            if (pending.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+
+        private void await()
+        {
+            finish();
+            try {
+                done.get();
+            }
+            catch (InterruptedException e) {
+                // the delegate collects whatever was not read yet
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    private ArtifactDescriptorResult readDescriptor(RepositorySystemSession session, Artifact artifact, List<RemoteRepository> repositories, String requestContext)
+    {
+        try {
+            return descriptorReader.readArtifactDescriptor(session, new ArtifactDescriptorRequest(artifact, repositories, requestContext));
+        }
+        catch (ArtifactDescriptorException e) {
+            return null;
+        }
+    }
+
+    private static Dependency manage(Dependency dependency, DependencyManager manager)
+    {
+        DependencyManagement management = (manager == null) ? null : manager.manageDependency(dependency);
+        if (management == null) {
+            return dependency;
+        }
+        if (management.getVersion() != null) {
+            dependency = dependency.setArtifact(dependency.getArtifact().setVersion(management.getVersion()));
+        }
+        if (management.getScope() != null) {
+            dependency = dependency.setScope(management.getScope());
+        }
+        if (management.getExclusions() != null) {
+            dependency = dependency.setExclusions(management.getExclusions());
+        }
+        return dependency;
+    }
+
+    private static DependencySelector derive(DependencySelector selector, DependencyCollectionContext context)
+    {
+        return (selector == null) ? null : selector.deriveChildSelector(context);
+    }
+
+    private static DependencyManager derive(DependencyManager manager, DependencyCollectionContext context)
+    {
+        return (manager == null) ? null : manager.deriveChildManager(context);
+    }
+
+    private static DependencyTraverser derive(DependencyTraverser traverser, DependencyCollectionContext context)
+    {
+        return (traverser == null) ? null : traverser.deriveChildTraverser(context);
+    }
+
+    private static class Context
+            implements DependencyCollectionContext
+    {
+        private final RepositorySystemSession session;
+        private final Dependency dependency;
+        private final List<Dependency> managedDependencies;
+
+        private Context(RepositorySystemSession session, Dependency dependency, List<Dependency> managedDependencies)
+        {
+            this.session = session;
+            this.dependency = dependency;
+            this.managedDependencies = managedDependencies;
+        }
+
+        @Override
+        public RepositorySystemSession getSession()
+        {
+            return session;
+        }
+
+        @Override
+        public Dependency getDependency()
+        {
+            return dependency;
+        }
+
+        @Override
+        public List<Dependency> getManagedDependencies()
+        {
+            return managedDependencies;
+        }
+    }
+}
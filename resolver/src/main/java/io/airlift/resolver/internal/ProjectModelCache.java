@@ -0,0 +1,240 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.building.ModelCache;
+
+import java.io.File;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Models shared by all projects built by one resolver. POM files are cached by
+ * path, size and modification time, so a file is only parsed again after it
+ * changes. Parents and imported BOMs are cached by coordinates: entries for a
+ * POM that was read from a file are dropped once that file changes, and
+ * snapshots, whose contents may change in a remote repository, are never
+ * cached, so their update checks are not skipped. A changed file replaces the
+ * model parsed from it, and both caches are bounded, so a long running
+ * resolver does not keep growing.
+ */
+public class ProjectModelCache
+        implements ModelCache
+{
+    private static final long MAXIMUM_SIZE = 10_000;
+
+    // the latest model parsed from each file, by path and strictness
+    private final Cache<String, StampedModel> models = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+    private final Cache<String, FileStamp> modelFiles = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+    private final Cache<String, Entry> entries = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+    private final AtomicLong parseCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * Returns the number of POM files parsed.
+     */
+    public long getParseCount()
+    {
+        return parseCount.get();
+    }
+
+    /**
+     * Returns the number of parents and imported BOMs found in the cache.
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of POM files whose models are cached.
+     */
+    public long getModelCount()
+    {
+        return models.size();
+    }
+
+    public void invalidateAll()
+    {
+        models.invalidateAll();
+        modelFiles.invalidateAll();
+        entries.invalidateAll();
+    }
+
+    Model getModel(File file, boolean strict)
+    {
+        StampedModel model = models.getIfPresent(getModelKey(file, strict));
+        if (model == null || !model.getStamp().equals(FileStamp.of(file, strict))) {
+            return null;
+        }
+        return model.getModel().clone();
+    }
+
+    void putModel(File file, boolean strict, long lastModified, long length, Model model)
+    {
+        FileStamp stamp = new FileStamp(file, strict, lastModified, length);
+        parseCount.incrementAndGet();
+        models.put(getModelKey(file, strict), new StampedModel(stamp, model.clone()));
+
+        String groupId = model.getGroupId();
+        String version = model.getVersion();
+        Parent parent = model.getParent();
+        if (parent != null) {
+            groupId = (groupId == null) ? parent.getGroupId() : groupId;
+            version = (version == null) ? parent.getVersion() : version;
+        }
+        modelFiles.put(getKey(groupId, model.getArtifactId(), version, ""), stamp);
+    }
+
+    @Override
+    public Object get(String groupId, String artifactId, String version, String tag)
+    {
+        String key = getKey(groupId, artifactId, version, tag);
+        Entry entry = entries.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.getFile().isPresent() && !entry.getFile().get().isCurrent()) {
+            entries.asMap().remove(key, entry);
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.getData();
+    }
+
+    @Override
+    public void put(String groupId, String artifactId, String version, String tag, Object data)
+    {
+        if (version.endsWith("SNAPSHOT")) {
+            return;
+        }
+        Optional<FileStamp> file = Optional.ofNullable(modelFiles.getIfPresent(getKey(groupId, artifactId, version, "")));
+        entries.put(getKey(groupId, artifactId, version, tag), new Entry(data, file));
+    }
+
+    private static String getModelKey(File file, boolean strict)
+    {
+        return (strict ? "strict:" : "lenient:") + file.getAbsolutePath();
+    }
+
+    private static String getKey(String groupId, String artifactId, String version, String tag)
+    {
+        return groupId + ':' + artifactId + ':' + version + ':' + tag;
+    }
+
+    private static class Entry
+    {
+        private final Object data;
+        private final Optional<FileStamp> file;
+
+        public Entry(Object data, Optional<FileStamp> file)
+        {
+            this.data = requireNonNull(data, "data is null");
+            this.file = requireNonNull(file, "file is null");
+        }
+
+        public Object getData()
+        {
+            return data;
+        }
+
+        public Optional<FileStamp> getFile()
+        {
+            return file;
+        }
+    }
+
+    private static class StampedModel
+    {
+        private final FileStamp stamp;
+        private final Model model;
+
+        public StampedModel(FileStamp stamp, Model model)
+        {
+            this.stamp = requireNonNull(stamp, "stamp is null");
+            this.model = requireNonNull(model, "model is null");
+        }
+
+        public FileStamp getStamp()
+        {
+            return stamp;
+        }
+
+        public Model getModel()
+        {
+            return model;
+        }
+    }
+
+    private static class FileStamp
+    {
+        private final File file;
+        private final boolean strict;
+        private final long lastModified;
+        private final long length;
+
+        public static FileStamp of(File file, boolean strict)
+        {
+            return new FileStamp(file, strict, file.lastModified(), file.length());
+        }
+
+        public FileStamp(File file, boolean strict, long lastModified, long length)
+        {
+            this.file = requireNonNull(file, "file is null").getAbsoluteFile();
+            this.strict = strict;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        public boolean isCurrent()
+        {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FileStamp that = (FileStamp) o;
+            return strict == that.strict &&
+                    lastModified == that.lastModified &&
+                    length == that.length &&
+                    file.equals(that.file);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(file, strict, lastModified, length);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.collect.ListMultimap;
+import org.apache.maven.project.MavenProject;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.repository.WorkspaceReader;
+import org.sonatype.aether.repository.WorkspaceRepository;
+
+import java.io.File;
+import java.util.List;
+import java.util.Objects;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableListMultimap.toImmutableListMultimap;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
+/**
+ * Resolves the projects of a reactor from their sources instead of from the
+ * repositories: the POM of a project is its {@code pom.xml}, and its main and test
+ * artifacts are its output directories, whether or not they were built. Installed
+ * on a session, it lets the collector read the dependencies of sibling modules from
+ * their POMs on disk, and keeps it from looking them up remotely.
+ */
+public class ReactorWorkspaceReader
+        implements WorkspaceReader
+{
+    private final WorkspaceRepository repository;
+    private final ListMultimap<String, MavenProject> projects;
+
+    public ReactorWorkspaceReader(List<MavenProject> projects)
+    {
+        List<MavenProject> reactor = projects.stream()
+                .filter(project -> project.getFile() != null)
+                .collect(toImmutableList());
+        this.projects = reactor.stream()
+                .collect(toImmutableListMultimap(
+                        project -> project.getGroupId() + ":" + project.getArtifactId(),
+                        project -> project));
+        this.repository = new WorkspaceRepository("reactor", reactor.stream()
+                .map(MavenProject::getId)
+                .collect(toImmutableSet()));
+    }
+
+    @Override
+    public WorkspaceRepository getRepository()
+    {
+        return repository;
+    }
+
+    @Override
+    public File findArtifact(Artifact artifact)
+    {
+        MavenProject project = findProject(artifact);
+        if (project == null) {
+            return null;
+        }
+        if (artifact.getExtension().equals("pom")) {
+            return project.getFile();
+        }
+        if (project.getPackaging().equals("pom")) {
+            return null;
+        }
+        if (artifact.getClassifier().isEmpty()) {
+            return new File(project.getBuild().getOutputDirectory());
+        }
+        if (artifact.getClassifier().equals("tests")) {
+            return new File(project.getBuild().getTestOutputDirectory());
+        }
+        return null;
+    }
+
+    @Override
+    public List<String> findVersions(Artifact artifact)
+    {
+        return projects.get(artifact.getGroupId() + ":" + artifact.getArtifactId()).stream()
+                .map(MavenProject::getVersion)
+                .distinct()
+                .collect(toImmutableList());
+    }
+
+    private MavenProject findProject(Artifact artifact)
+    {
+        return projects.get(artifact.getGroupId() + ":" + artifact.getArtifactId()).stream()
+                .filter(project -> Objects.equals(project.getVersion(), artifact.getBaseVersion()))
+                .findFirst()
+                .orElse(null);
+    }
+}
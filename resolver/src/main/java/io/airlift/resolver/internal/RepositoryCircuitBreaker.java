@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.base.Ticker;
+import io.airlift.resolver.RepositoryHealth;
+import io.airlift.resolver.RepositoryHealth.State;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.resolver.RepositoryHealth.State.CLOSED;
+import static io.airlift.resolver.RepositoryHealth.State.HALF_OPEN;
+import static io.airlift.resolver.RepositoryHealth.State.OPEN;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Tracks the failures of one remote repository. After the given number of
+ * consecutive failed transfers the circuit opens, and transfers are refused until
+ * the cooldown expires. Then a single transfer is let through as a probe: if it
+ * reaches the repository the circuit closes, otherwise it opens again.
+ */
+public class RepositoryCircuitBreaker
+{
+    private final String repositoryUrl;
+    private final int failureThreshold;
+    private final long cooldownNanos;
+    private final Ticker ticker;
+
+    private State state = CLOSED;
+    private int consecutiveFailures;
+    private long totalFailures;
+    private long openUntilNanos;
+    private boolean probing;
+
+    /**
+     * @param failureThreshold consecutive failures that open the circuit, or zero to never open it
+     */
+    public RepositoryCircuitBreaker(String repositoryUrl, int failureThreshold, Duration cooldown, Ticker ticker)
+    {
+        checkArgument(failureThreshold >= 0, "failureThreshold is negative");
+        checkArgument(!cooldown.isNegative(), "cooldown is negative");
+        this.repositoryUrl = requireNonNull(repositoryUrl, "repositoryUrl is null");
+        this.failureThreshold = failureThreshold;
+        this.cooldownNanos = cooldown.toNanos();
+        this.ticker = requireNonNull(ticker, "ticker is null");
+    }
+
+    /**
+     * Returns whether a transfer may be attempted now. If so, the caller
+     * must report the outcome with {@link #success()} or {@link #failure()}, or
+     * {@link #release()} the permit if the transfer ended without one.
+     */
+    public synchronized boolean tryAcquire()
+    {
+        if (state == OPEN && ticker.read() - openUntilNanos >= 0) {
+            state = HALF_OPEN;
+        }
+        if (state == HALF_OPEN) {
+            if (probing) {
+                return false;
+            }
+            probing = true;
+            return true;
+        }
+        return state == CLOSED;
+    }
+
+    public synchronized void success()
+    {
+        consecutiveFailures = 0;
+        probing = false;
+        state = CLOSED;
+    }
+
+    public synchronized void release()
+    {
+        probing = false;
+    }
+
+    public synchronized void failure()
+    {
+        consecutiveFailures++;
+        totalFailures++;
+        probing = false;
+        if (state == HALF_OPEN || (failureThreshold > 0 && consecutiveFailures >= failureThreshold)) {
+            state = OPEN;
+            openUntilNanos = ticker.read() + cooldownNanos;
+        }
+    }
+
+    public synchronized RepositoryHealth getHealth()
+    {
+        Optional<Duration> remainingCooldown = Optional.empty();
+        State current = state;
+        if (state == OPEN) {
+            long remaining = openUntilNanos - ticker.read();
+            if (remaining > 0) {
+                remainingCooldown = Optional.of(Duration.ofNanos(remaining));
+            }
+            else {
+                current = HALF_OPEN;
+            }
+        }
+        return new RepositoryHealth(repositoryUrl, current, consecutiveFailures, totalFailures, remainingCooldown);
+    }
+}
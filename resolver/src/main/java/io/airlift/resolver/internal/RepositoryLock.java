@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Serializes the changes to the shared files of a local repository, such as
+ * evictions and the access log, across processes with a lock file in the
+ * repository. File locks are held by the whole JVM, so the threads of a process
+ * also take a lock of their own. The lock is reentrant, so an eviction can
+ * update the access log while holding it.
+ */
+public final class RepositoryLock
+{
+    public static final String LOCK_FILE = ".eviction.lock";
+
+    private static final ConcurrentMap<Path, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+    private RepositoryLock() {}
+
+    public static <T> T withLock(Path repository, LockedAction<T> action)
+            throws IOException
+    {
+        Path lockFile = repository.toAbsolutePath().normalize().resolve(LOCK_FILE);
+        ReentrantLock lock = LOCKS.computeIfAbsent(lockFile, file -> new ReentrantLock());
+        lock.lock();
+        try {
+            if (lock.getHoldCount() > 1) {
+                return action.run();
+            }
+            try (FileChannel channel = FileChannel.open(lockFile, CREATE, WRITE)) {
+                FileLock fileLock = channel.lock();
+                try {
+                    return action.run();
+                }
+                finally {
+                    fileLock.release();
+                }
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public interface LockedAction<T>
+    {
+        T run()
+                throws IOException;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.transfer.AbstractTransferListener;
+import org.sonatype.aether.transfer.TransferCancelledException;
+import org.sonatype.aether.transfer.TransferEvent;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+import org.sonatype.aether.util.listener.ChainedTransferListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Deadline of a resolution, kept in the session data, which also cancels the
+ * resolution when the thread that started it is interrupted. Once the deadline
+ * passes or the thread is interrupted, the resolution stays expired, and every
+ * transfer that is started or makes progress is cancelled.
+ */
+public final class ResolutionDeadline
+        extends AbstractTransferListener
+{
+    private final Instant deadline;
+    private final long deadlineNanos;
+    private final Thread thread;
+    private volatile boolean exceeded;
+    private volatile boolean cancelled;
+
+    public ResolutionDeadline(Instant deadline)
+    {
+        this.deadline = requireNonNull(deadline, "deadline is null");
+        long remainingNanos;
+        try {
+            remainingNanos = Math.max(0, Duration.between(Instant.now(), deadline).toNanos());
+        }
+        catch (ArithmeticException e) {
+            // too far away to be represented, and nano times are compared by their difference
+            remainingNanos = deadline.isBefore(Instant.now()) ? 0 : Long.MAX_VALUE;
+        }
+        this.deadlineNanos = System.nanoTime() + remainingNanos;
+        this.thread = Thread.currentThread();
+    }
+
+    public static Optional<ResolutionDeadline> get(RepositorySystemSession session)
+    {
+        return Optional.ofNullable((ResolutionDeadline) session.getData().get(ResolutionDeadline.class));
+    }
+
+    /**
+     * Stores the deadline in the session, and adds it to the transfer listeners
+     * of the session, so transfers are cancelled once it expires.
+     */
+    public void install(DefaultRepositorySystemSession session)
+    {
+        session.getData().set(ResolutionDeadline.class, this);
+        session.setTransferListener(ChainedTransferListener.newInstance(session.getTransferListener(), this));
+    }
+
+    public boolean isExpired()
+    {
+        if (!cancelled && thread.isInterrupted()) {
+            cancelled = true;
+        }
+        if (!exceeded && System.nanoTime() - deadlineNanos >= 0) {
+            exceeded = true;
+        }
+        return exceeded || cancelled;
+    }
+
+    public boolean isExceeded()
+    {
+        return exceeded;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Returns the time left until the deadline, which is zero once it has passed.
+     */
+    public long getRemainingNanos()
+    {
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    public String getMessage()
+    {
+        if (cancelled) {
+            return "Resolution was cancelled";
+        }
+        return "Resolution deadline of " + deadline + " was exceeded";
+    }
+
+    @Override
+    public void transferInitiated(TransferEvent event)
+            throws TransferCancelledException
+    {
+        checkExpired();
+    }
+
+    @Override
+    public void transferStarted(TransferEvent event)
+            throws TransferCancelledException
+    {
+        checkExpired();
+    }
+
+    @Override
+    public void transferProgressed(TransferEvent event)
+            throws TransferCancelledException
+    {
+        checkExpired();
+    }
+
+    private void checkExpired()
+            throws TransferCancelledException
+    {
+        if (isExpired()) {
+            throw new TransferCancelledException(getMessage());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import io.airlift.resolver.DownloadScheduler;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.spi.connector.ArtifactDownload;
+import org.sonatype.aether.spi.connector.ArtifactUpload;
+import org.sonatype.aether.spi.connector.MetadataDownload;
+import org.sonatype.aether.spi.connector.MetadataUpload;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Splits each batch of downloads into single transfers, and runs them on the
+ * scheduler's threads for the repository, in order of priority.
+ */
+public class SchedulingConnector
+        implements RepositoryConnector
+{
+    // metadata and existence checks are small, and block version resolution
+    private static final int KIND_METADATA = 0;
+    private static final int KIND_POM = 1;
+    private static final int KIND_OTHER = 2;
+
+    private final RemoteRepository repository;
+    private final RepositoryConnector delegate;
+    private final DownloadScheduler scheduler;
+    private final Optional<DependencyDepths> depths;
+
+    public SchedulingConnector(RemoteRepository repository, RepositoryConnector delegate, DownloadScheduler scheduler, Optional<DependencyDepths> depths)
+    {
+        this.repository = requireNonNull(repository, "repository is null");
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.scheduler = requireNonNull(scheduler, "scheduler is null");
+        this.depths = requireNonNull(depths, "depths is null");
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads)
+    {
+        List<CompletableFuture<Void>> transfers = new ArrayList<>();
+        if (metadataDownloads != null) {
+            for (MetadataDownload download : metadataDownloads) {
+                transfers.add(scheduler.schedule(repository.getUrl(), 0, KIND_METADATA, () -> {
+                    delegate.get(emptyList(), singletonList(download));
+                    return (download.getException() == null) ? length(download.getFile()) : 0;
+                }));
+            }
+        }
+        if (artifactDownloads != null) {
+            for (ArtifactDownload download : artifactDownloads) {
+                int depth = depths.map(value -> value.getDepth(download.getArtifact())).orElse(DependencyDepths.MAX_DEPTH);
+                transfers.add(scheduler.schedule(repository.getUrl(), depth, kind(download), () -> {
+                    delegate.get(singletonList(download), emptyList());
+                    return (download.getException() == null && !download.isExistenceCheck()) ? length(download.getFile()) : 0;
+                }));
+            }
+        }
+
+        RuntimeException failure = null;
+        for (CompletableFuture<Void> transfer : transfers) {
+            try {
+                transfer.join();
+            }
+            catch (CompletionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                if (failure == null) {
+                    failure = (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static int kind(ArtifactDownload download)
+    {
+        if (download.isExistenceCheck()) {
+            return KIND_METADATA;
+        }
+        return "pom".equals(download.getArtifact().getExtension()) ? KIND_POM : KIND_OTHER;
+    }
+
+    private static long length(File file)
+    {
+        return (file == null) ? 0 : file.length();
+    }
+
+    @Override
+    public void put(Collection<? extends ArtifactUpload> artifactUploads, Collection<? extends MetadataUpload> metadataUploads)
+    {
+        delegate.put(artifactUploads, metadataUploads);
+    }
+
+    @Override
+    public void close()
+    {
+        delegate.close();
+    }
+}
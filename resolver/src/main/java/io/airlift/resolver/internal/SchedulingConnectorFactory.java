@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import io.airlift.resolver.DownloadScheduler;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.spi.connector.RepositoryConnectorFactory;
+import org.sonatype.aether.transfer.NoRepositoryConnectorException;
+
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Wraps the connectors of another factory in connectors that run their downloads
+ * through a {@link DownloadScheduler}.
+ */
+public class SchedulingConnectorFactory
+        implements RepositoryConnectorFactory
+{
+    private final RepositoryConnectorFactory delegate;
+    private final DownloadScheduler scheduler;
+
+    public SchedulingConnectorFactory(RepositoryConnectorFactory delegate, DownloadScheduler scheduler)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.scheduler = requireNonNull(scheduler, "scheduler is null");
+    }
+
+    @Override
+    public RepositoryConnector newInstance(RepositorySystemSession session, RemoteRepository repository)
+            throws NoRepositoryConnectorException
+    {
+        Optional<DependencyDepths> depths = Optional.ofNullable(DependencyDepths.get(session));
+        return new SchedulingConnector(repository, delegate.newInstance(session, repository), scheduler, depths);
+    }
+
+    @Override
+    public int getPriority()
+    {
+        return delegate.getPriority();
+    }
+}
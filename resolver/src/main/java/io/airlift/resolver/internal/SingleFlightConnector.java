@@ -0,0 +1,178 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.spi.connector.ArtifactDownload;
+import org.sonatype.aether.spi.connector.ArtifactUpload;
+import org.sonatype.aether.spi.connector.MetadataDownload;
+import org.sonatype.aether.spi.connector.MetadataUpload;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.transfer.ArtifactTransferException;
+import org.sonatype.aether.transfer.TransferCancelledException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Performs each artifact download at most once at a time. The first request
+ * for a file from a repository performs the transfer, and concurrent requests
+ * for the same file wait for it and share its result, instead of downloading
+ * the file again and racing on it. Existence checks and metadata go straight
+ * to the delegate. Requests with a {@link ResolutionDeadline deadline} stop waiting
+ * when it passes. A transfer cut short by the deadline or cancellation of its own
+ * resolution does not fail the requests waiting for it; they download the file
+ * themselves instead.
+ */
+public class SingleFlightConnector
+        implements RepositoryConnector
+{
+    private final RemoteRepository repository;
+    private final RepositoryConnector delegate;
+    private final ConcurrentMap<String, CompletableFuture<ArtifactDownload>> inFlight;
+    private final Optional<ResolutionDeadline> deadline;
+
+    public SingleFlightConnector(RemoteRepository repository, RepositoryConnector delegate, ConcurrentMap<String, CompletableFuture<ArtifactDownload>> inFlight)
+    {
+        this(repository, delegate, inFlight, Optional.empty());
+    }
+
+    public SingleFlightConnector(RemoteRepository repository, RepositoryConnector delegate, ConcurrentMap<String, CompletableFuture<ArtifactDownload>> inFlight, Optional<ResolutionDeadline> deadline)
+    {
+        this.repository = requireNonNull(repository, "repository is null");
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.inFlight = requireNonNull(inFlight, "inFlight is null");
+        this.deadline = requireNonNull(deadline, "deadline is null");
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads)
+    {
+        List<ArtifactDownload> transfers = new ArrayList<>();
+        Map<ArtifactDownload, CompletableFuture<ArtifactDownload>> leading = new IdentityHashMap<>();
+        Map<ArtifactDownload, CompletableFuture<ArtifactDownload>> following = new IdentityHashMap<>();
+        if (artifactDownloads != null) {
+            for (ArtifactDownload download : artifactDownloads) {
+                if (download.isExistenceCheck()) {
+                    transfers.add(download);
+                    continue;
+                }
+                CompletableFuture<ArtifactDownload> future = new CompletableFuture<>();
+                CompletableFuture<ArtifactDownload> existing = inFlight.putIfAbsent(key(download), future);
+                if (existing == null) {
+                    leading.put(download, future);
+                    transfers.add(download);
+                }
+                else {
+                    following.put(download, existing);
+                }
+            }
+        }
+
+        try {
+            delegate.get(transfers, metadataDownloads);
+        }
+        catch (RuntimeException | Error e) {
+            leading.forEach((download, future) -> complete(download, future, e));
+            throw e;
+        }
+        leading.forEach((download, future) -> complete(download, future, null));
+
+        following.forEach(this::follow);
+    }
+
+    private void complete(ArtifactDownload download, CompletableFuture<ArtifactDownload> future, Throwable failure)
+    {
+        inFlight.remove(key(download), future);
+        Throwable exception = (failure != null) ? failure : download.getException();
+        if (exception != null && isCancelled(exception)) {
+            // the deadline of this resolution does not apply to the others
+            future.cancel(false);
+        }
+        else if (failure != null) {
+            future.completeExceptionally(failure);
+        }
+        else {
+            future.complete(download);
+        }
+    }
+
+    private void follow(ArtifactDownload download, CompletableFuture<ArtifactDownload> future)
+    {
+        try {
+            // the leader may belong to another resolution, which has no deadline
+            ArtifactDownload leader = deadline.isPresent() ? future.get(deadline.get().getRemainingNanos(), NANOSECONDS) : future.get();
+            if (leader.getException() != null) {
+                download.setException(leader.getException());
+            }
+            else {
+                // the leader may have been pointed at another file, for example in place in a file repository
+                download.setFile(leader.getFile());
+            }
+        }
+        catch (CancellationException e) {
+            // the leader gave up, so this request becomes a leader or follows a new one
+            get(ImmutableList.of(download), ImmutableList.of());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            download.setException(new ArtifactTransferException(download.getArtifact(), repository, e));
+        }
+        catch (ExecutionException e) {
+            download.setException(new ArtifactTransferException(download.getArtifact(), repository, e.getCause()));
+        }
+        catch (TimeoutException e) {
+            download.setException(new ArtifactTransferException(download.getArtifact(), repository, deadline.get().getMessage()));
+        }
+    }
+
+    private boolean isCancelled(Throwable exception)
+    {
+        if (deadline.isPresent() && deadline.get().isExpired()) {
+            return true;
+        }
+        return Throwables.getCausalChain(exception).stream().anyMatch(TransferCancelledException.class::isInstance);
+    }
+
+    private String key(ArtifactDownload download)
+    {
+        return repository.getUrl() + "|" + download.getFile().getAbsolutePath();
+    }
+
+    @Override
+    public void put(Collection<? extends ArtifactUpload> artifactUploads, Collection<? extends MetadataUpload> metadataUploads)
+    {
+        delegate.put(artifactUploads, metadataUploads);
+    }
+
+    @Override
+    public void close()
+    {
+        delegate.close();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.spi.connector.ArtifactDownload;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.spi.connector.RepositoryConnectorFactory;
+import org.sonatype.aether.transfer.NoRepositoryConnectorException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Wraps the connectors of another factory in {@link SingleFlightConnector single-flight}
+ * connectors. Downloads in flight are tracked for the whole process, since resolvers
+ * may share a local repository.
+ */
+public class SingleFlightConnectorFactory
+        implements RepositoryConnectorFactory
+{
+    private static final ConcurrentMap<String, CompletableFuture<ArtifactDownload>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    private final RepositoryConnectorFactory delegate;
+
+    public SingleFlightConnectorFactory(RepositoryConnectorFactory delegate)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+    }
+
+    @Override
+    public RepositoryConnector newInstance(RepositorySystemSession session, RemoteRepository repository)
+            throws NoRepositoryConnectorException
+    {
+        return new SingleFlightConnector(repository, delegate.newInstance(session, repository), IN_FLIGHT, ResolutionDeadline.get(session));
+    }
+
+    @Override
+    public int getPriority()
+    {
+        return delegate.getPriority();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.base.Splitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Records files whose checksums have been verified, keyed by path, size and
+ * modification time, so unchanged files are never hashed again. The index is
+ * stored as a tab separated sidecar file; concurrent writers simply overwrite
+ * each other, which at worst causes some files to be hashed again.
+ */
+public class VerifiedChecksumIndex
+{
+    private static final Logger log = LoggerFactory.getLogger(VerifiedChecksumIndex.class);
+
+    private final Path indexFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public VerifiedChecksumIndex(Path indexFile)
+    {
+        this.indexFile = requireNonNull(indexFile, "indexFile is null");
+        load();
+    }
+
+    public boolean isVerified(Path file)
+            throws IOException
+    {
+        Entry entry = entries.get(file.toAbsolutePath().toString());
+        if (entry == null) {
+            return false;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return entry.size == attributes.size() && entry.lastModified == attributes.lastModifiedTime().toMillis();
+    }
+
+    public void record(Path file, long size, long lastModified)
+    {
+        entries.put(file.toAbsolutePath().toString(), new Entry(size, lastModified));
+    }
+
+    public void remove(Path file)
+    {
+        entries.remove(file.toAbsolutePath().toString());
+    }
+
+    public synchronized void save()
+    {
+        try {
+            Files.createDirectories(indexFile.toAbsolutePath().getParent());
+            Path temporaryFile = Files.createTempFile(indexFile.toAbsolutePath().getParent(), ".verified-checksums", ".tmp");
+            try {
+                try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, UTF_8)) {
+                    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                        Entry value = entry.getValue();
+                        writer.write(value.size + "\t" + value.lastModified + "\t" + entry.getKey());
+                        writer.newLine();
+                    }
+                }
+                Files.move(temporaryFile, indexFile, ATOMIC_MOVE);
+            }
+            finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        }
+        catch (IOException e) {
+            log.debug("Unable to save verified checksum index " + indexFile, e);
+        }
+    }
+
+    private void load()
+    {
+        if (!Files.isRegularFile(indexFile)) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(indexFile, UTF_8)) {
+                List<String> parts = Splitter.on('\t').limit(3).splitToList(line);
+                // lines of the older format with a SHA-1 column have no absolute path, and are verified again
+                if (parts.size() == 3 && Paths.get(parts.get(2)).isAbsolute()) {
+                    entries.put(parts.get(2), new Entry(Long.parseLong(parts.get(0)), Long.parseLong(parts.get(1))));
+                }
+            }
+        }
+        catch (IOException | NumberFormatException | InvalidPathException e) {
+            // a damaged index only means files are verified again
+            log.debug("Ignoring unreadable verified checksum index " + indexFile, e);
+            entries.clear();
+        }
+    }
+
+    private static final class Entry
+    {
+        private final long size;
+        private final long lastModified;
+
+        private Entry(long size, long lastModified)
+        {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads the entry names of a zip file straight from its central directory. Only the
+ * trailing directory records are mapped, so the cost does not depend on the size of
+ * the compressed entries. Files without an end of central directory record are not
+ * zip files and have no entries, while a damaged central directory is an error.
+ */
+public final class ZipCentralDirectory
+{
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE = 56;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private ZipCentralDirectory() {}
+
+    public static Optional<List<String>> readEntryNames(File file)
+            throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < END_OF_CENTRAL_DIRECTORY_SIZE) {
+                return Optional.empty();
+            }
+
+            // the end record is followed by a variable length comment, so search backwards for it
+            long tailStart = Math.max(0, fileSize - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_COMMENT_SIZE - ZIP64_LOCATOR_SIZE);
+            MappedByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, tailStart, fileSize - tailStart);
+            tail.order(ByteOrder.LITTLE_ENDIAN);
+
+            int end = -1;
+            for (int position = tail.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; position >= 0; position--) {
+                if (tail.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                    end = position;
+                    break;
+                }
+            }
+            if (end < 0) {
+                return Optional.empty();
+            }
+
+            long entryCount = tail.getShort(end + 10) & 0xFFFF;
+            long directorySize = tail.getInt(end + 12) & 0xFFFF_FFFFL;
+            long directoryOffset = tail.getInt(end + 16) & 0xFFFF_FFFFL;
+
+            int locator = end - ZIP64_LOCATOR_SIZE;
+            if (locator >= 0 && tail.getInt(locator) == ZIP64_LOCATOR_SIGNATURE) {
+                long zip64EndOffset = tail.getLong(locator + 8);
+                if (zip64EndOffset < 0 || zip64EndOffset > fileSize - ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE) {
+                    throw new IOException("Zip64 end of central directory is out of bounds: " + file);
+                }
+                MappedByteBuffer zip64End = channel.map(FileChannel.MapMode.READ_ONLY, zip64EndOffset, ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE);
+                zip64End.order(ByteOrder.LITTLE_ENDIAN);
+                if (zip64End.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                    throw new IOException("Invalid zip64 end of central directory: " + file);
+                }
+                entryCount = zip64End.getLong(32);
+                directorySize = zip64End.getLong(40);
+                directoryOffset = zip64End.getLong(48);
+            }
+
+            if (entryCount < 0 || directorySize < 0 || directoryOffset < 0 || directorySize > Integer.MAX_VALUE || directoryOffset > fileSize - directorySize) {
+                throw new IOException("Zip central directory is out of bounds: " + file);
+            }
+
+            MappedByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset, directorySize);
+            directory.order(ByteOrder.LITTLE_ENDIAN);
+
+            ImmutableList.Builder<String> names = ImmutableList.builder();
+            int position = 0;
+            byte[] nameBuffer = new byte[256];
+            for (long i = 0; i < entryCount; i++) {
+                if (position + CENTRAL_DIRECTORY_HEADER_SIZE > directory.limit() || directory.getInt(position) != CENTRAL_DIRECTORY_HEADER_SIGNATURE) {
+                    throw new IOException("Corrupt zip central directory: " + file);
+                }
+                int nameLength = directory.getShort(position + 28) & 0xFFFF;
+                int extraLength = directory.getShort(position + 30) & 0xFFFF;
+                int commentLength = directory.getShort(position + 32) & 0xFFFF;
+                if (CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength > directory.limit() - position) {
+                    throw new IOException("Corrupt zip central directory: " + file);
+                }
+
+                if (nameLength > nameBuffer.length) {
+                    nameBuffer = new byte[nameLength];
+                }
+                directory.position(position + CENTRAL_DIRECTORY_HEADER_SIZE);
+                directory.get(nameBuffer, 0, nameLength);
+                names.add(new String(nameBuffer, 0, nameLength, UTF_8));
+
+                position += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+            }
+            return Optional.of(names.build());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.impl.internal.SimpleLocalRepositoryManager;
+import org.sonatype.aether.repository.LocalRepository;
+import org.sonatype.aether.resolution.ArtifactDescriptorException;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+import org.sonatype.aether.util.DefaultSessionData;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+public class ArtifactDescriptorCacheTest
+{
+    private TestingMavenRepository remote;
+    private File tempDir;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        remote = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:library:1.0", "com.example:snapshot:1.0-SNAPSHOT")
+                .addArtifact("com.example:library:1.0")
+                .addArtifact("com.example:snapshot:1.0-SNAPSHOT");
+        tempDir = Files.createTempDirectory("descriptor-cache").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        remote.close();
+        deleteRecursively(tempDir.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testSharedAcrossResolvers()
+    {
+        ArtifactDescriptorCache cache = new ArtifactDescriptorCache(100);
+
+        assertEquals(resolve("first", cache), ImmutableList.of("app", "library", "snapshot"));
+        // snapshots are never cached
+        assertEquals(cache.size(), 2);
+        long misses = cache.getStats().missCount();
+
+        assertEquals(resolve("second", cache), ImmutableList.of("app", "library", "snapshot"));
+        assertEquals(cache.getStats().missCount(), misses);
+        assertEquals(cache.getStats().hitCount(), 2);
+    }
+
+    @Test
+    public void testLocalRepositoryOfResolver()
+            throws ArtifactDescriptorException
+    {
+        ArtifactDescriptorCache cache = new ArtifactDescriptorCache(100);
+        ArtifactDescriptorRequest request = new ArtifactDescriptorRequest(new DefaultArtifact("com.example:library:1.0"), ImmutableList.of(), null);
+        cache.put(request, new ArtifactDescriptorResult(request)
+                .setArtifact(request.getArtifact())
+                .setRepository(new LocalRepository(new File(tempDir, "first"))));
+
+        // a hit on an entry filled by another resolver reports the local repository of this one
+        CachingArtifactDescriptorReader reader = new CachingArtifactDescriptorReader((session, ignored) -> {
+            throw new AssertionError("descriptor was not cached");
+        }, cache);
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession()
+                .setLocalRepositoryManager(new SimpleLocalRepositoryManager(new File(tempDir, "second")));
+        assertEquals(reader.readArtifactDescriptor(session, request).getRepository(), session.getLocalRepository());
+    }
+
+    @Test
+    public void testPerSession()
+            throws ArtifactDescriptorException
+    {
+        AtomicInteger reads = new AtomicInteger();
+        CachingArtifactDescriptorReader reader = CachingArtifactDescriptorReader.perSession((session, request) -> {
+            reads.incrementAndGet();
+            return new ArtifactDescriptorResult(request).setArtifact(request.getArtifact());
+        });
+        ArtifactDescriptorRequest request = new ArtifactDescriptorRequest(new DefaultArtifact("com.example:library:1.0"), ImmutableList.of(), null);
+
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession()
+                .setLocalRepositoryManager(new SimpleLocalRepositoryManager(tempDir));
+        reader.readArtifactDescriptor(session, request);
+        reader.readArtifactDescriptor(session, request);
+        assertEquals(reads.get(), 1);
+
+        // a resolution gets new session data, and reads the descriptor again
+        reader.readArtifactDescriptor(new DefaultRepositorySystemSession(session).setData(new DefaultSessionData()), request);
+        assertEquals(reads.get(), 2);
+    }
+
+    @Test
+    public void testMetaversionsAreNotCached()
+    {
+        ArtifactDescriptorCache cache = new ArtifactDescriptorCache(100);
+        for (String version : ImmutableList.of("RELEASE", "LATEST", "[1.0,)", "1.0-SNAPSHOT")) {
+            ArtifactDescriptorRequest request = new ArtifactDescriptorRequest(new DefaultArtifact("com.example:library:" + version), ImmutableList.of(), null);
+            cache.put(request, new ArtifactDescriptorResult(request).setArtifact(request.getArtifact()));
+        }
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testBinaryForm()
+            throws IOException
+    {
+        File cacheDirectory = new File(tempDir, "descriptors");
+        assertEquals(resolve("first", new ArtifactDescriptorCache(100, cacheDirectory)), ImmutableList.of("app", "library", "snapshot"));
+
+        // with the POM gone, the dependencies of app can only come from the binary form
+        Files.delete(new File(remote.getArtifactDirectory("com.example", "app", "1.0"), "app-1.0.pom").toPath());
+        ArtifactDescriptorCache cache = new ArtifactDescriptorCache(100, cacheDirectory);
+        assertEquals(resolve("second", cache), ImmutableList.of("app", "library", "snapshot"));
+        assertEquals(cache.getStats().hitCount(), 0);
+        assertEquals(cache.size(), 2);
+    }
+
+    private List<String> resolve(String localRepository, ArtifactDescriptorCache cache)
+    {
+        ArtifactResolverConfig config = new ArtifactResolverConfig().setDescriptorCache(cache);
+        ArtifactResolver resolver = new ArtifactResolver(new File(tempDir, localRepository).getPath(), ImmutableList.of(remote.getUrl()), config);
+        List<Artifact> artifacts = resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+        for (Artifact artifact : artifacts) {
+            assertNotNull(artifact.getFile(), "Artifact " + artifact + " is not resolved");
+        }
+        return artifacts.stream()
+                .map(Artifact::getArtifactId)
+                .collect(toImmutableList());
+    }
+}
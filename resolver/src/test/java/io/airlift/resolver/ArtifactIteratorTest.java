@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ArtifactIteratorTest
+{
+    private TestingMavenRepository repository;
+    private File localRepository;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:a:1.0", "com.example:b:1.0", "com.example:c:1.0")
+                .addArtifact("com.example:a:1.0")
+                .addArtifact("com.example:b:1.0", "com.example:c:1.0")
+                .addArtifact("com.example:c:1.0");
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        repository.close();
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testSameArtifactsAsEager()
+    {
+        ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(repository.getUrl()));
+
+        List<Artifact> streamed = new ArrayList<>();
+        try (ArtifactIterator iterator = resolver.resolveArtifactsStreaming(ImmutableList.of(new DefaultArtifact("com.example:app:1.0")), 2)) {
+            while (iterator.hasNext()) {
+                Artifact artifact = iterator.next();
+                assertTrue(artifact.getFile().isFile(), artifact.toString());
+                streamed.add(artifact);
+            }
+        }
+
+        List<Artifact> eager = resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+        assertEquals(coordinates(streamed), coordinates(eager));
+        assertEquals(streamed.size(), 4);
+    }
+
+    @Test
+    public void testBackpressure()
+            throws Exception
+    {
+        AtomicInteger started = new AtomicInteger();
+        List<Callable<Artifact>> resolvers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Artifact artifact = new DefaultArtifact("com.example:artifact-" + i + ":1.0");
+            resolvers.add(() -> {
+                started.incrementAndGet();
+                return artifact;
+            });
+        }
+
+        try (ArtifactIterator iterator = new ArtifactIterator(resolvers, 2)) {
+            MILLISECONDS.sleep(100);
+            assertEquals(started.get(), 4);
+
+            iterator.next();
+            MILLISECONDS.sleep(100);
+            assertEquals(started.get(), 5);
+
+            int count = 1;
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+            assertEquals(count, 10);
+            assertEquals(started.get(), 10);
+        }
+    }
+
+    @Test
+    public void testCompletionOrder()
+    {
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch fastReturned = new CountDownLatch(1);
+        Artifact slow = new DefaultArtifact("com.example:slow:1.0");
+        Artifact fast = new DefaultArtifact("com.example:fast:1.0");
+        List<Callable<Artifact>> resolvers = ImmutableList.of(
+                () -> {
+                    slowStarted.countDown();
+                    fastReturned.await();
+                    return slow;
+                },
+                () -> {
+                    slowStarted.await();
+                    return fast;
+                });
+
+        try (ArtifactIterator iterator = new ArtifactIterator(resolvers, 2)) {
+            assertEquals(iterator.next(), fast);
+            fastReturned.countDown();
+            assertEquals(iterator.next(), slow);
+            assertFalse(iterator.hasNext());
+        }
+    }
+
+    @Test
+    public void testFailure()
+    {
+        List<Callable<Artifact>> resolvers = ImmutableList.of(
+                () -> {
+                    throw new IllegalStateException("broken repository");
+                },
+                () -> new DefaultArtifact("com.example:other:1.0"));
+
+        ArtifactIterator iterator = new ArtifactIterator(resolvers, 1);
+        try {
+            iterator.next();
+            fail("expected exception");
+        }
+        catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "broken repository");
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    private static Set<String> coordinates(List<Artifact> artifacts)
+    {
+        return artifacts.stream()
+                .map(artifact -> artifact.getArtifactId() + ":" + artifact.getVersion())
+                .collect(toImmutableSet());
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import org.sonatype.aether.artifact.Artifact;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Creates the class loaders of a number of plugins with the same classpath, the
+ * Guava jar, and loads every class in it through each of them, either with a
+ * loader per plugin or with the loaders shared through a {@link ClassLoaderCache}.
+ * Besides the time, reports the average growth of the metaspace per operation as
+ * {@code metaspaceBytes}.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class BenchmarkClassLoaderCache
+{
+    private static final int PLUGINS = 10;
+
+    @Param({"true", "false"})
+    private boolean shared = true;
+
+    private List<Artifact> classpath;
+    private List<String> classNames;
+    private ClassLoaderCache cache;
+    private final List<Closeable> classLoaders = new ArrayList<>();
+
+    @Setup
+    public void setup()
+            throws Exception
+    {
+        File jar = new File(ImmutableList.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        classpath = ImmutableList.of(new DefaultArtifact("com.google.guava", "guava", "", "jar", "unknown", ImmutableMap.of(), jar));
+        classNames = getClassNames(jar);
+    }
+
+    @Setup(Level.Invocation)
+    public void createCache()
+    {
+        // a new cache per invocation, so each one starts without loaders
+        cache = new ClassLoaderCache(null);
+        // unload the classes of the previous invocation before measuring
+        System.gc();
+    }
+
+    @TearDown(Level.Invocation)
+    public void releaseClassLoaders()
+            throws IOException
+    {
+        for (Closeable classLoader : classLoaders) {
+            classLoader.close();
+        }
+        classLoaders.clear();
+        checkState(cache.size() == 0, "class loaders were not released");
+    }
+
+    @Benchmark
+    public int loadPlugins(Metaspace metaspace)
+            throws Exception
+    {
+        long before = metaspace.used();
+        int loaded = 0;
+        for (int i = 0; i < PLUGINS; i++) {
+            ClassLoader classLoader;
+            if (shared) {
+                ClassLoaderCache.Lease lease = cache.acquire(classpath);
+                classLoaders.add(lease);
+                classLoader = lease.getClassLoader();
+            }
+            else {
+                // what the callers of resolveArtifacts do without the cache
+                URLClassLoader urlClassLoader = new URLClassLoader(new URL[] {classpath.get(0).getFile().toURI().toURL()}, null);
+                classLoaders.add(urlClassLoader);
+                classLoader = urlClassLoader;
+            }
+            loaded += loadClasses(classLoader);
+        }
+        metaspace.record(metaspace.used() - before);
+        return loaded;
+    }
+
+    private int loadClasses(ClassLoader classLoader)
+    {
+        int loaded = 0;
+        for (String className : classNames) {
+            try {
+                Class.forName(className, false, classLoader);
+                loaded++;
+            }
+            catch (ClassNotFoundException | LinkageError ignored) {
+                // classes referring to optional dependencies
+            }
+        }
+        return loaded;
+    }
+
+    private static List<String> getClassNames(File jar)
+            throws IOException
+    {
+        List<String> classNames = new ArrayList<>();
+        try (JarFile jarFile = new JarFile(jar)) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.endsWith(".class") && !name.startsWith("META-INF/") && !name.endsWith("module-info.class")) {
+                    classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+                }
+            }
+        }
+        return classNames;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Metaspace
+    {
+        // read by JMH at the end of each iteration
+        public long metaspaceBytes;
+
+        private long totalBytes;
+        private long operations;
+
+        private final MemoryPoolMXBean pool = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(bean -> bean.getName().equals("Metaspace"))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("JVM has no metaspace memory pool"));
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            metaspaceBytes = 0;
+            totalBytes = 0;
+            operations = 0;
+        }
+
+        private void record(long bytes)
+        {
+            totalBytes += bytes;
+            operations++;
+            metaspaceBytes = totalBytes / operations;
+        }
+
+        private long used()
+        {
+            return pool.getUsage().getUsed();
+        }
+    }
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkClassLoaderCache.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
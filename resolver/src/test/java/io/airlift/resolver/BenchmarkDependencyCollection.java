@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Collects a dependency graph from a repository served on the loopback interface
+ * with added latency, into an empty local repository, with the sequential and the
+ * parallel collector. The graph has {@code WIDTH} levels of {@code WIDTH} artifacts,
+ * and every artifact depends on a few artifacts of the next level, so most artifacts
+ * are reached more than once.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class BenchmarkDependencyCollection
+{
+    private static final int WIDTH = 8;
+    private static final int FAN_OUT = 3;
+
+    @Param({"1", "8"})
+    private int collectionThreads = 8;
+
+    @Param({"0", "20"})
+    private int latencyMillis = 20;
+
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer server;
+    private File localRepository;
+
+    @Setup
+    public void setup()
+            throws Exception
+    {
+        repository = new TestingMavenRepository();
+        for (int level = WIDTH - 1; level >= 0; level--) {
+            for (int i = 0; i < WIDTH; i++) {
+                List<String> dependencies = new ArrayList<>();
+                if (level < WIDTH - 1) {
+                    for (int j = 0; j < FAN_OUT; j++) {
+                        dependencies.add(coordinates(level + 1, (i + j) % WIDTH));
+                    }
+                }
+                repository.addArtifact(coordinates(level, i), dependencies.toArray(new String[0]));
+            }
+        }
+        List<String> roots = new ArrayList<>();
+        for (int i = 0; i < WIDTH; i++) {
+            roots.add(coordinates(0, i));
+        }
+        repository.addArtifact("com.example:app:1.0", roots.toArray(new String[0]));
+        server = new TestingRepositoryServer(repository.getDirectory())
+                .setLatency(Duration.ofMillis(latencyMillis));
+    }
+
+    @Setup(Level.Invocation)
+    public void createLocalRepository()
+            throws Exception
+    {
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteLocalRepository()
+            throws Exception
+    {
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @TearDown
+    public void tearDown()
+            throws Exception
+    {
+        server.close();
+        repository.close();
+    }
+
+    @Benchmark
+    public List<Artifact> collect()
+    {
+        // lazy resolution reads the POMs, but leaves the jars for later
+        return newResolver().resolveArtifactsLazily(new DefaultArtifact("com.example:app:1.0"));
+    }
+
+    private ArtifactResolver newResolver()
+    {
+        return new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()), new ArtifactResolverConfig()
+                .setCollectionThreads(collectionThreads));
+    }
+
+    private static String coordinates(int level, int index)
+    {
+        return "com.example:level-" + level + "-" + index + ":1.0";
+    }
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkDependencyCollection.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.testing.SyntheticRepository;
+import io.airlift.resolver.testing.SyntheticRepositoryConfig;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import org.sonatype.aether.artifact.Artifact;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+
+/**
+ * Resolves a synthetic dependency graph from a repository with injected latency,
+ * bandwidth limits and errors, into an empty local repository, with increasing
+ * numbers of threads for collecting the graph and downloading the artifacts.
+ * Each resolution is reported as wall time and as throughput; {@link #main} also
+ * reports the allocation per resolution.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+public class BenchmarkResolution
+{
+    @Param({"1", "4", "16"})
+    private int threads = 4;
+
+    @Param({"0", "20"})
+    private int latencyMillis = 20;
+
+    // 10 MB/s per connection
+    @Param("10000000")
+    private long bytesPerSecond = 10_000_000;
+
+    @Param({"0", "0.02"})
+    private double errorRate = 0.02;
+
+    @Param("10")
+    private int width = 10;
+
+    @Param("4")
+    private int depth = 4;
+
+    private SyntheticRepository repository;
+    private TestingRepositoryServer server;
+    private File localRepository;
+
+    @Setup
+    public void setup()
+            throws Exception
+    {
+        repository = new SyntheticRepository(new SyntheticRepositoryConfig()
+                .setWidth(width)
+                .setDepth(depth)
+                .setFanOut(3)
+                .setVersions(3)
+                .setVersionRangeRatio(0.2)
+                .setJarSize(50_000));
+        server = new TestingRepositoryServer(repository.getDirectory())
+                .setLatency(Duration.ofMillis(latencyMillis))
+                .setBandwidth(bytesPerSecond)
+                .setErrorRate(errorRate);
+    }
+
+    @Setup(Level.Invocation)
+    public void createLocalRepository()
+            throws Exception
+    {
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteLocalRepository()
+            throws Exception
+    {
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @TearDown
+    public void tearDown()
+            throws Exception
+    {
+        server.close();
+        repository.close();
+    }
+
+    @Benchmark
+    public List<Artifact> resolveArtifacts()
+    {
+        return verify(newResolver().resolveArtifacts(new DefaultArtifact(SyntheticRepository.ROOT)));
+    }
+
+    @Benchmark
+    public List<Artifact> resolvePom()
+    {
+        return verify(newResolver().resolvePom(repository.getProjectPom()));
+    }
+
+    private List<Artifact> verify(List<Artifact> artifacts)
+    {
+        // failed transfers are retried, so a resolution that gives up is a broken run
+        checkState(artifacts.size() == repository.getReachableArtifacts().size(), "resolved %s of %s artifacts", artifacts.size(), repository.getReachableArtifacts().size());
+        return artifacts;
+    }
+
+    private ArtifactResolver newResolver()
+    {
+        return new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()), new ArtifactResolverConfig()
+                .setCollectionThreads(threads)
+                .setDownloadScheduler(new DownloadScheduler(threads))
+                .setRepositoryFailureThreshold(0)
+                .setTransferRetries(5)
+                .setTransferRetryBackoff(Duration.ofMillis(10)));
+    }
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkResolution.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import org.sonatype.aether.artifact.Artifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ClassLoaderCacheTest
+{
+    private static final String PLUGIN_CLASS = Plugin.class.getName();
+    private static final String PLUGIN_RESOURCE = PLUGIN_CLASS.replace('.', '/') + ".class";
+
+    private File directory;
+    private Artifact plugin;
+    private Artifact library;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        directory = Files.createTempDirectory("class-loader-cache").toFile();
+        plugin = artifact("plugin", writeJar("plugin.jar", "plugin"));
+        library = artifact("library", writeJar("library.jar", "library"));
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(directory.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testShared()
+            throws Exception
+    {
+        // no parent, so the class is defined by the cached loader
+        ClassLoaderCache cache = new ClassLoaderCache(null);
+        try (ClassLoaderCache.Lease first = cache.acquire(ImmutableList.of(plugin, library));
+                ClassLoaderCache.Lease second = cache.acquire(ImmutableList.of(plugin, library))) {
+            assertSame(first.getClassLoader(), second.getClassLoader());
+            assertEquals(first.getKey(), second.getKey());
+            assertSame(Class.forName(PLUGIN_CLASS, false, first.getClassLoader()), Class.forName(PLUGIN_CLASS, false, second.getClassLoader()));
+            assertNotSame(Class.forName(PLUGIN_CLASS, false, first.getClassLoader()), Plugin.class);
+
+            assertEquals(cache.size(), 1);
+            assertEquals(cache.getMissCount(), 1);
+            assertEquals(cache.getHitCount(), 1);
+        }
+    }
+
+    @Test
+    public void testRelease()
+    {
+        ClassLoaderCache cache = new ClassLoaderCache(null);
+        ClassLoaderCache.Lease first = cache.acquire(ImmutableList.of(plugin));
+        ClassLoaderCache.Lease second = cache.acquire(ImmutableList.of(plugin));
+        ClassLoader classLoader = first.getClassLoader();
+        assertNotNull(classLoader.getResource("marker.txt"));
+
+        first.close();
+        // closing a lease again does not release the loader of the other one
+        first.close();
+        assertEquals(cache.size(), 1);
+        assertNotNull(classLoader.getResource("marker.txt"));
+
+        second.close();
+        assertEquals(cache.size(), 0);
+        assertNull(classLoader.getResource("marker.txt"), "class loader was not closed");
+
+        try (ClassLoaderCache.Lease third = cache.acquire(ImmutableList.of(plugin))) {
+            assertNotSame(third.getClassLoader(), classLoader);
+        }
+    }
+
+    @Test
+    public void testDifferentClasspaths()
+            throws IOException
+    {
+        ClassLoaderCache cache = new ClassLoaderCache(null);
+        try (ClassLoaderCache.Lease pluginOnly = cache.acquire(ImmutableList.of(plugin));
+                ClassLoaderCache.Lease pluginFirst = cache.acquire(ImmutableList.of(plugin, library));
+                ClassLoaderCache.Lease libraryFirst = cache.acquire(ImmutableList.of(library, plugin))) {
+            // the order decides which marker is found
+            assertEquals(marker(pluginFirst.getClassLoader()), "plugin");
+            assertEquals(marker(libraryFirst.getClassLoader()), "library");
+            assertNotEquals(pluginOnly.getKey(), pluginFirst.getKey());
+            assertEquals(cache.size(), 3);
+        }
+    }
+
+    @Test
+    public void testSamePathDifferentArtifacts()
+    {
+        // artifacts are identified by their files, not their coordinates
+        Artifact copy = artifact("copy", new File(directory, "./plugin.jar"));
+        ClassLoaderCache cache = new ClassLoaderCache(null);
+        try (ClassLoaderCache.Lease first = cache.acquire(ImmutableList.of(plugin));
+                ClassLoaderCache.Lease second = cache.acquire(ImmutableList.of(copy))) {
+            assertSame(first.getClassLoader(), second.getClassLoader());
+        }
+    }
+
+    @Test
+    public void testReplacedFile()
+            throws IOException
+    {
+        ClassLoaderCache cache = new ClassLoaderCache(null);
+        try (ClassLoaderCache.Lease first = cache.acquire(ImmutableList.of(plugin))) {
+            writeJar("plugin.jar", "replaced plugin");
+            try (ClassLoaderCache.Lease second = cache.acquire(ImmutableList.of(plugin))) {
+                assertNotSame(first.getClassLoader(), second.getClassLoader());
+                assertEquals(marker(second.getClassLoader()), "replaced plugin");
+            }
+        }
+    }
+
+    @Test
+    public void testUnresolvedArtifact()
+    {
+        Artifact unresolved = new DefaultArtifact("com.example:missing:1.0");
+        try {
+            new ClassLoaderCache(null).acquire(ImmutableList.of(plugin, unresolved));
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("com.example:missing:1.0"), e.getMessage());
+        }
+    }
+
+    private File writeJar(String name, String marker)
+            throws IOException
+    {
+        byte[] pluginClass;
+        try (InputStream in = Plugin.class.getResourceAsStream("/" + PLUGIN_RESOURCE)) {
+            pluginClass = ByteStreams.toByteArray(in);
+        }
+
+        File file = new File(directory, name);
+        try (OutputStream out = new FileOutputStream(file);
+                JarOutputStream jar = new JarOutputStream(out)) {
+            jar.putNextEntry(new ZipEntry(PLUGIN_RESOURCE));
+            jar.write(pluginClass);
+            jar.closeEntry();
+            jar.putNextEntry(new ZipEntry("marker.txt"));
+            jar.write(marker.getBytes(UTF_8));
+            jar.closeEntry();
+        }
+        return file;
+    }
+
+    private static String marker(ClassLoader classLoader)
+            throws IOException
+    {
+        try (InputStream in = classLoader.getResourceAsStream("marker.txt")) {
+            return new String(ByteStreams.toByteArray(in), UTF_8);
+        }
+    }
+
+    private static Artifact artifact(String artifactId, File file)
+    {
+        return new DefaultArtifact("com.example", artifactId, "", "jar", "1.0", ImmutableMap.of(), file);
+    }
+
+    public static class Plugin
+    {
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.airlift.resolver.ClasspathBundle.LIBRARY_DIRECTORY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ClasspathBundleTest
+{
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer server;
+    private File localRepository;
+    private File bundle;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:a:1.0", "org.example:a:1.0")
+                .addArtifact("com.example:a:1.0")
+                .addArtifact("org.example:a:1.0");
+        server = new TestingRepositoryServer(repository.getDirectory());
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+        bundle = new File(Files.createTempDirectory("bundle").toFile(), "app");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        server.close();
+        repository.close();
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+        deleteRecursively(bundle.getParentFile().toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testExportAndLoad()
+            throws IOException
+    {
+        ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()));
+        List<Artifact> artifacts = resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+        assertEquals(artifacts.size(), 3);
+        ClasspathBundle.export(artifacts, bundle);
+
+        // the bundle no longer needs the local repository
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+        assertTrue(localRepository.mkdir());
+
+        List<Artifact> loaded = ClasspathBundle.load(bundle);
+        assertEquals(loaded.size(), artifacts.size());
+        for (int i = 0; i < artifacts.size(); i++) {
+            Artifact artifact = artifacts.get(i);
+            Artifact bundled = loaded.get(i);
+            assertEquals(bundled.getGroupId(), artifact.getGroupId());
+            assertEquals(bundled.getArtifactId(), artifact.getArtifactId());
+            assertEquals(bundled.getClassifier(), artifact.getClassifier());
+            assertEquals(bundled.getExtension(), artifact.getExtension());
+            assertEquals(bundled.getVersion(), artifact.getVersion());
+            if (artifact.getFile() == null) {
+                assertNull(bundled.getFile());
+            }
+            else {
+                assertTrue(bundled.getFile().isFile(), bundled.toString());
+                assertEquals(bundled.getFile().getParentFile(), new File(bundle, LIBRARY_DIRECTORY).getAbsoluteFile());
+            }
+        }
+
+        // the two a-1.0.jar files do not collide
+        assertEquals(loaded.get(1).getFile().getName(), "a-1.0.jar");
+        assertEquals(loaded.get(2).getFile().getName(), "org.example-a-1.0.jar");
+    }
+
+    @Test
+    public void testExportPom()
+            throws IOException
+    {
+        File project = new File(bundle.getParentFile(), "project");
+        assertTrue(project.mkdir());
+        File pom = new File(project, "pom.xml");
+        Files.write(pom.toPath(), ("" +
+                "<project>\n" +
+                "  <modelVersion>4.0.0</modelVersion>\n" +
+                "  <groupId>com.example</groupId>\n" +
+                "  <artifactId>project</artifactId>\n" +
+                "  <version>1.0</version>\n" +
+                "  <dependencies>\n" +
+                "    <dependency>\n" +
+                "      <groupId>com.example</groupId>\n" +
+                "      <artifactId>a</artifactId>\n" +
+                "      <version>1.0</version>\n" +
+                "    </dependency>\n" +
+                "  </dependencies>\n" +
+                "</project>\n").getBytes(UTF_8));
+        ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()));
+
+        // the project was not compiled, so it has no output directory
+        List<Artifact> artifacts = resolver.resolvePom(pom);
+        assertEquals(artifacts.size(), 2);
+        assertFalse(artifacts.get(0).getFile().exists());
+        ClasspathBundle.export(artifacts, bundle);
+        List<Artifact> loaded = ClasspathBundle.load(bundle);
+        assertEquals(loaded.get(0).getArtifactId(), "project");
+        assertNull(loaded.get(0).getFile());
+        assertTrue(loaded.get(1).getFile().isFile());
+
+        // the output directory is bundled with its subdirectories
+        File classFile = new File(project, "target/classes/com/example/Project.class");
+        assertTrue(classFile.getParentFile().mkdirs());
+        Files.write(classFile.toPath(), new byte[] {(byte) 0xca, (byte) 0xfe, (byte) 0xba, (byte) 0xbe});
+        File compiled = new File(bundle.getParentFile(), "compiled");
+        ClasspathBundle.export(resolver.resolvePom(pom), compiled);
+        loaded = ClasspathBundle.load(compiled);
+        File classes = loaded.get(0).getFile();
+        assertTrue(classes.isDirectory(), classes.getPath());
+        assertEquals(classes.getParentFile(), new File(compiled, LIBRARY_DIRECTORY).getAbsoluteFile());
+        assertEquals(Files.readAllBytes(new File(classes, "com/example/Project.class").toPath()), Files.readAllBytes(classFile.toPath()));
+        assertTrue(loaded.get(1).getFile().isFile());
+    }
+
+    @Test
+    public void testFileNames()
+            throws IOException
+    {
+        List<Artifact> artifacts = ImmutableList.of(
+                artifact("com.example:a:1.0", "a-1.0.jar"),
+                artifact("org.example:a:1.0", "a-1.0.jar"),
+                artifact("com.example:b:jar:tests:1.0", "b-1.0-tests.jar"),
+                new DefaultArtifact("com.example:missing:1.0"));
+        ClasspathBundle.export(artifacts, bundle);
+
+        List<Artifact> loaded = ClasspathBundle.load(bundle);
+        assertEquals(loaded.get(0).getFile().getName(), "a-1.0.jar");
+        assertEquals(loaded.get(1).getFile().getName(), "org.example-a-1.0.jar");
+        assertEquals(loaded.get(2).getClassifier(), "tests");
+        assertEquals(loaded.get(3).getArtifactId(), "missing");
+        assertNull(loaded.get(3).getFile());
+        assertEquals(Files.readAllBytes(loaded.get(1).getFile().toPath()), Files.readAllBytes(artifacts.get(1).getFile().toPath()));
+    }
+
+    @Test
+    public void testIncompleteBundle()
+            throws IOException
+    {
+        ClasspathBundle.export(ImmutableList.of(artifact("com.example:a:1.0", "a-1.0.jar")), bundle);
+        Files.write(new File(bundle, LIBRARY_DIRECTORY + "/a-1.0.jar").toPath(), new byte[1]);
+        try {
+            ClasspathBundle.load(bundle);
+            fail("expected exception");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("missing or was modified"), e.getMessage());
+        }
+
+        // an interrupted export leaves no manifest
+        File partial = new File(bundle.getParentFile(), "partial");
+        assertTrue(new File(partial, LIBRARY_DIRECTORY).mkdirs());
+        assertFalse(new File(partial, ClasspathBundle.MANIFEST_FILE).exists());
+        try {
+            ClasspathBundle.load(partial);
+            fail("expected exception");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage().startsWith("Error loading bundle"), e.getMessage());
+        }
+    }
+
+    private Artifact artifact(String coordinates, String fileName)
+            throws IOException
+    {
+        Artifact artifact = new DefaultArtifact(coordinates);
+        File directory = new File(localRepository, artifact.getGroupId());
+        assertTrue(directory.isDirectory() || directory.mkdirs());
+        File file = new File(directory, fileName);
+        Files.write(file.toPath(), coordinates.getBytes());
+        return artifact.setFile(file);
+    }
+}
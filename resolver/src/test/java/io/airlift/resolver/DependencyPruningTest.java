@@ -0,0 +1,169 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.sonatype.aether.util.artifact.JavaScopes;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+
+public class DependencyPruningTest
+{
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer server;
+    private File tempDir;
+    private File pomFile;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:lib:1.0", "com.example:util:1.0", "org.example.logging:api:1.0", "com.example:lib-test:1.0:test")
+                .addArtifact("com.example:util:1.0")
+                .addArtifact("com.example:lib-test:1.0", "com.example:framework-core:1.0")
+                .addArtifact("org.example.logging:api:1.0", "org.example.logging:impl:1.0:runtime")
+                .addArtifact("org.example.logging:impl:1.0")
+                .addArtifact("com.example:framework:1.0", "com.example:framework-core:1.0")
+                .addArtifact("com.example:framework-core:1.0", "com.example:framework-extra:1.0")
+                .addArtifact("com.example:framework-extra:1.0")
+                .addArtifact("com.example:container:1.0", "com.example:container-core:1.0")
+                .addArtifact("com.example:container-core:1.0");
+        server = new TestingRepositoryServer(repository.getDirectory());
+        tempDir = Files.createTempDirectory("dependency-pruning").toFile();
+
+        pomFile = new File(tempDir, "pom.xml");
+        Files.write(pomFile.toPath(), ("" +
+                "<project>\n" +
+                "  <modelVersion>4.0.0</modelVersion>\n" +
+                "  <groupId>com.example</groupId>\n" +
+                "  <artifactId>app</artifactId>\n" +
+                "  <version>1.0</version>\n" +
+                "  <dependencies>\n" +
+                dependency("com.example", "lib", "compile") +
+                dependency("org.example.logging", "api", "compile") +
+                dependency("com.example", "framework", "test") +
+                dependency("com.example", "container", "provided") +
+                "  </dependencies>\n" +
+                "</project>\n").getBytes(UTF_8));
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        server.close();
+        repository.close();
+        deleteRecursively(tempDir.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testDefault()
+    {
+        List<Artifact> artifacts = resolver(new ArtifactResolverConfig()).resolvePom(pomFile);
+        assertEquals(artifactIds(artifacts), ImmutableList.of("app", "lib", "util", "api", "impl"));
+
+        // the test and provided subtrees are collected, and then filtered
+        assertEquals(server.getRequestCount(".pom"), 9);
+        assertEquals(server.getRequestCount(".jar"), 4);
+    }
+
+    @Test
+    public void testPruned()
+    {
+        ArtifactResolverConfig config = new ArtifactResolverConfig()
+                .setScopes(ImmutableSet.of(JavaScopes.COMPILE, JavaScopes.RUNTIME))
+                .addExclusion("org.example.logging", "*");
+        List<Artifact> artifacts = resolver(config).resolvePom(pomFile);
+        assertEquals(artifactIds(artifacts), ImmutableList.of("app", "lib", "util"));
+
+        assertEquals(server.getRequestCount(".pom"), 2);
+        assertEquals(server.getRequestCount(".jar"), 2);
+    }
+
+    @Test
+    public void testTransitiveScopes()
+    {
+        ArtifactResolverConfig config = new ArtifactResolverConfig()
+                .setScopes(ImmutableSet.of(JavaScopes.COMPILE));
+        List<Artifact> artifacts = resolver(config).resolveArtifacts(new DefaultArtifact("org.example.logging:api:1.0"));
+
+        // the requested artifact is always resolved, but its runtime dependency is pruned
+        assertEquals(artifactIds(artifacts), ImmutableList.of("api"));
+        assertEquals(server.getRequestCount(".pom"), 1);
+    }
+
+    @Test
+    public void testRuntimeClasspath()
+    {
+        ArtifactResolverConfig config = new ArtifactResolverConfig()
+                .setScopes(ImmutableSet.of(JavaScopes.RUNTIME));
+        List<Artifact> artifacts = resolver(config).resolvePom(pomFile);
+
+        // the runtime scope includes compile dependencies, and their own dependencies
+        assertEquals(artifactIds(artifacts), ImmutableList.of("app", "lib", "util", "api", "impl"));
+        // the test and provided subtrees are never read
+        assertEquals(server.getRequestCount(".pom"), 4);
+    }
+
+    @Test
+    public void testExcludedArtifact()
+    {
+        ArtifactResolverConfig config = new ArtifactResolverConfig()
+                .addExclusion("com.example", "util");
+        List<Artifact> artifacts = resolver(config).resolveArtifacts(new DefaultArtifact("com.example:lib:1.0"));
+        assertEquals(artifactIds(artifacts), ImmutableList.of("lib", "api", "impl"));
+    }
+
+    private ArtifactResolver resolver(ArtifactResolverConfig config)
+    {
+        File localRepository = new File(tempDir, "local-repository");
+        return new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()), config);
+    }
+
+    private static String dependency(String groupId, String artifactId, String scope)
+    {
+        return "" +
+                "    <dependency>\n" +
+                "      <groupId>" + groupId + "</groupId>\n" +
+                "      <artifactId>" + artifactId + "</artifactId>\n" +
+                "      <version>1.0</version>\n" +
+                "      <scope>" + scope + "</scope>\n" +
+                "    </dependency>\n";
+    }
+
+    private static List<String> artifactIds(List<Artifact> artifacts)
+    {
+        return artifacts.stream()
+                .map(Artifact::getArtifactId)
+                .collect(toImmutableList());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class DownloadSchedulerTest
+{
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer server;
+    private File localRepository;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:a:1.0", "com.example:b:1.0", "com.example:c:1.0", "com.example:d:1.0")
+                .addArtifact("com.example:a:1.0", "com.example:deep-a:1.0")
+                .addArtifact("com.example:b:1.0", "com.example:deep-b:1.0")
+                .addArtifact("com.example:c:1.0")
+                .addArtifact("com.example:d:1.0")
+                .addArtifact("com.example:deep-a:1.0")
+                .addArtifact("com.example:deep-b:1.0");
+        server = new TestingRepositoryServer(repository.getDirectory())
+                .setLatency(Duration.ofMillis(100));
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        server.close();
+        repository.close();
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testUnlimited()
+    {
+        resolver(new ArtifactResolverConfig()).resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+
+        // the whole batch of jars is requested at once
+        assertTrue(server.getMaxConcurrentRequests() > 2, "concurrent requests: " + server.getMaxConcurrentRequests());
+    }
+
+    @Test
+    public void testConcurrencyLimit()
+    {
+        DownloadScheduler scheduler = new DownloadScheduler(2);
+        List<Artifact> artifacts = resolver(new ArtifactResolverConfig().setDownloadScheduler(scheduler))
+                .resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+        assertEquals(artifacts.size(), 7);
+        for (Artifact artifact : artifacts) {
+            assertTrue(artifact.getFile().isFile(), artifact.toString());
+        }
+
+        assertEquals(server.getMaxConcurrentRequests(), 2);
+        assertEquals(scheduler.getQueuedDownloads(), 0);
+        assertEquals(scheduler.getQueuedDownloads(server.getUrl()), 0);
+        assertEquals(scheduler.getCompletedDownloads(), 14);
+    }
+
+    @Test
+    public void testPriority()
+    {
+        DownloadScheduler scheduler = new DownloadScheduler(1);
+        resolver(new ArtifactResolverConfig().setDownloadScheduler(scheduler))
+                .resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+
+        // the first jar starts at once, and the others wait for it, shallow ones first
+        List<String> jars = server.getRequestedPaths().stream()
+                .filter(path -> path.endsWith(".jar"))
+                .map(path -> path.substring(path.lastIndexOf('/') + 1))
+                .collect(toImmutableList());
+        assertEquals(jars, ImmutableList.of("app-1.0.jar", "a-1.0.jar", "b-1.0.jar", "c-1.0.jar", "d-1.0.jar", "deep-a-1.0.jar", "deep-b-1.0.jar"));
+
+        assertTrue(scheduler.getMaxWaitTime().compareTo(Duration.ofMillis(100)) >= 0, "max wait: " + scheduler.getMaxWaitTime());
+        assertTrue(scheduler.getAverageWaitTime().compareTo(scheduler.getMaxWaitTime()) <= 0);
+    }
+
+    @Test
+    public void testClosedWithResolver()
+    {
+        DownloadScheduler scheduler = new DownloadScheduler(2);
+        try (ArtifactResolver resolver = resolver(new ArtifactResolverConfig().setDownloadScheduler(scheduler))) {
+            resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+            assertTrue(scheduler.getCompletedDownloads() > 0);
+        }
+
+        try {
+            scheduler.schedule(server.getUrl(), 0, 0, () -> 0);
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "scheduler is closed");
+        }
+        assertEquals(scheduler.getActiveDownloads(), 0);
+    }
+
+    @Test
+    public void testCloseFailsQueuedDownloads()
+            throws Exception
+    {
+        DownloadScheduler scheduler = new DownloadScheduler(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> running = scheduler.schedule(server.getUrl(), 0, 0, () -> {
+            started.countDown();
+            Uninterruptibles.awaitUninterruptibly(release);
+            return 0;
+        });
+        CompletableFuture<Void> queued = scheduler.schedule(server.getUrl(), 0, 0, () -> 0);
+        started.await();
+
+        scheduler.close();
+        assertTrue(queued.isCompletedExceptionally());
+        release.countDown();
+        running.get(10, SECONDS);
+    }
+
+    private ArtifactResolver resolver(ArtifactResolverConfig config)
+    {
+        return new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()), config);
+    }
+}
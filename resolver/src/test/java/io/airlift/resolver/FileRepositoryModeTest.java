@@ -0,0 +1,216 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.internal.LocalFileConnector;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.repository.RepositoryPolicy;
+import org.sonatype.aether.spi.connector.ArtifactDownload;
+import org.sonatype.aether.spi.connector.ArtifactUpload;
+import org.sonatype.aether.spi.connector.MetadataDownload;
+import org.sonatype.aether.spi.connector.MetadataUpload;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.transfer.AbstractTransferListener;
+import org.sonatype.aether.transfer.ChecksumFailureException;
+import org.sonatype.aether.transfer.TransferEvent;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class FileRepositoryModeTest
+{
+    private TestingMavenRepository repository;
+    private File localRepository;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:library:[1.0,2.0)")
+                .addArtifact("com.example:library:1.0")
+                .addArtifact("com.example:library:1.1");
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        repository.close();
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testCopy()
+            throws IOException
+    {
+        for (Artifact artifact : resolve(FileRepositoryMode.COPY)) {
+            File file = artifact.getFile();
+            assertTrue(isInLocalRepository(file), file.getPath());
+            assertFalse(Files.isSameFile(file.toPath(), source(artifact).toPath()));
+            assertEquals(Files.readAllBytes(file.toPath()), Files.readAllBytes(source(artifact).toPath()));
+            assertTrue(new File(file.getPath() + ".sha1").isFile());
+        }
+    }
+
+    @Test
+    public void testLink()
+            throws IOException
+    {
+        for (Artifact artifact : resolve(FileRepositoryMode.LINK)) {
+            File file = artifact.getFile();
+            assertTrue(isInLocalRepository(file), file.getPath());
+            assertTrue(Files.isSameFile(file.toPath(), source(artifact).toPath()));
+        }
+    }
+
+    @Test
+    public void testInPlace()
+            throws IOException
+    {
+        List<Artifact> artifacts = resolve(FileRepositoryMode.IN_PLACE);
+        for (Artifact artifact : artifacts) {
+            assertEquals(artifact.getFile().getCanonicalFile(), source(artifact).getCanonicalFile());
+        }
+
+        // the range is still resolved from the metadata, which is copied
+        assertEquals(artifacts.get(1).getVersion(), "1.1");
+        try (Stream<Path> files = Files.walk(localRepository.toPath())) {
+            assertTrue(files.noneMatch(path -> path.toString().endsWith(".jar") || path.toString().endsWith(".pom")));
+        }
+    }
+
+    @Test
+    public void testMissingArtifact()
+    {
+        List<Artifact> artifacts = resolver(FileRepositoryMode.LINK).resolveArtifacts(new DefaultArtifact("com.example:missing:1.0"));
+        assertEquals(artifacts.size(), 1);
+        assertNull(artifacts.get(0).getFile());
+        assertFalse(new File(localRepository, "com/example/missing/1.0").exists());
+    }
+
+    @Test
+    public void testCorruptedChecksum()
+            throws IOException
+    {
+        File jar = new File(repository.getArtifactDirectory("com.example", "library", "1.0"), "library-1.0.jar");
+        Files.write(new File(jar.getPath() + ".sha1").toPath(), "0000000000000000000000000000000000000000".getBytes(UTF_8));
+
+        for (FileRepositoryMode mode : ImmutableList.of(FileRepositoryMode.COPY, FileRepositoryMode.LINK)) {
+            List<TransferEvent> corrupted = new ArrayList<>();
+            ArtifactDownload failed = download(mode, RepositoryPolicy.CHECKSUM_POLICY_FAIL, corrupted);
+            assertNotNull(failed.getException(), mode.toString());
+            assertTrue(failed.getException().getCause() instanceof ChecksumFailureException, mode.toString());
+            assertFalse(failed.getFile().exists());
+            assertTrue(corrupted.isEmpty());
+
+            ArtifactDownload warned = download(mode, RepositoryPolicy.CHECKSUM_POLICY_WARN, corrupted);
+            assertNull(warned.getException(), mode.toString());
+            assertTrue(warned.getFile().isFile());
+            assertEquals(corrupted.size(), 1);
+            assertTrue(corrupted.get(0).getException() instanceof ChecksumFailureException);
+
+            ArtifactDownload ignored = download(mode, RepositoryPolicy.CHECKSUM_POLICY_IGNORE, corrupted);
+            assertNull(ignored.getException(), mode.toString());
+            assertEquals(corrupted.size(), 1);
+        }
+    }
+
+    private ArtifactDownload download(FileRepositoryMode mode, String checksumPolicy, List<TransferEvent> corrupted)
+    {
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession()
+                .setTransferListener(new AbstractTransferListener()
+                {
+                    @Override
+                    public void transferCorrupted(TransferEvent event)
+                    {
+                        corrupted.add(event);
+                    }
+                });
+        File file = new File(localRepository, mode + "/" + checksumPolicy + "/library-1.0.jar");
+        ArtifactDownload download = new ArtifactDownload(new DefaultArtifact("com.example:library:1.0"), null, file, checksumPolicy);
+        RemoteRepository remote = new RemoteRepository("file", "default", repository.getUrl());
+        new LocalFileConnector(session, remote, repository.getDirectory(), mode, new UnusedConnector())
+                .get(ImmutableList.of(download), null);
+        return download;
+    }
+
+    private List<Artifact> resolve(FileRepositoryMode mode)
+    {
+        List<Artifact> artifacts = resolver(mode).resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+        assertEquals(artifacts.size(), 2);
+        return artifacts;
+    }
+
+    private ArtifactResolver resolver(FileRepositoryMode mode)
+    {
+        ArtifactResolverConfig config = new ArtifactResolverConfig()
+                .setFileRepositoryMode(mode);
+        return new ArtifactResolver(localRepository.getPath(), ImmutableList.of(repository.getUrl()), config);
+    }
+
+    private File source(Artifact artifact)
+    {
+        return new File(repository.getArtifactDirectory(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion()), artifact.getFile().getName());
+    }
+
+    private boolean isInLocalRepository(File file)
+            throws IOException
+    {
+        return file.getCanonicalPath().startsWith(localRepository.getCanonicalPath());
+    }
+
+    private static class UnusedConnector
+            implements RepositoryConnector
+    {
+        @Override
+        public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void put(Collection<? extends ArtifactUpload> artifactUploads, Collection<? extends MetadataUpload> metadataUploads)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {}
+    }
+}
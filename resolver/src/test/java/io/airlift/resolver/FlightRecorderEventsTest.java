@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class FlightRecorderEventsTest
+{
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer server;
+    private File directory;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:a:1.0")
+                .addArtifact("com.example:a:1.0");
+        server = new TestingRepositoryServer(repository.getDirectory());
+        directory = Files.createTempDirectory("flight-recorder").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        server.close();
+        repository.close();
+        deleteRecursively(directory.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testEvents()
+            throws IOException
+    {
+        ArtifactResolver resolver = new ArtifactResolver(new File(directory, "repository").getPath(), ImmutableList.of(server.getUrl()), new ArtifactResolverConfig()
+                .setVerifyChecksums(true));
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            for (String name : ImmutableList.of("Resolution", "ModelBuild", "Collection", "Transfer", "ChecksumVerification")) {
+                recording.enable("io.airlift.resolver." + name);
+            }
+            recording.start();
+            resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+            resolver.resolvePom(new File(repository.getArtifactDirectory("com.example", "app", "1.0"), "app-1.0.pom"));
+            recording.stop();
+
+            Path file = new File(directory, "recording.jfr").toPath();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        List<RecordedEvent> resolutions = events(events, "Resolution");
+        assertEquals(resolutions.size(), 2);
+        assertEquals(resolutions.get(0).getString("request"), "com.example:app:jar:1.0");
+        assertEquals(resolutions.get(0).getInt("resolvedArtifacts"), 2);
+        assertEquals(resolutions.get(0).getInt("unresolvedArtifacts"), 0);
+
+        List<RecordedEvent> collections = events(events, "Collection");
+        assertEquals(collections.size(), 2);
+        assertEquals(collections.get(0).getInt("dependencies"), 2);
+        assertFalse(collections.get(0).getBoolean("failed"));
+
+        List<RecordedEvent> modelBuilds = events(events, "ModelBuild");
+        assertEquals(modelBuilds.size(), 1);
+        assertEquals(modelBuilds.get(0).getString("project"), "com.example:app:jar:1.0");
+
+        List<RecordedEvent> transfers = events(events, "Transfer");
+        RecordedEvent jarTransfer = transfers.stream()
+                .filter(event -> event.getString("resource").endsWith("a-1.0.jar"))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        assertEquals(jarTransfer.getString("repository"), server.getUrl());
+        assertEquals(jarTransfer.getLong("bytes"), new File(repository.getArtifactDirectory("com.example", "a", "1.0"), "a-1.0.jar").length());
+        assertTrue(jarTransfer.getBoolean("succeeded"));
+        assertFalse(jarTransfer.getBoolean("upload"));
+
+        // each downloaded jar and POM is hashed once, later resolutions use the verified checksum index
+        List<RecordedEvent> verifications = events(events, "ChecksumVerification");
+        assertEquals(verifications.size(), 4);
+        assertTrue(verifications.stream().allMatch(event -> event.getBoolean("verified")));
+    }
+
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name)
+    {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals("io.airlift.resolver." + name))
+                .sorted(comparing(RecordedEvent::getStartTime))
+                .collect(toList());
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class LazyArtifactTest
+{
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer server;
+    private File localRepository;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:connector-a:1.0", "com.example:connector-b:1.0", "com.example:library:[1.0,2.0)")
+                .addArtifact("com.example:connector-a:1.0")
+                .addArtifact("com.example:connector-b:1.0", "com.example:library:1.0")
+                .addArtifact("com.example:library:1.0")
+                .addArtifact("com.example:library:1.1");
+        server = new TestingRepositoryServer(repository.getDirectory());
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        server.close();
+        repository.close();
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testSameArtifactsAsEager()
+    {
+        List<String> lazy = coordinates(resolver().resolveArtifactsLazily(new DefaultArtifact("com.example:app:1.0")));
+        assertEquals(server.getRequestCount(".jar"), 0);
+
+        List<String> eager = coordinates(resolver().resolveArtifacts(new DefaultArtifact("com.example:app:1.0")));
+        assertEquals(lazy, eager);
+        assertEquals(lazy, ImmutableList.of("app:1.0", "connector-a:1.0", "connector-b:1.0", "library:1.1"));
+    }
+
+    @Test
+    public void testDownloadOnFirstAccess()
+    {
+        List<Artifact> artifacts = resolver().resolveArtifactsLazily(new DefaultArtifact("com.example:app:1.0"));
+        assertEquals(server.getRequestCount(".jar"), 0);
+
+        Artifact connector = artifacts.get(1);
+        assertEquals(connector.getArtifactId(), "connector-a");
+        File file = connector.getFile();
+        assertTrue(file.isFile());
+        assertEquals(server.getRequestCount(".jar"), 1);
+        assertEquals(server.getRequestCount("/connector-a-1.0.jar"), 1);
+
+        assertEquals(connector.getFile(), file);
+        assertEquals(server.getRequestCount(".jar"), 1);
+    }
+
+    @Test
+    public void testConcurrentAccess()
+            throws Exception
+    {
+        Artifact connector = resolver().resolveArtifactsLazily(new DefaultArtifact("com.example:app:1.0")).get(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<File>> files = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                files.add(executor.submit(() -> {
+                    start.await();
+                    return connector.getFile();
+                }));
+            }
+            start.countDown();
+            for (Future<File> file : files) {
+                assertTrue(file.get().isFile());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        // the callers share a single resolution
+        assertEquals(server.getRequestCount("/connector-a-1.0.jar"), 1);
+    }
+
+    @Test
+    public void testMaterialize()
+    {
+        ArtifactResolver resolver = resolver();
+        List<Artifact> artifacts = resolver.resolveArtifactsLazily(new DefaultArtifact("com.example:app:1.0"));
+        artifacts.get(0).getFile();
+
+        List<Artifact> materialized = resolver.materialize(artifacts);
+        assertEquals(coordinates(materialized), coordinates(artifacts));
+        for (Artifact artifact : materialized) {
+            assertTrue(artifact.getFile().isFile(), artifact.toString());
+        }
+        assertEquals(server.getRequestCount(".jar"), 4);
+
+        // everything is resolved already
+        resolver.materialize(artifacts);
+        artifacts.forEach(Artifact::getFile);
+        assertEquals(server.getRequestCount(".jar"), 4);
+    }
+
+    @Test
+    public void testMissingFile()
+            throws IOException
+    {
+        List<Artifact> artifacts = resolver().resolveArtifactsLazily(new DefaultArtifact("com.example:app:1.0"));
+        Files.delete(new File(repository.getArtifactDirectory("com.example", "connector-a", "1.0"), "connector-a-1.0.jar").toPath());
+
+        assertNull(artifacts.get(1).getFile());
+        assertTrue(artifacts.get(2).getFile().isFile());
+    }
+
+    @Test
+    public void testRetryAfterMissingFile()
+            throws IOException
+    {
+        File jar = new File(repository.getArtifactDirectory("com.example", "connector-a", "1.0"), "connector-a-1.0.jar");
+        byte[] contents = Files.readAllBytes(jar.toPath());
+        ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()), new ArtifactResolverConfig()
+                .setUpdatePolicy(UpdatePolicy.always()));
+        List<Artifact> artifacts = resolver.resolveArtifactsLazily(new DefaultArtifact("com.example:app:1.0"));
+        Files.delete(jar.toPath());
+        assertNull(artifacts.get(1).getFile());
+
+        // the failure is remembered until the artifacts are materialized
+        Files.write(jar.toPath(), contents);
+        assertNull(artifacts.get(1).getFile());
+        List<Artifact> materialized = resolver.materialize(artifacts);
+        assertTrue(materialized.get(1).getFile().isFile());
+        assertTrue(artifacts.get(1).getFile().isFile());
+    }
+
+    @Test
+    public void testEquality()
+    {
+        List<Artifact> first = resolver().resolveArtifactsLazily(new DefaultArtifact("com.example:app:1.0"));
+        List<Artifact> second = resolver().resolveArtifactsLazily(new DefaultArtifact("com.example:app:1.0"));
+        int hashCode = first.get(1).hashCode();
+        assertEquals(first, second);
+        assertNotEquals(first.get(1), first.get(2));
+
+        // resolving the file does not change the identity of the artifact
+        assertTrue(first.get(1).getFile().isFile());
+        assertEquals(first.get(1).hashCode(), hashCode);
+        assertEquals(ImmutableSet.copyOf(second), ImmutableSet.copyOf(first));
+    }
+
+    private ArtifactResolver resolver()
+    {
+        return new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()));
+    }
+
+    private static List<String> coordinates(List<Artifact> artifacts)
+    {
+        return artifacts.stream()
+                .map(artifact -> artifact.getArtifactId() + ":" + artifact.getVersion())
+                .collect(toImmutableList());
+    }
+}
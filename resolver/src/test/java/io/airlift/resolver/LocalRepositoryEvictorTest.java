@@ -0,0 +1,303 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.internal.AccessLog;
+import io.airlift.resolver.internal.LocalRepositoryIndex;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.airlift.resolver.ArtifactResolver.ACCESS_LOG_FILE;
+import static io.airlift.resolver.ArtifactResolver.EVICTION_MARKER_FILE;
+import static io.airlift.resolver.ArtifactResolver.LOCAL_REPOSITORY_INDEX_FILE;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class LocalRepositoryEvictorTest
+{
+    private File localRepository;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedOrder()
+            throws IOException
+    {
+        createArtifact("com/example/a/1.0", 3);
+        createArtifact("com/example/b/1.0", 4);
+        createArtifact("com/example/c/1.0", 2);
+
+        EvictionResult result = new LocalRepositoryEvictor(localRepository).evict(200);
+        assertEquals(result.getEvictedDirectories(), 1);
+        assertEquals(result.getEvictedBytes(), 100);
+        assertEquals(result.getRemainingBytes(), 200);
+        assertEquals(result.getPinnedBytes(), 0);
+
+        assertTrue(exists("com/example/a/1.0"));
+        assertFalse(exists("com/example/b"));
+        assertTrue(exists("com/example/c/1.0"));
+        assertTrue(new File(localRepository, EVICTION_MARKER_FILE).isFile());
+
+        // already under the limit
+        result = new LocalRepositoryEvictor(localRepository).evict(200);
+        assertEquals(result.getEvictedDirectories(), 0);
+        assertEquals(result.getRemainingBytes(), 200);
+    }
+
+    @Test
+    public void testRecentlyUsedDirectoriesArePinned()
+            throws IOException
+    {
+        createArtifact("com/example/a/1.0", 3);
+        createArtifact("com/example/b/1.0", 4);
+        createArtifact("com/example/c/1.0", 0);
+
+        // a resolution recorded by another resolver pins a directory with old files
+        AccessLog accessLog = new AccessLog(localRepository.toPath().resolve(ACCESS_LOG_FILE));
+        accessLog.record("com/example/b/1.0");
+        accessLog.save();
+
+        EvictionResult result = new LocalRepositoryEvictor(localRepository).evict(0);
+        assertEquals(result.getEvictedDirectories(), 1);
+        assertEquals(result.getEvictedBytes(), 100);
+        assertEquals(result.getRemainingBytes(), 200);
+        assertEquals(result.getPinnedBytes(), 200);
+
+        assertFalse(exists("com/example/a"));
+        assertTrue(exists("com/example/b/1.0"));
+        assertTrue(exists("com/example/c/1.0"));
+
+        // without a pin duration everything goes, and the access log forgets it
+        result = new LocalRepositoryEvictor(localRepository, Duration.ZERO).evict(0);
+        assertEquals(result.getEvictedDirectories(), 2);
+        assertEquals(result.getRemainingBytes(), 0);
+        assertFalse(exists("com"));
+        assertTrue(new AccessLog(localRepository.toPath().resolve(ACCESS_LOG_FILE)).getAccessTimes().isEmpty());
+    }
+
+    @Test
+    public void testResolverReloadsEvictedArtifacts()
+            throws IOException
+    {
+        try (TestingMavenRepository repository = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:a:1.0")
+                .addArtifact("com.example:a:1.0");
+                TestingRepositoryServer server = new TestingRepositoryServer(repository.getDirectory())) {
+            ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()), new ArtifactResolverConfig()
+                    .setLocalRepositoryIndexMode(LocalRepositoryIndexMode.PERSISTENT)
+                    .setTrackAccessTimes(true));
+            assertResolved(resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0")));
+            assertTrue(new AccessLog(localRepository.toPath().resolve(ACCESS_LOG_FILE)).getAccessTimes().containsKey("com/example/a/1.0"));
+
+            // the resolution pins its artifacts
+            EvictionResult result = new LocalRepositoryEvictor(localRepository).evict(0);
+            assertEquals(result.getEvictedDirectories(), 0);
+            assertEquals(result.getPinnedBytes(), result.getRemainingBytes());
+
+            result = new LocalRepositoryEvictor(localRepository, Duration.ZERO).evict(0);
+            assertEquals(result.getEvictedDirectories(), 2);
+            assertFalse(exists("com/example/a/1.0/a-1.0.jar"));
+
+            // the indexed resolver notices the eviction and downloads the files again
+            server.resetStatistics();
+            assertResolved(resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0")));
+            assertTrue(server.getRequestCount(".jar") > 0);
+        }
+    }
+
+    @Test
+    public void testConcurrentEviction()
+            throws Exception
+    {
+        // the jar of b is only on the slow repository, so the resolution of app is still running after a is downloaded
+        try (TestingMavenRepository fast = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:a:1.0", "com.example:b:1.0")
+                .addArtifact("com.example:a:1.0")
+                .addArtifact("com.example:b:1.0")
+                .addArtifact("com.example:other:1.0");
+                TestingMavenRepository slow = new TestingMavenRepository()
+                        .addArtifact("com.example:b:1.0");
+                TestingRepositoryServer fastServer = new TestingRepositoryServer(fast.getDirectory());
+                TestingRepositoryServer slowServer = new TestingRepositoryServer(slow.getDirectory()).setLatency(Duration.ofSeconds(2))) {
+            Files.delete(new File(fast.getArtifactDirectory("com.example", "b", "1.0"), "b-1.0.jar").toPath());
+            ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(fastServer.getUrl(), slowServer.getUrl()));
+
+            ExecutorService executor = newSingleThreadExecutor();
+            try {
+                Future<List<Artifact>> resolution = executor.submit(() -> resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0")));
+                File jar = new File(localRepository, "com/example/a/1.0/a-1.0.jar");
+                while (!jar.exists()) {
+                    assertFalse(resolution.isDone(), "resolution finished before the eviction");
+                    MILLISECONDS.sleep(10);
+                }
+
+                // evict the jar the way the evictor does, then resolve something else, which sees the eviction first
+                Files.delete(jar.toPath());
+                Files.write(localRepository.toPath().resolve(EVICTION_MARKER_FILE), Long.toString(System.currentTimeMillis()).getBytes(US_ASCII));
+                assertEquals(resolver.resolveArtifacts(new DefaultArtifact("com.example:other:1.0")).size(), 1);
+                assertFalse(resolution.isDone(), "resolution finished before the other one");
+
+                List<Artifact> artifacts = resolution.get();
+                assertEquals(artifacts.size(), 3);
+                for (Artifact artifact : artifacts) {
+                    assertTrue(artifact.getFile() != null && artifact.getFile().isFile(), artifact.toString());
+                }
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    public void testIndexIsPruned()
+            throws IOException
+    {
+        createArtifact("com/example/a/1.0", 3);
+        createArtifact("com/example/b/1.0", 4);
+        Path indexFile = localRepository.toPath().resolve(LOCAL_REPOSITORY_INDEX_FILE);
+        LocalRepositoryIndex index = new LocalRepositoryIndex(localRepository.toPath(), indexFile);
+        for (String directory : ImmutableList.of("com/example/a/1.0", "com/example/b/1.0")) {
+            index.add(directory + "/artifact.jar");
+            index.add(directory + "/artifact.pom");
+        }
+        index.save();
+
+        assertEquals(new LocalRepositoryEvictor(localRepository).evict(100).getEvictedDirectories(), 1);
+
+        // the evicted files are gone from the index, not just from the repository
+        LocalRepositoryIndex loaded = new LocalRepositoryIndex(localRepository.toPath(), indexFile);
+        assertEquals(loaded.check(), 0);
+        assertTrue(loaded.contains("com/example/a/1.0/artifact.jar"));
+        assertFalse(loaded.contains("com/example/b/1.0/artifact.jar"));
+    }
+
+    @Test
+    public void testConcurrentAccessLogs()
+            throws Exception
+    {
+        // every writer merges into the file under the lock, so no access is lost
+        ExecutorService executor = newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int writer = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 20; j++) {
+                        AccessLog accessLog = new AccessLog(localRepository.toPath().resolve(ACCESS_LOG_FILE));
+                        accessLog.record("com/example/a" + writer + "/1." + j);
+                        accessLog.save();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        assertEquals(new AccessLog(localRepository.toPath().resolve(ACCESS_LOG_FILE)).getAccessTimes().size(), 160);
+    }
+
+    @Test
+    public void testParseSize()
+    {
+        assertEquals(Main.parseSize("512"), 512);
+        assertEquals(Main.parseSize("2k"), 2048);
+        assertEquals(Main.parseSize("3M"), 3L << 20);
+        assertEquals(Main.parseSize("10G"), 10L << 30);
+        assertEquals(Main.parseSize("1T"), 1L << 40);
+
+        assertInvalidSize("", "Size is empty");
+        assertInvalidSize("G", "Invalid size: G");
+        assertInvalidSize("ten", "Invalid size: ten");
+        assertInvalidSize("-1K", "Size is negative: -1K");
+        assertInvalidSize("9000000T", "Size is too large: 9000000T");
+    }
+
+    private static void assertInvalidSize(String size, String message)
+    {
+        try {
+            Main.parseSize(size);
+            fail("expected IllegalArgumentException for " + size);
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), message);
+        }
+    }
+
+    private void createArtifact(String directory, int hoursAgo)
+            throws IOException
+    {
+        Path path = localRepository.toPath().resolve(directory);
+        Files.createDirectories(path);
+        long lastModified = System.currentTimeMillis() - HOURS.toMillis(hoursAgo);
+        for (String name : ImmutableList.of("artifact.jar", "artifact.pom")) {
+            File file = path.resolve(name).toFile();
+            Files.write(file.toPath(), new byte[50]);
+            assertTrue(file.setLastModified(lastModified));
+        }
+    }
+
+    private boolean exists(String path)
+    {
+        return new File(localRepository, path).exists();
+    }
+
+    private static void assertResolved(List<Artifact> artifacts)
+    {
+        assertEquals(artifacts.size(), 2);
+        for (Artifact artifact : artifacts) {
+            assertTrue(artifact.getFile() != null && artifact.getFile().isFile(), artifact.toString());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.internal.LocalRepositoryIndex;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.airlift.resolver.ArtifactResolver.LOCAL_REPOSITORY_INDEX_FILE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class LocalRepositoryIndexModeTest
+{
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer server;
+    private File localRepository;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:a:1.0")
+                .addArtifact("com.example:a:1.0");
+        server = new TestingRepositoryServer(repository.getDirectory());
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        server.close();
+        repository.close();
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testPersistentIndex()
+    {
+        assertResolved(resolver(LocalRepositoryIndexMode.PERSISTENT).resolveArtifacts(new DefaultArtifact("com.example:app:1.0")));
+        File indexFile = new File(localRepository, LOCAL_REPOSITORY_INDEX_FILE);
+        assertTrue(indexFile.isFile());
+
+        // downloaded files are recorded as they land
+        LocalRepositoryIndex index = new LocalRepositoryIndex(localRepository.toPath(), indexFile.toPath());
+        assertTrue(index.contains("com/example/app/1.0/app-1.0.jar"));
+        assertTrue(index.contains("com/example/a/1.0/a-1.0.pom"));
+        assertFalse(index.contains("com/example/b/1.0/b-1.0.jar"));
+
+        server.resetStatistics();
+        assertResolved(resolver(LocalRepositoryIndexMode.PERSISTENT).resolveArtifacts(new DefaultArtifact("com.example:app:1.0")));
+        assertEquals(server.getRequestCount(""), 0);
+    }
+
+    @Test
+    public void testMemoryIndex()
+    {
+        ArtifactResolver resolver = resolver(LocalRepositoryIndexMode.MEMORY);
+        assertResolved(resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0")));
+        assertFalse(new File(localRepository, LOCAL_REPOSITORY_INDEX_FILE).exists());
+
+        server.resetStatistics();
+        assertResolved(resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0")));
+        assertEquals(server.getRequestCount(""), 0);
+    }
+
+    @Test
+    public void testDeletedFile()
+            throws IOException
+    {
+        for (LocalRepositoryIndexMode mode : LocalRepositoryIndexMode.values()) {
+            ArtifactResolver resolver = resolver(mode);
+            assertResolved(resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0")));
+            File jar = new File(localRepository, "com/example/a/1.0/a-1.0.jar");
+            Files.delete(jar.toPath());
+
+            // the indexed file is downloaded again, by the same resolver and by a new one
+            server.resetStatistics();
+            assertResolved(resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0")));
+            assertEquals(server.getRequestCount("/a-1.0.jar"), 1, mode.toString());
+            Files.delete(jar.toPath());
+            assertResolved(resolver(mode).resolveArtifacts(new DefaultArtifact("com.example:app:1.0")));
+            assertEquals(server.getRequestCount("/a-1.0.jar"), 2, mode.toString());
+        }
+    }
+
+    private ArtifactResolver resolver(LocalRepositoryIndexMode mode)
+    {
+        return new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()), new ArtifactResolverConfig()
+                .setLocalRepositoryIndexMode(mode));
+    }
+
+    private static void assertResolved(List<Artifact> artifacts)
+    {
+        assertEquals(artifacts.size(), 2);
+        for (Artifact artifact : artifacts) {
+            assertTrue(artifact.getFile() != null && artifact.getFile().isFile(), artifact.toString());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Bytes;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class PackageIndexerTest
+{
+    private File tempDir;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        tempDir = Files.createTempDirectory("package-indexer").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(tempDir.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testIndex()
+            throws IOException
+    {
+        Artifact api = artifact("api", "com/example/api/Api.class", "com/example/spi/Spi.class", "META-INF/MANIFEST.MF", "module-info.class");
+        Artifact impl = artifact("impl", "com/example/impl/Impl.class", "com/example/spi/Other.class", "META-INF/versions/9/com/example/impl/Java9.class");
+        Artifact missing = new DefaultArtifact("com.example:missing:1.0");
+
+        PackageIndex index = new PackageIndexer(new File(tempDir, "cache"), 2).index(ImmutableList.of(api, impl, missing));
+
+        assertEquals(index.getPackages(), ImmutableSet.of("com.example.api", "com.example.spi", "com.example.impl"));
+        assertEquals(index.getArtifacts("com.example.spi"), ImmutableList.of(api, impl));
+        assertEquals(index.getPackages(impl), ImmutableSet.of("com.example.impl", "com.example.spi"));
+        assertEquals(index.getSplitPackages(), ImmutableMap.of("com.example.spi", ImmutableList.of(api, impl)));
+    }
+
+    @Test
+    public void testCached()
+            throws IOException
+    {
+        File cacheDirectory = new File(tempDir, "cache");
+        Artifact artifact = artifact("cached", "com/example/cached/Cached.class");
+        assertEquals(new PackageIndexer(cacheDirectory).index(ImmutableList.of(artifact)).getPackages(), ImmutableSet.of("com.example.cached"));
+
+        // the jar is not reopened while it is unchanged
+        File[] cacheFiles = cacheDirectory.listFiles();
+        assertEquals(cacheFiles.length, 1);
+        Files.write(cacheFiles[0].toPath(), "com.example.fromcache\n".getBytes(UTF_8));
+        assertEquals(new PackageIndexer(cacheDirectory).index(ImmutableList.of(artifact)).getPackages(), ImmutableSet.of("com.example.fromcache"));
+
+        // a rewritten jar is read again
+        artifact("cached", "com/example/changed/Changed.class", "com/example/changed/Other.class");
+        assertTrue(artifact.getFile().setLastModified(artifact.getFile().lastModified() + 10_000));
+        assertEquals(new PackageIndexer(cacheDirectory).index(ImmutableList.of(artifact)).getPackages(), ImmutableSet.of("com.example.changed"));
+    }
+
+    @Test
+    public void testNotZipFile()
+            throws IOException
+    {
+        Artifact jar = artifact("library", "com/example/library/Library.class");
+        File pomFile = new File(tempDir, "library.pom");
+        Files.write(pomFile.toPath(), "<project/>".getBytes(UTF_8));
+        Artifact pom = new DefaultArtifact("com.example", "library", null, "pom", "1.0", null, pomFile);
+        File emptyFile = new File(tempDir, "empty.tar.gz");
+        Files.write(emptyFile.toPath(), new byte[0]);
+        Artifact empty = new DefaultArtifact("com.example", "empty", null, "tar.gz", "1.0", null, emptyFile);
+
+        PackageIndex index = new PackageIndexer(new File(tempDir, "cache")).index(ImmutableList.of(pom, jar, empty));
+        assertEquals(index.getPackages(), ImmutableSet.of("com.example.library"));
+        assertEquals(index.getPackages(pom), ImmutableSet.of());
+    }
+
+    @Test
+    public void testCorruptCentralDirectory()
+            throws IOException
+    {
+        Artifact artifact = artifact("corrupt", "com/example/corrupt/Corrupt.class");
+        byte[] bytes = Files.readAllBytes(artifact.getFile().toPath());
+        int header = Bytes.indexOf(bytes, new byte[] {0x50, 0x4b, 0x01, 0x02});
+        assertTrue(header > 0);
+        // a name length past the end of the central directory
+        bytes[header + 28] = (byte) 0xFF;
+        bytes[header + 29] = (byte) 0xFF;
+        Files.write(artifact.getFile().toPath(), bytes);
+
+        try {
+            new PackageIndexer(new File(tempDir, "cache")).index(ImmutableList.of(artifact));
+            fail("expected exception");
+        }
+        catch (RuntimeException e) {
+            assertEquals(e.getMessage(), "Error indexing packages");
+            assertTrue(e.getCause() instanceof IOException, String.valueOf(e.getCause()));
+        }
+    }
+
+    @Test
+    public void testDirectory()
+            throws IOException
+    {
+        File classes = new File(tempDir, "classes");
+        File classFile = new File(classes, "com/example/local/Local.class");
+        Files.createDirectories(classFile.getParentFile().toPath());
+        Files.write(classFile.toPath(), new byte[0]);
+        Artifact artifact = new DefaultArtifact("com.example", "local", null, "jar", "1.0", null, classes);
+
+        PackageIndex index = new PackageIndexer(new File(tempDir, "cache")).index(ImmutableList.of(artifact));
+        assertEquals(index.getPackages(), ImmutableSet.of("com.example.local"));
+    }
+
+    private Artifact artifact(String name, String... entries)
+            throws IOException
+    {
+        File jar = new File(tempDir, name + ".jar");
+        try (OutputStream out = new FileOutputStream(jar);
+                JarOutputStream jarOut = new JarOutputStream(out)) {
+            for (String entry : entries) {
+                jarOut.putNextEntry(new ZipEntry(entry));
+                jarOut.write(entry.getBytes(UTF_8));
+                jarOut.closeEntry();
+            }
+        }
+        return new DefaultArtifact("com.example", name, null, "jar", "1.0", null, jar);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ParallelDependencyCollectorTest
+{
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer server;
+    private File tempDir;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                // c is reached at depth two through a, and at depth three, in a newer version, through b
+                .addArtifact("com.example:app:1.0", "com.example:a:1.0", "com.example:b:1.0", "com.example:ranged:[1.0,2.0)", "com.example:tested:1.0:test")
+                .addArtifact("com.example:a:1.0", "com.example:c:1.0", "com.example:cycle:1.0")
+                .addArtifact("com.example:b:1.0", "com.example:d:1.0", "com.example:e:1.0")
+                .addArtifact("com.example:c:1.0")
+                .addArtifact("com.example:c:2.0", "com.example:f:1.0")
+                .addArtifact("com.example:d:1.0", "com.example:c:2.0")
+                .addArtifact("com.example:e:1.0", "com.example:f:1.0:provided")
+                .addArtifact("com.example:f:1.0")
+                .addArtifact("com.example:cycle:1.0", "com.example:a:1.0")
+                .addArtifact("com.example:ranged:1.0")
+                .addArtifact("com.example:ranged:1.5", "com.example:g:1.0")
+                .addArtifact("com.example:ranged:2.0")
+                .addArtifact("com.example:g:1.0", "com.example:f:1.0:runtime")
+                .addArtifact("com.example:tested:1.0");
+        server = new TestingRepositoryServer(repository.getDirectory());
+        tempDir = Files.createTempDirectory("parallel-collector").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        server.close();
+        repository.close();
+        deleteRecursively(tempDir.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testSameArtifacts()
+    {
+        List<String> expected = assertSameArtifacts(resolver -> resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0")));
+        assertEquals(expected, ImmutableList.of(
+                "com.example:app:1.0",
+                "com.example:a:1.0",
+                "com.example:c:1.0",
+                "com.example:cycle:1.0",
+                "com.example:b:1.0",
+                "com.example:d:1.0",
+                "com.example:e:1.0",
+                "com.example:ranged:1.5",
+                "com.example:g:1.0",
+                "com.example:f:1.0"));
+    }
+
+    @Test
+    public void testSameArtifactsWithPruning()
+    {
+        assertSameArtifacts(resolver -> resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0")), config -> config
+                .setScopes(ImmutableSet.of("compile"))
+                .addExclusion("com.example", "g"));
+    }
+
+    @Test
+    public void testSameArtifactsWithManagedDependencies()
+            throws IOException
+    {
+        File pomFile = new File(tempDir, "pom.xml");
+        Files.write(pomFile.toPath(), ("" +
+                "<project>\n" +
+                "  <modelVersion>4.0.0</modelVersion>\n" +
+                "  <groupId>com.example</groupId>\n" +
+                "  <artifactId>project</artifactId>\n" +
+                "  <version>1.0</version>\n" +
+                "  <dependencyManagement>\n" +
+                "    <dependencies>\n" +
+                "      <dependency>\n" +
+                "        <groupId>com.example</groupId>\n" +
+                "        <artifactId>c</artifactId>\n" +
+                "        <version>2.0</version>\n" +
+                "      </dependency>\n" +
+                "    </dependencies>\n" +
+                "  </dependencyManagement>\n" +
+                "  <dependencies>\n" +
+                "    <dependency>\n" +
+                "      <groupId>com.example</groupId>\n" +
+                "      <artifactId>app</artifactId>\n" +
+                "      <version>1.0</version>\n" +
+                "    </dependency>\n" +
+                "  </dependencies>\n" +
+                "  <repositories>\n" +
+                "    <repository>\n" +
+                "      <id>testing</id>\n" +
+                "      <url>" + server.getUrl() + "</url>\n" +
+                "    </repository>\n" +
+                "  </repositories>\n" +
+                "</project>\n").getBytes(UTF_8));
+
+        List<String> expected = assertSameArtifacts(resolver -> resolver.resolvePom(pomFile));
+        assertTrue(expected.contains("com.example:c:2.0"), expected.toString());
+    }
+
+    @Test
+    public void testDescriptorsAreReadConcurrently()
+    {
+        server.setLatency(Duration.ofMillis(50));
+
+        // lazy resolution only collects, so every request is for a POM or metadata
+        resolver("sequential", config -> config).resolveArtifactsLazily(new DefaultArtifact("com.example:app:1.0"));
+        int sequentialConcurrency = server.getMaxConcurrentRequests();
+        int requests = server.getRequestCount(".pom");
+
+        server.resetStatistics();
+        resolver("parallel", config -> config.setCollectionThreads(8)).resolveArtifactsLazily(new DefaultArtifact("com.example:app:1.0"));
+        int parallelConcurrency = server.getMaxConcurrentRequests();
+        assertTrue(parallelConcurrency > sequentialConcurrency, "concurrent requests: " + parallelConcurrency + ", sequentially: " + sequentialConcurrency);
+        assertEquals(server.getRequestCount(".pom"), requests);
+    }
+
+    private List<String> assertSameArtifacts(Function<ArtifactResolver, List<Artifact>> resolution)
+    {
+        return assertSameArtifacts(resolution, config -> config);
+    }
+
+    /**
+     * Resolves with each collector into an empty local repository, and returns the
+     * coordinates of the artifacts, which must be the same, in the same order.
+     */
+    private List<String> assertSameArtifacts(Function<ArtifactResolver, List<Artifact>> resolution, Function<ArtifactResolverConfig, ArtifactResolverConfig> configuration)
+    {
+        List<Artifact> sequential = resolution.apply(resolver("sequential", configuration));
+        List<Artifact> parallel = resolution.apply(resolver("parallel", config -> configuration.apply(config).setCollectionThreads(8)));
+        assertEquals(coordinates(parallel), coordinates(sequential));
+        for (Artifact artifact : parallel) {
+            assertTrue(artifact.getFile() != null, artifact.getArtifactId());
+        }
+        return coordinates(sequential);
+    }
+
+    private ArtifactResolver resolver(String name, Function<ArtifactResolverConfig, ArtifactResolverConfig> configuration)
+    {
+        ArtifactResolverConfig config = new ArtifactResolverConfig()
+                .setDescriptorCache(new ArtifactDescriptorCache(1000));
+        return new ArtifactResolver(new File(tempDir, name).getPath(), ImmutableList.of(server.getUrl()), configuration.apply(config));
+    }
+
+    private static List<String> coordinates(List<Artifact> artifacts)
+    {
+        return artifacts.stream()
+                .map(artifact -> artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion())
+                .collect(toImmutableList());
+    }
+}
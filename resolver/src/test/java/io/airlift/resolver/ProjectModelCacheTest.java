@@ -0,0 +1,195 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.internal.ProjectModelCache;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class ProjectModelCacheTest
+{
+    private TestingMavenRepository localRepository;
+    private File reactor;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        localRepository = new TestingMavenRepository()
+                .addArtifact("com.example:library:1.0")
+                .addArtifact("com.example:library:2.0");
+        writeBom("1.0");
+        writeBom("2.0");
+
+        reactor = Files.createTempDirectory("reactor").toFile();
+        writeParent("1.0");
+        for (String module : ImmutableList.of("a", "b", "c")) {
+            write(new File(reactor, module + "/pom.xml"), "" +
+                    "<project>\n" +
+                    "  <modelVersion>4.0.0</modelVersion>\n" +
+                    "  <parent>\n" +
+                    "    <groupId>com.example</groupId>\n" +
+                    "    <artifactId>parent</artifactId>\n" +
+                    "    <version>1.0-SNAPSHOT</version>\n" +
+                    "  </parent>\n" +
+                    "  <artifactId>" + module + "</artifactId>\n" +
+                    "  <dependencies>\n" +
+                    "    <dependency>\n" +
+                    "      <groupId>com.example</groupId>\n" +
+                    "      <artifactId>library</artifactId>\n" +
+                    "    </dependency>\n" +
+                    "  </dependencies>\n" +
+                    "</project>\n");
+        }
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        localRepository.close();
+        deleteRecursively(reactor.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testSharedAcrossProjects()
+    {
+        ArtifactResolver resolver = new ArtifactResolver(localRepository.getDirectory().getPath(), ImmutableList.of());
+
+        assertEquals(resolve(resolver, "a"), ImmutableList.of("a:1.0-SNAPSHOT", "library:1.0"));
+        // the parent and BOM are parsed once for all three modules
+        long parseCount = resolver.getProjectModelCache().getParseCount();
+        assertEquals(parseCount, 5);
+        assertTrue(resolver.getProjectModelCache().getHitCount() > 0);
+
+        assertEquals(resolve(resolver, "b"), ImmutableList.of("b:1.0-SNAPSHOT", "library:1.0"));
+        assertEquals(resolver.getProjectModelCache().getParseCount(), parseCount);
+    }
+
+    @Test
+    public void testModifiedParent()
+            throws IOException
+    {
+        ArtifactResolver resolver = new ArtifactResolver(localRepository.getDirectory().getPath(), ImmutableList.of());
+        assertEquals(resolve(resolver, "a"), ImmutableList.of("a:1.0-SNAPSHOT", "library:1.0"));
+
+        File parent = writeParent("2.0");
+        assertTrue(parent.setLastModified(parent.lastModified() + 10_000));
+        assertEquals(resolve(resolver, "a"), ImmutableList.of("a:1.0-SNAPSHOT", "library:2.0"));
+        long models = resolver.getProjectModelCache().getModelCount();
+
+        // the model of a changed file replaces the old one
+        parent = writeParent("1.0");
+        assertTrue(parent.setLastModified(parent.lastModified() + 20_000));
+        assertEquals(resolve(resolver, "a"), ImmutableList.of("a:1.0-SNAPSHOT", "library:1.0"));
+        assertEquals(resolver.getProjectModelCache().getModelCount(), models);
+    }
+
+    @Test
+    public void testSnapshotsNotCached()
+    {
+        ProjectModelCache cache = new ProjectModelCache();
+        for (String tag : ImmutableList.of("raw", "import")) {
+            cache.put("com.example", "parent", "1.0-SNAPSHOT", tag, "snapshot");
+            assertNull(cache.get("com.example", "parent", "1.0-SNAPSHOT", tag));
+
+            cache.put("com.example", "parent", "1.0", tag, "release");
+            assertEquals(cache.get("com.example", "parent", "1.0", tag), "release");
+        }
+    }
+
+    private List<String> resolve(ArtifactResolver resolver, String module)
+    {
+        return resolver.resolvePom(new File(reactor, module + "/pom.xml")).stream()
+                .map(artifact -> artifact.getArtifactId() + ":" + artifact.getVersion())
+                .collect(toImmutableList());
+    }
+
+    private File writeParent(String bomVersion)
+            throws IOException
+    {
+        File file = new File(reactor, "pom.xml");
+        write(file, "" +
+                "<project>\n" +
+                "  <modelVersion>4.0.0</modelVersion>\n" +
+                "  <groupId>com.example</groupId>\n" +
+                "  <artifactId>parent</artifactId>\n" +
+                "  <version>1.0-SNAPSHOT</version>\n" +
+                "  <packaging>pom</packaging>\n" +
+                "  <modules>\n" +
+                "    <module>a</module>\n" +
+                "    <module>b</module>\n" +
+                "    <module>c</module>\n" +
+                "  </modules>\n" +
+                "  <dependencyManagement>\n" +
+                "    <dependencies>\n" +
+                "      <dependency>\n" +
+                "        <groupId>com.example</groupId>\n" +
+                "        <artifactId>bom</artifactId>\n" +
+                "        <version>" + bomVersion + "</version>\n" +
+                "        <type>pom</type>\n" +
+                "        <scope>import</scope>\n" +
+                "      </dependency>\n" +
+                "    </dependencies>\n" +
+                "  </dependencyManagement>\n" +
+                "</project>\n");
+        return file;
+    }
+
+    private void writeBom(String version)
+            throws IOException
+    {
+        File directory = localRepository.getArtifactDirectory("com.example", "bom", version);
+        write(new File(directory, "bom-" + version + ".pom"), "" +
+                "<project>\n" +
+                "  <modelVersion>4.0.0</modelVersion>\n" +
+                "  <groupId>com.example</groupId>\n" +
+                "  <artifactId>bom</artifactId>\n" +
+                "  <version>" + version + "</version>\n" +
+                "  <packaging>pom</packaging>\n" +
+                "  <dependencyManagement>\n" +
+                "    <dependencies>\n" +
+                "      <dependency>\n" +
+                "        <groupId>com.example</groupId>\n" +
+                "        <artifactId>library</artifactId>\n" +
+                "        <version>" + version + "</version>\n" +
+                "      </dependency>\n" +
+                "    </dependencies>\n" +
+                "  </dependencyManagement>\n" +
+                "</project>\n");
+    }
+
+    private static void write(File file, String contents)
+            throws IOException
+    {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), contents.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ReactorResolutionTest
+{
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer server;
+    private File localRepository;
+    private File project;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:a:1.0", "com.example:c:1.0")
+                .addArtifact("com.example:b:1.0")
+                .addArtifact("com.example:c:1.0");
+        server = new TestingRepositoryServer(repository.getDirectory());
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+        project = Files.createTempDirectory("reactor").toFile();
+
+        // the repository replaces Maven Central, so the project is resolved without network access
+        writePom("pom.xml", "" +
+                "  <groupId>com.example.reactor</groupId>\n" +
+                "  <artifactId>root</artifactId>\n" +
+                "  <version>1.0</version>\n" +
+                "  <packaging>pom</packaging>\n" +
+                "  <modules>\n" +
+                "    <module>lib</module>\n" +
+                "    <module>app</module>\n" +
+                "    <module>tools</module>\n" +
+                "  </modules>\n" +
+                "  <repositories>\n" +
+                "    <repository>\n" +
+                "      <id>central</id>\n" +
+                "      <url>" + server.getUrl() + "</url>\n" +
+                "    </repository>\n" +
+                "  </repositories>\n");
+        writePom("lib/pom.xml", "" +
+                parent("root") +
+                "  <artifactId>lib</artifactId>\n" +
+                dependencies("com.example:a:1.0"));
+        writePom("app/pom.xml", "" +
+                parent("root") +
+                "  <artifactId>app</artifactId>\n" +
+                dependencies("com.example.reactor:lib:1.0", "com.example:b:1.0"));
+        writePom("tools/pom.xml", "" +
+                parent("root") +
+                "  <artifactId>tools</artifactId>\n" +
+                "  <packaging>pom</packaging>\n" +
+                "  <modules>\n" +
+                "    <module>cli</module>\n" +
+                "  </modules>\n");
+        writePom("tools/cli/pom.xml", "" +
+                parent("tools") +
+                "  <artifactId>cli</artifactId>\n" +
+                dependencies("com.example.reactor:app:1.0"));
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        server.close();
+        repository.close();
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+        deleteRecursively(project.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testResolveReactor()
+    {
+        ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()));
+        Map<Artifact, List<Artifact>> reactor = resolver.resolveReactor(new File(project, "pom.xml"));
+
+        assertEquals(artifactIds(ImmutableList.copyOf(reactor.keySet())), ImmutableList.of("root", "lib", "app", "tools", "cli"));
+        for (Map.Entry<Artifact, List<Artifact>> entry : reactor.entrySet()) {
+            assertEquals(entry.getValue().get(0), entry.getKey());
+        }
+
+        Map<String, List<Artifact>> modules = reactor.values().stream()
+                .collect(toImmutableMap(artifacts -> artifacts.get(0).getArtifactId(), artifacts -> artifacts));
+        assertEquals(artifactIds(modules.get("root")), ImmutableList.of("root"));
+        assertEquals(artifactIds(modules.get("lib")), ImmutableList.of("lib", "a", "c"));
+        // projects in the reactor bring the dependencies declared in their POMs
+        assertEquals(artifactIds(modules.get("app")), ImmutableList.of("app", "lib", "a", "c", "b"));
+        assertEquals(artifactIds(modules.get("cli")), ImmutableList.of("cli", "app", "lib", "a", "c", "b"));
+
+        // projects in the reactor are resolved to their output directories, other artifacts are downloaded
+        assertEquals(modules.get("app").get(1).getFile().getAbsoluteFile(), new File(project, "lib/target/classes").getAbsoluteFile());
+        assertEquals(modules.get("cli").get(1).getFile().getAbsoluteFile(), new File(project, "app/target/classes").getAbsoluteFile());
+        assertTrue(modules.get("lib").get(1).getFile().isFile());
+        assertTrue(modules.get("app").get(4).getFile().isFile());
+    }
+
+    @Test
+    public void testProjectsAreNotRequested()
+    {
+        ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()));
+        List<Artifact> artifacts = resolver.resolvePom(new File(project, "app/pom.xml"));
+
+        assertEquals(artifactIds(artifacts), ImmutableList.of("app", "lib", "a", "c", "b"));
+        assertEquals(artifacts.get(1).getFile().getAbsoluteFile(), new File(project, "lib/target/classes").getAbsoluteFile());
+        assertTrue(server.getRequestedPaths().stream().noneMatch(path -> path.contains("/reactor/")), server.getRequestedPaths().toString());
+    }
+
+    @Test
+    public void testMatchesResolvePom()
+    {
+        ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()));
+        Map<Artifact, List<Artifact>> reactor = resolver.resolveReactor(new File(project, "pom.xml"));
+
+        List<Artifact> app = reactor.values().stream()
+                .filter(artifacts -> artifacts.get(0).getArtifactId().equals("app"))
+                .findFirst()
+                .get();
+        assertEquals(app, resolver.resolvePom(new File(project, "app/pom.xml")));
+    }
+
+    @Test
+    public void testReactorOrder()
+            throws IOException
+    {
+        // modules come after the projects they depend on, whatever order they are declared in
+        writePom("ordered/pom.xml", aggregator("ordered", "server", "client", "common"));
+        writePom("ordered/server/pom.xml", parent("ordered") + "  <artifactId>server</artifactId>\n" + dependencies("com.example.reactor:client:1.0"));
+        writePom("ordered/client/pom.xml", parent("ordered") + "  <artifactId>client</artifactId>\n" + dependencies("com.example.reactor:common:1.0"));
+        writePom("ordered/common/pom.xml", parent("ordered") + "  <artifactId>common</artifactId>\n");
+
+        ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()));
+        Map<Artifact, List<Artifact>> reactor = resolver.resolveReactor(new File(project, "ordered/pom.xml"));
+        assertEquals(artifactIds(ImmutableList.copyOf(reactor.keySet())), ImmutableList.of("ordered", "common", "client", "server"));
+    }
+
+    @Test
+    public void testDependencyCycle()
+            throws IOException
+    {
+        writePom("cycle/pom.xml", aggregator("cycle", "first", "second"));
+        writePom("cycle/first/pom.xml", parent("cycle") + "  <artifactId>first</artifactId>\n" + dependencies("com.example.reactor:second:1.0"));
+        writePom("cycle/second/pom.xml", parent("cycle") + "  <artifactId>second</artifactId>\n" + dependencies("com.example.reactor:first:1.0"));
+
+        ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()));
+        try {
+            resolver.resolveReactor(new File(project, "cycle/pom.xml"));
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "The projects of the reactor contain a cycle: " +
+                    "com.example.reactor:first:1.0 -> com.example.reactor:second:1.0 -> com.example.reactor:first:1.0");
+        }
+    }
+
+    @Test
+    public void testModuleCycle()
+            throws IOException
+    {
+        writePom("modules/pom.xml", aggregator("modules", "child"));
+        writePom("modules/child/pom.xml", "" +
+                parent("modules") +
+                "  <artifactId>child</artifactId>\n" +
+                "  <packaging>pom</packaging>\n" +
+                "  <modules>\n" +
+                "    <module>..</module>\n" +
+                "  </modules>\n");
+
+        ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()));
+        try {
+            resolver.resolveReactor(new File(project, "modules/pom.xml"));
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e) {
+            File root = new File(project, "modules/pom.xml").getCanonicalFile();
+            File child = new File(project, "modules/child/pom.xml").getCanonicalFile();
+            assertEquals(e.getMessage(), "The modules of the reactor contain a cycle: " + root + " -> " + child + " -> " + root);
+        }
+    }
+
+    private void writePom(String path, String content)
+            throws IOException
+    {
+        File file = new File(project, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        String pom = "" +
+                "<project>\n" +
+                "  <modelVersion>4.0.0</modelVersion>\n" +
+                content +
+                "</project>\n";
+        Files.write(file.toPath(), pom.getBytes(UTF_8));
+    }
+
+    private String aggregator(String artifactId, String... modules)
+    {
+        StringBuilder pom = new StringBuilder()
+                .append(parent("root"))
+                .append("  <artifactId>").append(artifactId).append("</artifactId>\n")
+                .append("  <packaging>pom</packaging>\n")
+                .append("  <modules>\n");
+        for (String module : modules) {
+            pom.append("    <module>").append(module).append("</module>\n");
+        }
+        return pom.append("  </modules>\n").toString();
+    }
+
+    private static String parent(String artifactId)
+    {
+        return "" +
+                "  <parent>\n" +
+                "    <groupId>com.example.reactor</groupId>\n" +
+                "    <artifactId>" + artifactId + "</artifactId>\n" +
+                "    <version>1.0</version>\n" +
+                "  </parent>\n";
+    }
+
+    private static String dependencies(String... coordinates)
+    {
+        StringBuilder dependencies = new StringBuilder("  <dependencies>\n");
+        for (String dependency : coordinates) {
+            String[] parts = dependency.split(":");
+            dependencies.append("    <dependency>\n")
+                    .append("      <groupId>").append(parts[0]).append("</groupId>\n")
+                    .append("      <artifactId>").append(parts[1]).append("</artifactId>\n")
+                    .append("      <version>").append(parts[2]).append("</version>\n")
+                    .append("    </dependency>\n");
+        }
+        return dependencies.append("  </dependencies>\n").toString();
+    }
+
+    private static List<String> artifactIds(List<Artifact> artifacts)
+    {
+        return artifacts.stream()
+                .map(Artifact::getArtifactId)
+                .collect(toImmutableList());
+    }
+}
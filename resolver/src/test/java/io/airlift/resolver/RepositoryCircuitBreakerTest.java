@@ -0,0 +1,201 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.RepositoryHealth.State;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class RepositoryCircuitBreakerTest
+{
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer broken;
+    private TestingRepositoryServer server;
+    private File localRepository;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:a:1.0", "com.example:b:1.0")
+                .addArtifact("com.example:a:1.0")
+                .addArtifact("com.example:b:1.0")
+                .addArtifact("com.example:other:1.0");
+        broken = new TestingRepositoryServer(repository.getDirectory())
+                .dropRequests(Integer.MAX_VALUE);
+        server = new TestingRepositoryServer(repository.getDirectory());
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        broken.close();
+        server.close();
+        repository.close();
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testSkipBrokenRepository()
+    {
+        ArtifactResolver resolver = resolver(ImmutableList.of(broken.getUrl(), server.getUrl()), new ArtifactResolverConfig()
+                .setRepositoryFailureThreshold(2)
+                .setRepositoryCooldown(Duration.ofMinutes(10))
+                .setTransferRetries(1)
+                .setTransferRetryBackoff(Duration.ofMillis(10)));
+
+        assertResolved(resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0")), 3);
+        RepositoryHealth health = resolver.getRepositoryHealth().get(broken.getUrl());
+        assertEquals(health.getState(), State.OPEN);
+        assertEquals(health.getConsecutiveFailures(), 2);
+        assertTrue(health.getRemainingCooldown().isPresent());
+        assertEquals(resolver.getRepositoryHealth().get(server.getUrl()).getState(), State.CLOSED);
+
+        // the open repository is not contacted at all
+        int requests = broken.getRequestCount("");
+        assertResolved(resolver.resolveArtifacts(new DefaultArtifact("com.example:other:1.0")), 1);
+        assertEquals(broken.getRequestCount(""), requests);
+    }
+
+    @Test
+    public void testRecovery()
+    {
+        TestingTicker ticker = new TestingTicker();
+        ArtifactResolver resolver = resolver(ImmutableList.of(broken.getUrl(), server.getUrl()), new ArtifactResolverConfig()
+                .setRepositoryFailureThreshold(1)
+                .setRepositoryCooldown(Duration.ofSeconds(2))
+                .setTransferRetries(0)
+                .setTicker(ticker));
+
+        assertResolved(resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0")), 3);
+        assertEquals(resolver.getRepositoryHealth().get(broken.getUrl()).getState(), State.OPEN);
+
+        broken.dropRequests(0);
+        ticker.advance(Duration.ofMillis(1999));
+        assertEquals(resolver.getRepositoryHealth().get(broken.getUrl()).getState(), State.OPEN);
+        ticker.advance(Duration.ofMillis(1));
+        RepositoryHealth health = resolver.getRepositoryHealth().get(broken.getUrl());
+        assertEquals(health.getState(), State.HALF_OPEN);
+        assertFalse(health.getRemainingCooldown().isPresent());
+
+        // the next transfer probes the repository, which is back
+        assertResolved(resolver.resolveArtifacts(new DefaultArtifact("com.example:other:1.0")), 1);
+        assertEquals(broken.getRequestCount("/other-1.0.pom"), 1);
+        health = resolver.getRepositoryHealth().get(broken.getUrl());
+        assertEquals(health.getState(), State.CLOSED);
+        assertEquals(health.getConsecutiveFailures(), 0);
+    }
+
+    @Test
+    public void testRetry()
+    {
+        server.failRequests(2);
+        ArtifactResolver resolver = resolver(ImmutableList.of(server.getUrl()), new ArtifactResolverConfig()
+                .setTransferRetries(2)
+                .setTransferRetryBackoff(Duration.ofMillis(10)));
+
+        assertResolved(resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0")), 3);
+        assertEquals(server.getRequestCount("/app-1.0.pom"), 3);
+        // the failed attempts were retried successfully, so the repository did not fail
+        RepositoryHealth health = resolver.getRepositoryHealth().get(server.getUrl());
+        assertEquals(health.getState(), State.CLOSED);
+        assertEquals(health.getTotalFailures(), 0);
+    }
+
+    @Test
+    public void testFailureCountedAfterRetries()
+            throws IOException
+    {
+        try (TestingRepositoryServer failing = new TestingRepositoryServer(repository.getDirectory()).failRequests(Integer.MAX_VALUE)) {
+            ArtifactResolver resolver = resolver(ImmutableList.of(failing.getUrl(), server.getUrl()), new ArtifactResolverConfig()
+                    .setRepositoryFailureThreshold(0)
+                    .setTransferRetries(2)
+                    .setTransferRetryBackoff(Duration.ofMillis(10)));
+
+            assertResolved(resolver.resolveArtifacts(new DefaultArtifact("com.example:other:1.0")), 1);
+            assertEquals(failing.getRequestCount("/other-1.0.pom"), 3);
+            assertEquals(failing.getRequestCount("/other-1.0.jar"), 3);
+
+            // each transfer made three attempts, and failed once
+            RepositoryHealth health = resolver.getRepositoryHealth().get(failing.getUrl());
+            assertEquals(health.getState(), State.CLOSED);
+            assertEquals(health.getTotalFailures(), 2);
+        }
+    }
+
+    @Test
+    public void testMissingArtifactIsNotFailure()
+    {
+        ArtifactResolver resolver = resolver(ImmutableList.of(server.getUrl()), new ArtifactResolverConfig()
+                .setRepositoryFailureThreshold(1));
+
+        List<Artifact> artifacts = resolver.resolveArtifacts(new DefaultArtifact("com.example:missing:1.0"));
+        assertEquals(artifacts.size(), 1);
+        assertEquals(artifacts.get(0).getFile(), null);
+        assertEquals(resolver.getRepositoryHealth().get(server.getUrl()).getState(), State.CLOSED);
+        assertEquals(resolver.getRepositoryHealth().get(server.getUrl()).getTotalFailures(), 0);
+    }
+
+    private ArtifactResolver resolver(List<String> repositories, ArtifactResolverConfig config)
+    {
+        return new ArtifactResolver(localRepository.getPath(), repositories, config);
+    }
+
+    private static void assertResolved(List<Artifact> artifacts, int count)
+    {
+        assertEquals(artifacts.size(), count);
+        for (Artifact artifact : artifacts) {
+            assertTrue(artifact.getFile() != null && artifact.getFile().isFile(), artifact.toString());
+        }
+    }
+
+    private static class TestingTicker
+            extends Ticker
+    {
+        private long nanos;
+
+        @Override
+        public synchronized long read()
+        {
+            return nanos;
+        }
+
+        public synchronized void advance(Duration duration)
+        {
+            nanos += duration.toNanos();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import io.airlift.resolver.internal.AccessLog;
+import io.airlift.resolver.internal.FileDigests;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.airlift.resolver.ArtifactResolver.ACCESS_LOG_FILE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class RepositoryProxyTest
+{
+    private static final String JAR_PATH = "/com/example/a/1.0/a-1.0.jar";
+
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer upstream;
+    private File directory;
+    private RepositoryProxy proxy;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:a:1.0")
+                .addArtifact("com.example:a:1.0");
+        upstream = new TestingRepositoryServer(repository.getDirectory());
+        directory = Files.createTempDirectory("repository-proxy").toFile();
+        ArtifactResolver resolver = new ArtifactResolver(new File(directory, "proxy").getPath(), upstream.getUrl());
+        proxy = resolver.startProxy(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        proxy.close();
+        upstream.close();
+        repository.close();
+        deleteRecursively(directory.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testResolveThroughProxy()
+    {
+        assertResolved(resolver("first").resolveArtifacts(new DefaultArtifact("com.example:app:1.0")));
+        assertEquals(upstream.getRequestCount("a-1.0.jar"), 1);
+        long upstreamRequests = proxy.getUpstreamRequestCount();
+        // the checksum files were fetched with the files they belong to
+        assertEquals(proxy.getHitCount(), proxy.getRequestCount() / 2);
+
+        // another resolver on the host is served from the local repository of the proxy
+        upstream.resetStatistics();
+        assertResolved(resolver("second").resolveArtifacts(new DefaultArtifact("com.example:app:1.0")));
+        assertEquals(upstream.getRequestCount(".jar"), 0);
+        assertEquals(upstream.getRequestCount(".pom"), 0);
+        assertEquals(proxy.getUpstreamRequestCount(), upstreamRequests);
+        assertEquals(proxy.getHitRatio(), 0.75);
+    }
+
+    @Test
+    public void testCorruptedDownload()
+            throws Exception
+    {
+        File jar = new File(repository.getDirectory(), JAR_PATH);
+        Files.write(new File(jar.getPath() + ".sha1").toPath(), "0000000000000000000000000000000000000000".getBytes(UTF_8));
+
+        // the download is not published, so the next request fetches it again
+        assertEquals(get(JAR_PATH).statusCode(), 502);
+        assertFalse(new File(directory, "proxy" + JAR_PATH).exists());
+        assertEquals(get(JAR_PATH).statusCode(), 502);
+        assertEquals(upstream.getRequestCount(JAR_PATH), 2);
+
+        Files.write(new File(jar.getPath() + ".sha1").toPath(), FileDigests.digest(jar, "SHA-1").getBytes(UTF_8));
+        assertEquals(get(JAR_PATH).statusCode(), 200);
+        assertTrue(new File(directory, "proxy" + JAR_PATH).isFile());
+    }
+
+    @Test
+    public void testAccessesAreRecorded()
+            throws Exception
+    {
+        assertEquals(get(JAR_PATH).statusCode(), 200);
+        assertEquals(get(JAR_PATH).statusCode(), 200);
+        assertEquals(get("/com/example/app/1.0/app-1.0.pom").statusCode(), 200);
+        assertEquals(get("/com/example/missing/1.0/missing-1.0.jar").statusCode(), 404);
+        proxy.close();
+
+        Map<String, Long> accessTimes = new AccessLog(new File(directory, "proxy/" + ACCESS_LOG_FILE).toPath()).getAccessTimes();
+        assertEquals(accessTimes.keySet(), ImmutableSet.of("com/example/a/1.0", "com/example/app/1.0"));
+    }
+
+    @Test
+    public void testConcurrentRequestsAreCoalesced()
+            throws Exception
+    {
+        upstream.setLatency(Duration.ofMillis(500));
+        ExecutorService executor = newFixedThreadPool(8);
+        try {
+            List<Future<Response>> responses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                responses.add(executor.submit(() -> get(JAR_PATH)));
+            }
+            byte[] expected = Files.readAllBytes(new File(repository.getDirectory(), JAR_PATH).toPath());
+            for (Future<Response> response : responses) {
+                assertEquals(response.get().statusCode(), 200);
+                assertEquals(response.get().body(), expected);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(upstream.getRequestCount(JAR_PATH), 1);
+        assertEquals(proxy.getRequestCount(), 8);
+        assertEquals(proxy.getHitCount(), 7);
+        assertTrue(proxy.getCoalescedRequestCount() > 0);
+    }
+
+    @Test
+    public void testCoalescedMissesAreNotHits()
+            throws Exception
+    {
+        upstream.setLatency(Duration.ofMillis(500));
+        ExecutorService executor = newFixedThreadPool(8);
+        try {
+            List<Future<Response>> responses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                responses.add(executor.submit(() -> get("/com/example/missing/1.0/missing-1.0.jar")));
+            }
+            for (Future<Response> response : responses) {
+                assertEquals(response.get().statusCode(), 404);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(proxy.getRequestCount(), 8);
+        assertTrue(proxy.getCoalescedRequestCount() > 0);
+        assertEquals(proxy.getHitCount(), 0);
+    }
+
+    @Test
+    public void testMetadataIsNotCached()
+            throws Exception
+    {
+        File metadata = new File(repository.getDirectory(), "com/example/a/maven-metadata.xml");
+        Files.write(metadata.toPath(), "<metadata>1</metadata>".getBytes(UTF_8));
+        assertEquals(get("/com/example/a/maven-metadata.xml").body(), "<metadata>1</metadata>".getBytes(UTF_8));
+
+        Files.write(metadata.toPath(), "<metadata>2</metadata>".getBytes(UTF_8));
+        assertEquals(get("/com/example/a/maven-metadata.xml").body(), "<metadata>2</metadata>".getBytes(UTF_8));
+
+        // the last copy is served while upstream is down
+        upstream.failRequests(1);
+        Response response = get("/com/example/a/maven-metadata.xml");
+        assertEquals(response.statusCode(), 200);
+        assertEquals(response.body(), "<metadata>2</metadata>".getBytes(UTF_8));
+        assertEquals(upstream.getRequestCount("maven-metadata.xml"), 3);
+    }
+
+    @Test
+    public void testErrors()
+            throws Exception
+    {
+        assertEquals(get("/com/example/missing/1.0/missing-1.0.jar").statusCode(), 404);
+
+        upstream.failRequests(1);
+        assertEquals(get(JAR_PATH).statusCode(), 502);
+        assertEquals(get(JAR_PATH).statusCode(), 200);
+
+        // the files of the resolver and anything outside the repository are not served
+        Files.write(new File(directory, "proxy/.access-log").toPath(), new byte[1]);
+        Files.write(new File(directory, "secret").toPath(), new byte[1]);
+        assertEquals(get("/.access-log").statusCode(), 404);
+        assertEquals(get("/com/../../secret").statusCode(), 404);
+    }
+
+    private ArtifactResolver resolver(String name)
+    {
+        return new ArtifactResolver(new File(directory, name).getPath(), ImmutableList.of(proxy.getUri().toString()));
+    }
+
+    private Response get(String path)
+            throws IOException
+    {
+        URL url = new URL(proxy.getUri().toString().replaceFirst("/$", "") + path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                return new Response(status, in == null ? new byte[0] : ByteStreams.toByteArray(in));
+            }
+        }
+        finally {
+            connection.disconnect();
+        }
+    }
+
+    private static void assertResolved(List<Artifact> artifacts)
+    {
+        assertEquals(artifacts.size(), 2);
+        for (Artifact artifact : artifacts) {
+            assertTrue(artifact.getFile() != null && artifact.getFile().isFile(), artifact.toString());
+        }
+    }
+
+    private static class Response
+    {
+        private final int statusCode;
+        private final byte[] body;
+
+        public Response(int statusCode, byte[] body)
+        {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        public int statusCode()
+        {
+            return statusCode;
+        }
+
+        public byte[] body()
+        {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class ResolutionDeadlineTest
+{
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer server;
+    private TestingRepositoryServer stallingServer;
+    private File localRepository;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:a:1.0", "com.example:b:1.0")
+                .addArtifact("com.example:a:1.0")
+                .addArtifact("com.example:b:1.0");
+        server = new TestingRepositoryServer(repository.getDirectory());
+        stallingServer = new TestingRepositoryServer(repository.getDirectory())
+                .setLatency(Duration.ofSeconds(60));
+        localRepository = Files.createTempDirectory("resolution-deadline").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        server.close();
+        stallingServer.close();
+        repository.close();
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testComplete()
+    {
+        ResolutionResult result = resolver(server).resolveArtifacts(ImmutableList.of(new DefaultArtifact("com.example:app:1.0")), Duration.ofSeconds(30));
+        assertTrue(result.isComplete(), result.toString());
+        assertFalse(result.isDeadlineExceeded());
+        assertFalse(result.isCancelled());
+        assertEquals(artifactIds(result.getArtifacts()), ImmutableList.of("app", "a", "b"));
+        assertTrue(result.getMissingArtifacts().isEmpty());
+    }
+
+    @Test
+    public void testDeadlineExceeded()
+    {
+        long start = System.nanoTime();
+        ResolutionResult result = resolver(stallingServer).resolveArtifacts(ImmutableList.of(new DefaultArtifact("com.example:app:1.0")), Duration.ofMillis(500));
+        assertTrue(System.nanoTime() - start < SECONDS.toNanos(10), "resolution was not stopped at the deadline");
+
+        assertTrue(result.isDeadlineExceeded());
+        assertFalse(result.isCancelled());
+        assertFalse(result.isComplete());
+        assertEquals(artifactIds(result.getMissingArtifacts()), ImmutableList.of("app"));
+    }
+
+    @Test
+    public void testPartialResult()
+    {
+        // b is only in the stalling repository
+        assertTrue(new File(repository.getArtifactDirectory("com.example", "b", "1.0"), "b-1.0.jar").delete());
+        ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl(), stallingServer.getUrl()));
+        ResolutionResult result = resolver.resolveArtifacts(ImmutableList.of(new DefaultArtifact("com.example:app:1.0")), Duration.ofSeconds(2));
+        assertTrue(result.isDeadlineExceeded());
+        assertEquals(artifactIds(result.getArtifacts()), ImmutableList.of("app", "a", "b"));
+        assertEquals(artifactIds(result.getMissingArtifacts()), ImmutableList.of("b"));
+    }
+
+    private ArtifactResolver resolver(TestingRepositoryServer server)
+    {
+        return new ArtifactResolver(localRepository.getPath(), server.getUrl());
+    }
+
+    private static List<String> artifactIds(List<Artifact> artifacts)
+    {
+        return artifacts.stream()
+                .map(Artifact::getArtifactId)
+                .collect(toList());
+    }
+}
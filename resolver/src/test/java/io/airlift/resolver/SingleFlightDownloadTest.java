@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class SingleFlightDownloadTest
+{
+    private static final int RESOLVERS = 8;
+
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer server;
+    private File localRepository;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:a:1.0", "com.example:b:1.0")
+                .addArtifact("com.example:a:1.0", "com.example:c:1.0")
+                .addArtifact("com.example:b:1.0", "com.example:c:1.0")
+                .addArtifact("com.example:c:1.0");
+        server = new TestingRepositoryServer(repository.getDirectory())
+                .setLatency(Duration.ofMillis(200));
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        server.close();
+        repository.close();
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testConcurrentResolversShareDownloads()
+            throws Exception
+    {
+        ExecutorService executor = newFixedThreadPool(RESOLVERS, new ThreadFactoryBuilder().setNameFormat("resolver-%s").setDaemon(true).build());
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<Artifact>>> futures = new ArrayList<>();
+            for (int i = 0; i < RESOLVERS; i++) {
+                // separate resolvers sharing a local repository, as separate builds in one process would
+                ArtifactResolver resolver = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()));
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+                }));
+            }
+            start.countDown();
+
+            for (Future<List<Artifact>> future : futures) {
+                List<Artifact> artifacts = future.get();
+                assertEquals(artifactIds(artifacts), ImmutableList.of("app", "a", "c", "b"));
+                for (Artifact artifact : artifacts) {
+                    assertTrue(artifact.getFile().isFile(), artifact.toString());
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        // each file is fetched from the origin once, however many resolvers ask for it
+        assertEquals(server.getRequestCount(".pom"), 4);
+        assertEquals(server.getRequestCount(".jar"), 4);
+    }
+
+    @Test
+    public void testLeaderDeadline()
+            throws Exception
+    {
+        server.setLatency(Duration.ofSeconds(1));
+        ArtifactResolver leader = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()));
+        ArtifactResolver follower = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()));
+        ExecutorService executor = newFixedThreadPool(1, new ThreadFactoryBuilder().setNameFormat("leader-%s").setDaemon(true).build());
+        try {
+            Future<ResolutionResult> leading = executor.submit(() -> leader.resolveArtifacts(ImmutableList.of(new DefaultArtifact("com.example:app:1.0")), Duration.ofMillis(300)));
+            Thread.sleep(100);
+
+            // the follower waits for the downloads of the leader, but has no deadline of its own
+            List<Artifact> artifacts = follower.resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+            assertEquals(artifactIds(artifacts), ImmutableList.of("app", "a", "c", "b"));
+            for (Artifact artifact : artifacts) {
+                assertTrue(artifact.getFile().isFile(), artifact.toString());
+            }
+            assertTrue(leading.get().isDeadlineExceeded());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<String> artifactIds(List<Artifact> artifacts)
+    {
+        return artifacts.stream()
+                .map(Artifact::getArtifactId)
+                .collect(toImmutableList());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.testing.SyntheticRepository;
+import io.airlift.resolver.testing.SyntheticRepositoryConfig;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+public class SyntheticRepositoryResolutionTest
+{
+    private File localRepository;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testResolveArtifacts()
+            throws IOException
+    {
+        SyntheticRepositoryConfig config = new SyntheticRepositoryConfig()
+                .setWidth(6)
+                .setDepth(4)
+                .setFanOut(2)
+                .setVersions(3)
+                .setVersionRangeRatio(0.5)
+                .setJarSize(10_000);
+        try (SyntheticRepository repository = new SyntheticRepository(config)) {
+            List<Artifact> artifacts = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(repository.getUrl()))
+                    .resolveArtifacts(new DefaultArtifact(SyntheticRepository.ROOT));
+            assertEquals(coordinates(artifacts), repository.getReachableArtifacts());
+            for (Artifact artifact : artifacts) {
+                assertNotNull(artifact.getFile(), artifact.getArtifactId());
+                if (!artifact.getArtifactId().equals("root")) {
+                    assertTrue(artifact.getFile().length() > config.getJarSize(), artifact.getArtifactId());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testResolvePom()
+            throws IOException
+    {
+        try (SyntheticRepository repository = new SyntheticRepository(new SyntheticRepositoryConfig().setWidth(4).setDepth(3));
+                TestingRepositoryServer server = new TestingRepositoryServer(repository.getDirectory())) {
+            List<Artifact> artifacts = new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()))
+                    .resolvePom(repository.getProjectPom());
+            Set<String> expected = repository.getReachableArtifacts().stream()
+                    .map(coordinates -> coordinates.replace(":root:", ":project:"))
+                    .collect(toImmutableSet());
+            assertEquals(coordinates(artifacts), expected);
+        }
+    }
+
+    private static Set<String> coordinates(List<Artifact> artifacts)
+    {
+        return artifacts.stream()
+                .map(artifact -> artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion())
+                .collect(toImmutableSet());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.resolver.testing.TestingMavenRepository;
+import io.airlift.resolver.testing.TestingRepositoryServer;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static org.testng.Assert.assertEquals;
+
+public class UpdatePolicyTest
+{
+    private static final String METADATA = "/com/example/library/maven-metadata.xml";
+
+    private TestingMavenRepository repository;
+    private TestingRepositoryServer server;
+    private File localRepository;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = new TestingMavenRepository()
+                .addArtifact("com.example:app:1.0", "com.example:library:[1.0,2.0)")
+                .addArtifact("com.example:library:1.0")
+                .addArtifact("com.example:library:1.1");
+        server = new TestingRepositoryServer(repository.getDirectory());
+        localRepository = Files.createTempDirectory("local-repository").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        server.close();
+        repository.close();
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testInterval()
+    {
+        ArtifactResolver resolver = resolver(new ArtifactResolverConfig().setUpdatePolicy(UpdatePolicy.interval(Duration.ofHours(1))));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(resolve(resolver), ImmutableList.of("app:1.0", "library:1.1"));
+        }
+        assertEquals(server.getRequestCount(METADATA), 1);
+    }
+
+    @Test
+    public void testAlways()
+    {
+        ArtifactResolver resolver = resolver(new ArtifactResolverConfig().setUpdatePolicy(UpdatePolicy.always()));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(resolve(resolver), ImmutableList.of("app:1.0", "library:1.1"));
+        }
+        assertEquals(server.getRequestCount(METADATA), 3);
+    }
+
+    @Test
+    public void testNewVersionAfterUpdate()
+            throws IOException
+    {
+        ArtifactResolver resolver = resolver(new ArtifactResolverConfig().setUpdatePolicy(UpdatePolicy.always()));
+        assertEquals(resolve(resolver), ImmutableList.of("app:1.0", "library:1.1"));
+
+        repository.addArtifact("com.example:library:1.2");
+        assertEquals(resolve(resolver), ImmutableList.of("app:1.0", "library:1.2"));
+    }
+
+    @Test
+    public void testRepositoryPolicy()
+            throws IOException
+    {
+        ArtifactResolverConfig config = new ArtifactResolverConfig()
+                .setUpdatePolicy(UpdatePolicy.always())
+                .setUpdatePolicy(server.getUrl(), UpdatePolicy.never());
+        ArtifactResolver resolver = resolver(config);
+        assertEquals(resolve(resolver), ImmutableList.of("app:1.0", "library:1.1"));
+
+        repository.addArtifact("com.example:library:1.2");
+        assertEquals(resolve(resolver), ImmutableList.of("app:1.0", "library:1.1"));
+        assertEquals(resolve(resolver(config)), ImmutableList.of("app:1.0", "library:1.1"));
+        assertEquals(server.getRequestCount(METADATA), 1);
+    }
+
+    private ArtifactResolver resolver(ArtifactResolverConfig config)
+    {
+        return new ArtifactResolver(localRepository.getPath(), ImmutableList.of(server.getUrl()), config);
+    }
+
+    private static List<String> resolve(ArtifactResolver resolver)
+    {
+        List<Artifact> artifacts = resolver.resolveArtifacts(new DefaultArtifact("com.example:app:1.0"));
+        return artifacts.stream()
+                .map(artifact -> artifact.getArtifactId() + ":" + artifact.getVersion())
+                .collect(toImmutableList());
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.impl.internal.SimpleLocalRepositoryManager;
+import org.sonatype.aether.repository.LocalArtifactRequest;
+import org.sonatype.aether.repository.LocalArtifactResult;
+import org.sonatype.aether.repository.LocalRepositoryManager;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Looks up artifacts that are already in the local repository, the way every
+ * resolution does for each node of the graph, either on the file system or
+ * through a {@link LocalRepositoryIndex}. Besides the time, reports the average
+ * number of file system checks per operation as {@code fileChecks}. The index
+ * does not touch the file system for indexed files, so every check counted is
+ * one made by the simple local repository manager.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class BenchmarkLocalRepositoryIndex
+{
+    private static final int ARTIFACTS = 1_000;
+
+    @Param({"none", "memory"})
+    private String index = "memory";
+
+    private Path repository;
+    private CountingLocalRepositoryManager fileSystem;
+    private RepositorySystemSession session;
+    private final List<Artifact> artifacts = new ArrayList<>();
+
+    @Setup
+    public void setup()
+            throws IOException
+    {
+        repository = Files.createTempDirectory("local-repository");
+        fileSystem = new CountingLocalRepositoryManager(repository.toFile());
+        for (int i = 0; i < ARTIFACTS; i++) {
+            Artifact artifact = new DefaultArtifact("com.example", "artifact-" + i, "jar", "1.0");
+            Path file = repository.resolve(fileSystem.getPathForLocalArtifact(artifact));
+            Files.createDirectories(file.getParent());
+            Files.write(file, artifact.toString().getBytes(UTF_8));
+            artifacts.add(artifact);
+        }
+
+        LocalRepositoryManager manager = index.equals("memory")
+                ? new IndexedLocalRepositoryManager(fileSystem, new LocalRepositoryIndex(repository))
+                : fileSystem;
+        session = new DefaultRepositorySystemSession().setLocalRepositoryManager(manager);
+
+        // the first resolution indexes the files it finds
+        lookup();
+    }
+
+    @TearDown
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(repository, ALLOW_INSECURE);
+    }
+
+    @Benchmark
+    public int find(FileChecks fileChecks)
+    {
+        long before = fileSystem.finds;
+        int found = lookup();
+        fileChecks.record(fileSystem.finds - before);
+        return found;
+    }
+
+    private int lookup()
+    {
+        int found = 0;
+        for (Artifact artifact : artifacts) {
+            LocalArtifactResult result = session.getLocalRepositoryManager().find(session, new LocalArtifactRequest(artifact, ImmutableList.of(), ""));
+            if (result.isAvailable()) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Counts the lookups made on the file system, each of which checks whether
+     * the file exists.
+     */
+    private static class CountingLocalRepositoryManager
+            extends SimpleLocalRepositoryManager
+    {
+        private long finds;
+
+        public CountingLocalRepositoryManager(File basedir)
+        {
+            super(basedir);
+        }
+
+        @Override
+        public LocalArtifactResult find(RepositorySystemSession session, LocalArtifactRequest request)
+        {
+            finds++;
+            return super.find(session, request);
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class FileChecks
+    {
+        // read by JMH at the end of each iteration
+        public long fileChecks;
+
+        private long totalChecks;
+        private long operations;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            fileChecks = 0;
+            totalChecks = 0;
+            operations = 0;
+        }
+
+        private void record(long checks)
+        {
+            totalChecks += checks;
+            operations++;
+            fileChecks = totalChecks / operations;
+        }
+    }
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkLocalRepositoryIndex.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
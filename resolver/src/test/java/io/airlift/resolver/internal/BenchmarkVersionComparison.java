@@ -0,0 +1,139 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import org.sonatype.aether.util.version.GenericVersionScheme;
+import org.sonatype.aether.version.Version;
+import org.sonatype.aether.version.VersionConstraint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the versions of a large dependency graph the way conflict mediation
+ * does: sorting the candidates, picking the highest one and checking each
+ * against the ranges declared for it.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class BenchmarkVersionComparison
+{
+    private static final int VERSIONS = 10_000;
+    private static final int RANGES = 100;
+
+    @Param({"generic", "packed"})
+    private String model = "packed";
+
+    private final List<Version> versions = new ArrayList<>();
+    private final List<VersionConstraint> constraints = new ArrayList<>();
+
+    @Setup
+    public void setup()
+            throws Exception
+    {
+        GenericVersionScheme scheme = new GenericVersionScheme();
+        boolean packed = model.equals("packed");
+        Random random = new Random(42);
+
+        for (int i = 0; i < VERSIONS; i++) {
+            Version version = scheme.parseVersion(randomVersion(random));
+            versions.add(packed ? PackedVersion.of(version) : version);
+        }
+        for (int i = 0; i < RANGES; i++) {
+            int major = random.nextInt(5);
+            VersionConstraint constraint = scheme.parseVersionConstraint("[" + major + "." + random.nextInt(10) + "," + (major + 1) + ".0)");
+            constraints.add(packed ? PackedVersionConstraint.of(constraint) : constraint);
+        }
+    }
+
+    @Benchmark
+    public List<Version> sort()
+    {
+        List<Version> sorted = new ArrayList<>(versions);
+        sorted.sort(null);
+        return sorted;
+    }
+
+    @Benchmark
+    public Version max()
+    {
+        Version max = versions.get(0);
+        for (Version version : versions) {
+            if (version.compareTo(max) > 0) {
+                max = version;
+            }
+        }
+        return max;
+    }
+
+    @Benchmark
+    public int containsVersion()
+    {
+        int matches = 0;
+        for (VersionConstraint constraint : constraints) {
+            for (int i = 0; i < versions.size(); i += RANGES) {
+                if (constraint.containsVersion(versions.get(i))) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static String randomVersion(Random random)
+    {
+        StringBuilder version = new StringBuilder()
+                .append(random.nextInt(6))
+                .append('.')
+                .append(random.nextInt(20));
+        if (random.nextBoolean()) {
+            version.append('.').append(random.nextInt(30));
+        }
+        if (random.nextInt(5) == 0) {
+            version.append("-SNAPSHOT");
+        }
+        return version.toString();
+    }
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkVersionComparison.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.sonatype.aether.transfer.AbstractTransferListener;
+import org.sonatype.aether.transfer.TransferEvent;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class ChecksumVerifierTest
+{
+    private File localRepository;
+    private File indexFile;
+    private final List<TransferEvent> corruptedEvents = new CopyOnWriteArrayList<>();
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        localRepository = Files.createTempDirectory("checksum-verifier").toFile();
+        indexFile = new File(localRepository, ".verified-checksums");
+        corruptedEvents.clear();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(localRepository.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testVerify()
+            throws IOException
+    {
+        File good = file("good.jar", "good contents");
+        writeChecksum(good, ".sha1", FileDigests.digest(good, "SHA-1"));
+        writeChecksum(good, ".sha256", FileDigests.digest(good, "SHA-256"));
+
+        File bad = file("bad.jar", "bad contents");
+        writeChecksum(bad, ".sha1", FileDigests.digest(file("other.jar", "other contents"), "SHA-1"));
+
+        File unverifiable = file("unverifiable.jar", "no checksum");
+
+        assertEquals(newVerifier().verify(ImmutableList.of(good, bad, unverifiable)), ImmutableSet.of(bad));
+        assertEquals(corruptedEvents.size(), 1);
+        assertEquals(corruptedEvents.get(0).getResource().getResourceName(), "bad.jar");
+        assertEquals(corruptedEvents.get(0).getType(), TransferEvent.EventType.CORRUPTED);
+    }
+
+    @Test
+    public void testVerifiedFilesAreNotHashedAgain()
+            throws IOException
+    {
+        File file = file("library.jar", "library contents");
+        writeChecksum(file, ".sha1", FileDigests.digest(file, "SHA-1"));
+        assertEquals(newVerifier().verify(ImmutableList.of(file)), ImmutableSet.of());
+        assertTrue(indexFile.isFile());
+
+        // same size and modification time, so the recorded verification is trusted
+        FileTime lastModified = Files.getLastModifiedTime(file.toPath());
+        Files.write(file.toPath(), "LIBRARY CONTENTS".getBytes(UTF_8));
+        Files.setLastModifiedTime(file.toPath(), lastModified);
+        assertEquals(newVerifier().verify(ImmutableList.of(file)), ImmutableSet.of());
+
+        // a changed modification time forces verification
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(lastModified.toMillis() + 10_000));
+        assertEquals(newVerifier().verify(ImmutableList.of(file)), ImmutableSet.of(file));
+    }
+
+    @Test
+    public void testIndexReloaded()
+            throws IOException
+    {
+        File sha1 = file("sha1.jar", "sha1 contents");
+        writeChecksum(sha1, ".sha1", FileDigests.digest(sha1, "SHA-1"));
+        File sha256 = file("sha256.jar", "sha256 contents");
+        writeChecksum(sha256, ".sha256", FileDigests.digest(sha256, "SHA-256"));
+        assertEquals(newVerifier().verify(ImmutableList.of(sha1, sha256)), ImmutableSet.of());
+
+        VerifiedChecksumIndex index = new VerifiedChecksumIndex(indexFile.toPath());
+        assertTrue(index.isVerified(sha1.toPath()));
+        assertTrue(index.isVerified(sha256.toPath()));
+
+        // lines of the older format with a SHA-1 column are verified again
+        String legacyLine = sha1.length() + "\t" + sha1.lastModified() + "\t" + FileDigests.digest(sha1, "SHA-1") + "\t" + sha1.getAbsolutePath();
+        Files.write(indexFile.toPath(), ImmutableList.of(legacyLine), UTF_8);
+        assertFalse(new VerifiedChecksumIndex(indexFile.toPath()).isVerified(sha1.toPath()));
+    }
+
+    private ChecksumVerifier newVerifier()
+    {
+        AbstractTransferListener listener = new AbstractTransferListener()
+        {
+            @Override
+            public void transferCorrupted(TransferEvent event)
+            {
+                corruptedEvents.add(event);
+            }
+        };
+        return new ChecksumVerifier(localRepository, new VerifiedChecksumIndex(indexFile.toPath()), listener, 2);
+    }
+
+    private File file(String name, String contents)
+            throws IOException
+    {
+        File file = new File(localRepository, name);
+        Files.write(file.toPath(), contents.getBytes(UTF_8));
+        return file;
+    }
+
+    private static void writeChecksum(File file, String extension, String checksum)
+            throws IOException
+    {
+        Files.write(new File(file.getPath() + extension).toPath(), checksum.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class LocalRepositoryIndexTest
+{
+    private Path repository;
+    private Path indexFile;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        repository = Files.createTempDirectory("local-repository");
+        indexFile = repository.resolve(".index");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(repository, ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testInMemory()
+            throws IOException
+    {
+        LocalRepositoryIndex index = new LocalRepositoryIndex(repository);
+        writeFile("com/example/a/1.0/a-1.0.jar");
+        assertFalse(index.contains("com/example/a/1.0/a-1.0.jar"));
+
+        index.add("com/example/a/1.0/a-1.0.jar");
+        assertTrue(index.contains("com/example/a/1.0/a-1.0.jar"));
+        assertFalse(index.contains("com/example/a/1.0/a-1.0.pom"));
+
+        index.remove("com/example/a/1.0/a-1.0.jar");
+        assertFalse(index.contains("com/example/a/1.0/a-1.0.jar"));
+
+        // only files in the repository are added
+        index.add("com/example/a/1.0/a-1.0.pom");
+        assertFalse(index.contains("com/example/a/1.0/a-1.0.pom"));
+
+        // nothing is written without an index file
+        index.add("com/example/a/1.0/a-1.0.jar");
+        index.save();
+        assertFalse(Files.exists(indexFile));
+    }
+
+    @Test
+    public void testSaveAndLoad()
+            throws IOException
+    {
+        LocalRepositoryIndex index = new LocalRepositoryIndex(repository, indexFile);
+        for (int i = 0; i < 1000; i++) {
+            writeFile("com/example/a/1." + i + "/a-1." + i + ".jar");
+            index.add("com/example/a/1." + i + "/a-1." + i + ".jar");
+        }
+        index.save();
+        assertTrue(Files.isRegularFile(indexFile));
+
+        index.remove("com/example/a/1.7/a-1.7.jar");
+        writeFile("com/example/b/1.0/b-1.0.jar");
+        index.add("com/example/b/1.0/b-1.0.jar");
+        assertFalse(index.contains("com/example/a/1.7/a-1.7.jar"));
+        index.save();
+
+        LocalRepositoryIndex loaded = new LocalRepositoryIndex(repository, indexFile);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(loaded.contains("com/example/a/1." + i + "/a-1." + i + ".jar"), i != 7);
+        }
+        assertTrue(loaded.contains("com/example/b/1.0/b-1.0.jar"));
+        assertFalse(loaded.contains("com/example/c/1.0/c-1.0.jar"));
+
+        // changes to a loaded index shadow the file
+        loaded.remove("com/example/b/1.0/b-1.0.jar");
+        loaded.add("com/example/a/1.7/a-1.7.jar");
+        assertFalse(loaded.contains("com/example/b/1.0/b-1.0.jar"));
+        assertTrue(loaded.contains("com/example/a/1.7/a-1.7.jar"));
+    }
+
+    @Test
+    public void testCheck()
+            throws IOException
+    {
+        writeFile("com/example/a/1.0/a-1.0.jar");
+        writeFile("com/example/a/1.0/a-1.0.pom");
+        writeFile("com/example/b/1.0/b-1.0.jar");
+
+        LocalRepositoryIndex index = new LocalRepositoryIndex(repository, indexFile);
+        index.add("com/example/a/1.0/a-1.0.jar");
+        index.add("com/example/a/1.0/a-1.0.pom");
+        index.add("com/example/b/1.0/b-1.0.jar");
+        index.save();
+
+        // deleted, and replaced with different contents
+        Files.delete(repository.resolve("com/example/a/1.0/a-1.0.pom"));
+        Files.write(repository.resolve("com/example/b/1.0/b-1.0.jar"), "replaced".getBytes(UTF_8));
+
+        LocalRepositoryIndex loaded = new LocalRepositoryIndex(repository, indexFile);
+        assertEquals(loaded.check(), 2);
+        assertEquals(loaded.check(), 0);
+        assertTrue(loaded.contains("com/example/a/1.0/a-1.0.jar"));
+        assertFalse(loaded.contains("com/example/a/1.0/a-1.0.pom"));
+        assertFalse(loaded.contains("com/example/b/1.0/b-1.0.jar"));
+    }
+
+    @Test
+    public void testChangedFile()
+            throws IOException
+    {
+        writeFile("com/example/a/1.0/a-1.0.jar");
+        LocalRepositoryIndex index = new LocalRepositoryIndex(repository, indexFile);
+        index.add("com/example/a/1.0/a-1.0.jar");
+        index.save();
+
+        // lookups trust the index, and only a check sees changes
+        Path file = repository.resolve("com/example/a/1.0/a-1.0.jar");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() - 10_000));
+        LocalRepositoryIndex loaded = new LocalRepositoryIndex(repository, indexFile);
+        assertTrue(loaded.contains("com/example/a/1.0/a-1.0.jar"));
+        assertEquals(loaded.check(), 1);
+        assertFalse(loaded.contains("com/example/a/1.0/a-1.0.jar"));
+
+        loaded.add("com/example/a/1.0/a-1.0.jar");
+        assertTrue(loaded.contains("com/example/a/1.0/a-1.0.jar"));
+        Files.delete(file);
+        assertTrue(loaded.contains("com/example/a/1.0/a-1.0.jar"));
+        assertEquals(loaded.check(), 1);
+        assertFalse(loaded.contains("com/example/a/1.0/a-1.0.jar"));
+    }
+
+    @Test
+    public void testDamagedIndex()
+            throws IOException
+    {
+        Files.write(indexFile, "not an index".getBytes(UTF_8));
+        writeFile("com/example/a/1.0/a-1.0.jar");
+        LocalRepositoryIndex index = new LocalRepositoryIndex(repository, indexFile);
+        assertFalse(index.contains("com/example/a/1.0/a-1.0.jar"));
+
+        index.add("com/example/a/1.0/a-1.0.jar");
+        index.save();
+        assertTrue(new LocalRepositoryIndex(repository, indexFile).contains("com/example/a/1.0/a-1.0.jar"));
+    }
+
+    private void writeFile(String path)
+            throws IOException
+    {
+        Path file = repository.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, path.getBytes(UTF_8));
+    }
+}
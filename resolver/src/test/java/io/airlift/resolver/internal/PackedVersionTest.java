@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.resolver.internal;
+
+import com.google.common.collect.ImmutableList;
+import org.sonatype.aether.util.version.GenericVersionScheme;
+import org.sonatype.aether.version.InvalidVersionSpecificationException;
+import org.sonatype.aether.version.Version;
+import org.sonatype.aether.version.VersionConstraint;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.lang.Integer.signum;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class PackedVersionTest
+{
+    private static final GenericVersionScheme SCHEME = new GenericVersionScheme();
+
+    private static final List<String> EDGE_CASES = ImmutableList.of(
+            "1", "1.0", "1.0.0", "1.0.0.0", "1.0.0.0.0", "1.0.0.0.1",
+            "1.2.3", "1.2.3.0.0", "1.2.3.4", "1.2.3.4.5",
+            "0", "0.0.1", "2", "10", "16383", "16384", "99999999999",
+            "1-SNAPSHOT", "1.0-SNAPSHOT", "1.0.0-snapshot", "1.0.1-SNAPSHOT", "1.0.0.1", "1.0.0.0.1-SNAPSHOT",
+            "1.0-alpha-1", "1.0-beta", "1.0-rc1", "1.0-RC1", "1.0.Final", "1.0-sp", "1.0-ga", "1.0-1",
+            "1..0", "1.", ".1", "-SNAPSHOT", "SNAPSHOT", "1.0-SNAPSHOT-SNAPSHOT", "1_0", "1.0a");
+
+    @Test
+    public void testPacked()
+            throws Exception
+    {
+        assertTrue(packed("1").isPacked());
+        assertTrue(packed("1.2.3.4").isPacked());
+        assertTrue(packed("1.2.3.4.0.0").isPacked());
+        assertTrue(packed("16383.0-SNAPSHOT").isPacked());
+        assertTrue(packed("1.0-snapshot").isPacked());
+        assertFalse(packed("1.2.3.4.5").isPacked());
+        assertFalse(packed("16384").isPacked());
+        assertFalse(packed("1.0-alpha-1").isPacked());
+        assertFalse(packed("1..0").isPacked());
+    }
+
+    @Test
+    public void testEdgeCases()
+            throws Exception
+    {
+        assertConsistent(EDGE_CASES);
+    }
+
+    @Test
+    public void testGenerated()
+            throws Exception
+    {
+        Random random = new Random(42);
+        List<String> versions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            versions.add(randomVersion(random));
+        }
+        assertConsistent(versions);
+    }
+
+    @Test
+    public void testConstraint()
+            throws Exception
+    {
+        VersionConstraint constraint = PackedVersionConstraint.of(SCHEME.parseVersionConstraint("[1.0,2.0)"));
+        assertTrue(constraint.containsVersion(packed("1.0")));
+        assertTrue(constraint.containsVersion(packed("1.9.9-SNAPSHOT")));
+        assertTrue(constraint.containsVersion(SCHEME.parseVersion("1.5")));
+        assertFalse(constraint.containsVersion(packed("2.0")));
+        assertFalse(constraint.containsVersion(packed("1.0-SNAPSHOT")));
+        assertTrue(constraint.getRanges().iterator().next().containsVersion(packed("1.0.0.0")));
+
+        VersionConstraint soft = PackedVersionConstraint.of(SCHEME.parseVersionConstraint("1.0"));
+        assertEquals(soft.getVersion(), packed("1.0.0"));
+        assertTrue(soft.containsVersion(packed("1")));
+    }
+
+    private static void assertConsistent(List<String> versions)
+            throws InvalidVersionSpecificationException
+    {
+        List<Version> generic = new ArrayList<>();
+        List<PackedVersion> packed = new ArrayList<>();
+        for (String version : versions) {
+            Version parsed = SCHEME.parseVersion(version);
+            generic.add(parsed);
+            packed.add(PackedVersion.of(parsed));
+        }
+
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(packed.get(i).hashCode(), generic.get(i).hashCode());
+            assertEquals(packed.get(i).toString(), generic.get(i).toString());
+            for (int j = 0; j < versions.size(); j++) {
+                String message = versions.get(i) + " <=> " + versions.get(j);
+                int expected = signum(generic.get(i).compareTo(generic.get(j)));
+                assertEquals(signum(packed.get(i).compareTo(packed.get(j))), expected, message);
+                assertEquals(signum(packed.get(i).compareTo(generic.get(j))), expected, message);
+                assertEquals(packed.get(i).equals(packed.get(j)), expected == 0, message);
+            }
+        }
+    }
+
+    private static String randomVersion(Random random)
+    {
+        StringBuilder version = new StringBuilder();
+        int segments = 1 + random.nextInt(6);
+        for (int i = 0; i < segments; i++) {
+            if (i > 0) {
+                version.append('.');
+            }
+            int bound = random.nextInt(10) == 0 ? 20000 : 4;
+            version.append(random.nextInt(bound));
+        }
+        switch (random.nextInt(6)) {
+            case 0:
+                version.append("-SNAPSHOT");
+                break;
+            case 1:
+                version.append("-snapshot");
+                break;
+            case 2:
+                version.append(random.nextBoolean() ? "-alpha-" : "-rc").append(random.nextInt(3));
+                break;
+            default:
+                break;
+        }
+        return version.toString();
+    }
+
+    private static PackedVersion packed(String version)
+            throws InvalidVersionSpecificationException
+    {
+        return PackedVersion.of(SCHEME.parseVersion(version));
+    }
+}